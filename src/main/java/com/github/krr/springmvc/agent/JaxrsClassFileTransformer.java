@@ -0,0 +1,170 @@
+package com.github.krr.springmvc.agent;
+
+import com.github.krr.springmvc.transformer.ClassFileTransformationContext;
+import com.github.krr.springmvc.transformer.JaxrsToSpringMvcTransformer;
+import javassist.ClassPool;
+import javassist.LoaderClassPath;
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.instrument.ClassFileTransformer;
+import java.security.ProtectionDomain;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Transforms the JAX-RS classes as they are loaded.  Classes outside the packages to include are rejected by
+ * comparing their internal name with precomputed prefixes - no allocation, no class file parsing - so they add
+ * next to nothing to class loading.  The classes of the included packages go through the prefilter and are only
+ * built by javassist if their hierarchy refers to JAX-RS.
+ * <p>
+ * The hierarchy of a class is read from its class loader as resources, so transforming a class never loads another
+ * class.  Each class loader gets its own class pool and annotation cache, so that classes of the same name in two
+ * class loaders (for e.g. two web applications using different versions of an API) are resolved separately, and
+ * released along with their class loader.
+ */
+@Slf4j
+public class JaxrsClassFileTransformer implements ClassFileTransformer {
+
+  private final JaxrsToSpringMvcTransformer transformer;
+
+  /**
+   * The internal names of the packages to include (for e.g. com/example/api) or null if all packages are included
+   * or some pattern is a glob.
+   */
+  private final String[] includedPackagePrefixes;
+
+  private final Map<ClassLoader, ClassFileTransformationContext> contexts = new WeakHashMap<>();
+
+  /**
+   * Set while this thread is transforming a class, so that the classes loaded by the transformation itself are not
+   * transformed.
+   */
+  private final ThreadLocal<Boolean> transforming = ThreadLocal.withInitial(() -> Boolean.FALSE);
+
+  private final AtomicLong examinedCount = new AtomicLong();
+
+  private final AtomicLong rejectedCount = new AtomicLong();
+
+  private final AtomicLong transformedCount = new AtomicLong();
+
+  private final AtomicLong failedCount = new AtomicLong();
+
+  private final AtomicLong transformNanos = new AtomicLong();
+
+  public JaxrsClassFileTransformer(JaxrsToSpringMvcTransformer transformer) {
+    this.transformer = transformer;
+    this.includedPackagePrefixes = toInternalPrefixes(transformer.getPackageSelector().getLiteralIncludes());
+  }
+
+  @Override
+  public byte[] transform(ClassLoader loader, String className, Class<?> classBeingRedefined,
+                          ProtectionDomain protectionDomain, byte[] classfileBuffer) {
+
+    examinedCount.incrementAndGet();
+    if (loader == null || className == null || classBeingRedefined != null || !isIncluded(className) ||
+        transforming.get()) {
+      rejectedCount.incrementAndGet();
+      return null;
+    }
+    long start = System.nanoTime();
+    transforming.set(Boolean.TRUE);
+    try {
+      ClassFileTransformationContext context = getContext(loader);
+      byte[] transformedClassFile;
+      // class pools are not thread safe
+      synchronized (context) {
+        transformedClassFile = transformer.transformClassFile(context, classfileBuffer);
+      }
+      if (transformedClassFile != null) {
+        transformedCount.incrementAndGet();
+        log.debug("Transformed class {} at load time", className);
+      }
+      return transformedClassFile;
+    }
+    catch (Throwable e) {
+      // a failure must never prevent the class from loading
+      failedCount.incrementAndGet();
+      log.error("Unable to transform class {} - loading it unchanged", className, e);
+      return null;
+    }
+    finally {
+      transforming.set(Boolean.FALSE);
+      transformNanos.addAndGet(System.nanoTime() - start);
+    }
+  }
+
+  /**
+   * @return the number of classes given to this transformer.
+   */
+  public long getExaminedCount() {
+    return examinedCount.get();
+  }
+
+  /**
+   * @return the number of classes rejected by name, without looking at their class file.
+   */
+  public long getRejectedCount() {
+    return rejectedCount.get();
+  }
+
+  public long getTransformedCount() {
+    return transformedCount.get();
+  }
+
+  public long getFailedCount() {
+    return failedCount.get();
+  }
+
+  /**
+   * @return the time spent on the classes that were not rejected by name - the overhead added to class loading.
+   */
+  public long getTransformNanos() {
+    return transformNanos.get();
+  }
+
+  @Override
+  public String toString() {
+    return String.format("JaxrsClassFileTransformer[examined=%d, rejected=%d, transformed=%d, failed=%d, " +
+                         "transformTime=%.1fms]", getExaminedCount(), getRejectedCount(), getTransformedCount(),
+                         getFailedCount(), getTransformNanos() / 1e6);
+  }
+
+  private boolean isIncluded(String internalClassName) {
+    if (includedPackagePrefixes != null && !startsWithIncludedPrefix(internalClassName)) {
+      return false;
+    }
+    // the prefixes cannot tell excluded subpackages apart
+    return transformer.mayTransform(internalClassName.replace('/', '.'));
+  }
+
+  private boolean startsWithIncludedPrefix(String internalClassName) {
+    for (String prefix : includedPackagePrefixes) {
+      if (internalClassName.startsWith(prefix)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private ClassFileTransformationContext getContext(ClassLoader loader) {
+    synchronized (contexts) {
+      return contexts.computeIfAbsent(loader, k -> {
+        ClassPool classPool = new ClassPool(false);
+        classPool.appendClassPath(new LoaderClassPath(loader));
+        classPool.appendSystemPath();
+        return new ClassFileTransformationContext(classPool, transformer.isPrefilterEnabled());
+      });
+    }
+  }
+
+  private static String[] toInternalPrefixes(List<String> literalIncludes) {
+    if (literalIncludes == null) {
+      return null;
+    }
+    return literalIncludes.stream()
+                          .map(packageName -> packageName.replace('.', '/') + "/")
+                          .toArray(String[]::new);
+  }
+}
@@ -0,0 +1,67 @@
+package com.github.krr.springmvc.agent;
+
+import com.github.krr.springmvc.transformer.JaxrsToSpringMvcTransformer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+
+import java.lang.instrument.Instrumentation;
+import java.util.Properties;
+
+/**
+ * A java agent transforming the JAX-RS classes to Spring MVC as they are loaded, for deployments that cannot
+ * transform the classes at build time.  For e.g.
+ * <pre>
+ *   -javaagent:jaxrs-springmvc-transformer.jar=com.example.api,com.example.impl
+ * </pre>
+ * The agent argument is either the comma separated list of packages to include or a semicolon separated list of
+ * the properties accepted by {@link JaxrsToSpringMvcTransformer#configure(Properties)}, for e.g.
+ * {@code packagesToInclude=com.example.api;prefilter=false}.
+ * <p>
+ * The transformer, javassist, Spring MVC and the javassist-maven-plugin must be on the class path of the application.
+ * The transformer extends the {@code ClassTransformer} of the plugin, a {@code provided} dependency that is not
+ * packaged with the transformer, so the agent fails with a {@link NoClassDefFoundError} without it.
+ */
+@Slf4j
+public final class JaxrsSpringMvcAgent {
+
+  private JaxrsSpringMvcAgent() {
+  }
+
+  public static void premain(String agentArgs, Instrumentation instrumentation) {
+    install(agentArgs, instrumentation);
+  }
+
+  public static void agentmain(String agentArgs, Instrumentation instrumentation) {
+    install(agentArgs, instrumentation);
+  }
+
+  static JaxrsClassFileTransformer install(String agentArgs, Instrumentation instrumentation) {
+    JaxrsToSpringMvcTransformer transformer = new JaxrsToSpringMvcTransformer();
+    transformer.configure(parseAgentArgs(agentArgs));
+    JaxrsClassFileTransformer classFileTransformer = new JaxrsClassFileTransformer(transformer);
+    instrumentation.addTransformer(classFileTransformer);
+    log.info("Transforming JaxRs classes at load time in packages {}", transformer.getPackagesToInclude());
+    Runtime.getRuntime().addShutdownHook(new Thread(() -> log.info("{}", classFileTransformer),
+                                                    "jaxrs-springmvc-agent-report"));
+    return classFileTransformer;
+  }
+
+  static Properties parseAgentArgs(String agentArgs) {
+    Properties properties = new Properties();
+    if (StringUtils.isBlank(agentArgs)) {
+      return properties;
+    }
+    if (!agentArgs.contains("=")) {
+      properties.setProperty(JaxrsToSpringMvcTransformer.PACKAGES_TO_INCLUDE_KEY, agentArgs.trim());
+      return properties;
+    }
+    for (String property : StringUtils.split(agentArgs, ';')) {
+      String key = StringUtils.substringBefore(property, "=").trim();
+      String value = StringUtils.substringAfter(property, "=").trim();
+      if (!key.isEmpty()) {
+        properties.setProperty(key, value);
+      }
+    }
+    return properties;
+  }
+}
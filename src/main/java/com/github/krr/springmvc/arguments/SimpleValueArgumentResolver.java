@@ -0,0 +1,316 @@
+package com.github.krr.springmvc.arguments;
+
+import com.github.krr.springmvc.routes.RouteManifest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.asm.Type;
+import org.springframework.core.MethodIntrospector;
+import org.springframework.core.MethodParameter;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.util.ReflectionUtils;
+import org.springframework.util.StringUtils;
+import org.springframework.web.bind.MissingPathVariableException;
+import org.springframework.web.bind.MissingServletRequestParameterException;
+import org.springframework.web.bind.annotation.InitBinder;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ValueConstants;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.method.ControllerAdviceBean;
+import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.View;
+
+import java.lang.reflect.Method;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resolves the {@code @PathVariable} and {@code @RequestParam} parameters of the transformed controllers whose type
+ * is a simple value - a String, a primitive or its wrapper, a UUID or an enum - without creating a
+ * {@code WebDataBinder} and looking up a converter for every request.  The {@link SimpleValueType type} of each
+ * parameter is the one the transformer read from the method signature and recorded in the
+ * {@link RouteManifest route manifest}, so a parameter is only resolved here if its handler method is in a manifest.
+ * <p>
+ * The values are resolved and converted as Spring MVC does with the default conversion service - same defaults, same
+ * exceptions - but custom {@code @InitBinder} methods, editors or converters of these types are not applied, so a
+ * controller declaring an {@code @InitBinder} method, or to which a controller advice declaring one applies, is left
+ * to the generic resolvers.  The converters of the conversion service are not applied either, so only register the
+ * resolver when they do not customize the conversion of these types.  The resolver must be registered ahead of the
+ * generic resolvers, which {@code DirectInvokerHandlerAdapter} does when enabled.
+ */
+@Slf4j
+public class SimpleValueArgumentResolver implements HandlerMethodArgumentResolver {
+
+  /**
+   * Marks the parameters left to the other resolvers in the cache.
+   */
+  private static final SimpleValue NOT_SIMPLE_VALUE = new SimpleValue(null, false, false, null, null, null);
+
+  private final ClassLoader classLoader;
+
+  /**
+   * The controller advice declaring {@code @InitBinder} methods.
+   */
+  private final List<ControllerAdviceBean> initBinderAdvice = new ArrayList<>();
+
+  private final Map<MethodParameter, SimpleValue> simpleValues = new ConcurrentHashMap<>();
+
+  /**
+   * The value types of the parameters of the manifest routes keyed by method, loaded when first needed.
+   */
+  private volatile Map<String, List<String>> valueTypes;
+
+  /**
+   * @param classLoader - the class loader whose classpath holds the route manifests
+   */
+  public SimpleValueArgumentResolver(ClassLoader classLoader) {
+    this(classLoader, Collections.emptyList());
+  }
+
+  /**
+   * @param classLoader      - the class loader whose classpath holds the route manifests
+   * @param controllerAdvice - the controller advice of the application, the parameters of the controllers to which
+   *                         one declaring an {@code @InitBinder} method applies are left to the other resolvers
+   */
+  public SimpleValueArgumentResolver(ClassLoader classLoader, List<ControllerAdviceBean> controllerAdvice) {
+    this.classLoader = classLoader;
+    for (ControllerAdviceBean advice : controllerAdvice) {
+      if (advice.getBeanType() != null && hasInitBinderMethods(advice.getBeanType())) {
+        initBinderAdvice.add(advice);
+      }
+    }
+  }
+
+  @Override
+  public boolean supportsParameter(MethodParameter parameter) {
+    return getSimpleValue(parameter) != NOT_SIMPLE_VALUE;
+  }
+
+  @Override
+  public Object resolveArgument(MethodParameter parameter, ModelAndViewContainer mavContainer,
+                                NativeWebRequest webRequest, WebDataBinderFactory binderFactory) throws Exception {
+    SimpleValue simpleValue = getSimpleValue(parameter);
+    if (simpleValue == NOT_SIMPLE_VALUE) {
+      throw new IllegalStateException("Unsupported parameter " + parameter);
+    }
+    return simpleValue.resolve(parameter, webRequest);
+  }
+
+  private SimpleValue getSimpleValue(MethodParameter parameter) {
+    SimpleValue simpleValue = simpleValues.get(parameter);
+    if (simpleValue == null) {
+      simpleValue = createSimpleValue(parameter);
+      simpleValues.putIfAbsent(parameter, simpleValue);
+    }
+    return simpleValue;
+  }
+
+  private SimpleValue createSimpleValue(MethodParameter parameter) {
+    Method method = parameter.getMethod();
+    if (method == null || parameter.getNestingLevel() != 1) {
+      return NOT_SIMPLE_VALUE;
+    }
+    PathVariable pathVariable = parameter.getParameterAnnotation(PathVariable.class);
+    RequestParam requestParam = parameter.getParameterAnnotation(RequestParam.class);
+    if ((pathVariable == null) == (requestParam == null)) {
+      return NOT_SIMPLE_VALUE;
+    }
+    Class<?> parameterType = parameter.getParameterType();
+    SimpleValueType valueType = findValueType(method, parameter.getParameterIndex());
+    if (valueType == null || !valueType.supports(parameterType) || hasInitBinderMethods(parameter)) {
+      return NOT_SIMPLE_VALUE;
+    }
+    String name;
+    boolean required;
+    String defaultValue = null;
+    if (pathVariable != null) {
+      name = pathVariable.name().isEmpty() ? pathVariable.value() : pathVariable.name();
+      required = pathVariable.required();
+    }
+    else {
+      name = requestParam.name().isEmpty() ? requestParam.value() : requestParam.name();
+      required = requestParam.required();
+      if (!ValueConstants.DEFAULT_NONE.equals(requestParam.defaultValue())) {
+        defaultValue = requestParam.defaultValue();
+        if (defaultValue.contains("${") || defaultValue.contains("#{")) {
+          // placeholders and expressions are resolved by the bean factory
+          return NOT_SIMPLE_VALUE;
+        }
+      }
+    }
+    if (name.isEmpty()) {
+      name = parameter.getParameterName();
+      if (name == null) {
+        return NOT_SIMPLE_VALUE;
+      }
+    }
+    return new SimpleValue(name, pathVariable != null, required, defaultValue, valueType, parameterType);
+  }
+
+  private SimpleValueType findValueType(Method method, int parameterIndex) {
+    Map<String, List<String>> valueTypes = this.valueTypes;
+    if (valueTypes == null) {
+      valueTypes = loadValueTypes();
+      this.valueTypes = valueTypes;
+    }
+    List<String> methodValueTypes = valueTypes.get(RouteManifest.Route.getMethodKey(
+        method.getDeclaringClass().getName(), method.getName(), Type.getMethodDescriptor(method)));
+    if (methodValueTypes == null || parameterIndex >= methodValueTypes.size() ||
+        methodValueTypes.get(parameterIndex).isEmpty()) {
+      return null;
+    }
+    try {
+      return SimpleValueType.valueOf(methodValueTypes.get(parameterIndex));
+    }
+    catch (IllegalArgumentException e) {
+      log.debug("Unknown value type {} of {}", methodValueTypes.get(parameterIndex), method);
+      return null;
+    }
+  }
+
+  private Map<String, List<String>> loadValueTypes() {
+    Map<String, List<String>> valueTypes = new HashMap<>();
+    for (RouteManifest.Controller controller : RouteManifest.loadControllers(classLoader).values()) {
+      for (RouteManifest.Route route : controller.getRoutes()) {
+        if (!route.getValueTypes().isEmpty()) {
+          valueTypes.putIfAbsent(route.getMethodKey(), route.getValueTypes());
+        }
+      }
+    }
+    log.debug("Found the value types of {} handler methods in route manifests", valueTypes.size());
+    return valueTypes;
+  }
+
+  private boolean hasInitBinderMethods(MethodParameter parameter) {
+    Class<?> controllerClass = parameter.getContainingClass();
+    if (hasInitBinderMethods(controllerClass)) {
+      return true;
+    }
+    for (ControllerAdviceBean advice : initBinderAdvice) {
+      if (advice.isApplicableToBeanType(controllerClass)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static boolean hasInitBinderMethods(Class<?> beanType) {
+    return !MethodIntrospector.selectMethods(beanType, (ReflectionUtils.MethodFilter)
+        method -> AnnotatedElementUtils.hasAnnotation(method, InitBinder.class)).isEmpty();
+  }
+
+  /**
+   * How the value of a parameter is resolved, worked out once.
+   */
+  private static class SimpleValue {
+
+    private final String name;
+
+    private final boolean pathVariable;
+
+    private final boolean required;
+
+    private final String defaultValue;
+
+    private final SimpleValueType valueType;
+
+    private final Class<?> parameterType;
+
+    SimpleValue(String name, boolean pathVariable, boolean required, String defaultValue,
+                SimpleValueType valueType, Class<?> parameterType) {
+      this.name = name;
+      this.pathVariable = pathVariable;
+      this.required = required;
+      this.defaultValue = defaultValue;
+      this.valueType = valueType;
+      this.parameterType = parameterType;
+    }
+
+    Object resolve(MethodParameter parameter, NativeWebRequest webRequest) throws Exception {
+      String value = pathVariable ? getPathVariable(webRequest) : getRequestParameter(webRequest);
+      if (value == null) {
+        if (defaultValue != null) {
+          value = defaultValue;
+        }
+        else if (required) {
+          if (pathVariable) {
+            throw new MissingPathVariableException(name, parameter);
+          }
+          throw new MissingServletRequestParameterException(name, parameterType.getSimpleName());
+        }
+        else {
+          return getNullValue();
+        }
+      }
+      else if (value.isEmpty() && defaultValue != null) {
+        value = defaultValue;
+      }
+      Object argument;
+      try {
+        argument = valueType.convert(value, parameterType);
+      }
+      catch (IllegalArgumentException e) {
+        throw new MethodArgumentTypeMismatchException(value, parameterType, name, parameter, e);
+      }
+      if (argument == null && parameterType.isPrimitive()) {
+        throw new MethodArgumentTypeMismatchException(value, parameterType, name, parameter,
+                                                      new IllegalArgumentException("A null value cannot be " +
+                                                                                   "assigned to a primitive type"));
+      }
+      if (pathVariable) {
+        exposePathVariable(webRequest, argument);
+      }
+      return argument;
+    }
+
+    @SuppressWarnings("unchecked")
+    private String getPathVariable(NativeWebRequest webRequest) {
+      Map<String, String> uriTemplateVariables = (Map<String, String>) webRequest.getAttribute(
+          HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+      return uriTemplateVariables == null ? null : uriTemplateVariables.get(name);
+    }
+
+    private String getRequestParameter(NativeWebRequest webRequest) {
+      String[] values = webRequest.getParameterValues(name);
+      if (values == null || values.length == 0) {
+        return null;
+      }
+      if (values.length == 1) {
+        return values[0];
+      }
+      // the conversion of an array joins its elements into a String, or takes the first one
+      return valueType == SimpleValueType.STRING ? StringUtils.arrayToCommaDelimitedString(values) : values[0];
+    }
+
+    private Object getNullValue() {
+      if (!parameterType.isPrimitive()) {
+        return null;
+      }
+      if (parameterType == boolean.class) {
+        return Boolean.FALSE;
+      }
+      throw new IllegalStateException("Optional " + parameterType.getSimpleName() + " parameter '" + name +
+                                      "' is present but cannot be translated into a null value due to being " +
+                                      "declared as a primitive type. Consider declaring it as object wrapper for " +
+                                      "the corresponding primitive type.");
+    }
+
+    /**
+     * Exposes the path variable to the views, like Spring MVC does.
+     */
+    @SuppressWarnings("unchecked")
+    private void exposePathVariable(NativeWebRequest webRequest, Object argument) {
+      Map<String, Object> pathVariables = (Map<String, Object>) webRequest.getAttribute(
+          View.PATH_VARIABLES, RequestAttributes.SCOPE_REQUEST);
+      if (pathVariables == null) {
+        pathVariables = new HashMap<>();
+        webRequest.setAttribute(View.PATH_VARIABLES, pathVariables, RequestAttributes.SCOPE_REQUEST);
+      }
+      pathVariables.put(name, argument);
+    }
+  }
+}
@@ -0,0 +1,210 @@
+package com.github.krr.springmvc.arguments;
+
+import org.springframework.util.ClassUtils;
+import org.springframework.util.NumberUtils;
+
+import java.util.UUID;
+
+/**
+ * The types of the parameters whose value the {@link SimpleValueArgumentResolver} converts itself.  A primitive type
+ * and its wrapper share the same value type.  Each value type converts a request value like the default converters of
+ * Spring's {@code DefaultConversionService} do - an empty value converts to null, numbers may be hexadecimal and
+ * booleans may be {@code on/off}, {@code yes/no} or {@code 1/0} - but parses the common values without trimming or
+ * copying them.
+ */
+public enum SimpleValueType {
+
+  STRING(String.class) {
+    @Override
+    Object convert(String value, Class<?> type) {
+      return value;
+    }
+  },
+  BOOLEAN(Boolean.class) {
+    @Override
+    Object convert(String value, Class<?> type) {
+      if ("true".equals(value)) {
+        return Boolean.TRUE;
+      }
+      if ("false".equals(value)) {
+        return Boolean.FALSE;
+      }
+      String trimmedValue = value.trim().toLowerCase();
+      switch (trimmedValue) {
+        case "":
+          return null;
+        case "true":
+        case "on":
+        case "yes":
+        case "1":
+          return Boolean.TRUE;
+        case "false":
+        case "off":
+        case "no":
+        case "0":
+          return Boolean.FALSE;
+        default:
+          throw new IllegalArgumentException("Invalid boolean value '" + value + "'");
+      }
+    }
+  },
+  CHARACTER(Character.class) {
+    @Override
+    Object convert(String value, Class<?> type) {
+      if (value.isEmpty()) {
+        return null;
+      }
+      if (value.length() > 1) {
+        throw new IllegalArgumentException("Can only convert a [String] with length of 1 to a [Character]; " +
+                                           "string value '" + value + "'  has length of " + value.length());
+      }
+      return value.charAt(0);
+    }
+  },
+  BYTE(Byte.class) {
+    @Override
+    Object convert(String value, Class<?> type) {
+      if (value.isEmpty()) {
+        return null;
+      }
+      try {
+        return Byte.valueOf(value);
+      }
+      catch (NumberFormatException e) {
+        return NumberUtils.parseNumber(value, Byte.class);
+      }
+    }
+  },
+  SHORT(Short.class) {
+    @Override
+    Object convert(String value, Class<?> type) {
+      if (value.isEmpty()) {
+        return null;
+      }
+      try {
+        return Short.valueOf(value);
+      }
+      catch (NumberFormatException e) {
+        return NumberUtils.parseNumber(value, Short.class);
+      }
+    }
+  },
+  INTEGER(Integer.class) {
+    @Override
+    Object convert(String value, Class<?> type) {
+      if (value.isEmpty()) {
+        return null;
+      }
+      try {
+        return Integer.valueOf(value);
+      }
+      catch (NumberFormatException e) {
+        // whitespace and hexadecimal values
+        return NumberUtils.parseNumber(value, Integer.class);
+      }
+    }
+  },
+  LONG(Long.class) {
+    @Override
+    Object convert(String value, Class<?> type) {
+      if (value.isEmpty()) {
+        return null;
+      }
+      try {
+        return Long.valueOf(value);
+      }
+      catch (NumberFormatException e) {
+        return NumberUtils.parseNumber(value, Long.class);
+      }
+    }
+  },
+  FLOAT(Float.class) {
+    @Override
+    Object convert(String value, Class<?> type) {
+      return value.isEmpty() ? null : NumberUtils.parseNumber(value, Float.class);
+    }
+  },
+  DOUBLE(Double.class) {
+    @Override
+    Object convert(String value, Class<?> type) {
+      return value.isEmpty() ? null : NumberUtils.parseNumber(value, Double.class);
+    }
+  },
+  UUID(UUID.class) {
+    @Override
+    Object convert(String value, Class<?> type) {
+      return value.isEmpty() ? null : java.util.UUID.fromString(value.trim());
+    }
+  },
+  ENUM(Enum.class) {
+    @Override
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    Object convert(String value, Class<?> type) {
+      String trimmedValue = value.trim();
+      return trimmedValue.isEmpty() ? null : Enum.valueOf((Class) type, trimmedValue);
+    }
+  };
+
+  private final Class<?> valueClass;
+
+  SimpleValueType(Class<?> valueClass) {
+    this.valueClass = valueClass;
+  }
+
+  /**
+   * @param type - the declared type of the parameter
+   * @return the value or null if the value is empty.
+   * @throws IllegalArgumentException - if the value cannot be converted
+   */
+  abstract Object convert(String value, Class<?> type);
+
+  /**
+   * @return true if a parameter of the type takes values of this type.
+   */
+  public boolean supports(Class<?> type) {
+    if (this == ENUM) {
+      return type.isEnum();
+    }
+    return valueClass == ClassUtils.resolvePrimitiveIfNecessary(type);
+  }
+
+  /**
+   * @param typeDescriptor - the JVM descriptor of a type, for e.g. {@code I} or {@code Ljava/util/UUID;}
+   * @return the value type of the type, or null if it is not a simple value or is an enum - which can only be told
+   * from the class of the type.
+   */
+  public static SimpleValueType forDescriptor(String typeDescriptor) {
+    switch (typeDescriptor) {
+      case "Ljava/lang/String;":
+        return STRING;
+      case "Z":
+      case "Ljava/lang/Boolean;":
+        return BOOLEAN;
+      case "C":
+      case "Ljava/lang/Character;":
+        return CHARACTER;
+      case "B":
+      case "Ljava/lang/Byte;":
+        return BYTE;
+      case "S":
+      case "Ljava/lang/Short;":
+        return SHORT;
+      case "I":
+      case "Ljava/lang/Integer;":
+        return INTEGER;
+      case "J":
+      case "Ljava/lang/Long;":
+        return LONG;
+      case "F":
+      case "Ljava/lang/Float;":
+        return FLOAT;
+      case "D":
+      case "Ljava/lang/Double;":
+        return DOUBLE;
+      case "Ljava/util/UUID;":
+        return UUID;
+      default:
+        return null;
+    }
+  }
+}
@@ -0,0 +1,189 @@
+package com.github.krr.springmvc.async;
+
+import com.github.krr.springmvc.response.JaxrsResponses;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeanUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.CompletionCallback;
+import javax.ws.rs.container.TimeoutHandler;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@link AsyncResponse} passed to the JAX-RS methods taking a suspended async response once they are transformed.
+ * The transformer adds a bridge method returning the {@link #getDeferredResult() deferred result} of this response to
+ * Spring MVC, so resuming the response completes the request without holding a servlet thread in between.
+ * <p>
+ * A {@link Response} is resumed as a {@link ResponseEntity} with the same status, headers and entity, and a
+ * {@link StreamingOutput} is written to the response like Spring MVC writes a streaming response body - see
+ * {@link JaxrsResponses}.  The timeout of the response can only be set before the resource method returns, since
+ * Spring MVC starts the asynchronous processing with it - afterwards {@link #setTimeout(long, TimeUnit)} returns
+ * false.  Like JAX-RS, the response never times out unless a timeout is set.  Only
+ * {@link CompletionCallback completion callbacks} can be registered.
+ */
+@Slf4j
+public class DeferredResultAsyncResponse implements AsyncResponse {
+
+  private final List<CompletionCallback> completionCallbacks = new CopyOnWriteArrayList<>();
+
+  private long timeoutMillis = NO_TIMEOUT;
+
+  private volatile TimeoutHandler timeoutHandler;
+
+  private volatile boolean cancelled;
+
+  private volatile Throwable failure;
+
+  /**
+   * Created with the timeout set so far when it is first needed.
+   */
+  private DeferredResult<Object> deferredResult;
+
+  /**
+   * @return the deferred result completed by this response - the same for every call.
+   */
+  public synchronized DeferredResult<Object> getDeferredResult() {
+    if (deferredResult == null) {
+      deferredResult = new DeferredResult<>(timeoutMillis);
+      deferredResult.onTimeout(this::handleTimeout);
+      deferredResult.onError(throwable -> failure = throwable);
+      deferredResult.onCompletion(this::handleCompletion);
+    }
+    return deferredResult;
+  }
+
+  @Override
+  public boolean resume(Object response) {
+    return getDeferredResult().setResult(JaxrsResponses.toResult(response));
+  }
+
+  @Override
+  public boolean resume(Throwable response) {
+    if (response instanceof WebApplicationException) {
+      // the exception carries the response to send
+      return resume(((WebApplicationException) response).getResponse());
+    }
+    failure = response;
+    return getDeferredResult().setErrorResult(response);
+  }
+
+  @Override
+  public boolean cancel() {
+    return cancel(new HttpHeaders());
+  }
+
+  @Override
+  public boolean cancel(int retryAfter) {
+    HttpHeaders headers = new HttpHeaders();
+    headers.set(HttpHeaders.RETRY_AFTER, Integer.toString(retryAfter));
+    return cancel(headers);
+  }
+
+  @Override
+  public boolean cancel(Date retryAfter) {
+    HttpHeaders headers = new HttpHeaders();
+    headers.setDate(HttpHeaders.RETRY_AFTER, retryAfter.getTime());
+    return cancel(headers);
+  }
+
+  private boolean cancel(HttpHeaders headers) {
+    if (cancelled) {
+      return true;
+    }
+    cancelled = getDeferredResult().setResult(new ResponseEntity<>(headers, HttpStatus.SERVICE_UNAVAILABLE));
+    return cancelled;
+  }
+
+  @Override
+  public boolean isSuspended() {
+    return !isDone();
+  }
+
+  @Override
+  public boolean isCancelled() {
+    return cancelled;
+  }
+
+  @Override
+  public boolean isDone() {
+    return getDeferredResult().isSetOrExpired();
+  }
+
+  @Override
+  public synchronized boolean setTimeout(long time, TimeUnit unit) {
+    if (deferredResult != null) {
+      log.debug("Asynchronous processing already started - the timeout of {} {} is ignored", time, unit);
+      return false;
+    }
+    timeoutMillis = unit.toMillis(time);
+    return true;
+  }
+
+  @Override
+  public void setTimeoutHandler(TimeoutHandler handler) {
+    timeoutHandler = handler;
+  }
+
+  @Override
+  public Collection<Class<?>> register(Class<?> callback) {
+    return register(BeanUtils.instantiateClass(callback));
+  }
+
+  @Override
+  public Map<Class<?>, Collection<Class<?>>> register(Class<?> callback, Class<?>... callbacks) {
+    Map<Class<?>, Collection<Class<?>>> registeredContracts = new LinkedHashMap<>();
+    registeredContracts.put(callback, register(callback));
+    for (Class<?> otherCallback : callbacks) {
+      registeredContracts.put(otherCallback, register(otherCallback));
+    }
+    return registeredContracts;
+  }
+
+  @Override
+  public Collection<Class<?>> register(Object callback) {
+    if (!(callback instanceof CompletionCallback)) {
+      log.warn("Ignoring callback {} - only completion callbacks are supported", callback.getClass().getName());
+      return Collections.emptyList();
+    }
+    completionCallbacks.add((CompletionCallback) callback);
+    return Collections.singletonList(CompletionCallback.class);
+  }
+
+  @Override
+  public Map<Class<?>, Collection<Class<?>>> register(Object callback, Object... callbacks) {
+    Map<Class<?>, Collection<Class<?>>> registeredContracts = new LinkedHashMap<>();
+    registeredContracts.put(callback.getClass(), register(callback));
+    for (Object otherCallback : callbacks) {
+      registeredContracts.put(otherCallback.getClass(), register(otherCallback));
+    }
+    return registeredContracts;
+  }
+
+  private void handleTimeout() {
+    TimeoutHandler handler = timeoutHandler;
+    if (handler != null) {
+      handler.handleTimeout(this);
+    }
+    // if the handler did not resume the response Spring MVC sends a 503 - as JAX-RS does
+  }
+
+  private void handleCompletion() {
+    for (CompletionCallback callback : completionCallbacks) {
+      try {
+        callback.onComplete(failure);
+      }
+      catch (RuntimeException e) {
+        log.warn("Completion callback {} failed", callback, e);
+      }
+    }
+  }
+}
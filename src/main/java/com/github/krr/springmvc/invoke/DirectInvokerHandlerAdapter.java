@@ -0,0 +1,155 @@
+package com.github.krr.springmvc.invoke;
+
+import com.github.krr.springmvc.arguments.SimpleValueArgumentResolver;
+import com.github.krr.springmvc.response.JsonViewRegistry;
+import com.github.krr.springmvc.response.RegisteredJsonViewResponseBodyAdvice;
+import com.github.krr.springmvc.response.ViewCachingMappingJackson2HttpMessageConverter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.config.ConfigurableBeanFactory;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.util.ClassUtils;
+import org.springframework.web.bind.support.ConfigurableWebBindingInitializer;
+import org.springframework.web.bind.support.WebBindingInitializer;
+import org.springframework.web.method.ControllerAdviceBean;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.servlet.mvc.method.annotation.JsonViewResponseBodyAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ServletInvocableHandlerMethod;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link RequestMappingHandlerAdapter} that calls the handler methods through the {@link HandlerInvoker invokers}
+ * generated by the transformer instead of {@code Method.invoke}.  Everything else - argument resolution, return
+ * value handling, exception resolution - is left to Spring MVC.  A handler method without an invoker, or whose bean
+ * is not an instance of the class declaring it (for e.g. an interface based proxy of a class method), is invoked by
+ * reflection as usual.
+ * <p>
+ * When enabled, a {@link SimpleValueArgumentResolver} is registered ahead of the other argument resolvers, so that
+ * the path variables and request parameters of the transformed controllers whose type is a simple value are
+ * converted without a data binder.
+ * <p>
+ * Spring's {@code JsonViewResponseBodyAdvice} is replaced by a {@link RegisteredJsonViewResponseBodyAdvice} which
+ * takes the {@code @JsonView} of the handler methods from a {@link JsonViewRegistry}, and the writers of the views of
+ * the route manifests are built when the adapter starts by the {@link ViewCachingMappingJackson2HttpMessageConverter}
+ * message converters.
+ * <p>
+ * Register this adapter in place of the default one, for e.g. by overriding
+ * {@code createRequestMappingHandlerAdapter()} of {@code WebMvcConfigurationSupport}.
+ */
+@Slf4j
+public class DirectInvokerHandlerAdapter extends RequestMappingHandlerAdapter {
+
+  private static final boolean JACKSON_PRESENT = ClassUtils.isPresent(
+      "com.fasterxml.jackson.databind.ObjectMapper", DirectInvokerHandlerAdapter.class.getClassLoader());
+
+  private final AtomicLong directInvocations = new AtomicLong();
+
+  private final AtomicLong reflectiveInvocations = new AtomicLong();
+
+  private final JsonViewRegistry jsonViewRegistry = new JsonViewRegistry();
+
+  /**
+   * Whether the simple values are resolved by a {@link SimpleValueArgumentResolver}, which bypasses the conversion
+   * service - only enable it when the conversion service does not customize the conversion of these types, for e.g.
+   * with a case insensitive enum converter added by {@code addFormatters}.  It is not registered with a web binding
+   * initializer registering property editors, and leaves the controllers to which an {@code @InitBinder} method of
+   * theirs or of a controller advice applies to the other resolvers.
+   */
+  @Setter
+  private boolean simpleValueResolution;
+
+  @Override
+  public void setResponseBodyAdvice(List<ResponseBodyAdvice<?>> responseBodyAdvice) {
+    List<ResponseBodyAdvice<?>> advice = new ArrayList<>(responseBodyAdvice.size());
+    for (ResponseBodyAdvice<?> bodyAdvice : responseBodyAdvice) {
+      advice.add(bodyAdvice instanceof JsonViewResponseBodyAdvice ?
+                     new RegisteredJsonViewResponseBodyAdvice(jsonViewRegistry) : bodyAdvice);
+    }
+    super.setResponseBodyAdvice(advice);
+  }
+
+  @Override
+  public void afterPropertiesSet() {
+    // creates the default argument resolvers
+    super.afterPropertiesSet();
+    ConfigurableBeanFactory beanFactory = getBeanFactory();
+    ClassLoader classLoader = beanFactory == null || beanFactory.getBeanClassLoader() == null ?
+        ClassUtils.getDefaultClassLoader() : beanFactory.getBeanClassLoader();
+    if (JACKSON_PRESENT) {
+      jsonViewRegistry.loadManifests(classLoader);
+      for (HttpMessageConverter<?> messageConverter : getMessageConverters()) {
+        if (messageConverter instanceof ViewCachingMappingJackson2HttpMessageConverter) {
+          ((ViewCachingMappingJackson2HttpMessageConverter) messageConverter)
+              .prepareViews(jsonViewRegistry.getViews());
+        }
+      }
+    }
+    if (simpleValueResolution && hasPropertyEditorRegistrars()) {
+      log.info("Not registering the simple value argument resolver, the web binding initializer registers editors");
+    }
+    else if (simpleValueResolution) {
+      List<ControllerAdviceBean> controllerAdvice = ControllerAdviceBean.findAnnotatedBeans(
+          obtainApplicationContext());
+      List<HandlerMethodArgumentResolver> argumentResolvers = new ArrayList<>();
+      argumentResolvers.add(new SimpleValueArgumentResolver(classLoader, controllerAdvice));
+      argumentResolvers.addAll(getArgumentResolvers());
+      setArgumentResolvers(argumentResolvers);
+      log.debug("Registered the simple value argument resolver ahead of {} resolvers", argumentResolvers.size() - 1);
+    }
+  }
+
+  private boolean hasPropertyEditorRegistrars() {
+    WebBindingInitializer bindingInitializer = getWebBindingInitializer();
+    if (bindingInitializer == null) {
+      return false;
+    }
+    return !(bindingInitializer instanceof ConfigurableWebBindingInitializer) ||
+           ((ConfigurableWebBindingInitializer) bindingInitializer).getPropertyEditorRegistrars() != null;
+  }
+
+  /**
+   * @return the number of requests whose handler method was invoked by a generated invoker.
+   */
+  public long getDirectInvocationCount() {
+    return directInvocations.get();
+  }
+
+  public long getReflectiveInvocationCount() {
+    return reflectiveInvocations.get();
+  }
+
+  @Override
+  protected ServletInvocableHandlerMethod createInvocableHandlerMethod(HandlerMethod handlerMethod) {
+    HandlerInvoker invoker = HandlerInvokers.find(handlerMethod.getMethod());
+    if (invoker == null || !handlerMethod.getMethod().getDeclaringClass().isInstance(handlerMethod.getBean())) {
+      reflectiveInvocations.incrementAndGet();
+      return super.createInvocableHandlerMethod(handlerMethod);
+    }
+    directInvocations.incrementAndGet();
+    return new DirectInvocableHandlerMethod(handlerMethod, invoker);
+  }
+
+  /**
+   * Resolves the arguments and handles the return value like Spring MVC, and calls the method with its invoker.
+   */
+  public static class DirectInvocableHandlerMethod extends ServletInvocableHandlerMethod {
+
+    private final HandlerInvoker invoker;
+
+    public DirectInvocableHandlerMethod(HandlerMethod handlerMethod, HandlerInvoker invoker) {
+      super(handlerMethod);
+      this.invoker = invoker;
+    }
+
+    @Override
+    protected Object doInvoke(Object... args) throws Exception {
+      return invoker.invoke(getBean(), args);
+    }
+  }
+}
@@ -0,0 +1,16 @@
+package com.github.krr.springmvc.invoke;
+
+/**
+ * Calls a handler method directly, without reflection.  The transformer generates an invoker for each handler method
+ * of the controllers it transforms - see {@link HandlerInvokers}.
+ */
+public interface HandlerInvoker {
+
+  /**
+   * @param target    - the controller, an instance of the class declaring the method
+   * @param arguments - the arguments of the method, with primitive values boxed
+   * @return the value returned by the method, boxed if it is primitive, or null if it returns void.
+   * @throws Exception - whatever the method throws, as is
+   */
+  Object invoke(Object target, Object[] arguments) throws Exception;
+}
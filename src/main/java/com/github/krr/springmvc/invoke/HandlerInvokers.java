@@ -0,0 +1,92 @@
+package com.github.krr.springmvc.invoke;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.asm.Type;
+import org.springframework.util.ClassUtils;
+
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Finds the generated {@link HandlerInvoker} of a handler method.  The invoker of a method is a class next to the
+ * class declaring it, named after the method and the hash of its descriptor:
+ * <pre>
+ *   com.example.ClusterAdministrationImpl$$Invoker$getClusterInfo$98b8ab56f8f3e674a893bf8a676efa0d
+ * </pre>
+ * so that it is found without any registry, and loaded by the class loader of the declaring class.  Every overload
+ * of a method has an invoker of its own.
+ */
+@Slf4j
+public final class HandlerInvokers {
+
+  private static final String INVOKER_SEPARATOR = "$$Invoker$";
+
+  /**
+   * The bytes of the hash of the descriptor kept in the name of an invoker - enough for the overloads of a method
+   * never to share a name, while the name of the class file stays short whatever the descriptor.
+   */
+  static final int DESCRIPTOR_HASH_LENGTH = 16;
+
+  /**
+   * The invokers of the methods looked up so far - empty for the methods without an invoker.
+   */
+  private static final Map<Method, Optional<HandlerInvoker>> INVOKERS = new ConcurrentHashMap<>();
+
+  private HandlerInvokers() {
+  }
+
+  /**
+   * @param methodDescriptor - the JVM descriptor of the method, for e.g. {@code (Ljava/lang/String;)V}
+   */
+  public static String getInvokerClassName(String declaringClassName, String methodName, String methodDescriptor) {
+    return declaringClassName + INVOKER_SEPARATOR + methodName + "$" + hashDescriptor(methodDescriptor);
+  }
+
+  /**
+   * @return the first {@value #DESCRIPTOR_HASH_LENGTH} bytes of the SHA-256 hash of the descriptor, in hexadecimal.
+   */
+  static String hashDescriptor(String methodDescriptor) {
+    byte[] hash;
+    try {
+      hash = MessageDigest.getInstance("SHA-256").digest(methodDescriptor.getBytes(StandardCharsets.UTF_8));
+    }
+    catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not available", e);
+    }
+    StringBuilder hex = new StringBuilder(DESCRIPTOR_HASH_LENGTH * 2);
+    for (int i = 0; i < DESCRIPTOR_HASH_LENGTH; i++) {
+      hex.append(Character.forDigit((hash[i] >> 4) & 0xf, 16)).append(Character.forDigit(hash[i] & 0xf, 16));
+    }
+    return hex.toString();
+  }
+
+  /**
+   * @return the invoker generated for the method or null if there is none.
+   */
+  public static HandlerInvoker find(Method method) {
+    return INVOKERS.computeIfAbsent(method, HandlerInvokers::load).orElse(null);
+  }
+
+  private static Optional<HandlerInvoker> load(Method method) {
+    Class<?> declaringClass = method.getDeclaringClass();
+    String invokerClassName = getInvokerClassName(declaringClass.getName(), method.getName(),
+                                                  Type.getMethodDescriptor(method));
+    ClassLoader classLoader = declaringClass.getClassLoader();
+    if (!ClassUtils.isPresent(invokerClassName, classLoader)) {
+      return Optional.empty();
+    }
+    try {
+      Class<?> invokerClass = ClassUtils.forName(invokerClassName, classLoader);
+      return Optional.of((HandlerInvoker) invokerClass.getDeclaredConstructor().newInstance());
+    }
+    catch (ReflectiveOperationException | LinkageError | ClassCastException e) {
+      log.warn("Unable to load the invoker {} - {} is invoked by reflection", invokerClassName, method, e);
+      return Optional.empty();
+    }
+  }
+}
@@ -0,0 +1,128 @@
+package com.github.krr.springmvc.javassist.beans;
+
+import javassist.bytecode.annotation.*;
+import lombok.Value;
+
+import java.util.*;
+
+/**
+ * An annotation read from a class file, copied into plain values.  Unlike a {@link CtAnnotation} or a javassist
+ * annotation, it holds no reference to the class it was read from (nor to its constant pool), so caching it does not
+ * keep the class in memory once the class pool has let go of it.
+ * <p>
+ * The members are the ones present in the class file - the default values of the annotation type are not included.
+ * Their values are copied as:
+ * <ul>
+ * <li>strings, boxed primitives and booleans - as is</li>
+ * <li>enum constants - the name of the constant</li>
+ * <li>classes - the name of the class</li>
+ * <li>arrays - an unmodifiable list of the copied elements</li>
+ * <li>nested annotations - an annotation descriptor</li>
+ * </ul>
+ */
+@Value
+public class AnnotationDescriptor {
+
+  /**
+   * The fully qualified name of the annotation type.
+   */
+  private final String typeName;
+
+  /**
+   * The name of the class declaring the annotation, or of the class declaring the annotated method.
+   */
+  private final String annotatedClassName;
+
+  private final Map<String, Object> members;
+
+  /**
+   * Copies the annotation read from the class file of the annotated class.
+   */
+  public static AnnotationDescriptor of(String annotatedClassName, Annotation annotation) {
+    Set<String> memberNames = annotation.getMemberNames();
+    if (memberNames == null || memberNames.isEmpty()) {
+      return new AnnotationDescriptor(annotation.getTypeName(), annotatedClassName, Collections.emptyMap());
+    }
+    Map<String, Object> members = new LinkedHashMap<>();
+    for (String memberName : memberNames) {
+      members.put(memberName, copyValue(annotatedClassName, annotation.getMemberValue(memberName)));
+    }
+    return new AnnotationDescriptor(annotation.getTypeName(), annotatedClassName,
+                                    Collections.unmodifiableMap(members));
+  }
+
+  /**
+   * @return the value of a string member like the value of Path, or null if the member is not a string.
+   */
+  public String getStringValue(String memberName) {
+    Object value = members.get(memberName);
+    return value instanceof String ? (String) value : null;
+  }
+
+  /**
+   * @return the value of a string array member like the value of Produces.  A single string is returned as an
+   * array of one.
+   */
+  public String[] getStringArrayValue(String memberName) {
+    Object value = members.get(memberName);
+    if (value instanceof List) {
+      List<?> values = (List<?>) value;
+      return values.toArray(new String[0]);
+    }
+    if (value instanceof String) {
+      return new String[]{(String) value};
+    }
+    return new String[0];
+  }
+
+  private static Object copyValue(String annotatedClassName, MemberValue memberValue) {
+    if (memberValue instanceof StringMemberValue) {
+      return ((StringMemberValue) memberValue).getValue();
+    }
+    if (memberValue instanceof ArrayMemberValue) {
+      MemberValue[] elements = ((ArrayMemberValue) memberValue).getValue();
+      if (elements == null || elements.length == 0) {
+        return Collections.emptyList();
+      }
+      Object[] values = new Object[elements.length];
+      for (int i = 0; i < elements.length; i++) {
+        values[i] = copyValue(annotatedClassName, elements[i]);
+      }
+      return Collections.unmodifiableList(Arrays.asList(values));
+    }
+    if (memberValue instanceof EnumMemberValue) {
+      return ((EnumMemberValue) memberValue).getValue();
+    }
+    if (memberValue instanceof ClassMemberValue) {
+      return ((ClassMemberValue) memberValue).getValue();
+    }
+    if (memberValue instanceof AnnotationMemberValue) {
+      return of(annotatedClassName, ((AnnotationMemberValue) memberValue).getValue());
+    }
+    if (memberValue instanceof BooleanMemberValue) {
+      return ((BooleanMemberValue) memberValue).getValue();
+    }
+    if (memberValue instanceof CharMemberValue) {
+      return ((CharMemberValue) memberValue).getValue();
+    }
+    if (memberValue instanceof ByteMemberValue) {
+      return ((ByteMemberValue) memberValue).getValue();
+    }
+    if (memberValue instanceof ShortMemberValue) {
+      return ((ShortMemberValue) memberValue).getValue();
+    }
+    if (memberValue instanceof IntegerMemberValue) {
+      return ((IntegerMemberValue) memberValue).getValue();
+    }
+    if (memberValue instanceof LongMemberValue) {
+      return ((LongMemberValue) memberValue).getValue();
+    }
+    if (memberValue instanceof FloatMemberValue) {
+      return ((FloatMemberValue) memberValue).getValue();
+    }
+    if (memberValue instanceof DoubleMemberValue) {
+      return ((DoubleMemberValue) memberValue).getValue();
+    }
+    return null;
+  }
+}
@@ -4,19 +4,39 @@ import javassist.CtClass;
 import javassist.CtMethod;
 import lombok.AllArgsConstructor;
 import lombok.Data;
-import lombok.RequiredArgsConstructor;
 
 import java.lang.annotation.Annotation;
 
+/**
+ * An annotation found by its class with {@link com.github.krr.springmvc.javassist.utils.CtClassUtils}, along with the
+ * class (and method) declaring it.  Holds the javassist classes, so it is not meant to be cached - annotations
+ * looked up by type name are returned as an {@link AnnotationDescriptor} instead.
+ */
 @Data
 @AllArgsConstructor
-@RequiredArgsConstructor
 public class CtAnnotation {
 
   private final CtClass annotatedClass;
 
   private CtMethod annotatedMethod;
 
-  private final Annotation annotation;
+  /**
+   * The annotation proxy.  Only set when the annotation was looked up by its class - lookups by the annotation
+   * type name leave this null to avoid loading the annotation class.
+   */
+  private Annotation annotation;
+
+  /**
+   * The annotation as read from the class file.
+   */
+  private javassist.bytecode.annotation.Annotation bytecodeAnnotation;
+
+  public CtAnnotation(CtClass annotatedClass, Annotation annotation) {
+    this(annotatedClass, null, annotation, null);
+  }
+
+  public CtAnnotation(CtClass annotatedClass, CtMethod annotatedMethod, Annotation annotation) {
+    this(annotatedClass, annotatedMethod, annotation, null);
+  }
 
 }
@@ -0,0 +1,35 @@
+package com.github.krr.springmvc.javassist.beans;
+
+import lombok.Value;
+
+/**
+ * A JAX-RS annotation found on a method parameter, for e.g. {@code @PathParam("name")}.
+ */
+@Value
+public class JaxrsParameterAnnotation {
+
+  /**
+   * The fully qualified name of the JAX-RS annotation type.
+   */
+  private final String typeName;
+
+  /**
+   * The value attribute of the annotation - null for {@code @BeanParam}, which has none.
+   */
+  private final String value;
+
+  /**
+   * The value of the {@code @DefaultValue} annotation of the parameter, or null if it has none.
+   */
+  private final String defaultValue;
+
+  public JaxrsParameterAnnotation(String typeName, String value) {
+    this(typeName, value, null);
+  }
+
+  public JaxrsParameterAnnotation(String typeName, String value, String defaultValue) {
+    this.typeName = typeName;
+    this.value = value;
+    this.defaultValue = defaultValue;
+  }
+}
@@ -4,44 +4,90 @@ import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.web.bind.annotation.*;
 
-import javax.ws.rs.Consumes;
-import javax.ws.rs.HttpMethod;
-import javax.ws.rs.Path;
-import javax.ws.rs.Produces;
-import java.lang.annotation.Annotation;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
+/**
+ * The JAX-RS annotations found on a class (or its hierarchy) or on a method.  All values are read straight from the
+ * class file so that no JAX-RS annotation class needs to be loaded to fill this in.
+ */
 @Slf4j
 @Data
 public class MethodAnnotationContainer {
 
-  private Path pathAnnotation;
+  private String path;
 
-  private Produces producesAnnotation;
+  private String[] produces;
 
-  private Consumes consumesAnnotation;
+  private String[] consumes;
 
-  private HttpMethod method;
+  /**
+   * The simple names (GET, POST...) of the JAX-RS http method annotations on the method.
+   */
+  private List<String> httpMethods = new ArrayList<>();
+
+  /**
+   * The JAX-RS annotations associated with each parameter of the method.
+   */
+  private List<List<JaxrsParameterAnnotation>> paramAnnotation = Collections.emptyList();
+
+  /**
+   * The index of the suspended {@code AsyncResponse} parameter of the method, or -1 if the method is synchronous.
+   */
+  private int asyncResponseIndex = -1;
+
+  public boolean isAsync() {
+    return asyncResponseIndex >= 0;
+  }
 
   /**
-   * The annotations associated with each parameter of the method.
+   * @return the annotations of the method without those of the parameter at the index.
    */
-  private List<List<Annotation>> paramAnnotation;
+  public MethodAnnotationContainer withoutParameter(int index) {
+    MethodAnnotationContainer container = new MethodAnnotationContainer();
+    container.setPath(path);
+    container.setProduces(produces);
+    container.setConsumes(consumes);
+    container.setHttpMethods(httpMethods);
+    List<List<JaxrsParameterAnnotation>> parameterAnnotations = new ArrayList<>(paramAnnotation);
+    if (index < parameterAnnotations.size()) {
+      parameterAnnotations.remove(index);
+    }
+    container.setParamAnnotation(parameterAnnotations);
+    return container;
+  }
+
+  /**
+   * @return true if any JAX-RS annotation was found on the method or its parameters.  A method without any inherits
+   * the annotations of the method it overrides.
+   */
+  public boolean hasJaxrsAnnotations() {
+    return hasRequestMappingAttributes() || !httpMethods.isEmpty() ||
+           paramAnnotation.stream().anyMatch(parameterAnnotations -> !parameterAnnotations.isEmpty());
+  }
+
+  /**
+   * @return true if any of the annotations that map to RequestMapping attributes were found.
+   */
+  public boolean hasRequestMappingAttributes() {
+    return path != null || produces != null || consumes != null;
+  }
 
-  public Class getSpringMvcMethodMapping(HttpMethod method) {
-    if(HttpMethod.GET.equals(method.value())) {
+  public Class getSpringMvcMethodMapping(String method) {
+    if ("GET".equals(method)) {
       return GetMapping.class;
     }
-    if(HttpMethod.PUT.equals(method.value())) {
+    if ("PUT".equals(method)) {
       return PutMapping.class;
     }
-    if(HttpMethod.POST.equals(method.value())) {
+    if ("POST".equals(method)) {
       return PostMapping.class;
     }
-    if(HttpMethod.PATCH.equals(method.value())) {
+    if ("PATCH".equals(method)) {
       return PatchMapping.class;
     }
-    if(HttpMethod.DELETE.equals(method.value())) {
+    if ("DELETE".equals(method)) {
       return DeleteMapping.class;
     }
     throw new IllegalArgumentException("Unsupported HttpMethod " + method);
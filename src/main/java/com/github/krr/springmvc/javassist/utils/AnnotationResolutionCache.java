@@ -0,0 +1,200 @@
+package com.github.krr.springmvc.javassist.utils;
+
+import com.github.krr.springmvc.javassist.beans.AnnotationDescriptor;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Memoizes the results of hierarchy annotation lookups done by {@link CtClassUtils#findAnnotation}.  Entries are
+ * keyed by the class name, the annotation type and the package filter used for the search.  Negative results (the
+ * annotation is not present anywhere in the searched hierarchy) are cached as well.  The
+ * {@link MethodSignatureIndex method signature index} of each class is cached the same way.
+ * <p>
+ * The cache also remembers which supertypes were consulted while resolving a class so that invalidating a class
+ * (for e.g. because its class file changed) also drops the cached results of every class that inherited from it.
+ * <p>
+ * Only {@link AnnotationDescriptor annotation descriptors} and indexes are cached, never javassist classes, so the
+ * classes resolved stay free to be dropped by their class pool.  An instance is meant to live for a single transform
+ * session.
+ */
+@Slf4j
+public class AnnotationResolutionCache {
+
+  private final Map<ResolutionKey, Optional<AnnotationDescriptor>> resolvedAnnotations = new ConcurrentHashMap<>();
+
+  /**
+   * Maps a supertype name to the names of the classes whose resolution consulted that supertype.
+   */
+  private final Map<String, Set<String>> dependentClasses = new ConcurrentHashMap<>();
+
+  /**
+   * Maps a class name to the names of the supertypes its resolution consulted.
+   */
+  private final Map<String, Set<String>> supertypes = new ConcurrentHashMap<>();
+
+  /**
+   * The annotations declared directly on each class, so that a class file is parsed only once no matter how many
+   * annotation types are looked up on it.
+   */
+  private final Map<String, AnnotationDescriptor[]> declaredAnnotations = new ConcurrentHashMap<>();
+
+  /**
+   * The method signature index of each class, keyed by the class name and the package filter used to build it.
+   */
+  private final Map<IndexKey, MethodSignatureIndex> methodSignatureIndexes = new ConcurrentHashMap<>();
+
+  private final AtomicLong hitCount = new AtomicLong();
+
+  private final AtomicLong missCount = new AtomicLong();
+
+  /**
+   * Looks up a previously resolved annotation.
+   *
+   * @param className          - the name of the class on which the search was started
+   * @param annotationTypeName - the fully qualified name of the annotation type
+   * @param packagesToInclude  - the package filter used for the search
+   * @return null if the lookup was never done, an empty optional if the annotation was not found or the annotation
+   * that was found.
+   */
+  public Optional<AnnotationDescriptor> get(String className, String annotationTypeName,
+                                            PackageSelector packagesToInclude) {
+    Optional<AnnotationDescriptor> resolved = resolvedAnnotations.get(new ResolutionKey(className, annotationTypeName,
+                                                                                        packagesToInclude));
+    if (resolved == null) {
+      missCount.incrementAndGet();
+    }
+    else {
+      hitCount.incrementAndGet();
+    }
+    return resolved;
+  }
+
+  public void put(String className, String annotationTypeName, PackageSelector packagesToInclude,
+                  AnnotationDescriptor annotation) {
+    resolvedAnnotations.put(new ResolutionKey(className, annotationTypeName, packagesToInclude),
+                            Optional.ofNullable(annotation));
+  }
+
+  /**
+   * Returns the annotations declared on the class, reading them with the specified supplier the first time.
+   */
+  public AnnotationDescriptor[] getDeclaredAnnotations(String className,
+                                                       Supplier<AnnotationDescriptor[]> annotationReader) {
+    return declaredAnnotations.computeIfAbsent(className, k -> annotationReader.get());
+  }
+
+  /**
+   * @return the method signature index of the class or null if it was never put in the cache.
+   */
+  public MethodSignatureIndex getMethodSignatureIndex(String className, PackageSelector packagesToInclude) {
+    return methodSignatureIndexes.get(new IndexKey(className, packagesToInclude));
+  }
+
+  /**
+   * Caches the method signature index of the class.  Its dependencies on the supertypes whose indexes it was built
+   * from must be {@link #recordDependency(String, String) recorded} too.
+   */
+  public void putMethodSignatureIndex(String className, PackageSelector packagesToInclude,
+                                      MethodSignatureIndex methodSignatureIndex) {
+    methodSignatureIndexes.put(new IndexKey(className, packagesToInclude), methodSignatureIndex);
+  }
+
+  /**
+   * Records that resolving annotations on {@code className} required looking at {@code supertypeName}.
+   */
+  public void recordDependency(String className, String supertypeName) {
+    dependentClasses.computeIfAbsent(supertypeName, k -> ConcurrentHashMap.newKeySet()).add(className);
+    supertypes.computeIfAbsent(className, k -> ConcurrentHashMap.newKeySet()).add(supertypeName);
+  }
+
+  /**
+   * @return the names of all the supertypes (direct or not) consulted while resolving annotations on the class.
+   */
+  public Set<String> getTransitiveDependencies(String className) {
+    Set<String> dependencies = new TreeSet<>();
+    Deque<String> classesToVisit = new ArrayDeque<>(supertypes.getOrDefault(className, Collections.emptySet()));
+    while (!classesToVisit.isEmpty()) {
+      String name = classesToVisit.pop();
+      if (dependencies.add(name)) {
+        classesToVisit.addAll(supertypes.getOrDefault(name, Collections.emptySet()));
+      }
+    }
+    return dependencies;
+  }
+
+  /**
+   * Drops all cached results for the class and for every class whose resolution depended on it.
+   */
+  public void invalidate(String className) {
+    Deque<String> classesToInvalidate = new ArrayDeque<>();
+    Set<String> invalidated = new HashSet<>();
+    classesToInvalidate.push(className);
+    while (!classesToInvalidate.isEmpty()) {
+      String name = classesToInvalidate.pop();
+      if (!invalidated.add(name)) {
+        continue;
+      }
+      resolvedAnnotations.keySet().removeIf(key -> key.getClassName().equals(name));
+      declaredAnnotations.remove(name);
+      methodSignatureIndexes.keySet().removeIf(key -> key.getClassName().equals(name));
+      supertypes.remove(name);
+      Set<String> dependents = dependentClasses.remove(name);
+      if (dependents != null) {
+        dependents.forEach(classesToInvalidate::push);
+      }
+    }
+    log.debug("Invalidated cached annotations of {} classes starting from {}", invalidated.size(), className);
+  }
+
+  public void invalidateAll() {
+    resolvedAnnotations.clear();
+    declaredAnnotations.clear();
+    methodSignatureIndexes.clear();
+    dependentClasses.clear();
+    supertypes.clear();
+  }
+
+  public long getHitCount() {
+    return hitCount.get();
+  }
+
+  public long getMissCount() {
+    return missCount.get();
+  }
+
+  public int size() {
+    return resolvedAnnotations.size();
+  }
+
+  @Override
+  public String toString() {
+    return String.format("AnnotationResolutionCache[entries=%d, hits=%d, misses=%d]", size(), getHitCount(),
+                         getMissCount());
+  }
+
+  @Value
+  private static class ResolutionKey {
+
+    private final String className;
+
+    private final String annotationTypeName;
+
+    /**
+     * Selectors are equal when they were compiled from the same patterns.
+     */
+    private final PackageSelector packagesToInclude;
+  }
+
+  @Value
+  private static class IndexKey {
+
+    private final String className;
+
+    private final PackageSelector packagesToInclude;
+  }
+}
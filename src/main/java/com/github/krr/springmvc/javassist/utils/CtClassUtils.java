@@ -1,19 +1,27 @@
 package com.github.krr.springmvc.javassist.utils;
 
+import com.github.krr.springmvc.javassist.beans.AnnotationDescriptor;
 import com.github.krr.springmvc.javassist.beans.CtAnnotation;
 import javassist.CtClass;
 import javassist.CtMethod;
 import javassist.NotFoundException;
+import javassist.bytecode.AnnotationsAttribute;
+import javassist.bytecode.ClassFile;
+import javassist.bytecode.MethodInfo;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.util.CollectionUtils;
 
 import java.lang.annotation.Annotation;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
 
 @SuppressWarnings("WeakerAccess")
 @Slf4j
 public class CtClassUtils {
 
+  private static final javassist.bytecode.annotation.Annotation[] NO_ANNOTATIONS =
+      new javassist.bytecode.annotation.Annotation[0];
+
   /**
    * Finds the ctAnnotation by traversing the specified class, its superclass and all implemented
    * interfaces to find a specific ctAnnotation.  Returns the first instance of the ctAnnotation
@@ -30,38 +38,97 @@ public class CtClassUtils {
                                                                    Class<T> annotationClass,
                                                                    List<String> packagesToInclude)
       throws ClassNotFoundException, NotFoundException {
+    return findAnnotation(ctClass, annotationClass, packagesToInclude, null);
+  }
+
+  /**
+   * Same as {@link #findAnnotation(CtClass, Class, List)} but memoizes the result of the lookup (and of every
+   * lookup done on the superclasses and interfaces while resolving it) in the specified cache.
+   *
+   * @param cache - the cache to use.  If null, no caching is done.
+   */
+  public static <T extends Annotation> CtAnnotation findAnnotation(CtClass ctClass,
+                                                                   Class<T> annotationClass,
+                                                                   List<String> packagesToInclude,
+                                                                   AnnotationResolutionCache cache)
+      throws ClassNotFoundException, NotFoundException {
+
+    return withAnnotationProxy(ctClass, findAnnotation(ctClass, annotationClass.getName(),
+                                                       PackageSelector.compile(packagesToInclude), cache),
+                               annotationClass);
+  }
+
+  /**
+   * Finds an annotation by its type name using the same search order as {@link #findAnnotation(CtClass, Class, List)}.
+   * The annotations are read from the class files so the annotation class is never loaded.  The returned descriptor
+   * holds no reference to the classes searched, so it may be cached for longer than the class pool keeps them.
+   *
+   * @param ctClass            - the ctClass on which to find the annotations
+   * @param annotationTypeName - the fully qualified name of the annotation type to find
+   * @param packagesToInclude  - the packages (and their subpackages) to search.
+   * @param cache              - the cache to use.  If null, no caching is done.
+   * @return the annotation if found or null if not found.
+   * @throws NotFoundException - if a superclass or interface was not found in the class pool.
+   */
+  public static AnnotationDescriptor findAnnotation(CtClass ctClass, String annotationTypeName,
+                                                    PackageSelector packagesToInclude,
+                                                    AnnotationResolutionCache cache) throws NotFoundException {
     log.trace("Searching for packages in {}", packagesToInclude);
 
     String className = ctClass.getName();
-    log.debug("Finding ctAnnotation {} in class", annotationClass, className);
+    if (cache != null) {
+      Optional<AnnotationDescriptor> cachedAnnotation = cache.get(className, annotationTypeName, packagesToInclude);
+      if (cachedAnnotation != null) {
+        log.trace("Found cached result for annotation {} in class {}", annotationTypeName, className);
+        return cachedAnnotation.orElse(null);
+      }
+    }
+    AnnotationDescriptor annotation = resolveAnnotation(ctClass, annotationTypeName, packagesToInclude, cache);
+    if (cache != null) {
+      cache.put(className, annotationTypeName, packagesToInclude, annotation);
+    }
+    return annotation;
+  }
+
+  private static AnnotationDescriptor resolveAnnotation(CtClass ctClass, String annotationTypeName,
+                                                        PackageSelector packagesToInclude,
+                                                        AnnotationResolutionCache cache) throws NotFoundException {
+
+    String className = ctClass.getName();
+    log.debug("Finding ctAnnotation {} in class {}", annotationTypeName, className);
 
     // analyze this class only if it is in the white list.
-    if (isInIncludedPackageOrSubpackage(packagesToInclude, ctClass.getPackageName())) {
+    if (packagesToInclude.matches(ctClass.getPackageName())) {
       log.trace("Class {} is included in package - searching...", className);
-      Object annotation = ctClass.getAnnotation(annotationClass);
+      AnnotationDescriptor annotation = getDeclaredAnnotation(ctClass, annotationTypeName, cache);
       if (annotation == null) {
-        log.debug("Annotation {} not found in class {}, searching in superclass", annotationClass, className);
+        log.debug("Annotation {} not found in class {}, searching in superclass", annotationTypeName, className);
         // find in superclass.
         CtClass superClass = ctClass.getSuperclass();
-        if (superClass != null && isInIncludedPackageOrSubpackage(packagesToInclude, superClass.getPackageName())) {
+        if (superClass != null && packagesToInclude.matches(superClass.getPackageName())) {
           String superClassName = superClass.getName();
-          log.trace("Searching for ctAnnotation {} in superclass {}", annotationClass, superClassName);
+          log.trace("Searching for ctAnnotation {} in superclass {}", annotationTypeName, superClassName);
+          if (cache != null) {
+            cache.recordDependency(className, superClassName);
+          }
 
           // the super class is in a package we want to analyze - try to get it from there.
-          CtAnnotation superAnnotation = findAnnotation(superClass, annotationClass, packagesToInclude);
+          AnnotationDescriptor superAnnotation = findAnnotation(superClass, annotationTypeName, packagesToInclude,
+                                                                cache);
           if (superAnnotation == null) {
-            // none of the super classes have this ctAnnotation - check the interfaces
-            log.trace("Annotation {} not found on class - searching interfaces of {}", annotationClass, superClassName);
-            return findAnnotationInInterfaces(superClass, annotationClass, packagesToInclude);
+            // none of the super classes (nor their interfaces) have this ctAnnotation - check the interfaces
+            log.trace("Annotation {} not found on superclass {} - searching interfaces of {}", annotationTypeName,
+                      superClassName, className);
+            return findAnnotationInInterfaces(ctClass, annotationTypeName, packagesToInclude, cache);
           }
           return superAnnotation;
         }
         else {
           // superclass is not part of scanned packages so find in interfaces of this class.
-          return findAnnotationInInterfaces(ctClass, annotationClass, packagesToInclude);
+          return findAnnotationInInterfaces(ctClass, annotationTypeName, packagesToInclude, cache);
         }
       }
-      return new CtAnnotation(ctClass, (Annotation) annotation);
+      return annotation;
     }
     return null;
   }
@@ -93,10 +160,40 @@ public class CtClassUtils {
                                                                                List<String> packagesToInclude)
       throws NotFoundException, ClassNotFoundException {
 
+    return findAnnotationInInterfaces(ctClass, annotationClass, packagesToInclude, null);
+  }
+
+  /**
+   * Same as {@link #findAnnotationInInterfaces(CtClass, Class, List)} but uses the specified cache for the lookups
+   * done on each interface.
+   */
+  public static <T extends Annotation> CtAnnotation findAnnotationInInterfaces(CtClass ctClass, Class<T> annotationClass,
+                                                                               List<String> packagesToInclude,
+                                                                               AnnotationResolutionCache cache)
+      throws NotFoundException, ClassNotFoundException {
+
+    return withAnnotationProxy(ctClass, findAnnotationInInterfaces(ctClass, annotationClass.getName(),
+                                                                   PackageSelector.compile(packagesToInclude),
+                                                                   cache), annotationClass);
+  }
+
+  /**
+   * Searches for an annotation by its type name in the interfaces of the CtClass.
+   *
+   * @see #findAnnotation(CtClass, String, PackageSelector, AnnotationResolutionCache)
+   */
+  public static AnnotationDescriptor findAnnotationInInterfaces(CtClass ctClass, String annotationTypeName,
+                                                                PackageSelector packagesToInclude,
+                                                                AnnotationResolutionCache cache)
+      throws NotFoundException {
+
     CtClass[] interfaces = ctClass.getInterfaces();
-    CtAnnotation intfAnnotation = null;
+    AnnotationDescriptor intfAnnotation = null;
     for (CtClass intf : interfaces) {
-      intfAnnotation = findAnnotation(intf, annotationClass, packagesToInclude);
+      if (cache != null) {
+        cache.recordDependency(ctClass.getName(), intf.getName());
+      }
+      intfAnnotation = findAnnotation(intf, annotationTypeName, packagesToInclude, cache);
       if (intfAnnotation != null) {
         break;
       }
@@ -110,14 +207,52 @@ public class CtClassUtils {
     return findAnnotationOnMethod(m, ma, null);
   }
 
-  public static CtAnnotation findAnnotationOnMethod(CtMethod m, Class ma,
-                                                    List<String> packagesToInclude) throws ClassNotFoundException {
+  /**
+   * Finds the annotation on the method or, if the method has no JAX-RS annotation of its own, on the method of a
+   * superclass or interface it inherits its JAX-RS annotations from.  The overridden methods are looked up in the
+   * {@link MethodSignatureIndex} of the declaring class of the method.
+   *
+   * @param m                 - the method on which to find the annotation
+   * @param ma                - the annotation to search for
+   * @param packagesToInclude - the packages (and their subpackages) whose classes are searched.  A null value implies
+   *                          all packages are searched
+   * @return the annotation wrapped in a {@link CtAnnotation} object or null if not found.
+   * @throws NotFoundException - if a superclass or interface was not found in the class pool.
+   */
+  public static CtAnnotation findAnnotationOnMethod(CtMethod m, Class ma, List<String> packagesToInclude)
+      throws ClassNotFoundException, NotFoundException {
+    return findAnnotationOnMethod(m, ma, PackageSelector.compile(packagesToInclude), null);
+  }
+
+  /**
+   * Same as {@link #findAnnotationOnMethod(CtMethod, Class, List)} but memoizes the method signature indexes of the
+   * declaring class and its supertypes in the specified cache.
+   *
+   * @param cache - the cache to use.  If null, no caching is done.
+   */
+  public static CtAnnotation findAnnotationOnMethod(CtMethod m, Class ma, PackageSelector packagesToInclude,
+                                                    AnnotationResolutionCache cache)
+      throws ClassNotFoundException, NotFoundException {
     log.trace("Finding method annotations on method or its superclass");
     Object jaAnnotation = m.getAnnotation(ma);
     if (jaAnnotation != null) {
       return new CtAnnotation(m.getDeclaringClass(), m, (Annotation) jaAnnotation);
     }
-    return null;
+    JaxrsAnnotationExtractor extractor = new JaxrsAnnotationExtractor(cache);
+    if (extractor.extractMethodAnnotations(m).hasJaxrsAnnotations()) {
+      // the annotations of the overridden methods are ignored
+      return null;
+    }
+    MethodSignatureIndex.AnnotatedMethod annotatedMethod = extractor.findOverriddenAnnotatedMethod(
+        m, packagesToInclude);
+    if (annotatedMethod == null) {
+      return null;
+    }
+    CtClass declaringClass = m.getDeclaringClass().getClassPool().get(annotatedMethod.getDeclaringClassName());
+    CtMethod overriddenMethod = declaringClass.getMethod(annotatedMethod.getMethodName(),
+                                                         annotatedMethod.getDescriptor());
+    jaAnnotation = overriddenMethod.getAnnotation(ma);
+    return jaAnnotation == null ? null : new CtAnnotation(declaringClass, overriddenMethod, (Annotation) jaAnnotation);
   }
 
   /**
@@ -130,16 +265,110 @@ public class CtClassUtils {
     return findAnnotationInInterfaces(ctClass, annotationClass, null);
   }
 
-  public static boolean isInIncludedPackageOrSubpackage(List<String> packagesToInclude, String packageName) {
-    if (CollectionUtils.isEmpty(packagesToInclude)) {
-      return true;
+  /**
+   * Returns the annotation of the specified type declared directly on the class.
+   *
+   * @param cache - if not null, the declared annotations of each class are parsed only once.
+   * @return the annotation or null if the class does not declare it.
+   */
+  public static AnnotationDescriptor getDeclaredAnnotation(CtClass ctClass, String annotationTypeName,
+                                                           AnnotationResolutionCache cache) {
+    if (cache == null) {
+      javassist.bytecode.annotation.Annotation annotation = findByTypeName(readDeclaredAnnotations(ctClass),
+                                                                           annotationTypeName);
+      return annotation == null ? null : AnnotationDescriptor.of(ctClass.getName(), annotation);
     }
-    for (String packageNameToCheck : packagesToInclude) {
-      if (packageName.startsWith(packageNameToCheck)) {
-        return true;
+    for (AnnotationDescriptor declaredAnnotation : cache.getDeclaredAnnotations(ctClass.getName(),
+                                                                                () -> describeDeclaredAnnotations(
+                                                                                    ctClass))) {
+      if (annotationTypeName.equals(declaredAnnotation.getTypeName())) {
+        return declaredAnnotation;
       }
     }
-    return false;
+    return null;
+  }
+
+  private static javassist.bytecode.annotation.Annotation findByTypeName(
+      javassist.bytecode.annotation.Annotation[] annotations, String annotationTypeName) {
+    for (javassist.bytecode.annotation.Annotation annotation : annotations) {
+      if (annotationTypeName.equals(annotation.getTypeName())) {
+        return annotation;
+      }
+    }
+    return null;
+  }
+
+  private static AnnotationDescriptor[] describeDeclaredAnnotations(CtClass ctClass) {
+    javassist.bytecode.annotation.Annotation[] annotations = readDeclaredAnnotations(ctClass);
+    AnnotationDescriptor[] descriptors = new AnnotationDescriptor[annotations.length];
+    for (int i = 0; i < annotations.length; i++) {
+      descriptors[i] = AnnotationDescriptor.of(ctClass.getName(), annotations[i]);
+    }
+    return descriptors;
+  }
+
+  /**
+   * Reads the visible and invisible annotations of the class straight from its class file.
+   */
+  public static javassist.bytecode.annotation.Annotation[] readDeclaredAnnotations(CtClass ctClass) {
+    ClassFile classFile = ctClass.getClassFile2();
+    return concat(getAnnotations((AnnotationsAttribute) classFile.getAttribute(AnnotationsAttribute.visibleTag)),
+                  getAnnotations((AnnotationsAttribute) classFile.getAttribute(AnnotationsAttribute.invisibleTag)));
+  }
+
+  /**
+   * Reads the visible and invisible annotations of the method straight from its class file.
+   */
+  public static javassist.bytecode.annotation.Annotation[] readDeclaredAnnotations(CtMethod ctMethod) {
+    MethodInfo methodInfo = ctMethod.getMethodInfo2();
+    return concat(getAnnotations((AnnotationsAttribute) methodInfo.getAttribute(AnnotationsAttribute.visibleTag)),
+                  getAnnotations((AnnotationsAttribute) methodInfo.getAttribute(AnnotationsAttribute.invisibleTag)));
+  }
+
+  private static javassist.bytecode.annotation.Annotation[] getAnnotations(AnnotationsAttribute attribute) {
+    return attribute == null ? NO_ANNOTATIONS : attribute.getAnnotations();
+  }
+
+  private static javassist.bytecode.annotation.Annotation[] concat(javassist.bytecode.annotation.Annotation[] first,
+                                                                   javassist.bytecode.annotation.Annotation[] second) {
+    if (second.length == 0) {
+      return first;
+    }
+    if (first.length == 0) {
+      return second;
+    }
+    javassist.bytecode.annotation.Annotation[] annotations = Arrays.copyOf(first, first.length + second.length);
+    System.arraycopy(second, 0, annotations, first.length, second.length);
+    return annotations;
+  }
+
+  /**
+   * Creates the annotation proxy for an annotation that was found by its type name.  Only the class on which the
+   * annotation was found is asked for the proxy.
+   *
+   * @param ctClass - the class the search started from, whose pool has the annotated class
+   */
+  private static <T extends Annotation> CtAnnotation withAnnotationProxy(CtClass ctClass,
+                                                                         AnnotationDescriptor annotation,
+                                                                         Class<T> annotationClass)
+      throws ClassNotFoundException, NotFoundException {
+    if (annotation == null) {
+      return null;
+    }
+    CtClass annotatedClass = ctClass.getName().equals(annotation.getAnnotatedClassName()) ? ctClass :
+        ctClass.getClassPool().get(annotation.getAnnotatedClassName());
+    return new CtAnnotation(annotatedClass, null, (Annotation) annotatedClass.getAnnotation(annotationClass),
+                            findByTypeName(readDeclaredAnnotations(annotatedClass), annotation.getTypeName()));
+  }
+
+  /**
+   * Compiles the packages on every call - callers checking many packages should compile a {@link PackageSelector}
+   * once and use it instead.
+   *
+   * @see PackageSelector
+   */
+  public static boolean isInIncludedPackageOrSubpackage(List<String> packagesToInclude, String packageName) {
+    return PackageSelector.compile(packagesToInclude).matches(packageName);
   }
 
 }
@@ -0,0 +1,292 @@
+package com.github.krr.springmvc.javassist.utils;
+
+import com.github.krr.springmvc.javassist.beans.AnnotationDescriptor;
+import com.github.krr.springmvc.javassist.beans.JaxrsParameterAnnotation;
+import com.github.krr.springmvc.javassist.beans.MethodAnnotationContainer;
+import javassist.CtClass;
+import javassist.CtMethod;
+import javassist.Modifier;
+import javassist.NotFoundException;
+import javassist.bytecode.BadBytecode;
+import javassist.bytecode.ParameterAnnotationsAttribute;
+import javassist.bytecode.SignatureAttribute;
+import javassist.bytecode.annotation.*;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.*;
+
+import static com.github.krr.springmvc.javassist.utils.JaxrsAnnotations.*;
+
+/**
+ * Reads the JAX-RS annotations of a class or method straight from the class file attributes.  Annotations are
+ * matched by type name so, unlike {@link CtClass#getAnnotation(Class)}, no annotation class is loaded and no
+ * annotation proxy is created.
+ */
+@Slf4j
+public class JaxrsAnnotationExtractor {
+
+  public static final String VALUE_ATTRIBUTE = "value";
+
+  private final AnnotationResolutionCache annotationResolutionCache;
+
+  public JaxrsAnnotationExtractor(AnnotationResolutionCache annotationResolutionCache) {
+    this.annotationResolutionCache = annotationResolutionCache;
+  }
+
+  public JaxrsAnnotationExtractor() {
+    this(null);
+  }
+
+  /**
+   * Finds the Path, Produces and Consumes annotations of the class, searching its superclasses and interfaces the
+   * same way {@link CtClassUtils#findAnnotation(CtClass, String, PackageSelector, AnnotationResolutionCache)} does.
+   *
+   * @param ctClass           - the class to analyze
+   * @param packagesToInclude - the packages (and their subpackages) to search.  If null or empty, all packages are
+   *                          searched.
+   * @return the annotation values that were found.
+   * @throws NotFoundException - if a superclass or interface was not found in the class pool.
+   */
+  public MethodAnnotationContainer extractClassAnnotations(CtClass ctClass, List<String> packagesToInclude)
+      throws NotFoundException {
+    return extractClassAnnotations(ctClass, PackageSelector.compile(packagesToInclude));
+  }
+
+  /**
+   * Same as {@link #extractClassAnnotations(CtClass, List)} with the packages to search already compiled.
+   */
+  public MethodAnnotationContainer extractClassAnnotations(CtClass ctClass, PackageSelector packagesToInclude)
+      throws NotFoundException {
+
+    return toClassAnnotations(CtClassUtils.findAnnotation(ctClass, PATH, packagesToInclude,
+                                                          annotationResolutionCache),
+                              CtClassUtils.findAnnotation(ctClass, PRODUCES, packagesToInclude,
+                                                          annotationResolutionCache),
+                              CtClassUtils.findAnnotation(ctClass, CONSUMES, packagesToInclude,
+                                                          annotationResolutionCache));
+  }
+
+  /**
+   * Builds the class annotations from the Path, Produces and Consumes annotations of a class found some other way
+   * than {@link #extractClassAnnotations(CtClass, PackageSelector)} - any of them may be null.
+   */
+  public static MethodAnnotationContainer toClassAnnotations(AnnotationDescriptor pathAnnotation,
+                                                             AnnotationDescriptor producesAnnotation,
+                                                             AnnotationDescriptor consumesAnnotation) {
+    MethodAnnotationContainer container = new MethodAnnotationContainer();
+    if (pathAnnotation != null) {
+      container.setPath(pathAnnotation.getStringValue(VALUE_ATTRIBUTE));
+    }
+    if (producesAnnotation != null) {
+      container.setProduces(producesAnnotation.getStringArrayValue(VALUE_ATTRIBUTE));
+    }
+    if (consumesAnnotation != null) {
+      container.setConsumes(consumesAnnotation.getStringArrayValue(VALUE_ATTRIBUTE));
+    }
+    return container;
+  }
+
+  /**
+   * @return the names of the superclasses and interfaces that were looked at while extracting the class annotations
+   * of the class.  Empty if this extractor does not use a cache.
+   */
+  public Set<String> getHierarchyDependencies(String className) {
+    if (annotationResolutionCache == null) {
+      return Collections.emptySet();
+    }
+    return annotationResolutionCache.getTransitiveDependencies(className);
+  }
+
+  /**
+   * Reads the JAX-RS annotations declared on the method and its parameters.  The annotation attributes of the
+   * method are parsed once and matched against all the JAX-RS annotation types in the same pass.
+   *
+   * @param method - the method to analyze
+   * @return the annotation values that were found.
+   */
+  public MethodAnnotationContainer extractMethodAnnotations(CtMethod method) {
+    MethodAnnotationContainer container = new MethodAnnotationContainer();
+    for (Annotation annotation : CtClassUtils.readDeclaredAnnotations(method)) {
+      String typeName = annotation.getTypeName();
+      if (PATH.equals(typeName)) {
+        container.setPath(getStringValue(annotation));
+      }
+      else if (PRODUCES.equals(typeName)) {
+        container.setProduces(getStringArrayValue(annotation));
+      }
+      else if (CONSUMES.equals(typeName)) {
+        container.setConsumes(getStringArrayValue(annotation));
+      }
+      else if (HTTP_METHODS.contains(typeName)) {
+        container.getHttpMethods().add(getSimpleName(typeName));
+      }
+    }
+    container.setParamAnnotation(extractParameterAnnotations(method));
+    container.setAsyncResponseIndex(findAsyncResponseParameter(method));
+    log.trace("Extracted annotations {} from method {}", container, method.getName());
+    return container;
+  }
+
+  /**
+   * Finds the method whose JAX-RS annotations a method without any of its own inherits - see
+   * {@link MethodSignatureIndex} for the order in which the superclasses and interfaces are searched.
+   *
+   * @param method            - a method without JAX-RS annotations
+   * @param packagesToInclude - the packages (and their subpackages) whose classes are searched
+   * @return the overridden method and its annotations, or null if the method overrides none with JAX-RS annotations.
+   * @throws NotFoundException - if a superclass or interface was not found in the class pool.
+   */
+  public MethodSignatureIndex.AnnotatedMethod findOverriddenAnnotatedMethod(CtMethod method,
+                                                                           PackageSelector packagesToInclude)
+      throws NotFoundException {
+    CtClass declaringClass = method.getDeclaringClass();
+    MethodSignatureIndex.AnnotatedMethod annotatedMethod = getMethodSignatureIndex(declaringClass, packagesToInclude)
+        .get(method.getName(), method.getSignature());
+    // a method is only indexed by its own class if it has annotations
+    if (annotatedMethod == null || annotatedMethod.getDeclaringClassName().equals(declaringClass.getName())) {
+      return null;
+    }
+    return annotatedMethod;
+  }
+
+  /**
+   * @return the index of the methods with JAX-RS annotations of the class and its supertypes in the packages to
+   * include.  The indexes of the class and its supertypes are cached if this extractor uses a cache.
+   * @throws NotFoundException - if a superclass or interface was not found in the class pool.
+   */
+  public MethodSignatureIndex getMethodSignatureIndex(CtClass ctClass, PackageSelector packagesToInclude)
+      throws NotFoundException {
+    return getMethodSignatureIndex(ctClass, packagesToInclude,
+                                   annotationResolutionCache == null ? new HashMap<>() : null);
+  }
+
+  /**
+   * @param builtIndexes - the indexes built so far when this extractor does not use a cache
+   */
+  private MethodSignatureIndex getMethodSignatureIndex(CtClass ctClass, PackageSelector packagesToInclude,
+                                                       Map<String, MethodSignatureIndex> builtIndexes)
+      throws NotFoundException {
+    String className = ctClass.getName();
+    MethodSignatureIndex index = builtIndexes == null ?
+        annotationResolutionCache.getMethodSignatureIndex(className, packagesToInclude) : builtIndexes.get(className);
+    if (index != null) {
+      return index;
+    }
+    List<CtClass> supertypes = new ArrayList<>(Arrays.asList(ctClass.getInterfaces()));
+    CtClass superclass = ctClass.getSuperclass();
+    // the superclass of an interface is Object
+    if (superclass != null && !Object.class.getName().equals(superclass.getName())) {
+      supertypes.add(0, superclass);
+    }
+    List<MethodSignatureIndex> supertypeIndexes = new ArrayList<>(supertypes.size());
+    for (CtClass supertype : supertypes) {
+      if (packagesToInclude.matches(supertype.getPackageName())) {
+        if (builtIndexes == null) {
+          annotationResolutionCache.recordDependency(className, supertype.getName());
+        }
+        supertypeIndexes.add(getMethodSignatureIndex(supertype, packagesToInclude, builtIndexes));
+      }
+    }
+    List<MethodSignatureIndex.AnnotatedMethod> declaredMethods = new ArrayList<>();
+    for (CtMethod method : ctClass.getDeclaredMethods()) {
+      if (Modifier.isPrivate(method.getModifiers()) || Modifier.isStatic(method.getModifiers())) {
+        continue;
+      }
+      MethodAnnotationContainer annotations = extractMethodAnnotations(method);
+      if (annotations.hasJaxrsAnnotations()) {
+        declaredMethods.add(new MethodSignatureIndex.AnnotatedMethod(className, method.getName(),
+                                                                     method.getSignature(), annotations));
+      }
+    }
+    index = MethodSignatureIndex.of(declaredMethods, supertypeIndexes);
+    if (builtIndexes == null) {
+      annotationResolutionCache.putMethodSignatureIndex(className, packagesToInclude, index);
+    }
+    else {
+      builtIndexes.put(className, index);
+    }
+    return index;
+  }
+
+  private List<List<JaxrsParameterAnnotation>> extractParameterAnnotations(CtMethod method) {
+    ParameterAnnotationsAttribute attributeInfo = (ParameterAnnotationsAttribute)
+        method.getMethodInfo2().getAttribute(ParameterAnnotationsAttribute.visibleTag);
+    if (attributeInfo == null) {
+      return Collections.emptyList();
+    }
+    Annotation[][] parametersAnnotations = attributeInfo.getAnnotations();
+    List<List<JaxrsParameterAnnotation>> parameterAnnotationList = new ArrayList<>(parametersAnnotations.length);
+    for (Annotation[] parameterAnnotations : parametersAnnotations) {
+      List<JaxrsParameterAnnotation> jaxrsParameterAnnotations = new ArrayList<>();
+      String defaultValue = getDefaultValue(parameterAnnotations);
+      for (Annotation parameterAnnotation : parameterAnnotations) {
+        String typeName = parameterAnnotation.getTypeName();
+        if (PARAMETER_ANNOTATIONS.contains(typeName)) {
+          jaxrsParameterAnnotations.add(new JaxrsParameterAnnotation(typeName, getStringValue(parameterAnnotation),
+                                                                     defaultValue));
+        }
+      }
+      parameterAnnotationList.add(jaxrsParameterAnnotations);
+    }
+    return parameterAnnotationList;
+  }
+
+  /**
+   * @return the index of the AsyncResponse parameter of the method or -1.  The parameter is found by its type since
+   * an overriding method need not repeat the Suspended annotation.
+   */
+  private static int findAsyncResponseParameter(CtMethod method) {
+    try {
+      SignatureAttribute.Type[] parameterTypes = SignatureAttribute.toMethodSignature(method.getSignature())
+                                                                   .getParameterTypes();
+      for (int i = 0; i < parameterTypes.length; i++) {
+        if (ASYNC_RESPONSE.equals(parameterTypes[i].jvmTypeName())) {
+          return i;
+        }
+      }
+    }
+    catch (BadBytecode e) {
+      log.warn("Unable to read the parameter types of method {}", method.getLongName(), e);
+    }
+    return -1;
+  }
+
+  private static String getDefaultValue(Annotation[] parameterAnnotations) {
+    for (Annotation parameterAnnotation : parameterAnnotations) {
+      if (DEFAULT_VALUE.equals(parameterAnnotation.getTypeName())) {
+        return getStringValue(parameterAnnotation);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * @return the value attribute of a single valued annotation like Path.
+   */
+  public static String getStringValue(Annotation annotation) {
+    MemberValue memberValue = annotation.getMemberValue(VALUE_ATTRIBUTE);
+    if (memberValue instanceof StringMemberValue) {
+      return ((StringMemberValue) memberValue).getValue();
+    }
+    return null;
+  }
+
+  /**
+   * @return the value attribute of an array valued annotation like Produces.
+   */
+  public static String[] getStringArrayValue(Annotation annotation) {
+    MemberValue memberValue = annotation.getMemberValue(VALUE_ATTRIBUTE);
+    if (memberValue instanceof ArrayMemberValue) {
+      MemberValue[] values = ((ArrayMemberValue) memberValue).getValue();
+      String[] stringValues = new String[values.length];
+      for (int i = 0; i < values.length; i++) {
+        stringValues[i] = ((StringMemberValue) values[i]).getValue();
+      }
+      return stringValues;
+    }
+    if (memberValue instanceof StringMemberValue) {
+      return new String[]{((StringMemberValue) memberValue).getValue()};
+    }
+    return new String[0];
+  }
+}
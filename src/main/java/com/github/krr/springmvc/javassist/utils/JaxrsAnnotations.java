@@ -0,0 +1,78 @@
+package com.github.krr.springmvc.javassist.utils;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Names of the JAX-RS annotation types handled by the transformer.  The annotations are matched by name so that
+ * the JAX-RS API does not have to be on the transformer classpath.
+ */
+public final class JaxrsAnnotations {
+
+  public static final String JAXRS_PACKAGE = "javax.ws.rs";
+
+  public static final String PATH = JAXRS_PACKAGE + ".Path";
+
+  public static final String PRODUCES = JAXRS_PACKAGE + ".Produces";
+
+  public static final String CONSUMES = JAXRS_PACKAGE + ".Consumes";
+
+  public static final String GET = JAXRS_PACKAGE + ".GET";
+
+  public static final String POST = JAXRS_PACKAGE + ".POST";
+
+  public static final String PUT = JAXRS_PACKAGE + ".PUT";
+
+  public static final String PATCH = JAXRS_PACKAGE + ".PATCH";
+
+  public static final String DELETE = JAXRS_PACKAGE + ".DELETE";
+
+  public static final String PATH_PARAM = JAXRS_PACKAGE + ".PathParam";
+
+  public static final String QUERY_PARAM = JAXRS_PACKAGE + ".QueryParam";
+
+  public static final String HEADER_PARAM = JAXRS_PACKAGE + ".HeaderParam";
+
+  public static final String COOKIE_PARAM = JAXRS_PACKAGE + ".CookieParam";
+
+  public static final String FORM_PARAM = JAXRS_PACKAGE + ".FormParam";
+
+  public static final String MATRIX_PARAM = JAXRS_PACKAGE + ".MatrixParam";
+
+  public static final String BEAN_PARAM = JAXRS_PACKAGE + ".BeanParam";
+
+  /**
+   * Not a parameter annotation by itself - it qualifies the other parameter annotations of the same parameter.
+   */
+  public static final String DEFAULT_VALUE = JAXRS_PACKAGE + ".DefaultValue";
+
+  public static final String SUSPENDED = JAXRS_PACKAGE + ".container.Suspended";
+
+  /**
+   * Not an annotation - the type of the parameters annotated with {@link #SUSPENDED}.
+   */
+  public static final String ASYNC_RESPONSE = JAXRS_PACKAGE + ".container.AsyncResponse";
+
+  /**
+   * The annotations of a resource class that the transformer looks up in its superclasses and interfaces as well.
+   */
+  public static final List<String> CLASS_ANNOTATIONS = Collections.unmodifiableList(Arrays.asList(PATH, PRODUCES,
+                                                                                                  CONSUMES));
+
+  public static final List<String> HTTP_METHODS = Collections.unmodifiableList(Arrays.asList(GET, POST, PUT, PATCH,
+                                                                                             DELETE));
+
+  public static final List<String> PARAMETER_ANNOTATIONS = Collections.unmodifiableList(
+      Arrays.asList(PATH_PARAM, QUERY_PARAM, HEADER_PARAM, COOKIE_PARAM, FORM_PARAM, MATRIX_PARAM, BEAN_PARAM));
+
+  private JaxrsAnnotations() {
+  }
+
+  /**
+   * @return the simple name of the annotation type, for e.g. GET for javax.ws.rs.GET
+   */
+  public static String getSimpleName(String annotationTypeName) {
+    return annotationTypeName.substring(annotationTypeName.lastIndexOf('.') + 1);
+  }
+}
@@ -0,0 +1,104 @@
+package com.github.krr.springmvc.javassist.utils;
+
+import com.github.krr.springmvc.javassist.beans.MethodAnnotationContainer;
+import lombok.Value;
+
+import java.util.*;
+
+/**
+ * The methods with JAX-RS annotations of a class and of its superclasses and interfaces, keyed by method name and
+ * parameter descriptor, so that the annotations inherited by a method are found with a single lookup instead of a
+ * search through the methods of each supertype.  The index of a class is built from the indexes of its supertypes,
+ * so each supertype is indexed once for all its subtypes.
+ * <p>
+ * The method held for a signature is the one whose annotations a method of the class with that signature uses,
+ * following the JAX-RS rules: the method declared by the class if it has any JAX-RS annotation, else the one held by
+ * the index of the superclass, else the one held by the index of the first interface that has one.  The return type
+ * is not part of the signature, so a method overriding with a covariant return type still inherits the annotations.
+ * <p>
+ * An index holds no javassist class, so it may be cached for longer than the class pool keeps the classes.
+ */
+public class MethodSignatureIndex {
+
+  private static final MethodSignatureIndex EMPTY = new MethodSignatureIndex(Collections.emptyMap());
+
+  private final Map<String, AnnotatedMethod> annotatedMethods;
+
+  private MethodSignatureIndex(Map<String, AnnotatedMethod> annotatedMethods) {
+    this.annotatedMethods = annotatedMethods;
+  }
+
+  /**
+   * Builds the index of a class.
+   *
+   * @param declaredMethods  - the methods with JAX-RS annotations declared by the class
+   * @param supertypeIndexes - the indexes of the superclass then of the interfaces of the class, in the order they
+   *                         are declared
+   */
+  public static MethodSignatureIndex of(Collection<AnnotatedMethod> declaredMethods,
+                                        List<MethodSignatureIndex> supertypeIndexes) {
+    if (declaredMethods.isEmpty()) {
+      // a class adding nothing to a single supertype shares its index
+      MethodSignatureIndex inheritedIndex = EMPTY;
+      for (MethodSignatureIndex supertypeIndex : supertypeIndexes) {
+        if (supertypeIndex.size() > 0) {
+          if (inheritedIndex.size() > 0) {
+            inheritedIndex = null;
+            break;
+          }
+          inheritedIndex = supertypeIndex;
+        }
+      }
+      if (inheritedIndex != null) {
+        return inheritedIndex;
+      }
+    }
+    Map<String, AnnotatedMethod> annotatedMethods = new HashMap<>();
+    for (AnnotatedMethod declaredMethod : declaredMethods) {
+      annotatedMethods.put(getSignature(declaredMethod.getMethodName(), declaredMethod.getDescriptor()),
+                           declaredMethod);
+    }
+    for (MethodSignatureIndex supertypeIndex : supertypeIndexes) {
+      supertypeIndex.annotatedMethods.forEach(annotatedMethods::putIfAbsent);
+    }
+    return new MethodSignatureIndex(annotatedMethods);
+  }
+
+  /**
+   * @return the method with JAX-RS annotations of the signature, or null if the class and its supertypes have none.
+   */
+  public AnnotatedMethod get(String methodName, String descriptor) {
+    return annotatedMethods.get(getSignature(methodName, descriptor));
+  }
+
+  public int size() {
+    return annotatedMethods.size();
+  }
+
+  /**
+   * @return the method name followed by the parameter part of the descriptor, for e.g. {@code get(Ljava/lang/String;)}
+   */
+  static String getSignature(String methodName, String descriptor) {
+    return methodName + descriptor.substring(0, descriptor.indexOf(')') + 1);
+  }
+
+  @Override
+  public String toString() {
+    return "MethodSignatureIndex" + annotatedMethods.keySet();
+  }
+
+  /**
+   * A method with JAX-RS annotations and the annotations read from it.
+   */
+  @Value
+  public static class AnnotatedMethod {
+
+    private final String declaringClassName;
+
+    private final String methodName;
+
+    private final String descriptor;
+
+    private final MethodAnnotationContainer annotations;
+  }
+}
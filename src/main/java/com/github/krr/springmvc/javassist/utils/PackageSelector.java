@@ -0,0 +1,306 @@
+package com.github.krr.springmvc.javassist.utils;
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Decides whether a package is one of the packages to include.  The patterns are compiled once into a trie of
+ * package name segments, so the cost of a lookup depends on the depth of the package and not on the number of
+ * patterns, and the result of each lookup is remembered per package.
+ * <p>
+ * Each pattern selects a package and all its subpackages.  Patterns are matched segment by segment - {@code com.foo}
+ * selects {@code com.foo.bar} but not {@code com.foobar}.  The supported patterns are:
+ * <ul>
+ * <li>{@code com.example} - includes the package</li>
+ * <li>{@code !com.example.internal} (or {@code -com.example.internal}) - excludes the package</li>
+ * <li>{@code com.*.api} - {@code *} matches exactly one segment</li>
+ * <li>{@code com.**.api} - {@code **} matches any number of segments, including none</li>
+ * <li>{@code com.example.api*} - {@code *} and {@code ?} within a segment match part of a segment</li>
+ * </ul>
+ * When several patterns select a package, the most specific one (the one with the most segments) wins, and an
+ * exclusion wins over an inclusion equally specific.  If there are only exclusions, all other packages are included.
+ * No pattern at all includes every package.
+ */
+public final class PackageSelector {
+
+  private static final PackageSelector ALL_PACKAGES = new PackageSelector(Collections.emptyList());
+
+  private static final String ANY_SEGMENT = "*";
+
+  private static final String ANY_SEGMENTS = "**";
+
+  private final List<String> patterns;
+
+  private final Node root = new Node(0);
+
+  private final boolean includeByDefault;
+
+  private final boolean allPackages;
+
+  /**
+   * The literal package names of the inclusions or null if some inclusion is a glob.
+   */
+  private final List<String> literalIncludes;
+
+  private final Map<String, Boolean> matchedPackages = new ConcurrentHashMap<>();
+
+  private PackageSelector(List<String> patterns) {
+    this.patterns = Collections.unmodifiableList(new ArrayList<>(patterns));
+    boolean hasIncludes = false;
+    List<String> literals = new ArrayList<>();
+    for (String pattern : this.patterns) {
+      boolean exclude = pattern.startsWith("!") || pattern.startsWith("-");
+      String packagePattern = exclude ? pattern.substring(1).trim() : pattern;
+      add(packagePattern, exclude);
+      if (!exclude) {
+        hasIncludes = true;
+        if (literals != null && isLiteral(packagePattern)) {
+          literals.add(packagePattern);
+        }
+        else {
+          literals = null;
+        }
+      }
+    }
+    includeByDefault = !hasIncludes;
+    allPackages = this.patterns.isEmpty();
+    literalIncludes = hasIncludes && literals != null ? Collections.unmodifiableList(literals) : null;
+  }
+
+  /**
+   * Compiles the patterns.  Blank patterns are ignored.
+   *
+   * @param patterns - the patterns, null or empty to select all packages
+   */
+  public static PackageSelector compile(List<String> patterns) {
+    if (patterns == null || patterns.isEmpty()) {
+      return ALL_PACKAGES;
+    }
+    List<String> trimmedPatterns = new ArrayList<>(patterns.size());
+    for (String pattern : patterns) {
+      if (StringUtils.isNotBlank(pattern)) {
+        trimmedPatterns.add(pattern.trim());
+      }
+    }
+    return trimmedPatterns.isEmpty() ? ALL_PACKAGES : new PackageSelector(trimmedPatterns);
+  }
+
+  /**
+   * @return a selector that selects all packages.
+   */
+  public static PackageSelector allPackages() {
+    return ALL_PACKAGES;
+  }
+
+  /**
+   * @param packageName - the package name, for e.g. com.example.api.  The default package is the empty string.
+   * @return true if the package is selected.
+   */
+  public boolean matches(String packageName) {
+    if (allPackages) {
+      return true;
+    }
+    String name = packageName == null ? "" : packageName;
+    Boolean matched = matchedPackages.get(name);
+    if (matched == null) {
+      matched = match(name);
+      matchedPackages.putIfAbsent(name, matched);
+    }
+    return matched;
+  }
+
+  /**
+   * @return true if every package is selected.
+   */
+  public boolean isAllPackages() {
+    return allPackages;
+  }
+
+  /**
+   * @return the package names of the inclusions if none of them is a glob, else null.  Useful to reject classes
+   * cheaply by prefix before asking {@link #matches(String)}.
+   */
+  public List<String> getLiteralIncludes() {
+    return literalIncludes;
+  }
+
+  public List<String> getPatterns() {
+    return patterns;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    return o instanceof PackageSelector && patterns.equals(((PackageSelector) o).patterns);
+  }
+
+  @Override
+  public int hashCode() {
+    return patterns.hashCode();
+  }
+
+  @Override
+  public String toString() {
+    return "PackageSelector" + patterns;
+  }
+
+  private void add(String packagePattern, boolean exclude) {
+    Node node = root;
+    for (String segment : StringUtils.split(packagePattern, '.')) {
+      node = node.child(segment);
+    }
+    node.select(exclude);
+  }
+
+  private boolean match(String packageName) {
+    boolean matched = includeByDefault;
+    int matchedSpecificity = -1;
+    Set<Node> states = expand(Collections.singleton(root));
+    String[] segments = packageName.isEmpty() ? new String[0] : StringUtils.split(packageName, '.');
+    for (String segment : segments) {
+      Set<Node> nextStates = new HashSet<>();
+      for (Node state : states) {
+        state.advance(segment, nextStates);
+      }
+      states = expand(nextStates);
+      if (states.isEmpty()) {
+        break;
+      }
+      for (Node state : states) {
+        if (state.selected == null) {
+          continue;
+        }
+        boolean exclude = state.selected == Selection.EXCLUDE;
+        if (state.specificity > matchedSpecificity || (state.specificity == matchedSpecificity && exclude)) {
+          matched = !exclude;
+          matchedSpecificity = state.specificity;
+        }
+      }
+    }
+    return matched;
+  }
+
+  /**
+   * Adds the nodes reachable without consuming a segment - the {@code **} nodes, which may match no segment.
+   */
+  private static Set<Node> expand(Set<Node> states) {
+    Set<Node> expanded = new HashSet<>(states);
+    Deque<Node> nodesToExpand = new ArrayDeque<>(states);
+    while (!nodesToExpand.isEmpty()) {
+      Node anySegments = nodesToExpand.pop().anySegments;
+      if (anySegments != null && expanded.add(anySegments)) {
+        nodesToExpand.push(anySegments);
+      }
+    }
+    return expanded;
+  }
+
+  private static boolean isLiteral(String packagePattern) {
+    return !packagePattern.contains("*") && !packagePattern.contains("?");
+  }
+
+  private enum Selection {
+    INCLUDE, EXCLUDE
+  }
+
+  private static final class Node {
+
+    /**
+     * The number of segments of the patterns ending at this node, not counting {@code **}.
+     */
+    private final int specificity;
+
+    private final Map<String, Node> literalChildren = new HashMap<>();
+
+    private final Map<String, Node> globChildren = new LinkedHashMap<>();
+
+    private final Map<String, Pattern> globPatterns = new HashMap<>();
+
+    private Node anySegment;
+
+    private Node anySegments;
+
+    /**
+     * True for a {@code **} node, which may consume any number of segments.
+     */
+    private boolean repeating;
+
+    private Selection selected;
+
+    Node(int specificity) {
+      this.specificity = specificity;
+    }
+
+    Node child(String segment) {
+      if (ANY_SEGMENTS.equals(segment)) {
+        if (anySegments == null) {
+          anySegments = new Node(specificity);
+          anySegments.repeating = true;
+        }
+        return anySegments;
+      }
+      if (ANY_SEGMENT.equals(segment)) {
+        if (anySegment == null) {
+          anySegment = new Node(specificity + 1);
+        }
+        return anySegment;
+      }
+      if (isLiteral(segment)) {
+        return literalChildren.computeIfAbsent(segment, k -> new Node(specificity + 1));
+      }
+      globPatterns.computeIfAbsent(segment, Node::toRegex);
+      return globChildren.computeIfAbsent(segment, k -> new Node(specificity + 1));
+    }
+
+    void select(boolean exclude) {
+      // an exclusion wins over an inclusion of the same package
+      if (selected != Selection.EXCLUDE) {
+        selected = exclude ? Selection.EXCLUDE : Selection.INCLUDE;
+      }
+    }
+
+    void advance(String segment, Set<Node> nextStates) {
+      if (repeating) {
+        nextStates.add(this);
+      }
+      Node literalChild = literalChildren.get(segment);
+      if (literalChild != null) {
+        nextStates.add(literalChild);
+      }
+      if (anySegment != null) {
+        nextStates.add(anySegment);
+      }
+      for (Map.Entry<String, Node> globChild : globChildren.entrySet()) {
+        if (globPatterns.get(globChild.getKey()).matcher(segment).matches()) {
+          nextStates.add(globChild.getValue());
+        }
+      }
+    }
+
+    private static Pattern toRegex(String glob) {
+      StringBuilder regex = new StringBuilder();
+      StringBuilder literal = new StringBuilder();
+      for (char c : glob.toCharArray()) {
+        if (c == '*' || c == '?') {
+          if (literal.length() > 0) {
+            regex.append(Pattern.quote(literal.toString()));
+            literal.setLength(0);
+          }
+          regex.append(c == '*' ? ".*" : ".");
+        }
+        else {
+          literal.append(c);
+        }
+      }
+      if (literal.length() > 0) {
+        regex.append(Pattern.quote(literal.toString()));
+      }
+      return Pattern.compile(regex.toString());
+    }
+  }
+}
@@ -0,0 +1,64 @@
+package com.github.krr.springmvc.response;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import javax.ws.rs.core.GenericEntity;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+
+/**
+ * Converts what a JAX-RS resource method returns to what Spring MVC handles the same way.  The transformer calls these
+ * from the bridge methods it adds for the JAX-RS methods returning a {@link StreamingOutput} or a {@link Response}.
+ * <p>
+ * A streaming output is written straight to the servlet output stream - Spring MVC writes a
+ * {@link StreamingResponseBody} on an async thread, and a {@link ResponseEntity} wrapping one is written by the
+ * {@link StreamingResponseBodyHttpMessageConverter}.  Neither buffers the response.
+ */
+public final class JaxrsResponses {
+
+  private JaxrsResponses() {
+  }
+
+  /**
+   * @return the body writing the output or null if there is no output.
+   */
+  public static StreamingResponseBody toStreamingResponseBody(StreamingOutput output) {
+    return output == null ? null : output::write;
+  }
+
+  /**
+   * @return the entity with the status, headers and entity of the response, or null if there is no response.  An
+   * entity that is a {@link StreamingOutput} becomes a {@link StreamingResponseBody}.
+   */
+  public static ResponseEntity<Object> toResponseEntity(Response response) {
+    if (response == null) {
+      return null;
+    }
+    // the string headers are formatted by the header delegates of the JAX-RS runtime, for e.g. a date as an HTTP date
+    HttpHeaders headers = new HttpHeaders();
+    response.getStringHeaders().forEach(headers::addAll);
+    return ResponseEntity.status(response.getStatus()).headers(headers).body(toBody(response.getEntity()));
+  }
+
+  /**
+   * @return the value Spring MVC handles like the JAX-RS runtime handles the value returned by a resource method.
+   */
+  public static Object toResult(Object value) {
+    if (value instanceof Response) {
+      return toResponseEntity((Response) value);
+    }
+    return toBody(value);
+  }
+
+  private static Object toBody(Object entity) {
+    if (entity instanceof GenericEntity) {
+      return toBody(((GenericEntity<?>) entity).getEntity());
+    }
+    if (entity instanceof StreamingOutput) {
+      return toStreamingResponseBody((StreamingOutput) entity);
+    }
+    return entity;
+  }
+}
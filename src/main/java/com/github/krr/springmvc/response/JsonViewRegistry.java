@@ -0,0 +1,105 @@
+package com.github.krr.springmvc.response;
+
+import com.fasterxml.jackson.annotation.JsonView;
+import com.github.krr.springmvc.routes.RouteManifest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.asm.Type;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.util.ClassUtils;
+
+import java.lang.reflect.Method;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The {@code @JsonView} of each handler method.  The views of the transformed handler methods are the ones the
+ * transformer recorded in the {@link RouteManifest route manifests}, loaded by {@link #loadManifests(ClassLoader)}
+ * when the application starts.  The view of any other method is looked up like Spring MVC does, once.  Either way
+ * the view of a method is remembered, so it is not searched for on every request as Spring MVC does.
+ */
+@Slf4j
+public class JsonViewRegistry {
+
+  /**
+   * Marks the methods without a view in the cache.
+   */
+  private static final Class<?> NO_VIEW = Void.class;
+
+  private final Map<Method, Class<?>> methodViews = new ConcurrentHashMap<>();
+
+  /**
+   * The view class names of the manifest routes keyed by method.
+   */
+  private volatile Map<String, String> manifestViews = Collections.emptyMap();
+
+  private volatile Set<Class<?>> views = Collections.emptySet();
+
+  /**
+   * Loads the views of the manifest routes and their classes.  A view class that cannot be loaded is skipped.
+   */
+  public void loadManifests(ClassLoader classLoader) {
+    Map<String, String> manifestViews = new HashMap<>();
+    Set<Class<?>> views = new LinkedHashSet<>();
+    for (RouteManifest.Controller controller : RouteManifest.loadControllers(classLoader).values()) {
+      for (RouteManifest.Route route : controller.getRoutes()) {
+        if (!route.getJsonView().isEmpty()) {
+          manifestViews.putIfAbsent(route.getMethodKey(), route.getJsonView());
+          try {
+            views.add(ClassUtils.forName(route.getJsonView(), classLoader));
+          }
+          catch (ClassNotFoundException | LinkageError e) {
+            log.debug("Unable to load the view {} of {}.{}", route.getJsonView(), route.getDeclaringClassName(),
+                      route.getMethodName(), e);
+          }
+        }
+      }
+    }
+    this.manifestViews = manifestViews;
+    this.views = Collections.unmodifiableSet(views);
+    log.debug("Found {} views of {} handler methods in route manifests", views.size(), manifestViews.size());
+  }
+
+  /**
+   * @return the views of the manifest routes.
+   */
+  public Set<Class<?>> getViews() {
+    return views;
+  }
+
+  /**
+   * @return the view of the handler method or null if it has none.
+   * @throws IllegalArgumentException - if the JsonView annotation of the method does not name exactly one view, as
+   *                                  Spring MVC does
+   */
+  public Class<?> getView(Method method) {
+    Class<?> view = methodViews.get(method);
+    if (view == null) {
+      view = findView(method);
+      methodViews.putIfAbsent(method, view);
+    }
+    return view == NO_VIEW ? null : view;
+  }
+
+  private Class<?> findView(Method method) {
+    String viewName = manifestViews.get(RouteManifest.Route.getMethodKey(method.getDeclaringClass().getName(),
+                                                                         method.getName(),
+                                                                         Type.getMethodDescriptor(method)));
+    if (viewName != null) {
+      try {
+        return ClassUtils.forName(viewName, method.getDeclaringClass().getClassLoader());
+      }
+      catch (ClassNotFoundException | LinkageError e) {
+        log.debug("Unable to load the view {} of {} - looking it up", viewName, method, e);
+      }
+    }
+    JsonView jsonView = AnnotatedElementUtils.findMergedAnnotation(method, JsonView.class);
+    if (jsonView == null) {
+      return NO_VIEW;
+    }
+    if (jsonView.value().length != 1) {
+      throw new IllegalArgumentException("@JsonView only supported for response body advice with exactly 1 class " +
+                                         "argument: " + method);
+    }
+    return jsonView.value()[0];
+  }
+}
@@ -0,0 +1,36 @@
+package com.github.krr.springmvc.response;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.MappingJacksonValue;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.servlet.mvc.method.annotation.AbstractMappingJacksonResponseBodyAdvice;
+
+/**
+ * Serializes the body of a handler method with its {@code @JsonView} like Spring's
+ * {@code JsonViewResponseBodyAdvice}, but takes the view from a {@link JsonViewRegistry} instead of searching the
+ * annotations of the method for every response.
+ */
+public class RegisteredJsonViewResponseBodyAdvice extends AbstractMappingJacksonResponseBodyAdvice {
+
+  private final JsonViewRegistry jsonViewRegistry;
+
+  public RegisteredJsonViewResponseBodyAdvice(JsonViewRegistry jsonViewRegistry) {
+    this.jsonViewRegistry = jsonViewRegistry;
+  }
+
+  @Override
+  public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+    return super.supports(returnType, converterType) && returnType.getMethod() != null &&
+           jsonViewRegistry.getView(returnType.getMethod()) != null;
+  }
+
+  @Override
+  protected void beforeBodyWriteInternal(MappingJacksonValue bodyContainer, MediaType contentType,
+                                         MethodParameter returnType, ServerHttpRequest request,
+                                         ServerHttpResponse response) {
+    bodyContainer.setSerializationView(jsonViewRegistry.getView(returnType.getMethod()));
+  }
+}
@@ -0,0 +1,53 @@
+package com.github.krr.springmvc.response;
+
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+
+/**
+ * Writes the {@link StreamingResponseBody} of a {@code ResponseEntity} straight to the response output stream.
+ * Spring MVC only writes a streaming body itself when the handler method declares it as the body type, which the
+ * bridge of a JAX-RS method returning a {@code Response} cannot - its entity is only known when the method returns.
+ * Add this converter to the converters of the {@code RequestMappingHandlerAdapter} when such methods stream their
+ * entity.
+ */
+public class StreamingResponseBodyHttpMessageConverter extends AbstractHttpMessageConverter<StreamingResponseBody> {
+
+  public StreamingResponseBodyHttpMessageConverter() {
+    super(MediaType.ALL);
+  }
+
+  @Override
+  protected boolean supports(Class<?> clazz) {
+    return StreamingResponseBody.class.isAssignableFrom(clazz);
+  }
+
+  /**
+   * Used when the response has no content type of its own.
+   */
+  @Override
+  protected MediaType getDefaultContentType(StreamingResponseBody body) {
+    return MediaType.APPLICATION_OCTET_STREAM;
+  }
+
+  @Override
+  public boolean canRead(Class<?> clazz, MediaType mediaType) {
+    return false;
+  }
+
+  @Override
+  protected StreamingResponseBody readInternal(Class<? extends StreamingResponseBody> clazz,
+                                               HttpInputMessage inputMessage) {
+    throw new HttpMessageNotReadableException("A streaming response body cannot be read", inputMessage);
+  }
+
+  @Override
+  protected void writeInternal(StreamingResponseBody body, HttpOutputMessage outputMessage) throws IOException {
+    body.writeTo(outputMessage.getBody());
+  }
+}
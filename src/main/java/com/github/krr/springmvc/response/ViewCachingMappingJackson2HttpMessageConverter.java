@@ -0,0 +1,131 @@
+package com.github.krr.springmvc.response;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.exc.InvalidDefinitionException;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConversionException;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.http.converter.json.MappingJacksonValue;
+import org.springframework.util.StreamUtils;
+import org.springframework.util.TypeUtils;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A {@link MappingJackson2HttpMessageConverter} that builds the {@link ObjectWriter} of each {@code @JsonView} once,
+ * instead of for every response - the views of the transformed handler methods are {@link #prepareViews(Collection)
+ * prepared} when the application starts.  It also closes the JSON generator once the body is written, so that
+ * Jackson reuses the buffers of the generator rather than allocating them for each response.  Bodies without a view,
+ * with filters, written as server-sent events or declared as a collection are written by
+ * {@link MappingJackson2HttpMessageConverter} as usual.
+ * <p>
+ * The writers are built from the configuration of the object mapper at the time, so the object mapper must not be
+ * reconfigured once the converter is in use.  Register this converter in place of
+ * {@link MappingJackson2HttpMessageConverter}, for e.g. in {@code configureMessageConverters()} of a
+ * {@code WebMvcConfigurer}.
+ */
+public class ViewCachingMappingJackson2HttpMessageConverter extends MappingJackson2HttpMessageConverter {
+
+  private final Map<Class<?>, ObjectWriter> viewWriters = new ConcurrentHashMap<>();
+
+  public ViewCachingMappingJackson2HttpMessageConverter() {
+    this(Jackson2ObjectMapperBuilder.json().build());
+  }
+
+  public ViewCachingMappingJackson2HttpMessageConverter(ObjectMapper objectMapper) {
+    super(objectMapper);
+  }
+
+  /**
+   * Builds the writers of the views ahead of the first response using them.
+   */
+  public void prepareViews(Collection<Class<?>> views) {
+    views.forEach(this::getViewWriter);
+  }
+
+  /**
+   * @return the number of views whose writer is built.
+   */
+  public int getPreparedViewCount() {
+    return viewWriters.size();
+  }
+
+  @Override
+  public void setObjectMapper(ObjectMapper objectMapper) {
+    super.setObjectMapper(objectMapper);
+    viewWriters.clear();
+  }
+
+  @Override
+  public void setPrettyPrint(boolean prettyPrint) {
+    super.setPrettyPrint(prettyPrint);
+    viewWriters.clear();
+  }
+
+  @Override
+  protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage)
+      throws IOException, HttpMessageNotWritableException {
+    ObjectWriter viewWriter = findViewWriter(object, type, outputMessage.getHeaders().getContentType());
+    if (viewWriter == null) {
+      super.writeInternal(object, type, outputMessage);
+      return;
+    }
+    JsonEncoding encoding = getJsonEncoding(outputMessage.getHeaders().getContentType());
+    JsonGenerator generator = objectMapper.getFactory().createGenerator(
+        StreamUtils.nonClosing(outputMessage.getBody()), encoding);
+    try {
+      writePrefix(generator, object);
+      viewWriter.writeValue(generator, ((MappingJacksonValue) object).getValue());
+      writeSuffix(generator, object);
+      generator.flush();
+      // hands the buffers of the generator back to Jackson for the next response - the body stays open
+      generator.close();
+    }
+    catch (InvalidDefinitionException e) {
+      throw new HttpMessageConversionException("Type definition error: " + e.getType(), e);
+    }
+    catch (JsonProcessingException e) {
+      throw new HttpMessageNotWritableException("Could not write JSON: " + e.getOriginalMessage(), e);
+    }
+  }
+
+  /**
+   * @return the writer of the view of the body or null if the body is written as usual.
+   */
+  private ObjectWriter findViewWriter(Object object, Type type, MediaType contentType) {
+    if (!(object instanceof MappingJacksonValue)) {
+      return null;
+    }
+    MappingJacksonValue container = (MappingJacksonValue) object;
+    if (container.getSerializationView() == null || container.getFilters() != null ||
+        (contentType != null && contentType.isCompatibleWith(MediaType.TEXT_EVENT_STREAM))) {
+      return null;
+    }
+    if (type != null && TypeUtils.isAssignable(type, container.getValue().getClass()) &&
+        getJavaType(type, null).isContainerType()) {
+      // the writer of a collection is built for its element type
+      return null;
+    }
+    return getViewWriter(container.getSerializationView());
+  }
+
+  private ObjectWriter getViewWriter(Class<?> view) {
+    ObjectWriter viewWriter = viewWriters.get(view);
+    if (viewWriter == null) {
+      viewWriter = objectMapper.writerWithView(view);
+      viewWriters.putIfAbsent(view, viewWriter);
+    }
+    return viewWriter;
+  }
+}
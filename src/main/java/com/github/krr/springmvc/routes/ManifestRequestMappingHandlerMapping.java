@@ -0,0 +1,186 @@
+package com.github.krr.springmvc.routes;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.ClassUtils;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfo;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+import java.lang.reflect.Method;
+import java.util.*;
+
+/**
+ * A {@link RequestMappingHandlerMapping} that registers the handler methods of the controllers listed in the
+ * {@link RouteManifest route manifests} of the classpath straight from the manifest.  The methods of these
+ * controllers are neither scanned nor searched for annotations - each handler method is looked up by its name and
+ * parameter types.  The request mapping of each method is built by the same code Spring MVC uses for an annotated
+ * method, so the routing is the same.
+ * <p>
+ * Beans whose class is not in a manifest (for e.g. hand written controllers) are detected by reflection as usual,
+ * and so is every bean when path prefixes are configured.  Register this mapping in place of the default one, for
+ * e.g. by overriding {@code createRequestMappingHandlerMapping()} of {@code WebMvcConfigurationSupport}.
+ * <p>
+ * Unless another path matcher is configured, the patterns of the manifest routes are precompiled by a
+ * {@link PrecompiledPathMatcher} when they are registered, so that most requests are matched without a regex.
+ */
+@Slf4j
+public class ManifestRequestMappingHandlerMapping extends RequestMappingHandlerMapping {
+
+  private Map<String, RouteManifest.Controller> manifestControllers = Collections.emptyMap();
+
+  private int manifestHandlerCount;
+
+  /**
+   * Set unless a path matcher was configured.
+   */
+  private PrecompiledPathMatcher precompiledPathMatcher;
+
+  @Override
+  public void afterPropertiesSet() {
+    manifestControllers = RouteManifest.loadControllers(obtainApplicationContext().getClassLoader());
+    log.debug("Found {} controllers in route manifests", manifestControllers.size());
+    if (!manifestControllers.isEmpty() && getPathMatcher().getClass() == AntPathMatcher.class) {
+      precompiledPathMatcher = new PrecompiledPathMatcher();
+      setPathMatcher(precompiledPathMatcher);
+    }
+    // detects the handler methods
+    super.afterPropertiesSet();
+    log.info("Registered the handler methods of {} controllers from route manifests", manifestHandlerCount);
+  }
+
+  /**
+   * @return the number of beans whose handler methods were registered from a manifest.
+   */
+  public int getManifestHandlerCount() {
+    return manifestHandlerCount;
+  }
+
+  @Override
+  protected void processCandidateBean(String beanName) {
+    RouteManifest.Controller controller = null;
+    Class<?> beanType = null;
+    if (!manifestControllers.isEmpty() && getPathPrefixes().isEmpty()) {
+      try {
+        beanType = obtainApplicationContext().getType(beanName);
+      }
+      catch (Throwable e) {
+        // let the default processing report it
+        beanType = null;
+      }
+      if (beanType != null) {
+        controller = manifestControllers.get(ClassUtils.getUserClass(beanType).getName());
+      }
+    }
+    if (controller == null) {
+      super.processCandidateBean(beanName);
+      return;
+    }
+    registerManifestHandlerMethods(beanName, ClassUtils.getUserClass(beanType), controller);
+    manifestHandlerCount++;
+  }
+
+  private void registerManifestHandlerMethods(String beanName, Class<?> userType,
+                                              RouteManifest.Controller controller) {
+    RequestMappingInfo typeInfo = controller.getTypeMapping() == null ? null :
+        createRequestMappingInfo(synthesize(controller.getTypeMapping()), getCustomTypeCondition(userType));
+    for (RouteManifest.Route route : controller.getRoutes()) {
+      Method method = findMethod(userType, route);
+      RequestMappingInfo info = createRequestMappingInfo(synthesize(route.getMapping()),
+                                                         getCustomMethodCondition(method));
+      if (typeInfo != null) {
+        info = typeInfo.combine(info);
+      }
+      registerHandlerMethod(beanName, AopUtils.selectInvocableMethod(method, userType), info);
+      if (precompiledPathMatcher != null) {
+        precompilePatterns(info);
+      }
+    }
+  }
+
+  private void precompilePatterns(RequestMappingInfo info) {
+    for (String pattern : info.getPatternsCondition().getPatterns()) {
+      if (!precompiledPathMatcher.isPrecompiled(pattern) && !precompiledPathMatcher.precompile(pattern)) {
+        log.debug("Path {} is matched with a regex", pattern);
+      }
+    }
+  }
+
+  private static Method findMethod(Class<?> userType, RouteManifest.Route route) {
+    ClassLoader classLoader = userType.getClassLoader();
+    try {
+      Class<?> declaringClass = ClassUtils.forName(route.getDeclaringClassName(), classLoader);
+      return declaringClass.getDeclaredMethod(route.getMethodName(),
+                                              getParameterTypes(route.getMethodDescriptor(), classLoader));
+    }
+    catch (ClassNotFoundException | NoSuchMethodException | LinkageError e) {
+      throw new IllegalStateException("Handler method " + route.getDeclaringClassName() + "." +
+                                      route.getMethodName() + route.getMethodDescriptor() + " of the route " +
+                                      "manifest not found - was " + userType.getName() + " recompiled without " +
+                                      "being transformed?", e);
+    }
+  }
+
+  /**
+   * @return the classes of the parameters of the method descriptor.
+   */
+  static Class<?>[] getParameterTypes(String methodDescriptor, ClassLoader classLoader)
+      throws ClassNotFoundException {
+    List<Class<?>> parameterTypes = new ArrayList<>();
+    int index = 1;
+    while (methodDescriptor.charAt(index) != ')') {
+      int start = index;
+      while (methodDescriptor.charAt(index) == '[') {
+        index++;
+      }
+      if (methodDescriptor.charAt(index) == 'L') {
+        index = methodDescriptor.indexOf(';', index);
+      }
+      index++;
+      String typeDescriptor = methodDescriptor.substring(start, index);
+      parameterTypes.add(ClassUtils.forName(toClassName(typeDescriptor), classLoader));
+    }
+    return parameterTypes.toArray(new Class<?>[0]);
+  }
+
+  private static String toClassName(String typeDescriptor) {
+    if (typeDescriptor.startsWith("[")) {
+      // the binary name of an array class is its descriptor with dots
+      return typeDescriptor.replace('/', '.');
+    }
+    switch (typeDescriptor.charAt(0)) {
+      case 'Z':
+        return "boolean";
+      case 'B':
+        return "byte";
+      case 'C':
+        return "char";
+      case 'S':
+        return "short";
+      case 'I':
+        return "int";
+      case 'J':
+        return "long";
+      case 'F':
+        return "float";
+      case 'D':
+        return "double";
+      default:
+        return typeDescriptor.substring(1, typeDescriptor.length() - 1).replace('/', '.');
+    }
+  }
+
+  private static RequestMapping synthesize(RouteManifest.Mapping mapping) {
+    Map<String, Object> attributes = new HashMap<>();
+    String[] paths = mapping.getPaths().toArray(new String[0]);
+    attributes.put("value", paths);
+    attributes.put("path", paths);
+    attributes.put("method", mapping.getMethods().stream().map(RequestMethod::valueOf).toArray(RequestMethod[]::new));
+    attributes.put("produces", mapping.getProduces().toArray(new String[0]));
+    attributes.put("consumes", mapping.getConsumes().toArray(new String[0]));
+    return AnnotationUtils.synthesizeAnnotation(attributes, RequestMapping.class, null);
+  }
+}
@@ -0,0 +1,205 @@
+package com.github.krr.springmvc.routes;
+
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.StringUtils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An {@link AntPathMatcher} that matches the precompiled patterns without parsing them or using a regex.  A pattern
+ * can be precompiled if each of its segments is either a literal or a single template variable without a regex, for
+ * e.g. {@code /cluster/nodes/{id}} - which is what the transformer produces for most JAX-RS paths.  The variants
+ * Spring MVC derives from a precompiled pattern for suffix and trailing slash matching are precompiled when they are
+ * first used.  Every other pattern is matched by {@link AntPathMatcher}.
+ * <p>
+ * The matcher has the behavior of a default {@link AntPathMatcher} - case sensitive, with {@code /} as the separator
+ * and untrimmed tokens.
+ */
+public class PrecompiledPathMatcher extends AntPathMatcher {
+
+  private static final String SEPARATOR = "/";
+
+  private static final String SUFFIX_PATTERN = ".*";
+
+  private final Map<String, CompiledPattern> compiledPatterns = new ConcurrentHashMap<>();
+
+  /**
+   * @return true if the pattern could be precompiled.
+   */
+  public boolean precompile(String pattern) {
+    CompiledPattern compiledPattern = CompiledPattern.compile(pattern);
+    if (compiledPattern == null) {
+      return false;
+    }
+    compiledPatterns.put(pattern, compiledPattern);
+    return true;
+  }
+
+  public boolean isPrecompiled(String pattern) {
+    return compiledPatterns.containsKey(pattern);
+  }
+
+  public int getPrecompiledCount() {
+    return compiledPatterns.size();
+  }
+
+  @Override
+  public boolean match(String pattern, String path) {
+    CompiledPattern compiledPattern = findCompiledPattern(pattern);
+    return compiledPattern == null ? super.match(pattern, path) : compiledPattern.match(path, null);
+  }
+
+  @Override
+  public Map<String, String> extractUriTemplateVariables(String pattern, String path) {
+    CompiledPattern compiledPattern = findCompiledPattern(pattern);
+    if (compiledPattern == null) {
+      return super.extractUriTemplateVariables(pattern, path);
+    }
+    Map<String, String> variables = new LinkedHashMap<>();
+    if (!compiledPattern.match(path, variables)) {
+      throw new IllegalStateException("Pattern \"" + pattern + "\" is not a match for \"" + path + "\"");
+    }
+    return variables;
+  }
+
+  private CompiledPattern findCompiledPattern(String pattern) {
+    if (pattern == null) {
+      return null;
+    }
+    CompiledPattern compiledPattern = compiledPatterns.get(pattern);
+    if (compiledPattern != null || compiledPatterns.isEmpty()) {
+      return compiledPattern;
+    }
+    // the variants of the precompiled patterns tried by Spring MVC
+    if (pattern.endsWith(SUFFIX_PATTERN)) {
+      CompiledPattern basePattern = compiledPatterns.get(pattern.substring(0, pattern.length() - 2));
+      if (basePattern != null && !basePattern.trailingSeparator) {
+        compiledPattern = basePattern.withSuffix();
+      }
+    }
+    else if (pattern.endsWith(SEPARATOR) && compiledPatterns.containsKey(pattern.substring(0,
+                                                                                           pattern.length() - 1))) {
+      compiledPattern = CompiledPattern.compile(pattern);
+    }
+    if (compiledPattern != null) {
+      compiledPatterns.putIfAbsent(pattern, compiledPattern);
+    }
+    return compiledPattern;
+  }
+
+  /**
+   * The segments of a pattern and, for each of them, the name of its variable or null if it is a literal.
+   */
+  private static class CompiledPattern {
+
+    private final String[] segments;
+
+    private final String[] variableNames;
+
+    private final boolean leadingSeparator;
+
+    private final boolean trailingSeparator;
+
+    /**
+     * Whether the last segment is followed by {@code .*}, as in the patterns Spring MVC uses for suffix matching.
+     */
+    private final boolean suffix;
+
+    private CompiledPattern(String[] segments, String[] variableNames, boolean leadingSeparator,
+                            boolean trailingSeparator, boolean suffix) {
+      this.segments = segments;
+      this.variableNames = variableNames;
+      this.leadingSeparator = leadingSeparator;
+      this.trailingSeparator = trailingSeparator;
+      this.suffix = suffix;
+    }
+
+    /**
+     * @return the compiled pattern or null if the pattern needs the regex matching of {@link AntPathMatcher}.
+     */
+    static CompiledPattern compile(String pattern) {
+      if (pattern == null || pattern.isEmpty()) {
+        return null;
+      }
+      String[] tokens = StringUtils.tokenizeToStringArray(pattern, SEPARATOR, false, true);
+      String[] variableNames = new String[tokens.length];
+      for (int i = 0; i < tokens.length; i++) {
+        String token = tokens[i];
+        if (token.startsWith("{") && token.endsWith("}")) {
+          String variableName = token.substring(1, token.length() - 1);
+          if (variableName.isEmpty() || containsAny(variableName, "{}:*?")) {
+            return null;
+          }
+          variableNames[i] = variableName;
+        }
+        else if (containsAny(token, "{}*?")) {
+          return null;
+        }
+      }
+      return new CompiledPattern(tokens, variableNames, pattern.startsWith(SEPARATOR), pattern.endsWith(SEPARATOR),
+                                 false);
+    }
+
+    CompiledPattern withSuffix() {
+      return new CompiledPattern(segments, variableNames, leadingSeparator, false, true);
+    }
+
+    /**
+     * Matches the path like {@link AntPathMatcher} matches the pattern.
+     *
+     * @param variables - receives the values of the variables, may be null.
+     */
+    boolean match(String path, Map<String, String> variables) {
+      if (path == null || path.startsWith(SEPARATOR) != leadingSeparator) {
+        return false;
+      }
+      int segmentIndex = 0;
+      int start = 0;
+      while (start <= path.length()) {
+        int end = path.indexOf('/', start);
+        if (end < 0) {
+          end = path.length();
+        }
+        if (end > start) {
+          if (segmentIndex == segments.length ||
+              !matchSegment(segmentIndex, path.substring(start, end), variables)) {
+            return false;
+          }
+          segmentIndex++;
+        }
+        start = end + 1;
+      }
+      return segmentIndex == segments.length && path.endsWith(SEPARATOR) == trailingSeparator;
+    }
+
+    private boolean matchSegment(int index, String pathSegment, Map<String, String> variables) {
+      String value = pathSegment;
+      if (suffix && index == segments.length - 1) {
+        // {id}.* takes the segment up to its last dot - the regex of AntPathMatcher is greedy
+        int dot = variableNames[index] == null ? segments[index].length() : pathSegment.lastIndexOf('.');
+        if (dot < 0 || dot >= pathSegment.length() || pathSegment.charAt(dot) != '.') {
+          return false;
+        }
+        value = pathSegment.substring(0, dot);
+      }
+      if (variableNames[index] == null) {
+        return segments[index].equals(value);
+      }
+      if (variables != null) {
+        variables.put(variableNames[index], value);
+      }
+      return true;
+    }
+
+    private static boolean containsAny(String value, String characters) {
+      for (int i = 0; i < characters.length(); i++) {
+        if (value.indexOf(characters.charAt(i)) >= 0) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+}
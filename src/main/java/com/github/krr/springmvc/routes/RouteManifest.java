@@ -0,0 +1,336 @@
+package com.github.krr.springmvc.routes;
+
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.*;
+import java.net.URL;
+import java.util.*;
+
+/**
+ * The request mappings of the controllers produced by the transformer, written at build time so that they need not
+ * be discovered again by reflection when the application starts.  See {@link ManifestRequestMappingHandlerMapping}.
+ * <p>
+ * The manifest is stored in a compact binary form under {@link #RESOURCE_NAME}: a header, a table of the distinct
+ * strings (class names, paths, media types...) and the controllers, whose every string is an index in the table.
+ * Integers are written as variable length quantities so most of them take a single byte.
+ */
+@Slf4j
+@Value
+public class RouteManifest {
+
+  public static final String RESOURCE_NAME = "META-INF/jaxrs-springmvc/routes.bin";
+
+  private static final int MAGIC = 0x4A52534D;
+
+  private static final int FORMAT_VERSION = 3;
+
+  private final List<Controller> controllers;
+
+  public RouteManifest(List<Controller> controllers) {
+    this.controllers = Collections.unmodifiableList(new ArrayList<>(controllers));
+  }
+
+  /**
+   * @return the controllers of this manifest, keyed by class name.
+   */
+  public Map<String, Controller> getControllersByClassName() {
+    Map<String, Controller> controllersByClassName = new HashMap<>(controllers.size() * 2);
+    for (Controller controller : controllers) {
+      controllersByClassName.put(controller.getClassName(), controller);
+    }
+    return controllersByClassName;
+  }
+
+  /**
+   * Reads the manifests of the classpath of the class loader.  An unreadable manifest is skipped.
+   *
+   * @return the controllers of the manifests, keyed by class name.
+   */
+  public static Map<String, Controller> loadControllers(ClassLoader classLoader) {
+    Map<String, Controller> controllers = new HashMap<>();
+    try {
+      Enumeration<URL> manifestUrls = classLoader == null ?
+          ClassLoader.getSystemResources(RESOURCE_NAME) : classLoader.getResources(RESOURCE_NAME);
+      while (manifestUrls.hasMoreElements()) {
+        URL manifestUrl = manifestUrls.nextElement();
+        try (InputStream inputStream = manifestUrl.openStream()) {
+          // the first manifest on the classpath wins, like the first class file does
+          read(inputStream).getControllersByClassName().forEach(controllers::putIfAbsent);
+        }
+        catch (IOException e) {
+          log.warn("Ignoring unreadable route manifest {}", manifestUrl, e);
+        }
+      }
+    }
+    catch (IOException e) {
+      log.warn("Unable to list the route manifests", e);
+    }
+    return controllers;
+  }
+
+  public void write(OutputStream outputStream) throws IOException {
+    Map<String, Integer> stringIndexes = new LinkedHashMap<>();
+    for (Controller controller : controllers) {
+      controller.collectStrings(stringIndexes);
+    }
+    DataOutputStream dataOutputStream = new DataOutputStream(new BufferedOutputStream(outputStream));
+    dataOutputStream.writeInt(MAGIC);
+    writeInt(dataOutputStream, FORMAT_VERSION);
+    writeInt(dataOutputStream, stringIndexes.size());
+    for (String string : stringIndexes.keySet()) {
+      dataOutputStream.writeUTF(string);
+    }
+    writeInt(dataOutputStream, controllers.size());
+    for (Controller controller : controllers) {
+      controller.write(dataOutputStream, stringIndexes);
+    }
+    dataOutputStream.flush();
+  }
+
+  /**
+   * @throws IOException - if the stream does not hold a manifest written by a compatible version
+   */
+  public static RouteManifest read(InputStream inputStream) throws IOException {
+    DataInputStream dataInputStream = new DataInputStream(new BufferedInputStream(inputStream));
+    if (dataInputStream.readInt() != MAGIC) {
+      throw new IOException("Not a route manifest");
+    }
+    int version = readInt(dataInputStream);
+    if (version != FORMAT_VERSION) {
+      throw new IOException("Unsupported route manifest version " + version);
+    }
+    String[] strings = new String[readInt(dataInputStream)];
+    for (int i = 0; i < strings.length; i++) {
+      strings[i] = dataInputStream.readUTF();
+    }
+    int controllerCount = readInt(dataInputStream);
+    List<Controller> controllers = new ArrayList<>(controllerCount);
+    for (int i = 0; i < controllerCount; i++) {
+      controllers.add(Controller.read(dataInputStream, strings));
+    }
+    return new RouteManifest(controllers);
+  }
+
+  public byte[] toByteArray() {
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    try {
+      write(outputStream);
+    }
+    catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return outputStream.toByteArray();
+  }
+
+  private static void writeInt(DataOutput output, int value) throws IOException {
+    int remaining = value;
+    while ((remaining & ~0x7f) != 0) {
+      output.writeByte((remaining & 0x7f) | 0x80);
+      remaining >>>= 7;
+    }
+    output.writeByte(remaining);
+  }
+
+  private static int readInt(DataInput input) throws IOException {
+    int value = 0;
+    for (int shift = 0; shift < 32; shift += 7) {
+      int b = input.readUnsignedByte();
+      value |= (b & 0x7f) << shift;
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+    }
+    throw new IOException("Malformed route manifest");
+  }
+
+  private static void writeString(DataOutput output, String value, Map<String, Integer> stringIndexes)
+      throws IOException {
+    writeInt(output, stringIndexes.get(value));
+  }
+
+  private static String readString(DataInput input, String[] strings) throws IOException {
+    int index = readInt(input);
+    if (index >= strings.length) {
+      throw new IOException("Malformed route manifest");
+    }
+    return strings[index];
+  }
+
+  private static void writeStrings(DataOutput output, List<String> values, Map<String, Integer> stringIndexes)
+      throws IOException {
+    writeInt(output, values.size());
+    for (String value : values) {
+      writeString(output, value, stringIndexes);
+    }
+  }
+
+  private static List<String> readStrings(DataInput input, String[] strings) throws IOException {
+    int count = readInt(input);
+    if (count == 0) {
+      return Collections.emptyList();
+    }
+    List<String> values = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      values.add(readString(input, strings));
+    }
+    return Collections.unmodifiableList(values);
+  }
+
+  private static void collectString(Map<String, Integer> stringIndexes, String value) {
+    stringIndexes.putIfAbsent(value, stringIndexes.size());
+  }
+
+  /**
+   * A controller and the mapping of each of its handler methods.
+   */
+  @Value
+  public static class Controller {
+
+    private final String className;
+
+    /**
+     * The type level mapping or null if the controller has none.
+     */
+    private final Mapping typeMapping;
+
+    private final List<Route> routes;
+
+    private void collectStrings(Map<String, Integer> stringIndexes) {
+      collectString(stringIndexes, className);
+      if (typeMapping != null) {
+        typeMapping.collectStrings(stringIndexes);
+      }
+      for (Route route : routes) {
+        route.collectStrings(stringIndexes);
+      }
+    }
+
+    private void write(DataOutput output, Map<String, Integer> stringIndexes) throws IOException {
+      writeString(output, className, stringIndexes);
+      output.writeBoolean(typeMapping != null);
+      if (typeMapping != null) {
+        typeMapping.write(output, stringIndexes);
+      }
+      writeInt(output, routes.size());
+      for (Route route : routes) {
+        route.write(output, stringIndexes);
+      }
+    }
+
+    private static Controller read(DataInput input, String[] strings) throws IOException {
+      String className = readString(input, strings);
+      Mapping typeMapping = input.readBoolean() ? Mapping.read(input, strings) : null;
+      int routeCount = readInt(input);
+      List<Route> routes = new ArrayList<>(routeCount);
+      for (int i = 0; i < routeCount; i++) {
+        routes.add(Route.read(input, strings));
+      }
+      return new Controller(className, typeMapping, Collections.unmodifiableList(routes));
+    }
+  }
+
+  /**
+   * A handler method and its mapping.  The method is the one Spring MVC would register - the most specific
+   * implementation in the controller's class hierarchy.
+   */
+  @Value
+  public static class Route {
+
+    private final String declaringClassName;
+
+    private final String methodName;
+
+    /**
+     * The JVM descriptor of the method, for e.g. (Ljava/lang/String;)V
+     */
+    private final String methodDescriptor;
+
+    private final Mapping mapping;
+
+    /**
+     * The {@code SimpleValueType} name of each parameter of the method whose type is a simple value, and an empty
+     * string for the other parameters - or an empty list if no parameter is a simple value.
+     */
+    private final List<String> valueTypes;
+
+    /**
+     * The name of the {@code @JsonView} class of the method, or an empty string if it has none.
+     */
+    private final String jsonView;
+
+    /**
+     * @return the key of the method in the maps of the methods of the manifests.
+     */
+    public String getMethodKey() {
+      return getMethodKey(declaringClassName, methodName, methodDescriptor);
+    }
+
+    /**
+     * @param methodDescriptor - the JVM descriptor of the method
+     */
+    public static String getMethodKey(String declaringClassName, String methodName, String methodDescriptor) {
+      return declaringClassName + '.' + methodName + methodDescriptor;
+    }
+
+    private void collectStrings(Map<String, Integer> stringIndexes) {
+      collectString(stringIndexes, declaringClassName);
+      collectString(stringIndexes, methodName);
+      collectString(stringIndexes, methodDescriptor);
+      mapping.collectStrings(stringIndexes);
+      valueTypes.forEach(valueType -> collectString(stringIndexes, valueType));
+      collectString(stringIndexes, jsonView);
+    }
+
+    private void write(DataOutput output, Map<String, Integer> stringIndexes) throws IOException {
+      writeString(output, declaringClassName, stringIndexes);
+      writeString(output, methodName, stringIndexes);
+      writeString(output, methodDescriptor, stringIndexes);
+      mapping.write(output, stringIndexes);
+      writeStrings(output, valueTypes, stringIndexes);
+      writeString(output, jsonView, stringIndexes);
+    }
+
+    private static Route read(DataInput input, String[] strings) throws IOException {
+      return new Route(readString(input, strings), readString(input, strings), readString(input, strings),
+                       Mapping.read(input, strings), readStrings(input, strings), readString(input, strings));
+    }
+  }
+
+  /**
+   * The attributes of a RequestMapping annotation, after merging a composed annotation such as GetMapping into it.
+   * Only the attributes the transformer generates are supported.
+   */
+  @Value
+  public static class Mapping {
+
+    private final List<String> paths;
+
+    /**
+     * The names of the request methods.
+     */
+    private final List<String> methods;
+
+    private final List<String> produces;
+
+    private final List<String> consumes;
+
+    private void collectStrings(Map<String, Integer> stringIndexes) {
+      for (List<String> values : Arrays.asList(paths, methods, produces, consumes)) {
+        values.forEach(value -> collectString(stringIndexes, value));
+      }
+    }
+
+    private void write(DataOutput output, Map<String, Integer> stringIndexes) throws IOException {
+      writeStrings(output, paths, stringIndexes);
+      writeStrings(output, methods, stringIndexes);
+      writeStrings(output, produces, stringIndexes);
+      writeStrings(output, consumes, stringIndexes);
+    }
+
+    private static Mapping read(DataInput input, String[] strings) throws IOException {
+      return new Mapping(readStrings(input, strings), readStrings(input, strings), readStrings(input, strings),
+                         readStrings(input, strings));
+    }
+  }
+}
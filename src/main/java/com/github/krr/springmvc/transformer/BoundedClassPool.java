@@ -0,0 +1,120 @@
+package com.github.krr.springmvc.transformer;
+
+import javassist.ClassPool;
+import javassist.CtClass;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A class pool that keeps at most a fixed number of classes.  A {@link ClassPool} keeps every class it ever read,
+ * so a pool used to transform a large codebase ends up holding the whole codebase and the superclasses and
+ * interfaces of every class in it.  This pool drops the least recently used classes instead - a class dropped is
+ * read again from its class file if it is needed again.
+ * <p>
+ * A modified class is never dropped, since its changes would be lost - it is kept until it is written and
+ * {@link #release(CtClass) released}, so the number of classes held may exceed the maximum while many classes are
+ * modified at once.  The pool is meant for a single transform session and, like any class pool, is not meant to be
+ * shared by threads.
+ */
+@Slf4j
+public class BoundedClassPool extends ClassPool {
+
+  public static final int DEFAULT_MAX_CACHED_CLASSES = 4096;
+
+  private final int maxCachedClasses;
+
+  /**
+   * The classes cached by the pool, least recently used first.  The primitive types are not in it.
+   */
+  private final LinkedHashMap<String, CtClass> recentClasses = new LinkedHashMap<>(64, 0.75f, true);
+
+  private long evictionCount;
+
+  /**
+   * Creates a pool that finds the classes of the system class path, like {@code new ClassPool(true)}.
+   */
+  public BoundedClassPool(int maxCachedClasses) {
+    super(true);
+    if (maxCachedClasses < 1) {
+      throw new IllegalArgumentException("The maximum number of cached classes must be positive " +
+                                         maxCachedClasses);
+    }
+    this.maxCachedClasses = maxCachedClasses;
+  }
+
+  @Override
+  protected synchronized CtClass getCached(String classname) {
+    CtClass ctClass = super.getCached(classname);
+    if (ctClass != null) {
+      // marks the class as the most recently used
+      recentClasses.get(classname);
+    }
+    return ctClass;
+  }
+
+  @Override
+  protected synchronized void cacheCtClass(String classname, CtClass c, boolean dynamic) {
+    super.cacheCtClass(classname, c, dynamic);
+    recentClasses.put(classname, c);
+    evictLeastRecentlyUsed();
+  }
+
+  @Override
+  protected synchronized CtClass removeCached(String classname) {
+    recentClasses.remove(classname);
+    return super.removeCached(classname);
+  }
+
+  /**
+   * Drops a class from the pool once its class file is written, and prunes it so that whatever still refers to it
+   * does not keep its class file in memory.  The class must not be used afterwards - it is read again from its
+   * class file if it is looked up again.
+   */
+  public void release(CtClass ctClass) {
+    ctClass.detach();
+    ctClass.prune();
+  }
+
+  public int getMaxCachedClasses() {
+    return maxCachedClasses;
+  }
+
+  /**
+   * @return the number of classes held by the pool, not counting the primitive types.
+   */
+  public synchronized int getCachedCount() {
+    return recentClasses.size();
+  }
+
+  /**
+   * @return the number of classes dropped to keep the pool under its maximum size.
+   */
+  public synchronized long getEvictionCount() {
+    return evictionCount;
+  }
+
+  @Override
+  public synchronized String toString() {
+    return String.format("BoundedClassPool[cached=%d, max=%d, evictions=%d]", recentClasses.size(),
+                         maxCachedClasses, evictionCount);
+  }
+
+  private void evictLeastRecentlyUsed() {
+    int excess = recentClasses.size() - maxCachedClasses;
+    Iterator<Map.Entry<String, CtClass>> entries = recentClasses.entrySet().iterator();
+    while (excess > 0 && entries.hasNext()) {
+      Map.Entry<String, CtClass> entry = entries.next();
+      if (entry.getValue().isModified()) {
+        continue;
+      }
+      entries.remove();
+      super.removeCached(entry.getKey());
+      evictionCount++;
+      excess--;
+      log.trace("Dropped class {} from the class pool", entry.getKey());
+    }
+  }
+}
@@ -0,0 +1,134 @@
+package com.github.krr.springmvc.transformer;
+
+import javassist.CtClass;
+import javassist.CtMethod;
+import javassist.bytecode.*;
+import javassist.bytecode.annotation.Annotation;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The bytecode shared by the bridge methods the transformer adds for Spring MVC to map instead of a JAX-RS method
+ * whose parameters or return type it does not understand.  A bridge calls the JAX-RS method and adapts what it passes
+ * or returns; the bridge of an interface method is a default method.  The bytecode is generated directly - a bridge
+ * has no branch so it needs no stack map, and none of the types it refers to has to be in the class pool.
+ */
+final class BridgeMethods {
+
+  private BridgeMethods() {
+  }
+
+  /**
+   * @return true unless the class is an interface compiled for a Java version without default methods.
+   */
+  static boolean canAddBridge(CtClass declaringClass) {
+    return !declaringClass.isInterface() || declaringClass.getClassFile2().getMajorVersion() >= ClassFile.JAVA_8;
+  }
+
+  /**
+   * @return the method the class itself declares with the name and descriptor, if any.
+   */
+  static CtMethod findDeclaredMethod(CtClass declaringClass, String name, String descriptor) {
+    for (CtMethod declaredMethod : declaringClass.getDeclaredMethods()) {
+      if (declaredMethod.getName().equals(name) && declaredMethod.getMethodInfo2().getDescriptor().equals(descriptor)) {
+        return declaredMethod;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Adds the invocation of the method on {@code this} - its arguments must be on the stack already.
+   */
+  static void addInvocation(Bytecode code, CtClass declaringClass, MethodInfo methodInfo) {
+    String descriptor = methodInfo.getDescriptor();
+    if (declaringClass.isInterface()) {
+      code.addInvokeinterface(declaringClass.getName(), methodInfo.getName(), descriptor,
+                              Descriptor.paramSize(descriptor) + 1);
+    }
+    else {
+      code.addInvokevirtual(declaringClass.getName(), methodInfo.getName(), descriptor);
+    }
+  }
+
+  /**
+   * Copies the annotations of the method and of its parameters, but for the skipped one, to the bridge.
+   *
+   * @param skippedParameter - the index of the parameter the bridge does not take or -1
+   */
+  static void copyAnnotations(MethodInfo methodInfo, MethodInfo bridgeInfo, int skippedParameter) {
+    ConstPool constPool = bridgeInfo.getConstPool();
+    AttributeInfo annotations = methodInfo.getAttribute(AnnotationsAttribute.visibleTag);
+    if (annotations != null) {
+      bridgeInfo.addAttribute(annotations.copy(constPool, null));
+    }
+    ParameterAnnotationsAttribute parameterAnnotations = (ParameterAnnotationsAttribute) methodInfo.getAttribute(
+        ParameterAnnotationsAttribute.visibleTag);
+    int parameterCount = Descriptor.numOfParameters(bridgeInfo.getDescriptor());
+    Annotation[][] bridgeParameterAnnotations = new Annotation[parameterCount][];
+    for (int i = 0, bridgeIndex = 0; bridgeIndex < parameterCount; i++) {
+      if (i != skippedParameter) {
+        bridgeParameterAnnotations[bridgeIndex++] = parameterAnnotations == null ||
+                                                    i >= parameterAnnotations.numParameters() ?
+            new Annotation[0] : parameterAnnotations.getAnnotations()[i];
+      }
+    }
+    // the parameter annotations of the bridge are added to when the JAX-RS annotations are translated
+    ParameterAnnotationsAttribute bridgeAttribute = new ParameterAnnotationsAttribute(
+        constPool, ParameterAnnotationsAttribute.visibleTag);
+    bridgeAttribute.setAnnotations(bridgeParameterAnnotations);
+    bridgeInfo.addAttribute(bridgeAttribute);
+  }
+
+  static List<String> getParameterDescriptors(String descriptor) {
+    List<String> parameterDescriptors = new ArrayList<>();
+    int index = 1;
+    while (descriptor.charAt(index) != ')') {
+      int start = index;
+      while (descriptor.charAt(index) == '[') {
+        index++;
+      }
+      if (descriptor.charAt(index) == 'L') {
+        index = descriptor.indexOf(';', index);
+      }
+      index++;
+      parameterDescriptors.add(descriptor.substring(start, index));
+    }
+    return parameterDescriptors;
+  }
+
+  static String getReturnDescriptor(String descriptor) {
+    return descriptor.substring(descriptor.indexOf(')') + 1);
+  }
+
+  /**
+   * @return the number of local variable slots taken by a value of the type.
+   */
+  static int getSize(String typeDescriptor) {
+    return typeDescriptor.equals("J") || typeDescriptor.equals("D") ? 2 : 1;
+  }
+
+  static void addLoad(Bytecode code, String typeDescriptor, int local) {
+    switch (typeDescriptor.charAt(0)) {
+      case 'Z':
+      case 'B':
+      case 'C':
+      case 'S':
+      case 'I':
+        code.addIload(local);
+        break;
+      case 'J':
+        code.addLload(local);
+        break;
+      case 'F':
+        code.addFload(local);
+        break;
+      case 'D':
+        code.addDload(local);
+        break;
+      default:
+        code.addAload(local);
+    }
+  }
+}
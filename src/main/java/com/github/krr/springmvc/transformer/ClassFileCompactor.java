@@ -0,0 +1,172 @@
+package com.github.krr.springmvc.transformer;
+
+import com.github.krr.springmvc.javassist.utils.JaxrsAnnotations;
+import javassist.CannotCompileException;
+import javassist.CtClass;
+import javassist.bytecode.AnnotationsAttribute;
+import javassist.bytecode.ClassFile;
+import javassist.bytecode.MethodInfo;
+import javassist.bytecode.ParameterAnnotationsAttribute;
+import javassist.bytecode.annotation.Annotation;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.*;
+
+/**
+ * Produces the smallest class files for the transformed classes, for applications that no longer run a JAX-RS
+ * runtime.  The JAX-RS annotations that were translated to Spring MVC annotations are removed, then the constant
+ * pool is rebuilt without the entries nothing refers to any more - the names of the JAX-RS annotation types for
+ * e.g., while the paths and media types are shared by the Spring MVC annotations.
+ * <p>
+ * The JAX-RS annotations of interfaces are kept: the implementations of an interface may be in other modules, which
+ * are transformed later by reading the JAX-RS annotations of the interface.
+ * <p>
+ * The sizes of the class files before and after compaction are added to the {@link TransformationMetrics}.
+ */
+@Slf4j
+public class ClassFileCompactor {
+
+  private static final Set<String> TYPE_ANNOTATIONS = new HashSet<>(
+      Arrays.asList(JaxrsAnnotations.PATH, JaxrsAnnotations.PRODUCES, JaxrsAnnotations.CONSUMES));
+
+  private static final Set<String> METHOD_ANNOTATIONS = new HashSet<>(TYPE_ANNOTATIONS);
+
+  private static final Set<String> METHOD_MAPPINGS = new HashSet<>(
+      Arrays.asList(RequestMapping.class.getName(), GetMapping.class.getName(), PostMapping.class.getName(),
+                    PutMapping.class.getName(), PatchMapping.class.getName(), DeleteMapping.class.getName()));
+
+  private static final Set<String> PARAMETER_ANNOTATIONS = new HashSet<>(JaxrsAnnotations.PARAMETER_ANNOTATIONS);
+
+  private static final String SPRING_MVC_PACKAGE_PREFIX = RequestMapping.class.getPackage().getName() + ".";
+
+  static {
+    METHOD_ANNOTATIONS.addAll(JaxrsAnnotations.HTTP_METHODS);
+    PARAMETER_ANNOTATIONS.add(JaxrsAnnotations.DEFAULT_VALUE);
+  }
+
+  private final TransformationMetrics metrics;
+
+  public ClassFileCompactor(TransformationMetrics metrics) {
+    this.metrics = metrics;
+  }
+
+  /**
+   * Compacts the class and serializes it, like {@link CtClass#toBytecode()}.
+   */
+  public byte[] toBytecode(CtClass ctClass) throws IOException, CannotCompileException {
+    ClassFile classFile = ctClass.getClassFile2();
+    long sizeBefore = getSize(classFile);
+    removeTranslatedAnnotations(classFile);
+    // the constant pool is compacted when the class is written
+    ctClass.rebuildClassFile();
+    byte[] bytecode = ctClass.toBytecode();
+    metrics.add(TransformationMetrics.Counter.BYTES_BEFORE_COMPACTION, sizeBefore);
+    metrics.add(TransformationMetrics.Counter.BYTES_AFTER_COMPACTION, bytecode.length);
+    log.debug("Compacted class {} from {} to {} bytes", ctClass.getName(), sizeBefore, bytecode.length);
+    return bytecode;
+  }
+
+  /**
+   * Removes the JAX-RS annotations of the class, its methods and their parameters that have a Spring MVC
+   * equivalent on the same element, unless the class is an interface.
+   */
+  static void removeTranslatedAnnotations(ClassFile classFile) {
+    if (classFile.isInterface()) {
+      return;
+    }
+    AnnotationsAttribute classAttribute = (AnnotationsAttribute) classFile.getAttribute(
+        AnnotationsAttribute.visibleTag);
+    if (classAttribute != null && classAttribute.getAnnotation(RequestMapping.class.getName()) != null &&
+        removeAnnotations(classAttribute, TYPE_ANNOTATIONS)) {
+      classFile.removeAttribute(AnnotationsAttribute.visibleTag);
+    }
+    for (MethodInfo methodInfo : classFile.getMethods()) {
+      AnnotationsAttribute methodAttribute = (AnnotationsAttribute) methodInfo.getAttribute(
+          AnnotationsAttribute.visibleTag);
+      if (methodAttribute == null || !hasAnyAnnotation(methodAttribute.getAnnotations(), METHOD_MAPPINGS)) {
+        continue;
+      }
+      if (removeAnnotations(methodAttribute, METHOD_ANNOTATIONS)) {
+        methodInfo.removeAttribute(AnnotationsAttribute.visibleTag);
+      }
+      ParameterAnnotationsAttribute parameterAttribute = (ParameterAnnotationsAttribute) methodInfo.getAttribute(
+          ParameterAnnotationsAttribute.visibleTag);
+      if (parameterAttribute != null) {
+        removeTranslatedParameterAnnotations(parameterAttribute);
+      }
+    }
+  }
+
+  private static void removeTranslatedParameterAnnotations(ParameterAnnotationsAttribute parameterAttribute) {
+    Annotation[][] parametersAnnotations = parameterAttribute.getAnnotations();
+    boolean modified = false;
+    for (int i = 0; i < parametersAnnotations.length; i++) {
+      Annotation[] parameterAnnotations = parametersAnnotations[i];
+      boolean translated = Arrays.stream(parameterAnnotations)
+                                 .anyMatch(annotation -> annotation.getTypeName()
+                                                                   .startsWith(SPRING_MVC_PACKAGE_PREFIX));
+      if (translated) {
+        Annotation[] keptAnnotations = Arrays.stream(parameterAnnotations)
+                                             .filter(annotation -> !PARAMETER_ANNOTATIONS
+                                                 .contains(annotation.getTypeName()))
+                                             .toArray(Annotation[]::new);
+        modified |= keptAnnotations.length != parameterAnnotations.length;
+        parametersAnnotations[i] = keptAnnotations;
+      }
+    }
+    if (modified) {
+      parameterAttribute.setAnnotations(parametersAnnotations);
+    }
+  }
+
+  /**
+   * @return true if the attribute is left without annotations.
+   */
+  private static boolean removeAnnotations(AnnotationsAttribute attribute, Set<String> typeNames) {
+    Annotation[] annotations = attribute.getAnnotations();
+    List<Annotation> keptAnnotations = new ArrayList<>(annotations.length);
+    for (Annotation annotation : annotations) {
+      if (!typeNames.contains(annotation.getTypeName())) {
+        keptAnnotations.add(annotation);
+      }
+    }
+    if (keptAnnotations.size() != annotations.length) {
+      attribute.setAnnotations(keptAnnotations.toArray(new Annotation[0]));
+    }
+    return keptAnnotations.isEmpty();
+  }
+
+  private static boolean hasAnyAnnotation(Annotation[] annotations, Set<String> typeNames) {
+    for (Annotation annotation : annotations) {
+      if (typeNames.contains(annotation.getTypeName())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static long getSize(ClassFile classFile) throws IOException {
+    CountingOutputStream outputStream = new CountingOutputStream();
+    classFile.write(new DataOutputStream(outputStream));
+    return outputStream.count;
+  }
+
+  private static class CountingOutputStream extends OutputStream {
+
+    private long count;
+
+    @Override
+    public void write(int b) {
+      count++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+      count += len;
+    }
+  }
+}
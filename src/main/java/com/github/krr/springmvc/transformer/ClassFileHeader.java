@@ -0,0 +1,409 @@
+package com.github.krr.springmvc.transformer;
+
+import com.github.krr.springmvc.javassist.beans.AnnotationDescriptor;
+import javassist.bytecode.AnnotationsAttribute;
+import javassist.bytecode.Descriptor;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * The names found at the start of a class file - the class, its superclass and its interfaces - read straight from
+ * the raw bytes without building a javassist class.  Only the constant pool and the few fields after it are parsed;
+ * fields, methods and attributes are not read at all, unless the {@link #readDeclaredAnnotations() annotations of
+ * the class} are asked for.
+ */
+public final class ClassFileHeader {
+
+  private static final int MAGIC = 0xCAFEBABE;
+
+  private static final int CONSTANT_UTF8 = 1;
+
+  private static final int CONSTANT_INTEGER = 3;
+
+  private static final int CONSTANT_FLOAT = 4;
+
+  private static final int CONSTANT_LONG = 5;
+
+  private static final int CONSTANT_DOUBLE = 6;
+
+  private static final int CONSTANT_CLASS = 7;
+
+  private static final int CONSTANT_STRING = 8;
+
+  private static final int CONSTANT_FIELDREF = 9;
+
+  private static final int CONSTANT_METHODREF = 10;
+
+  private static final int CONSTANT_INTERFACE_METHODREF = 11;
+
+  private static final int CONSTANT_NAME_AND_TYPE = 12;
+
+  private static final int CONSTANT_METHOD_HANDLE = 15;
+
+  private static final int CONSTANT_METHOD_TYPE = 16;
+
+  private static final int CONSTANT_DYNAMIC = 17;
+
+  private static final int CONSTANT_INVOKE_DYNAMIC = 18;
+
+  private static final int CONSTANT_MODULE = 19;
+
+  private static final int CONSTANT_PACKAGE = 20;
+
+  private static final int ACC_INTERFACE = 0x0200;
+
+  private final ByteBuffer buffer;
+
+  /**
+   * The offset of every constant pool entry in the buffer, indexed by constant pool index.  The offset points at the
+   * byte following the tag.
+   */
+  private final int[] constantOffsets;
+
+  private final byte[] constantTags;
+
+  private final int accessFlags;
+
+  private final String className;
+
+  private final String superclassName;
+
+  private final List<String> interfaceNames;
+
+  /**
+   * The offset of the fields, which follow the interfaces.
+   */
+  private final int fieldsOffset;
+
+  private ClassFileHeader(ByteBuffer buffer) {
+    this.buffer = buffer;
+    if (buffer.getInt() != MAGIC) {
+      throw new IllegalArgumentException("Not a class file");
+    }
+    // minor and major versions
+    buffer.getInt();
+    int constantCount = buffer.getShort() & 0xffff;
+    constantOffsets = new int[constantCount];
+    constantTags = new byte[constantCount];
+    for (int index = 1; index < constantCount; index++) {
+      byte tag = buffer.get();
+      constantTags[index] = tag;
+      constantOffsets[index] = buffer.position();
+      skipConstant(tag);
+      if (tag == CONSTANT_LONG || tag == CONSTANT_DOUBLE) {
+        // 8 byte constants take two entries
+        index++;
+      }
+    }
+    accessFlags = buffer.getShort() & 0xffff;
+    className = getClassConstant(buffer.getShort() & 0xffff);
+    superclassName = getClassConstant(buffer.getShort() & 0xffff);
+    int interfaceCount = buffer.getShort() & 0xffff;
+    List<String> interfaces = new ArrayList<>(interfaceCount);
+    for (int i = 0; i < interfaceCount; i++) {
+      interfaces.add(getClassConstant(buffer.getShort() & 0xffff));
+    }
+    interfaceNames = Collections.unmodifiableList(interfaces);
+    fieldsOffset = buffer.position();
+  }
+
+  /**
+   * Reads the header of the class file in the buffer, starting at its current position.  The buffer must not be
+   * modified while the header is in use.
+   *
+   * @throws IllegalArgumentException - if the buffer does not hold a class file
+   */
+  public static ClassFileHeader read(ByteBuffer buffer) {
+    try {
+      return new ClassFileHeader(buffer.slice());
+    }
+    catch (RuntimeException e) {
+      if (e instanceof IllegalArgumentException) {
+        throw e;
+      }
+      throw new IllegalArgumentException("Malformed class file", e);
+    }
+  }
+
+  public static ClassFileHeader read(byte[] classFile) {
+    return read(ByteBuffer.wrap(classFile));
+  }
+
+  /**
+   * @return the name of the class, in the dotted form (for e.g. java.lang.String)
+   */
+  public String getClassName() {
+    return className;
+  }
+
+  /**
+   * @return the name of the superclass or null for java.lang.Object
+   */
+  public String getSuperclassName() {
+    return superclassName;
+  }
+
+  public List<String> getInterfaceNames() {
+    return interfaceNames;
+  }
+
+  public boolean isInterface() {
+    return (accessFlags & ACC_INTERFACE) != 0;
+  }
+
+  /**
+   * @return the names of the superclass (if any) followed by the names of the interfaces.
+   */
+  public List<String> getSupertypeNames() {
+    List<String> supertypes = new ArrayList<>(interfaceNames.size() + 1);
+    if (superclassName != null) {
+      supertypes.add(superclassName);
+    }
+    supertypes.addAll(interfaceNames);
+    return supertypes;
+  }
+
+  /**
+   * Reads the visible and invisible annotations declared on the class, skipping its fields and methods.  The
+   * annotations are read in the order javassist reads them - see {@code CtClassUtils.readDeclaredAnnotations}.
+   *
+   * @return the annotations of the class, in the order they are declared.
+   * @throws IllegalArgumentException - if the class file is malformed
+   */
+  public List<AnnotationDescriptor> readDeclaredAnnotations() {
+    try {
+      ByteBuffer attributes = buffer.duplicate();
+      ((Buffer) attributes).position(fieldsOffset);
+      // the fields then the methods
+      for (int members = 0; members < 2; members++) {
+        int memberCount = attributes.getShort() & 0xffff;
+        for (int i = 0; i < memberCount; i++) {
+          // access flags, name and descriptor
+          skip(attributes, 6);
+          skipAttributes(attributes);
+        }
+      }
+      List<AnnotationDescriptor> visibleAnnotations = Collections.emptyList();
+      List<AnnotationDescriptor> invisibleAnnotations = Collections.emptyList();
+      int attributeCount = attributes.getShort() & 0xffff;
+      for (int i = 0; i < attributeCount; i++) {
+        String attributeName = getUtf8Constant(attributes.getShort() & 0xffff);
+        int length = attributes.getInt();
+        int end = attributes.position() + length;
+        if (AnnotationsAttribute.visibleTag.equals(attributeName)) {
+          visibleAnnotations = readAnnotations(attributes);
+        }
+        else if (AnnotationsAttribute.invisibleTag.equals(attributeName)) {
+          invisibleAnnotations = readAnnotations(attributes);
+        }
+        ((Buffer) attributes).position(end);
+      }
+      if (invisibleAnnotations.isEmpty()) {
+        return visibleAnnotations;
+      }
+      List<AnnotationDescriptor> annotations = new ArrayList<>(visibleAnnotations);
+      annotations.addAll(invisibleAnnotations);
+      return annotations;
+    }
+    catch (IllegalArgumentException e) {
+      throw e;
+    }
+    catch (RuntimeException e) {
+      throw new IllegalArgumentException("Malformed class file " + className, e);
+    }
+  }
+
+  /**
+   * @return true if any string constant of the constant pool (for e.g. a class name, a descriptor or a string
+   * literal) contains the sequence of bytes.
+   */
+  public boolean containsInStringConstants(byte[] sequence) {
+    for (int index = 1; index < constantTags.length; index++) {
+      if (constantTags[index] != CONSTANT_UTF8) {
+        continue;
+      }
+      int offset = constantOffsets[index];
+      int length = buffer.getShort(offset) & 0xffff;
+      if (indexOf(offset + 2, length, sequence) >= 0) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private int indexOf(int offset, int length, byte[] sequence) {
+    int lastStart = offset + length - sequence.length;
+    for (int start = offset; start <= lastStart; start++) {
+      int i = 0;
+      while (i < sequence.length && buffer.get(start + i) == sequence[i]) {
+        i++;
+      }
+      if (i == sequence.length) {
+        return start;
+      }
+    }
+    return -1;
+  }
+
+  private static void skipAttributes(ByteBuffer attributes) {
+    int attributeCount = attributes.getShort() & 0xffff;
+    for (int i = 0; i < attributeCount; i++) {
+      // the name of the attribute
+      attributes.getShort();
+      int length = attributes.getInt();
+      skip(attributes, length);
+    }
+  }
+
+  private List<AnnotationDescriptor> readAnnotations(ByteBuffer attribute) {
+    int annotationCount = attribute.getShort() & 0xffff;
+    List<AnnotationDescriptor> annotations = new ArrayList<>(annotationCount);
+    for (int i = 0; i < annotationCount; i++) {
+      annotations.add(readAnnotation(attribute));
+    }
+    return annotations;
+  }
+
+  private AnnotationDescriptor readAnnotation(ByteBuffer attribute) {
+    String typeName = Descriptor.toClassName(getUtf8Constant(attribute.getShort() & 0xffff));
+    int memberCount = attribute.getShort() & 0xffff;
+    if (memberCount == 0) {
+      return new AnnotationDescriptor(typeName, className, Collections.emptyMap());
+    }
+    Map<String, Object> members = new LinkedHashMap<>();
+    for (int i = 0; i < memberCount; i++) {
+      String memberName = getUtf8Constant(attribute.getShort() & 0xffff);
+      members.put(memberName, readElementValue(attribute));
+    }
+    return new AnnotationDescriptor(typeName, className, Collections.unmodifiableMap(members));
+  }
+
+  /**
+   * @return the value copied like {@link AnnotationDescriptor#of} copies it.
+   */
+  private Object readElementValue(ByteBuffer attribute) {
+    char tag = (char) attribute.get();
+    switch (tag) {
+      case 's':
+        return getUtf8Constant(attribute.getShort() & 0xffff);
+      case 'Z':
+        return getIntConstant(attribute.getShort() & 0xffff) != 0;
+      case 'B':
+        return (byte) getIntConstant(attribute.getShort() & 0xffff);
+      case 'C':
+        return (char) getIntConstant(attribute.getShort() & 0xffff);
+      case 'S':
+        return (short) getIntConstant(attribute.getShort() & 0xffff);
+      case 'I':
+        return getIntConstant(attribute.getShort() & 0xffff);
+      case 'J':
+        return buffer.getLong(getConstantOffset(attribute.getShort() & 0xffff, CONSTANT_LONG));
+      case 'F':
+        return buffer.getFloat(getConstantOffset(attribute.getShort() & 0xffff, CONSTANT_FLOAT));
+      case 'D':
+        return buffer.getDouble(getConstantOffset(attribute.getShort() & 0xffff, CONSTANT_DOUBLE));
+      case 'e':
+        // the type of the enum, then the name of the constant
+        attribute.getShort();
+        return getUtf8Constant(attribute.getShort() & 0xffff);
+      case 'c':
+        return Descriptor.toClassName(getUtf8Constant(attribute.getShort() & 0xffff));
+      case '@':
+        return readAnnotation(attribute);
+      case '[':
+        int valueCount = attribute.getShort() & 0xffff;
+        if (valueCount == 0) {
+          return Collections.emptyList();
+        }
+        Object[] values = new Object[valueCount];
+        for (int i = 0; i < valueCount; i++) {
+          values[i] = readElementValue(attribute);
+        }
+        return Collections.unmodifiableList(Arrays.asList(values));
+      default:
+        throw new IllegalArgumentException("Unknown annotation element tag " + tag);
+    }
+  }
+
+  private int getIntConstant(int index) {
+    return buffer.getInt(getConstantOffset(index, CONSTANT_INTEGER));
+  }
+
+  private int getConstantOffset(int index, int tag) {
+    if (constantTags[index] != tag) {
+      throw new IllegalArgumentException("Constant " + index + " is not of type " + tag);
+    }
+    return constantOffsets[index];
+  }
+
+  private void skipConstant(byte tag) {
+    switch (tag) {
+      case CONSTANT_UTF8:
+        int length = buffer.getShort() & 0xffff;
+        skip(buffer, length);
+        break;
+      case CONSTANT_CLASS:
+      case CONSTANT_STRING:
+      case CONSTANT_METHOD_TYPE:
+      case CONSTANT_MODULE:
+      case CONSTANT_PACKAGE:
+        skip(buffer, 2);
+        break;
+      case CONSTANT_METHOD_HANDLE:
+        skip(buffer, 3);
+        break;
+      case CONSTANT_INTEGER:
+      case CONSTANT_FLOAT:
+      case CONSTANT_FIELDREF:
+      case CONSTANT_METHODREF:
+      case CONSTANT_INTERFACE_METHODREF:
+      case CONSTANT_NAME_AND_TYPE:
+      case CONSTANT_DYNAMIC:
+      case CONSTANT_INVOKE_DYNAMIC:
+        skip(buffer, 4);
+        break;
+      case CONSTANT_LONG:
+      case CONSTANT_DOUBLE:
+        skip(buffer, 8);
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown constant pool tag " + tag);
+    }
+  }
+
+  /**
+   * Moves the position of the buffer through {@link Buffer}, since {@code ByteBuffer.position(int)} does not exist on
+   * Java 8.
+   */
+  private static void skip(ByteBuffer buffer, int count) {
+    ((Buffer) buffer).position(buffer.position() + count);
+  }
+
+  private String getClassConstant(int index) {
+    if (index == 0) {
+      return null;
+    }
+    if (constantTags[index] != CONSTANT_CLASS) {
+      throw new IllegalArgumentException("Constant " + index + " is not a class");
+    }
+    int nameIndex = buffer.getShort(constantOffsets[index]) & 0xffff;
+    return getUtf8Constant(nameIndex).replace('/', '.');
+  }
+
+  private String getUtf8Constant(int index) {
+    if (constantTags[index] != CONSTANT_UTF8) {
+      throw new IllegalArgumentException("Constant " + index + " is not a string");
+    }
+    int offset = constantOffsets[index];
+    int length = buffer.getShort(offset) & 0xffff;
+    byte[] bytes = new byte[length];
+    for (int i = 0; i < length; i++) {
+      bytes[i] = buffer.get(offset + 2 + i);
+    }
+    // the names of classes never contain the characters for which modified UTF-8 differs from UTF-8
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,73 @@
+package com.github.krr.springmvc.transformer;
+
+import com.github.krr.springmvc.javassist.utils.AnnotationResolutionCache;
+import com.github.krr.springmvc.javassist.utils.JaxrsAnnotationExtractor;
+import javassist.ClassPool;
+
+/**
+ * The class pool used to resolve the hierarchy of the class files given to
+ * {@link JaxrsToSpringMvcTransformer#transformClassFile(ClassFileTransformationContext, byte[])}, along with the
+ * hashes, prefilter results and annotations resolved from it.  Reusing a context for many class files means the
+ * supertypes they share are read once.  The annotations are cached by class name, so a context must only be used
+ * with the classes of one class pool - for e.g. those of one class loader.
+ * <p>
+ * A context is not thread safe.
+ */
+public class ClassFileTransformationContext {
+
+  private final ClassPool classPool;
+
+  private final ClassHierarchyHasher hierarchyHasher;
+
+  private final JaxrsClassPrefilter prefilter;
+
+  private final AnnotationResolutionCache annotationResolutionCache = new AnnotationResolutionCache();
+
+  private final JaxrsAnnotationExtractor annotationExtractor = new JaxrsAnnotationExtractor(annotationResolutionCache);
+
+  private TypeHierarchyIndex typeHierarchyIndex;
+
+  /**
+   * @param classPool        - the pool to resolve the hierarchy of the classes from
+   * @param prefilterEnabled - true to reject the class files that do not refer to JAX-RS before building classes
+   */
+  public ClassFileTransformationContext(ClassPool classPool, boolean prefilterEnabled) {
+    this.classPool = classPool;
+    this.hierarchyHasher = new ClassHierarchyHasher(classPool);
+    this.prefilter = prefilterEnabled ? new JaxrsClassPrefilter(classPool) : null;
+  }
+
+  public ClassPool getClassPool() {
+    return classPool;
+  }
+
+  /**
+   * @return the prefilter or null if it is disabled.
+   */
+  public JaxrsClassPrefilter getPrefilter() {
+    return prefilter;
+  }
+
+  ClassHierarchyHasher getHierarchyHasher() {
+    return hierarchyHasher;
+  }
+
+  AnnotationResolutionCache getAnnotationResolutionCache() {
+    return annotationResolutionCache;
+  }
+
+  JaxrsAnnotationExtractor getAnnotationExtractor() {
+    return annotationExtractor;
+  }
+
+  /**
+   * @return the index of the classes the context is used for or null if they are not indexed.
+   */
+  TypeHierarchyIndex getTypeHierarchyIndex() {
+    return typeHierarchyIndex;
+  }
+
+  void setTypeHierarchyIndex(TypeHierarchyIndex typeHierarchyIndex) {
+    this.typeHierarchyIndex = typeHierarchyIndex;
+  }
+}
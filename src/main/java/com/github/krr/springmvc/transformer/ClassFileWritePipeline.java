@@ -0,0 +1,257 @@
+package com.github.krr.springmvc.transformer;
+
+import javassist.CannotCompileException;
+import javassist.CtClass;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collects the classes modified during a transform session and writes each of them once when the session is
+ * flushed, instead of rewriting every modified class after each transformation.
+ * <p>
+ * The classes are serialized on the thread calling {@link #flush()} (javassist classes are not thread safe) and the
+ * resulting class files are written in batches, optionally on a background writer thread so that disk writes
+ * overlap with the serialization of the next batch.  A class marked dirty again after a flush is written again by
+ * the next flush.
+ */
+@Slf4j
+public class ClassFileWritePipeline implements Closeable {
+
+  public static final int DEFAULT_BATCH_SIZE = 64;
+
+  /**
+   * The dirty classes keyed by name, in the order they were first modified.
+   */
+  private final Map<String, CtClass> dirtyClasses = new LinkedHashMap<>();
+
+  private final AtomicLong filesWritten = new AtomicLong();
+
+  private final AtomicLong bytesWritten = new AtomicLong();
+
+  private volatile String outputDirectory;
+
+  private volatile boolean asyncWrites;
+
+  private volatile int batchSize = DEFAULT_BATCH_SIZE;
+
+  private ExecutorService writerExecutor;
+
+  /**
+   * When set, the classes are compacted as they are serialized.
+   */
+  private volatile ClassFileCompactor compactor;
+
+  /**
+   * Creates a pipeline that writes to the current directory, like {@link CtClass#writeFile()}.
+   */
+  public ClassFileWritePipeline() {
+    this(null);
+  }
+
+  public ClassFileWritePipeline(String outputDirectory) {
+    this.outputDirectory = outputDirectory;
+  }
+
+  /**
+   * Marks the class as modified so that it is written by the next flush.  Marking the same class more than once
+   * before a flush has no effect.
+   */
+  public synchronized void markDirty(CtClass ctClass) {
+    dirtyClasses.putIfAbsent(ctClass.getName(), ctClass);
+  }
+
+  /**
+   * Forgets a dirty class, for e.g. because its class file was already produced some other way.
+   */
+  public synchronized void discard(String className) {
+    dirtyClasses.remove(className);
+  }
+
+  public synchronized boolean isDirty(String className) {
+    return dirtyClasses.containsKey(className);
+  }
+
+  public synchronized int getPendingCount() {
+    return dirtyClasses.size();
+  }
+
+  /**
+   * Writes all the dirty classes and waits for the writes to complete.
+   *
+   * @throws IOException - if a class could not be serialized or written
+   */
+  public void flush() throws IOException {
+    List<CtClass> classesToWrite;
+    synchronized (this) {
+      classesToWrite = new ArrayList<>(dirtyClasses.values());
+      dirtyClasses.clear();
+    }
+    if (classesToWrite.isEmpty()) {
+      return;
+    }
+    log.debug("Flushing {} class files to {}", classesToWrite.size(), getOutputDirectory());
+    List<Future<?>> pendingBatches = new ArrayList<>();
+    List<ClassFileBytes> batch = new ArrayList<>(batchSize);
+    for (CtClass ctClass : classesToWrite) {
+      batch.add(serialize(ctClass));
+      if (batch.size() >= batchSize) {
+        pendingBatches.add(submitBatch(batch));
+        batch = new ArrayList<>(batchSize);
+      }
+    }
+    if (!batch.isEmpty()) {
+      pendingBatches.add(submitBatch(batch));
+    }
+    awaitBatches(pendingBatches);
+  }
+
+  /**
+   * Flushes the dirty classes and stops the background writer.
+   */
+  @Override
+  public void close() throws IOException {
+    try {
+      flush();
+    }
+    finally {
+      synchronized (this) {
+        if (writerExecutor != null) {
+          writerExecutor.shutdown();
+          writerExecutor = null;
+        }
+      }
+      log.info("Wrote {} class files ({} bytes)", getFilesWritten(), getBytesWritten());
+    }
+  }
+
+  private ClassFileBytes serialize(CtClass ctClass) throws IOException {
+    try {
+      byte[] bytecode = compactor == null ? ctClass.toBytecode() : compactor.toBytecode(ctClass);
+      // writing freezes the class - allow it to be modified again by a later transformation.
+      ctClass.defrost();
+      return new ClassFileBytes(ctClass.getName(), bytecode);
+    }
+    catch (CannotCompileException e) {
+      throw new IOException("Unable to serialize class " + ctClass.getName(), e);
+    }
+  }
+
+  private Future<?> submitBatch(List<ClassFileBytes> batch) throws IOException {
+    if (!asyncWrites) {
+      writeBatch(batch);
+      return CompletableFuture.completedFuture(null);
+    }
+    return getWriterExecutor().submit(() -> {
+      writeBatch(batch);
+      return null;
+    });
+  }
+
+  private void writeBatch(List<ClassFileBytes> batch) throws IOException {
+    for (ClassFileBytes classFileBytes : batch) {
+      Path classFilePath = getClassFilePath(classFileBytes.getClassName());
+      Path parent = classFilePath.getParent();
+      if (parent != null) {
+        Files.createDirectories(parent);
+      }
+      Files.write(classFilePath, classFileBytes.getBytes());
+      filesWritten.incrementAndGet();
+      bytesWritten.addAndGet(classFileBytes.getBytes().length);
+      log.trace("Wrote class file {}", classFilePath);
+    }
+  }
+
+  private void awaitBatches(List<Future<?>> pendingBatches) throws IOException {
+    for (Future<?> pendingBatch : pendingBatches) {
+      try {
+        pendingBatch.get();
+      }
+      catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException("Interrupted while writing class files", e);
+      }
+      catch (ExecutionException e) {
+        throw new IOException("Unable to write class files", e.getCause());
+      }
+    }
+  }
+
+  private synchronized ExecutorService getWriterExecutor() {
+    if (writerExecutor == null) {
+      writerExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "class-file-writer");
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+    return writerExecutor;
+  }
+
+  Path getClassFilePath(String className) {
+    return Paths.get(getOutputDirectory(), className.replace('.', File.separatorChar) + ".class");
+  }
+
+  public String getOutputDirectory() {
+    return outputDirectory == null ? "." : outputDirectory;
+  }
+
+  public void setOutputDirectory(String outputDirectory) {
+    this.outputDirectory = outputDirectory;
+  }
+
+  public boolean isAsyncWrites() {
+    return asyncWrites;
+  }
+
+  public void setAsyncWrites(boolean asyncWrites) {
+    this.asyncWrites = asyncWrites;
+  }
+
+  public int getBatchSize() {
+    return batchSize;
+  }
+
+  public void setBatchSize(int batchSize) {
+    if (batchSize < 1) {
+      throw new IllegalArgumentException("Batch size must be positive " + batchSize);
+    }
+    this.batchSize = batchSize;
+  }
+
+  public ClassFileCompactor getCompactor() {
+    return compactor;
+  }
+
+  public void setCompactor(ClassFileCompactor compactor) {
+    this.compactor = compactor;
+  }
+
+  public long getFilesWritten() {
+    return filesWritten.get();
+  }
+
+  public long getBytesWritten() {
+    return bytesWritten.get();
+  }
+
+  @Value
+  private static class ClassFileBytes {
+
+    private final String className;
+
+    private final byte[] bytes;
+  }
+}
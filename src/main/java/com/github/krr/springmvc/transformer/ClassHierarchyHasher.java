@@ -0,0 +1,99 @@
+package com.github.krr.springmvc.transformer;
+
+import javassist.ClassPool;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Hashes the class files of all the superclasses and interfaces of a class.  The hierarchy is walked using the raw
+ * {@link ClassFileHeader} of each class file found through the class pool, so no javassist class is built.  The
+ * classes of the JDK are not hashed.
+ */
+@Slf4j
+class ClassHierarchyHasher {
+
+  /**
+   * The hash of a class whose class file is not found.
+   */
+  static final String MISSING_CLASS_HASH = "";
+
+  private final ClassPool classPool;
+
+  private final Map<String, HashedClass> hashedClasses = new ConcurrentHashMap<>();
+
+  ClassHierarchyHasher(ClassPool classPool) {
+    this.classPool = classPool;
+  }
+
+  /**
+   * @return the hash of the class file of every supertype of the class, keyed and sorted by class name.
+   */
+  SortedMap<String, String> hashSupertypes(ClassFileHeader header) {
+    SortedMap<String, String> supertypeHashes = new TreeMap<>();
+    Deque<String> classesToVisit = new ArrayDeque<>(header.getSupertypeNames());
+    while (!classesToVisit.isEmpty()) {
+      String name = classesToVisit.pop();
+      if (isJdkClass(name) || supertypeHashes.containsKey(name)) {
+        continue;
+      }
+      HashedClass hashedClass = getHashedClass(name);
+      supertypeHashes.put(name, hashedClass.getHash());
+      classesToVisit.addAll(hashedClass.getSupertypeNames());
+    }
+    return supertypeHashes;
+  }
+
+  private HashedClass getHashedClass(String className) {
+    HashedClass hashedClass = hashedClasses.get(className);
+    if (hashedClass == null) {
+      hashedClass = readHashedClass(className);
+      hashedClasses.putIfAbsent(className, hashedClass);
+    }
+    return hashedClass;
+  }
+
+  private HashedClass readHashedClass(String className) {
+    URL classFileUrl = classPool.find(className);
+    if (classFileUrl == null) {
+      log.debug("Class file of supertype {} not found", className);
+      return new HashedClass(MISSING_CLASS_HASH, Collections.emptyList());
+    }
+    try (InputStream inputStream = classFileUrl.openStream()) {
+      byte[] classFile = readFully(inputStream);
+      return new HashedClass(ContentHash.hash(classFile), ClassFileHeader.read(classFile).getSupertypeNames());
+    }
+    catch (IOException | IllegalArgumentException e) {
+      log.warn("Unable to read class file of supertype {}", className, e);
+      return new HashedClass(MISSING_CLASS_HASH, Collections.emptyList());
+    }
+  }
+
+  private static boolean isJdkClass(String className) {
+    return className.startsWith("java.") || className.startsWith("jdk.") || className.startsWith("sun.");
+  }
+
+  static byte[] readFully(InputStream inputStream) throws IOException {
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    byte[] buffer = new byte[8192];
+    int read;
+    while ((read = inputStream.read(buffer)) != -1) {
+      outputStream.write(buffer, 0, read);
+    }
+    return outputStream.toByteArray();
+  }
+
+  @Value
+  private static class HashedClass {
+
+    private final String hash;
+
+    private final List<String> supertypeNames;
+  }
+}
@@ -0,0 +1,128 @@
+package com.github.krr.springmvc.transformer;
+
+import com.github.krr.springmvc.async.DeferredResultAsyncResponse;
+import javassist.CannotCompileException;
+import javassist.CtClass;
+import javassist.CtMethod;
+import javassist.bytecode.*;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.util.List;
+
+import static com.github.krr.springmvc.transformer.BridgeMethods.*;
+
+/**
+ * Adds the Spring MVC handler method of a JAX-RS method taking a suspended {@code AsyncResponse}.  The bridge takes
+ * the other parameters of the method, calls it with a new {@link DeferredResultAsyncResponse} and returns the
+ * deferred result of the response, so the request is completed when the method (or whoever it handed the response
+ * to) resumes it:
+ * <pre>
+ *   public DeferredResult poll(String id) {
+ *     DeferredResultAsyncResponse response = new DeferredResultAsyncResponse();
+ *     poll(id, response);
+ *     return response.getDeferredResult();
+ *   }
+ * </pre>
+ */
+@Slf4j
+final class DeferredResultBridges {
+
+  private static final String RESPONSE_CLASS_NAME = DeferredResultAsyncResponse.class.getName();
+
+  private static final String DEFERRED_RESULT_DESCRIPTOR = Descriptor.of(DeferredResult.class.getName());
+
+  private DeferredResultBridges() {
+  }
+
+  /**
+   * Adds the bridge of the method to its declaring class.  The annotations of the method and of its other parameters
+   * are copied to the bridge.
+   *
+   * @return the bridge - the one added before if the method was already bridged - or null if the declaring class is
+   * an interface compiled for a Java version without default methods.
+   */
+  static CtMethod addBridge(CtMethod method, int asyncResponseIndex) throws CannotCompileException {
+    CtClass declaringClass = method.getDeclaringClass();
+    if (!canAddBridge(declaringClass)) {
+      return null;
+    }
+    MethodInfo methodInfo = method.getMethodInfo();
+    List<String> parameterDescriptors = getParameterDescriptors(methodInfo.getDescriptor());
+    StringBuilder bridgeDescriptor = new StringBuilder("(");
+    for (int i = 0; i < parameterDescriptors.size(); i++) {
+      if (i != asyncResponseIndex) {
+        bridgeDescriptor.append(parameterDescriptors.get(i));
+      }
+    }
+    bridgeDescriptor.append(')').append(DEFERRED_RESULT_DESCRIPTOR);
+    String bridgeName = getBridgeName(declaringClass, method.getName(), bridgeDescriptor.toString());
+    CtMethod existingBridge = findDeclaredMethod(declaringClass, bridgeName, bridgeDescriptor.toString());
+    if (existingBridge != null) {
+      return existingBridge;
+    }
+
+    MethodInfo bridgeInfo = new MethodInfo(methodInfo.getConstPool(), bridgeName, bridgeDescriptor.toString());
+    bridgeInfo.setAccessFlags(AccessFlag.PUBLIC);
+    bridgeInfo.setCodeAttribute(generateCode(declaringClass, methodInfo, parameterDescriptors, asyncResponseIndex));
+    copyAnnotations(methodInfo, bridgeInfo, asyncResponseIndex);
+    CtMethod bridge = CtMethod.make(bridgeInfo, declaringClass);
+    declaringClass.addMethod(bridge);
+    log.debug("Added bridge {}{} for the asynchronous method {}", bridgeName, bridgeDescriptor,
+              method.getLongName());
+    return bridge;
+  }
+
+  private static CodeAttribute generateCode(CtClass declaringClass, MethodInfo methodInfo,
+                                            List<String> parameterDescriptors, int asyncResponseIndex) {
+    int responseLocal = 1;
+    for (int i = 0; i < parameterDescriptors.size(); i++) {
+      if (i != asyncResponseIndex) {
+        responseLocal += getSize(parameterDescriptors.get(i));
+      }
+    }
+    Bytecode code = new Bytecode(methodInfo.getConstPool());
+    code.addNew(RESPONSE_CLASS_NAME);
+    code.addOpcode(Opcode.DUP);
+    code.addInvokespecial(RESPONSE_CLASS_NAME, MethodInfo.nameInit, "()V");
+    code.addAstore(responseLocal);
+
+    code.addAload(0);
+    int local = 1;
+    for (int i = 0; i < parameterDescriptors.size(); i++) {
+      if (i == asyncResponseIndex) {
+        code.addAload(responseLocal);
+      }
+      else {
+        String parameterDescriptor = parameterDescriptors.get(i);
+        addLoad(code, parameterDescriptor, local);
+        local += getSize(parameterDescriptor);
+      }
+    }
+    addInvocation(code, declaringClass, methodInfo);
+    String returnDescriptor = getReturnDescriptor(methodInfo.getDescriptor());
+    if (!returnDescriptor.equals("V")) {
+      code.addOpcode(getSize(returnDescriptor) == 2 ? Opcode.POP2 : Opcode.POP);
+    }
+    code.addAload(responseLocal);
+    code.addInvokevirtual(RESPONSE_CLASS_NAME, "getDeferredResult", "()" + DEFERRED_RESULT_DESCRIPTOR);
+    code.addOpcode(Opcode.ARETURN);
+    code.setMaxLocals(responseLocal + 1);
+    return code.toCodeAttribute();
+  }
+
+  /**
+   * @return the name of the method unless the class has another method with the parameters of the bridge.
+   */
+  private static String getBridgeName(CtClass declaringClass, String methodName, String bridgeDescriptor) {
+    String bridgeParameters = bridgeDescriptor.substring(0, bridgeDescriptor.indexOf(')') + 1);
+    for (MethodInfo methodInfo : declaringClass.getClassFile2().getMethods()) {
+      String descriptor = methodInfo.getDescriptor();
+      if (methodInfo.getName().equals(methodName) && descriptor.startsWith(bridgeParameters) &&
+          !descriptor.equals(bridgeDescriptor)) {
+        return methodName + "Deferred";
+      }
+    }
+    return methodName;
+  }
+}
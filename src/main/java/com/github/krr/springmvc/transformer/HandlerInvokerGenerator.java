@@ -0,0 +1,175 @@
+package com.github.krr.springmvc.transformer;
+
+import com.github.krr.springmvc.invoke.HandlerInvoker;
+import com.github.krr.springmvc.invoke.HandlerInvokers;
+import javassist.CtClass;
+import javassist.bytecode.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+import static com.github.krr.springmvc.transformer.BridgeMethods.*;
+
+/**
+ * Generates the {@link HandlerInvoker} of a handler method - a class next to the class declaring the method whose
+ * {@code invoke} casts the target and unboxes the arguments, calls the method and boxes what it returns:
+ * <pre>
+ *   public Object invoke(Object target, Object[] arguments) throws Exception {
+ *     return Integer.valueOf(((NodeAdministration) target).countDisks((String) arguments[0],
+ *                                                                      ((Integer) arguments[1]).intValue()));
+ *   }
+ * </pre>
+ */
+final class HandlerInvokerGenerator {
+
+  private static final String INVOKE_DESCRIPTOR = "(Ljava/lang/Object;[Ljava/lang/Object;)Ljava/lang/Object;";
+
+  private HandlerInvokerGenerator() {
+  }
+
+  /**
+   * @return true if an invoker in the package of the class can call the method.
+   */
+  static boolean canInvoke(MethodInfo methodInfo) {
+    int accessFlags = methodInfo.getAccessFlags();
+    return (accessFlags & (AccessFlag.PRIVATE | AccessFlag.STATIC)) == 0 &&
+           !methodInfo.getName().equals(MethodInfo.nameInit);
+  }
+
+  /**
+   * @return the class file of the invoker of the method declared by the class.
+   */
+  static byte[] generate(CtClass declaringClass, MethodInfo methodInfo) throws IOException {
+    String invokerClassName = HandlerInvokers.getInvokerClassName(declaringClass.getName(), methodInfo.getName(),
+                                                                  methodInfo.getDescriptor());
+    ClassFile classFile = new ClassFile(false, invokerClassName, Object.class.getName());
+    classFile.setMajorVersion(ClassFile.JAVA_8);
+    classFile.setAccessFlags(AccessFlag.PUBLIC | AccessFlag.FINAL | AccessFlag.SUPER | AccessFlag.SYNTHETIC);
+    classFile.setInterfaces(new String[]{HandlerInvoker.class.getName()});
+    ConstPool constPool = classFile.getConstPool();
+    try {
+      classFile.addMethod(generateConstructor(constPool));
+      classFile.addMethod(generateInvoke(constPool, declaringClass, methodInfo));
+    }
+    catch (DuplicateMemberException e) {
+      throw new IllegalStateException(e);
+    }
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    try (DataOutputStream dataOutputStream = new DataOutputStream(outputStream)) {
+      classFile.write(dataOutputStream);
+    }
+    return outputStream.toByteArray();
+  }
+
+  private static MethodInfo generateConstructor(ConstPool constPool) {
+    MethodInfo constructor = new MethodInfo(constPool, MethodInfo.nameInit, "()V");
+    constructor.setAccessFlags(AccessFlag.PUBLIC);
+    Bytecode code = new Bytecode(constPool);
+    code.addAload(0);
+    code.addInvokespecial(Object.class.getName(), MethodInfo.nameInit, "()V");
+    code.addOpcode(Opcode.RETURN);
+    code.setMaxLocals(1);
+    constructor.setCodeAttribute(code.toCodeAttribute());
+    return constructor;
+  }
+
+  private static MethodInfo generateInvoke(ConstPool constPool, CtClass declaringClass, MethodInfo methodInfo) {
+    MethodInfo invoke = new MethodInfo(constPool, "invoke", INVOKE_DESCRIPTOR);
+    invoke.setAccessFlags(AccessFlag.PUBLIC);
+    ExceptionsAttribute exceptions = new ExceptionsAttribute(constPool);
+    exceptions.setExceptions(new String[]{Exception.class.getName()});
+    invoke.setExceptionsAttribute(exceptions);
+
+    Bytecode code = new Bytecode(constPool);
+    code.addAload(1);
+    code.addCheckcast(declaringClass.getName());
+    List<String> parameterDescriptors = getParameterDescriptors(methodInfo.getDescriptor());
+    for (int i = 0; i < parameterDescriptors.size(); i++) {
+      code.addAload(2);
+      code.addIconst(i);
+      code.addOpcode(Opcode.AALOAD);
+      addUnbox(code, parameterDescriptors.get(i));
+    }
+    addInvocation(code, declaringClass, methodInfo);
+    String returnDescriptor = getReturnDescriptor(methodInfo.getDescriptor());
+    if (returnDescriptor.equals("V")) {
+      code.addOpcode(Opcode.ACONST_NULL);
+    }
+    else if (isPrimitive(returnDescriptor)) {
+      String wrapperClassName = getWrapperClassName(returnDescriptor);
+      code.addInvokestatic(wrapperClassName, "valueOf",
+                           "(" + returnDescriptor + ")" + Descriptor.of(wrapperClassName));
+    }
+    code.addOpcode(Opcode.ARETURN);
+    code.setMaxLocals(3);
+    invoke.setCodeAttribute(code.toCodeAttribute());
+    return invoke;
+  }
+
+  private static void addUnbox(Bytecode code, String typeDescriptor) {
+    if (isPrimitive(typeDescriptor)) {
+      String wrapperClassName = getWrapperClassName(typeDescriptor);
+      code.addCheckcast(wrapperClassName);
+      code.addInvokevirtual(wrapperClassName, getPrimitiveName(typeDescriptor) + "Value", "()" + typeDescriptor);
+    }
+    else if (typeDescriptor.charAt(0) == '[') {
+      // an array class is named by its descriptor in the constant pool
+      code.addCheckcast(typeDescriptor);
+    }
+    else if (!typeDescriptor.equals("Ljava/lang/Object;")) {
+      code.addCheckcast(Descriptor.toClassName(typeDescriptor));
+    }
+  }
+
+  private static boolean isPrimitive(String typeDescriptor) {
+    return typeDescriptor.length() == 1;
+  }
+
+  private static String getPrimitiveName(String typeDescriptor) {
+    switch (typeDescriptor.charAt(0)) {
+      case 'Z':
+        return "boolean";
+      case 'B':
+        return "byte";
+      case 'C':
+        return "char";
+      case 'S':
+        return "short";
+      case 'I':
+        return "int";
+      case 'J':
+        return "long";
+      case 'F':
+        return "float";
+      case 'D':
+        return "double";
+      default:
+        throw new IllegalArgumentException("Not a primitive type " + typeDescriptor);
+    }
+  }
+
+  private static String getWrapperClassName(String typeDescriptor) {
+    switch (typeDescriptor.charAt(0)) {
+      case 'Z':
+        return Boolean.class.getName();
+      case 'B':
+        return Byte.class.getName();
+      case 'C':
+        return Character.class.getName();
+      case 'S':
+        return Short.class.getName();
+      case 'I':
+        return Integer.class.getName();
+      case 'J':
+        return Long.class.getName();
+      case 'F':
+        return Float.class.getName();
+      case 'D':
+        return Double.class.getName();
+      default:
+        throw new IllegalArgumentException("Not a primitive type " + typeDescriptor);
+    }
+  }
+}
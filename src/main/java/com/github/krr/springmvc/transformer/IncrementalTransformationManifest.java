@@ -0,0 +1,318 @@
+package com.github.krr.springmvc.transformer;
+
+import javassist.ClassPool;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Remembers, across builds, the hash of every transformed class file and the hashes of the superclasses and
+ * interfaces its transformation depended on.  A class is up to date - and need not be transformed again - when
+ * neither its own class file nor any class file of its hierarchy changed since it was last transformed.  So editing a
+ * JAX-RS interface re-transforms every implementation that inherits its annotations, even though the class files of
+ * the implementations did not change.
+ * <p>
+ * Both the hash of the class file read and the hash of the class file written are remembered so that classes
+ * transformed in place are recognized as well.  A class is not up to date either if the class file written for it is
+ * missing from the output directory or was modified since.
+ * <p>
+ * The manifest is a properties file with one entry per transformed class, and a header holding the version of the
+ * transformer and the packages to include.  The entries recorded by another version or with other packages to include
+ * are discarded when a session starts.
+ */
+@Slf4j
+public class IncrementalTransformationManifest {
+
+  private static final String HASH_SEPARATOR = ",";
+
+  private static final String DEPENDENCY_SEPARATOR = ";";
+
+  private static final String DEPENDENCY_HASH_SEPARATOR = "=";
+
+  /**
+   * The keys of the header start with a character no class name has.
+   */
+  private static final String TRANSFORMER_VERSION_KEY = "@transformerVersion";
+
+  private static final String PACKAGES_TO_INCLUDE_KEY = "@packagesToInclude";
+
+  private final Path manifestFile;
+
+  private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+  /**
+   * The hashes of the class files as they were when first read in this session.  Classes transformed in place are
+   * rewritten during the session so the hash must not be computed again.
+   */
+  private final Map<String, String> sessionHashes = new ConcurrentHashMap<>();
+
+  /**
+   * The classes (re)transformed in this session.  A class depending on one of them is never up to date.
+   */
+  private final Set<String> transformedClasses = ConcurrentHashMap.newKeySet();
+
+  private final AtomicLong skippedCount = new AtomicLong();
+
+  private volatile String transformerVersion;
+
+  private volatile String packagesToInclude;
+
+  /**
+   * The directory the classes of the current session are written to, null until a session is started.
+   */
+  private volatile String outputDirectory;
+
+  public IncrementalTransformationManifest(Path manifestFile) {
+    this.manifestFile = manifestFile;
+  }
+
+  /**
+   * Reads the manifest written by a previous build.  The manifest is empty if the file does not exist.
+   */
+  public static IncrementalTransformationManifest load(Path manifestFile) throws IOException {
+    IncrementalTransformationManifest manifest = new IncrementalTransformationManifest(manifestFile);
+    if (!Files.exists(manifestFile)) {
+      log.info("No incremental transformation manifest at {} - transforming all classes", manifestFile);
+      return manifest;
+    }
+    Properties properties = new Properties();
+    try (InputStream inputStream = Files.newInputStream(manifestFile)) {
+      properties.load(inputStream);
+    }
+    manifest.transformerVersion = properties.getProperty(TRANSFORMER_VERSION_KEY);
+    manifest.packagesToInclude = properties.getProperty(PACKAGES_TO_INCLUDE_KEY);
+    for (String className : properties.stringPropertyNames()) {
+      if (!className.equals(TRANSFORMER_VERSION_KEY) && !className.equals(PACKAGES_TO_INCLUDE_KEY)) {
+        manifest.entries.put(className, Entry.parse(properties.getProperty(className)));
+      }
+    }
+    log.info("Loaded {} entries from incremental transformation manifest {}", manifest.entries.size(), manifestFile);
+    return manifest;
+  }
+
+  /**
+   * Starts a transform session.  The entries are discarded if they were recorded by another version of the
+   * transformer or with other packages to include, since the classes would not be transformed the same way.
+   *
+   * @param outputDirectory    - the directory the transformed classes are written to
+   * @param transformerVersion - the version of the bytecode produced by the transformer
+   * @param packagesToInclude  - the packages to include, null if every package is included
+   */
+  public void startSession(String outputDirectory, String transformerVersion, List<String> packagesToInclude) {
+    String packages = packagesToInclude == null ? "" : String.join(HASH_SEPARATOR, packagesToInclude);
+    if (!entries.isEmpty() &&
+        (!transformerVersion.equals(this.transformerVersion) || !packages.equals(this.packagesToInclude))) {
+      log.info("Discarding the incremental transformation manifest {} - it was recorded by transformer {} with " +
+               "packages [{}]", manifestFile, this.transformerVersion, this.packagesToInclude);
+      entries.clear();
+    }
+    this.transformerVersion = transformerVersion;
+    this.packagesToInclude = packages;
+    this.outputDirectory = outputDirectory;
+    sessionHashes.clear();
+    transformedClasses.clear();
+    skippedCount.set(0);
+  }
+
+  /**
+   * @return true if the class and all the classes its last transformation depended on are unchanged, and the class
+   * file written for it is still in the output directory of the session.
+   */
+  public boolean isUpToDate(ClassPool classPool, String className) {
+    Entry entry = entries.get(className);
+    if (entry == null || transformedClasses.contains(className)) {
+      return false;
+    }
+    if (!entry.matches(getSessionHash(classPool, className))) {
+      log.debug("Class {} changed since it was last transformed", className);
+      return false;
+    }
+    for (Map.Entry<String, String> dependency : entry.getDependencyHashes().entrySet()) {
+      String dependencyName = dependency.getKey();
+      if (!isDependencyUnchanged(classPool, dependencyName, dependency.getValue())) {
+        log.debug("Class {} must be transformed again - {} changed", className, dependencyName);
+        return false;
+      }
+    }
+    if (!isOutputUnchanged(className, entry)) {
+      log.debug("Class {} must be transformed again - its transformed class file is missing or changed", className);
+      return false;
+    }
+    skippedCount.incrementAndGet();
+    return true;
+  }
+
+  private boolean isOutputUnchanged(String className, Entry entry) {
+    if (outputDirectory == null || entry.getOutputHash() == null) {
+      return false;
+    }
+    Path classFile = getOutputClassFile(className);
+    try {
+      return Files.exists(classFile) && entry.getOutputHash().equals(ContentHash.hash(Files.readAllBytes(classFile)));
+    }
+    catch (IOException e) {
+      log.warn("Unable to read transformed class file {} - assuming it changed", classFile, e);
+      return false;
+    }
+  }
+
+  private boolean isDependencyUnchanged(ClassPool classPool, String dependencyName, String recordedHash) {
+    if (transformedClasses.contains(dependencyName)) {
+      return false;
+    }
+    String currentHash = getSessionHash(classPool, dependencyName);
+    if (Objects.equals(currentHash, recordedHash)) {
+      return true;
+    }
+    // the dependency may itself have been transformed in place since the hash was recorded
+    Entry dependencyEntry = entries.get(dependencyName);
+    return dependencyEntry != null && dependencyEntry.matches(currentHash);
+  }
+
+  /**
+   * Records that the class was transformed from its current class file and depends on the specified classes.
+   */
+  public void recordTransformation(ClassPool classPool, String className, Set<String> dependencies) {
+    Map<String, String> dependencyHashes = new TreeMap<>();
+    for (String dependency : dependencies) {
+      dependencyHashes.put(dependency, getSessionHash(classPool, dependency));
+    }
+    transformedClasses.add(className);
+    entries.put(className, new Entry(getSessionHash(classPool, className), null, dependencyHashes));
+  }
+
+  /**
+   * Records the hashes of the class files written for the classes transformed in this session.
+   *
+   * @param outputDirectory - the directory the transformed classes were written to
+   */
+  public void recordOutputHashes(String outputDirectory) throws IOException {
+    for (String className : transformedClasses) {
+      Path classFile = Paths.get(outputDirectory, toClassFileName(className));
+      Entry entry = entries.get(className);
+      if (entry != null && Files.exists(classFile)) {
+        entries.put(className, new Entry(entry.getInputHash(), ContentHash.hash(Files.readAllBytes(classFile)),
+                                         entry.getDependencyHashes()));
+      }
+    }
+  }
+
+  public void save() throws IOException {
+    Properties properties = new Properties();
+    entries.forEach((className, entry) -> properties.setProperty(className, entry.format()));
+    if (transformerVersion != null) {
+      properties.setProperty(TRANSFORMER_VERSION_KEY, transformerVersion);
+      properties.setProperty(PACKAGES_TO_INCLUDE_KEY, packagesToInclude);
+    }
+    Path parent = manifestFile.toAbsolutePath().getParent();
+    if (parent != null) {
+      Files.createDirectories(parent);
+    }
+    try (OutputStream outputStream = Files.newOutputStream(manifestFile)) {
+      properties.store(outputStream, "JAX-RS to Spring MVC incremental transformation manifest");
+    }
+    log.info("Saved {} entries to incremental transformation manifest {} ({} classes skipped)", entries.size(),
+             manifestFile, getSkippedCount());
+  }
+
+  public Path getManifestFile() {
+    return manifestFile;
+  }
+
+  public long getSkippedCount() {
+    return skippedCount.get();
+  }
+
+  public int size() {
+    return entries.size();
+  }
+
+  private Path getOutputClassFile(String className) {
+    return Paths.get(outputDirectory, toClassFileName(className));
+  }
+
+  private static String toClassFileName(String className) {
+    return className.replace('.', '/') + ".class";
+  }
+
+  private String getSessionHash(ClassPool classPool, String className) {
+    String hash = sessionHashes.get(className);
+    if (hash == null) {
+      hash = hashClassFile(classPool, className);
+      sessionHashes.putIfAbsent(className, hash);
+    }
+    return hash;
+  }
+
+  /**
+   * @return the hash of the class file the pool loads the class from or an empty string if the class file is not
+   * found.
+   */
+  private static String hashClassFile(ClassPool classPool, String className) {
+    URL classFileUrl = classPool.find(className);
+    if (classFileUrl == null) {
+      return "";
+    }
+    try (InputStream inputStream = classFileUrl.openStream()) {
+      MessageDigest digest = ContentHash.newDigest();
+      byte[] buffer = new byte[8192];
+      int read;
+      while ((read = inputStream.read(buffer)) != -1) {
+        digest.update(buffer, 0, read);
+      }
+      return ContentHash.toHex(digest.digest());
+    }
+    catch (IOException e) {
+      log.warn("Unable to read class file of {} - assuming it changed", className, e);
+      return "";
+    }
+  }
+
+  @Value
+  private static class Entry {
+
+    private final String inputHash;
+
+    /**
+     * The hash of the class file written or null if it was not recorded.
+     */
+    private final String outputHash;
+
+    private final Map<String, String> dependencyHashes;
+
+    boolean matches(String hash) {
+      return StringUtils.isNotEmpty(hash) && (hash.equals(inputHash) || hash.equals(outputHash));
+    }
+
+    String format() {
+      StringBuilder sb = new StringBuilder(inputHash).append(HASH_SEPARATOR)
+                                                     .append(StringUtils.defaultString(outputHash));
+      dependencyHashes.forEach((name, hash) -> sb.append(DEPENDENCY_SEPARATOR).append(name)
+                                                 .append(DEPENDENCY_HASH_SEPARATOR).append(hash));
+      return sb.toString();
+    }
+
+    static Entry parse(String value) {
+      String[] parts = StringUtils.splitPreserveAllTokens(value, DEPENDENCY_SEPARATOR);
+      String[] hashes = StringUtils.splitPreserveAllTokens(parts[0], HASH_SEPARATOR);
+      Map<String, String> dependencyHashes = new TreeMap<>();
+      for (int i = 1; i < parts.length; i++) {
+        int separator = parts[i].indexOf(DEPENDENCY_HASH_SEPARATOR);
+        dependencyHashes.put(parts[i].substring(0, separator), parts[i].substring(separator + 1));
+      }
+      return new Entry(hashes[0], hashes.length > 1 ? StringUtils.trimToNull(hashes[1]) : null, dependencyHashes);
+    }
+  }
+}
@@ -0,0 +1,148 @@
+package com.github.krr.springmvc.transformer;
+
+import javassist.ClassPool;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Enumeration;
+
+/**
+ * Transforms the classes of a jar into a new jar in a single pass, without extracting the jar to disk.
+ * <p>
+ * The entries are processed one at a time in the order they are stored.  Every entry the transformer leaves
+ * unchanged - resources, classes outside the packages to include, classes that do not refer to JAX-RS - is copied
+ * as its raw compressed bytes, so it is neither inflated nor compressed again.  Only the transformed classes are
+ * compressed and written as new entries.  Memory use does not depend on the size of the jar: at most one class file
+ * is held in memory and the class pool is recycled every {@link #getClassPoolRecycleInterval()} classes.
+ * <p>
+ * Classes are transformed with {@link JaxrsToSpringMvcTransformer#transformClassFile(ClassPool, byte[])} so each
+ * class gets the annotations of its own methods; the methods it inherits are annotated in the entries of the classes
+ * declaring them.
+ */
+@Slf4j
+public class JarTransformer {
+
+  public static final int DEFAULT_CLASS_POOL_RECYCLE_INTERVAL = 1000;
+
+  private static final String CLASS_FILE_SUFFIX = ".class";
+
+  private final JaxrsToSpringMvcTransformer transformer;
+
+  private int classPoolRecycleInterval = DEFAULT_CLASS_POOL_RECYCLE_INTERVAL;
+
+  public JarTransformer(JaxrsToSpringMvcTransformer transformer) {
+    this.transformer = transformer;
+  }
+
+  /**
+   * Writes a copy of the input jar with its classes transformed.
+   *
+   * @param inputJar  - the jar to transform
+   * @param outputJar - the jar to write.  It is overwritten if it exists.
+   * @return the number of entries copied and transformed
+   * @throws IOException - if the input jar could not be read or the output jar could not be written
+   */
+  public Result transform(Path inputJar, Path outputJar) throws IOException {
+    log.info("Transforming jar {} to {}", inputJar, outputJar);
+    int copiedCount = 0;
+    int transformedCount = 0;
+    int classCount = 0;
+    ClassFileTransformationContext context = null;
+    try (ZipFile zipFile = new ZipFile(inputJar.toFile());
+         ZipArchiveOutputStream outputStream = new ZipArchiveOutputStream(outputJar.toFile())) {
+
+      Enumeration<ZipArchiveEntry> entries = zipFile.getEntriesInPhysicalOrder();
+      while (entries.hasMoreElements()) {
+        ZipArchiveEntry entry = entries.nextElement();
+        byte[] transformedClassFile = null;
+        if (isTransformableClass(entry)) {
+          if (context == null || classCount % classPoolRecycleInterval == 0) {
+            // drop the classes cached by the previous pool
+            transformer.getAnnotationResolutionCache().invalidateAll();
+            context = new ClassFileTransformationContext(
+                ParallelTransformationEngine.createClassPool(inputJar.toString(), transformer.getMaxCachedClasses()),
+                transformer.isPrefilterEnabled());
+          }
+          classCount++;
+          transformedClassFile = transformClass(zipFile, entry, context);
+        }
+        if (transformedClassFile == null) {
+          try (InputStream rawInputStream = zipFile.getRawInputStream(entry)) {
+            outputStream.addRawArchiveEntry(entry, rawInputStream);
+          }
+          copiedCount++;
+        }
+        else {
+          writeEntry(outputStream, entry, transformedClassFile);
+          transformedCount++;
+        }
+      }
+    }
+    Result result = new Result(copiedCount, transformedCount);
+    log.info("Transformed jar {} - {}", inputJar, result);
+    return result;
+  }
+
+  public int getClassPoolRecycleInterval() {
+    return classPoolRecycleInterval;
+  }
+
+  public void setClassPoolRecycleInterval(int classPoolRecycleInterval) {
+    this.classPoolRecycleInterval = Math.max(1, classPoolRecycleInterval);
+  }
+
+  private boolean isTransformableClass(ZipArchiveEntry entry) {
+    String name = entry.getName();
+    if (entry.isDirectory() || !name.endsWith(CLASS_FILE_SUFFIX) || name.startsWith("META-INF/")) {
+      return false;
+    }
+    // classes outside the packages to include are copied without being inflated
+    String className = name.substring(0, name.length() - CLASS_FILE_SUFFIX.length()).replace('/', '.');
+    return transformer.mayTransform(className);
+  }
+
+  private byte[] transformClass(ZipFile zipFile, ZipArchiveEntry entry, ClassFileTransformationContext context)
+      throws IOException {
+    byte[] classFile;
+    try (InputStream inputStream = zipFile.getInputStream(entry)) {
+      classFile = ClassHierarchyHasher.readFully(inputStream);
+    }
+    try {
+      return transformer.transformClassFile(context, classFile);
+    }
+    catch (Exception e) {
+      log.error("Unable to transform {} - copying it unchanged", entry.getName(), e);
+      transformer.getMetrics().increment(TransformationMetrics.Counter.CLASSES_FAILED);
+      return null;
+    }
+  }
+
+  private void writeEntry(ZipArchiveOutputStream outputStream, ZipArchiveEntry entry, byte[] classFile)
+      throws IOException {
+
+    ZipArchiveEntry transformedEntry = new ZipArchiveEntry(entry.getName());
+    transformedEntry.setMethod(ZipArchiveEntry.DEFLATED);
+    transformedEntry.setTime(entry.getTime());
+    outputStream.putArchiveEntry(transformedEntry);
+    outputStream.write(classFile);
+    outputStream.closeArchiveEntry();
+    transformer.getMetrics().recordWrite(1, classFile.length);
+  }
+
+  @Value
+  public static class Result {
+
+    /**
+     * The number of entries copied as is.
+     */
+    private final int copiedEntryCount;
+
+    private final int transformedEntryCount;
+  }
+}
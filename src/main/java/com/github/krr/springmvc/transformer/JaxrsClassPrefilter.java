@@ -0,0 +1,167 @@
+package com.github.krr.springmvc.transformer;
+
+import javassist.ClassPool;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Rejects the classes that cannot need a transformation before javassist is involved.  A class needs to be
+ * transformed only if its class file or the class file of one of its superclasses or interfaces mentions a JAX-RS
+ * type - every JAX-RS annotation leaves its descriptor (for e.g. {@code Ljavax/ws/rs/Path;}) in the constant pool of
+ * the class declaring it.  So the prefilter scans the raw constant pools of the class and its hierarchy and accepts
+ * the class as soon as one of them refers to the {@code javax/ws/rs} package.
+ * <p>
+ * The result is remembered per class so a supertype shared by many classes is scanned once.  Classes whose class
+ * file cannot be found are accepted so that the transformer reports them.
+ */
+@Slf4j
+public class JaxrsClassPrefilter {
+
+  private static final byte[] JAXRS_PACKAGE_PREFIX = "javax/ws/rs/".getBytes(UTF_8);
+
+  /**
+   * Class files at least this large are memory mapped instead of being read.
+   */
+  private static final long MAPPING_THRESHOLD = 64 * 1024;
+
+  private final ClassPool classPool;
+
+  /**
+   * Whether each class or one of its supertypes refers to JAX-RS, keyed by class name.
+   */
+  private final Map<String, Boolean> referencesJaxrs = new ConcurrentHashMap<>();
+
+  private final AtomicLong scannedCount = new AtomicLong();
+
+  private final AtomicLong rejectedCount = new AtomicLong();
+
+  /**
+   * @param classPool - the pool used to find the class files of the classes and their supertypes.  No class is
+   *                  built from the pool.
+   */
+  public JaxrsClassPrefilter(ClassPool classPool) {
+    this.classPool = classPool;
+  }
+
+  /**
+   * @return false if neither the class nor its hierarchy refers to JAX-RS.
+   */
+  public boolean mayNeedTransformation(String className) {
+    return count(referencesJaxrs(className));
+  }
+
+  /**
+   * @return false if neither the class file nor the hierarchy of its class refers to JAX-RS.
+   */
+  public boolean mayNeedTransformation(byte[] classFile) {
+    return count(referencesJaxrs(ClassFileHeader.read(classFile)));
+  }
+
+  public long getScannedCount() {
+    return scannedCount.get();
+  }
+
+  public long getRejectedCount() {
+    return rejectedCount.get();
+  }
+
+  /**
+   * @return the ratio of classes rejected, between 0 and 1.
+   */
+  public double getRejectionRate() {
+    long scanned = getScannedCount();
+    return scanned == 0 ? 0 : (double) getRejectedCount() / scanned;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("JaxrsClassPrefilter[scanned=%d, rejected=%d (%.1f%%)]", getScannedCount(),
+                         getRejectedCount(), getRejectionRate() * 100);
+  }
+
+  private boolean count(boolean accepted) {
+    scannedCount.incrementAndGet();
+    if (!accepted) {
+      rejectedCount.incrementAndGet();
+    }
+    return accepted;
+  }
+
+  private boolean referencesJaxrs(String className) {
+    if (className.startsWith("java.")) {
+      return false;
+    }
+    Boolean references = referencesJaxrs.get(className);
+    if (references == null) {
+      ClassFileHeader header = readHeader(className);
+      references = header == null || referencesJaxrs(header);
+      referencesJaxrs.putIfAbsent(className, references);
+    }
+    return references;
+  }
+
+  private boolean referencesJaxrs(ClassFileHeader header) {
+    if (header.containsInStringConstants(JAXRS_PACKAGE_PREFIX)) {
+      return true;
+    }
+    for (String supertypeName : header.getSupertypeNames()) {
+      if (referencesJaxrs(supertypeName)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private ClassFileHeader readHeader(String className) {
+    URL classFileUrl = classPool.find(className);
+    if (classFileUrl == null) {
+      log.debug("Class file of {} not found - it may need to be transformed", className);
+      return null;
+    }
+    try {
+      return ClassFileHeader.read(readClassFile(classFileUrl));
+    }
+    catch (IOException | IllegalArgumentException e) {
+      log.warn("Unable to scan class file of {} - it may need to be transformed", className, e);
+      return null;
+    }
+  }
+
+  private static ByteBuffer readClassFile(URL classFileUrl) throws IOException {
+    if ("file".equals(classFileUrl.getProtocol())) {
+      try (FileChannel channel = FileChannel.open(Paths.get(classFileUrl.toURI()), StandardOpenOption.READ)) {
+        long size = channel.size();
+        if (size >= MAPPING_THRESHOLD) {
+          return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate((int) size);
+        while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+          // read the whole file
+        }
+        // Buffer.flip() - ByteBuffer.flip() does not exist on Java 8
+        ((Buffer) buffer).flip();
+        return buffer;
+      }
+      catch (URISyntaxException e) {
+        throw new IOException("Invalid class file location " + classFileUrl, e);
+      }
+    }
+    try (InputStream inputStream = classFileUrl.openStream()) {
+      return ByteBuffer.wrap(ClassHierarchyHasher.readFully(inputStream));
+    }
+  }
+}
@@ -1,62 +1,211 @@
 package com.github.krr.springmvc.transformer;
 
-import com.github.krr.springmvc.javassist.beans.CtAnnotation;
-import com.github.krr.springmvc.javassist.utils.CtClassUtils;
+import com.github.krr.springmvc.invoke.HandlerInvoker;
+import com.github.krr.springmvc.invoke.HandlerInvokers;
+import com.github.krr.springmvc.javassist.beans.JaxrsParameterAnnotation;
+import com.github.krr.springmvc.javassist.beans.MethodAnnotationContainer;
+import com.github.krr.springmvc.javassist.utils.AnnotationResolutionCache;
+import com.github.krr.springmvc.javassist.utils.JaxrsAnnotationExtractor;
+import com.github.krr.springmvc.javassist.utils.JaxrsAnnotations;
+import com.github.krr.springmvc.javassist.utils.MethodSignatureIndex;
+import com.github.krr.springmvc.javassist.utils.PackageSelector;
+import com.github.krr.springmvc.routes.RouteManifest;
 import de.icongmbh.oss.maven.plugin.javassist.ClassTransformer;
+import javassist.CannotCompileException;
+import javassist.ClassPool;
 import javassist.CtClass;
 import javassist.CtMethod;
 import javassist.NotFoundException;
 import javassist.bytecode.*;
 import javassist.bytecode.annotation.*;
-import lombok.Data;
-import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.ClassUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.util.CollectionUtils;
 import org.springframework.web.bind.annotation.*;
 
-import javax.ws.rs.*;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
 import java.util.function.Supplier;
 
 import static java.util.stream.Collectors.toList;
-import static org.springframework.web.bind.annotation.RequestMethod.valueOf;
 
 @SuppressWarnings({"WeakerAccess"})
 @Slf4j
-@Data
-@EqualsAndHashCode(callSuper = false)
-public class JaxrsToSpringMvcTransformer extends ClassTransformer {
+@Getter
+public class JaxrsToSpringMvcTransformer extends ClassTransformer implements Closeable {
 
   public static final String VALUE_ATTRIBUTE = "value";
 
   public static final String PACKAGES_TO_INCLUDE_KEY = "packagesToInclude";
 
-  private List<String> packagesToInclude;
+  public static final String ASYNC_WRITES_KEY = "asyncWrites";
 
-  private static final List<String> METHOD_PARAMETER_ANNOTATION_LIST = Arrays.asList(PathParam.class.getName(),
-                                                                                     QueryParam.class.getName());
+  public static final String WRITE_BATCH_SIZE_KEY = "writeBatchSize";
 
-  private static final List<Class> JAXRS_HTTP_METHOD_ANNOTATIONS = Arrays.asList(GET.class, POST.class, PUT.class,
-                                                                                 PATCH.class, DELETE.class);
+  public static final String INCREMENTAL_MANIFEST_KEY = "incrementalManifest";
+
+  public static final String PREFILTER_KEY = "prefilter";
+
+  public static final String TRANSFORMED_CLASS_CACHE_KEY = "transformedClassCache";
+
+  public static final String TRANSFORMED_CLASS_CACHE_MAX_SIZE_KEY = "transformedClassCacheMaxSize";
+
+  public static final String ROUTE_MANIFEST_KEY = "routeManifest";
+
+  public static final String HANDLER_INVOKERS_KEY = "handlerInvokers";
+
+  public static final String METRICS_REPORT_KEY = "metricsReport";
+
+  public static final String COMPACT_OUTPUT_KEY = "compactOutput";
+
+  public static final String MAX_CACHED_CLASSES_KEY = "maxCachedClasses";
+
+  public static final String TYPE_HIERARCHY_INDEX_KEY = "typeHierarchyIndex";
+
+  public static final String PEAK_HEAP_TRACKING_KEY = "peakHeapTracking";
+
+  /**
+   * Must be incremented whenever the bytecode produced for the same input changes, so that the class files stored
+   * in a {@link TransformedClassCache} by older versions are not reused.
+   */
+  private static final int TRANSFORMATION_FORMAT_VERSION = 7;
+
+  private static final String TRANSFORMER_VERSION = computeTransformerVersion();
+
+  private volatile List<String> packagesToInclude;
+
+  /**
+   * The packages to include compiled once, so checking a package does not depend on how many packages are included.
+   */
+  private volatile PackageSelector packageSelector = PackageSelector.allPackages();
 
   private static final Map<String, Class> JAXRS_SPRINGMVC_ANNOTATION_MAP = new HashMap<>();
 
-  private final Set<CtClass> classFilesToSave = new LinkedHashSet<>();
+  /**
+   * The Spring MVC parameter annotations made optional - JAX-RS injects null, the default value or the zero of a
+   * primitive for a missing parameter where Spring MVC would reject the request.
+   */
+  private static final Set<Class> OPTIONAL_PARAMETER_ANNOTATIONS = new HashSet<>(
+      Arrays.asList(RequestParam.class, RequestHeader.class, CookieValue.class, MatrixVariable.class));
+
+  /**
+   * Every class modified by this transformer - including superclasses and interfaces whose methods were
+   * annotated - is written once when the session is flushed.
+   */
+  private final ClassFileWritePipeline classFileWritePipeline = new ClassFileWritePipeline();
+
+  /**
+   * Hierarchy lookups done for one class are reused for every other class sharing the same superclasses or
+   * interfaces during a directory transform session.  Single class files are transformed with the cache of their
+   * {@link ClassFileTransformationContext} instead.
+   */
+  private final AnnotationResolutionCache annotationResolutionCache = new AnnotationResolutionCache();
+
+  private final JaxrsAnnotationExtractor annotationExtractor = new JaxrsAnnotationExtractor(annotationResolutionCache);
+
+  /**
+   * When set, classes whose class file and hierarchy are unchanged since the previous build are not transformed.
+   */
+  @Setter
+  private volatile IncrementalTransformationManifest incrementalManifest;
+
+  /**
+   * When set, transformed class files are looked up in (and added to) this store instead of being transformed again.
+   */
+  @Setter
+  private volatile TransformedClassCache transformedClassCache;
+
+  /**
+   * When true (the default), classes whose hierarchy does not refer to JAX-RS at all are skipped before javassist
+   * reads them.
+   */
+  @Setter
+  private volatile boolean prefilterEnabled = true;
+
+  /**
+   * The prefilter of the last transform session, if any.
+   */
+  private volatile JaxrsClassPrefilter prefilter;
+
+  /**
+   * When true (the default), transforming a directory also writes the {@link RouteManifest} of its controllers.
+   */
+  @Setter
+  private volatile boolean routeManifestEnabled = true;
+
+  /**
+   * When true (the default), transforming a directory also writes a {@link HandlerInvoker} for each route of its
+   * controllers.
+   */
+  @Setter
+  private volatile boolean handlerInvokersEnabled = true;
+
+  /**
+   * The classes listed by the last transform session, once prefiltered.
+   */
+  private volatile List<String> candidateClassNames;
+
+  /**
+   * The timers and counters of the current transform session.
+   */
+  private final TransformationMetrics metrics = new TransformationMetrics();
+
+  /**
+   * When set, receives the metrics of each transform session once it ends.
+   */
+  @Setter
+  private volatile TransformationMetricsSink metricsSink;
+
+  /**
+   * When positive, the classes are resolved from a {@link BoundedClassPool} keeping at most this many classes, and
+   * the classes of a directory are transformed one by one like {@link #transformClassFile(ClassPool, byte[])} does -
+   * each class is written and released as soon as it is transformed.  Zero (the default) keeps every class read
+   * until the end of the session.
+   */
+  @Setter
+  private volatile int maxCachedClasses;
+
+  /**
+   * When true (the default), the class level annotations inherited by the classes of a directory are worked out for
+   * all of them at once by a {@link TypeHierarchyIndex} before any class is transformed.
+   */
+  @Setter
+  private volatile boolean typeHierarchyIndexEnabled = true;
+
+  /**
+   * The index of the classes of the current directory transform session, if any.
+   */
+  private volatile TypeHierarchyIndex typeHierarchyIndex;
+
+  /**
+   * Set in compact output mode - see {@link #setCompactOutput(boolean)}.
+   */
+  private volatile ClassFileCompactor classFileCompactor;
 
   static {
-    JAXRS_SPRINGMVC_ANNOTATION_MAP.put(PathParam.class.getName(), PathVariable.class);
-    JAXRS_SPRINGMVC_ANNOTATION_MAP.put(QueryParam.class.getName(), RequestParam.class);
-    JAXRS_SPRINGMVC_ANNOTATION_MAP.put(GET.class.getName(), GetMapping.class);
-    JAXRS_SPRINGMVC_ANNOTATION_MAP.put(POST.class.getName(), PostMapping.class);
-    JAXRS_SPRINGMVC_ANNOTATION_MAP.put(PUT.class.getName(), PutMapping.class);
-    JAXRS_SPRINGMVC_ANNOTATION_MAP.put(DELETE.class.getName(), DeleteMapping.class);
-    JAXRS_SPRINGMVC_ANNOTATION_MAP.put(PATCH.class.getName(), PatchMapping.class);
+    JAXRS_SPRINGMVC_ANNOTATION_MAP.put(JaxrsAnnotations.PATH_PARAM, PathVariable.class);
+    JAXRS_SPRINGMVC_ANNOTATION_MAP.put(JaxrsAnnotations.QUERY_PARAM, RequestParam.class);
+    JAXRS_SPRINGMVC_ANNOTATION_MAP.put(JaxrsAnnotations.HEADER_PARAM, RequestHeader.class);
+    JAXRS_SPRINGMVC_ANNOTATION_MAP.put(JaxrsAnnotations.COOKIE_PARAM, CookieValue.class);
+    // form fields are request parameters in the servlet API
+    JAXRS_SPRINGMVC_ANNOTATION_MAP.put(JaxrsAnnotations.FORM_PARAM, RequestParam.class);
+    // only bound if the UrlPathHelper of the application keeps the semicolon content
+    JAXRS_SPRINGMVC_ANNOTATION_MAP.put(JaxrsAnnotations.MATRIX_PARAM, MatrixVariable.class);
+    JAXRS_SPRINGMVC_ANNOTATION_MAP.put(JaxrsAnnotations.BEAN_PARAM, ModelAttribute.class);
   }
 
   @SuppressWarnings("unused")
   public JaxrsToSpringMvcTransformer(List<String> packagesToInclude) {
-    this.packagesToInclude = packagesToInclude;
+    setPackagesToInclude(packagesToInclude);
   }
 
   @SuppressWarnings("unused")
@@ -67,26 +216,646 @@ public class JaxrsToSpringMvcTransformer extends ClassTransformer {
   protected void applyTransformations(CtClass ctClass) throws Exception {
     log.info("Transforming class {}", ctClass.getName());
 
-    processClassLevelJaxrsAnnotations(ctClass);
+    long start = metrics.start();
+    applyTransformationPlan(ctClass.getClassPool(), planTransformation(ctClass));
+    metrics.stop(TransformationMetrics.Phase.APPLY_TRANSFORMATIONS, start);
 
-    addMethodAnnotationsFromJaxrsAnnotations(ctClass);
+    log.debug("Annotation resolution cache has {} hits and {} misses", annotationResolutionCache.getHitCount(),
+              annotationResolutionCache.getMissCount());
+  }
 
-    for (CtClass aClass : classFilesToSave) {
-      aClass.writeFile();
+  /**
+   * Works out the Spring MVC annotations to add for the class from its JAX-RS annotations.  No class is modified.
+   *
+   * @param ctClass - the class to analyze
+   * @return the transformations to apply with {@link #applyTransformationPlan(ClassPool, TransformationPlan)}
+   * @throws NotFoundException - if a superclass or interface of the class is not in the class pool
+   */
+  public TransformationPlan planTransformation(CtClass ctClass) throws NotFoundException {
+    return planTransformation(ctClass, annotationExtractor, typeHierarchyIndex);
+  }
+
+  /**
+   * Plans the transformation using the specified extractor.  Threads planning classes from different class pools
+   * must each use their own extractor since the extractor caches classes from the pool it was used with.
+   *
+   * @param index - if not null and the class is indexed, the class level annotations are taken from the index
+   *              instead of being looked up in the hierarchy of the class
+   */
+  TransformationPlan planTransformation(CtClass ctClass, JaxrsAnnotationExtractor extractor,
+                                        TypeHierarchyIndex index) throws NotFoundException {
+
+    long start = metrics.start();
+    String className = ctClass.getName();
+    log.info("Processing class level annotations {}", className);
+    // Read class level annotations for JaxRs method
+    MethodAnnotationContainer classAnnotations;
+    Set<String> hierarchyDependencies;
+    if (index != null && index.isIndexed(className)) {
+      classAnnotations = JaxrsAnnotationExtractor.toClassAnnotations(
+          index.getAnnotation(className, JaxrsAnnotations.PATH),
+          index.getAnnotation(className, JaxrsAnnotations.PRODUCES),
+          index.getAnnotation(className, JaxrsAnnotations.CONSUMES));
+      hierarchyDependencies = index.getSupertypes(className);
+    }
+    else {
+      classAnnotations = extractor.extractClassAnnotations(ctClass, packageSelector);
+      hierarchyDependencies = new TreeSet<>(extractor.getHierarchyDependencies(className));
+    }
+    if (classAnnotations.getPath() == null) {
+      classAnnotations = null;
+    }
+
+    log.info("Processing method annotations {}", className);
+    List<MethodTransformation> methodTransformations = new ArrayList<>();
+    // method level annotations
+    CtMethod[] methods = ctClass.getMethods();
+    // for each method
+    for (CtMethod m : methods) {
+      if (packageSelector.matches(m.getDeclaringClass().getPackageName())) {
+        // all the JaxRs annotations of the method and its parameters are read in a single pass
+        MethodAnnotationContainer methodAnnotations = extractor.extractMethodAnnotations(m);
+        String declaringClassName = m.getDeclaringClass().getName();
+        String methodDescriptor = m.getSignature();
+        if (!methodAnnotations.hasJaxrsAnnotations()) {
+          // a method without JaxRs annotations inherits those of the method it overrides.  That method is mapped
+          // with this class, since its declaring class may not be in the classes transformed, and Spring MVC merges
+          // its mapping into the overriding method
+          MethodSignatureIndex.AnnotatedMethod overriddenMethod = extractor.findOverriddenAnnotatedMethod(
+              m, packageSelector);
+          if (overriddenMethod != null) {
+            log.debug("Method {} is mapped by the method it overrides in {}", m.getName(),
+                      overriddenMethod.getDeclaringClassName());
+            methodAnnotations = overriddenMethod.getAnnotations();
+            declaringClassName = overriddenMethod.getDeclaringClassName();
+            methodDescriptor = overriddenMethod.getDescriptor();
+          }
+        }
+        // no method specified - warn
+        if (CollectionUtils.isEmpty(methodAnnotations.getHttpMethods())) {
+          log.warn("No http method annotation on method {}. Skipping...", m.getName());
+          continue;
+        }
+        methodTransformations.add(new MethodTransformation(declaringClassName, m.getName(), methodDescriptor,
+                                                           methodAnnotations));
+        if (!declaringClassName.equals(className)) {
+          hierarchyDependencies.add(declaringClassName);
+        }
+      }
     }
+    metrics.recordSupertypesWalked(hierarchyDependencies.size());
+    metrics.stop(TransformationMetrics.Phase.PLAN, start);
+    return new TransformationPlan(className, ctClass.isInterface(), classAnnotations, methodTransformations,
+                                  hierarchyDependencies);
   }
 
-  private void processClassLevelJaxrsAnnotations(CtClass ctClass) throws NotFoundException, ClassNotFoundException {
+  /**
+   * Adds the Spring MVC annotations of the plan to the classes of the pool.  The classes modified are written on the
+   * next {@link #flush()}.
+   *
+   * @param classPool - the pool to get the classes to modify from
+   * @param plan      - the plan computed by {@link #planTransformation(CtClass)}
+   * @throws NotFoundException - if a class or method of the plan is not in the class pool
+   */
+  public void applyTransformationPlan(ClassPool classPool, TransformationPlan plan) throws NotFoundException {
+    if (plan.getClassAnnotations() != null) {
+      CtClass ctClass = classPool.get(plan.getClassName());
+      defrostIfFrozen(ctClass);
+      long start = metrics.start();
+      processClassLevelJaxrsAnnotations(ctClass, plan.getClassAnnotations());
+      metrics.stop(TransformationMetrics.Phase.CLASS_ANNOTATIONS, start);
+    }
+    for (MethodTransformation methodTransformation : plan.getMethodTransformations()) {
+      CtClass declaringClass = classPool.get(methodTransformation.getDeclaringClassName());
+      defrostIfFrozen(declaringClass);
+      CtMethod method = declaringClass.getMethod(methodTransformation.getMethodName(),
+                                                 methodTransformation.getMethodDescriptor());
+      MethodAnnotationContainer methodAnnotations = methodTransformation.getMethodAnnotations();
+      if (methodAnnotations.isAsync() || StreamingResponseBridges.needsBridge(method)) {
+        // Spring MVC maps the bridge returning a DeferredResult, a StreamingResponseBody or a ResponseEntity instead
+        method = addHandlerBridge(method, methodAnnotations.getAsyncResponseIndex());
+        if (method == null) {
+          continue;
+        }
+        if (methodAnnotations.isAsync()) {
+          methodAnnotations = methodAnnotations.withoutParameter(methodAnnotations.getAsyncResponseIndex());
+        }
+      }
+      // process path annotation
+      long start = metrics.start();
+      processJaxrsAnnotationOnMethod(method, methodAnnotations);
+      metrics.stop(TransformationMetrics.Phase.METHOD_ANNOTATIONS, start);
+      // process method parameters
+      start = metrics.start();
+      processJaxrsMethodParameterAnnotations(method, methodAnnotations);
+      metrics.stop(TransformationMetrics.Phase.PARAMETER_ANNOTATIONS, start);
+    }
+    // a class that refers to JAX-RS without using its annotations gets nothing
+    metrics.increment(plan.isEmpty() ? TransformationMetrics.Counter.CLASSES_SKIPPED :
+                          TransformationMetrics.Counter.CLASSES_TRANSFORMED);
+    metrics.add(TransformationMetrics.Counter.METHODS_MAPPED, plan.getMethodTransformations().size());
+    if (incrementalManifest != null) {
+      incrementalManifest.recordTransformation(classPool, plan.getClassName(), plan.getHierarchyDependencies());
+    }
+  }
 
-    log.info("Processing class level annotations {}", ctClass.getName());
-    ClassFile classFile = ctClass.getClassFile();
+  /**
+   * Transforms a single class file.  Unlike {@link #applyTransformations(CtClass)}, only the class itself is
+   * modified - the methods it inherits are annotated when their declaring classes are transformed.  If a
+   * {@link TransformedClassCache} is set, the class file is returned from the cache without building a javassist
+   * class whenever the same class file with the same hierarchy was transformed before.
+   * <p>
+   * Concurrent callers must use different class pools.
+   *
+   * @param classPool - the pool to resolve the hierarchy of the class from
+   * @param classFile - the class file to transform
+   * @return the transformed class file or null if the class does not need to be transformed.
+   * @throws Exception - if the class could not be transformed
+   */
+  public byte[] transformClassFile(ClassPool classPool, byte[] classFile) throws Exception {
+    return transformClassFile(new ClassFileTransformationContext(classPool, prefilterEnabled), classFile);
+  }
 
-    // Read class level annotations for JaxRs method
-    CtAnnotation ctPathAnnotation = CtClassUtils.findAnnotation(ctClass, Path.class, packagesToInclude);
-    CtAnnotation ctProducesAnnotation = CtClassUtils.findAnnotation(ctClass, Produces.class, packagesToInclude);
-    CtAnnotation ctConsumesAnnotation = CtClassUtils.findAnnotation(ctClass, Consumes.class, packagesToInclude);
+  /**
+   * Transforms a single class file like {@link #transformClassFile(ClassPool, byte[])}, reusing what the context
+   * already knows about the hierarchy of the class.
+   */
+  public byte[] transformClassFile(ClassFileTransformationContext context, byte[] classFile) throws Exception {
+    JaxrsClassPrefilter prefilter = context.getPrefilter();
+    if (prefilter != null && !prefilter.mayNeedTransformation(classFile)) {
+      metrics.increment(TransformationMetrics.Counter.CLASSES_SCANNED);
+      metrics.increment(TransformationMetrics.Counter.CLASSES_SKIPPED);
+      return null;
+    }
+    ClassPool classPool = context.getClassPool();
+    String cacheKey = null;
+    if (transformedClassCache != null) {
+      SortedMap<String, String> supertypeHashes = context.getHierarchyHasher()
+                                                         .hashSupertypes(ClassFileHeader.read(classFile));
+      cacheKey = TransformedClassCache.computeKey(classFile, supertypeHashes, getTransformerVersion(),
+                                                  packagesToInclude);
+      byte[] cachedClassFile = transformedClassCache.get(cacheKey);
+      if (cachedClassFile != null) {
+        metrics.increment(TransformationMetrics.Counter.CLASSES_SCANNED);
+        metrics.increment(TransformationMetrics.Counter.CLASSES_CACHED);
+        return cachedClassFile.length == 0 ? null : cachedClassFile;
+      }
+    }
+    byte[] transformedClassFile = null;
+    CtClass ctClass = classPool.makeClass(new ByteArrayInputStream(classFile), false);
+    try {
+      if (isTransformable(ctClass)) {
+        // the class may have been resolved from a different class file before
+        context.getAnnotationResolutionCache().invalidate(ctClass.getName());
+        TransformationPlan plan = planTransformation(ctClass, context.getAnnotationExtractor(),
+                                                     context.getTypeHierarchyIndex())
+            .restrictTo(ctClass.getName());
+        // a class that gets no annotation is left as is
+        if (!plan.isEmpty()) {
+          applyTransformationPlan(classPool, plan);
+          applyStamp(ctClass);
+          transformedClassFile = classFileCompactor == null ? ctClass.toBytecode() :
+              classFileCompactor.toBytecode(ctClass);
+        }
+        else {
+          metrics.increment(TransformationMetrics.Counter.CLASSES_SKIPPED);
+        }
+      }
+    }
+    finally {
+      classFileWritePipeline.discard(ctClass.getName());
+      if (classPool instanceof BoundedClassPool) {
+        ((BoundedClassPool) classPool).release(ctClass);
+      }
+      else {
+        ctClass.detach();
+      }
+    }
+    if (cacheKey != null) {
+      transformedClassCache.put(cacheKey, transformedClassFile == null ? new byte[0] : transformedClassFile);
+    }
+    return transformedClassFile;
+  }
+
+  /**
+   * In compact output mode, the JAX-RS annotations translated to Spring MVC annotations are removed from the
+   * transformed classes and their constant pool is rebuilt, so that they are no bigger than the same classes written
+   * with Spring MVC annotations.  Only use it if the classes are no longer used with a JAX-RS runtime or client.
+   * <p>
+   * The classes are not stamped either: once their JAX-RS annotations are removed, transforming them again does
+   * nothing.
+   */
+  public void setCompactOutput(boolean compactOutput) {
+    classFileCompactor = compactOutput ? new ClassFileCompactor(metrics) : null;
+    classFileWritePipeline.setCompactor(classFileCompactor);
+  }
+
+  public boolean isCompactOutput() {
+    return classFileCompactor != null;
+  }
+
+  /**
+   * Sets the patterns of the packages to transform - see {@link PackageSelector} for the syntax.  Null or empty to
+   * transform every package.
+   */
+  public void setPackagesToInclude(List<String> packagesToInclude) {
+    this.packageSelector = PackageSelector.compile(packagesToInclude);
+    this.packagesToInclude = packagesToInclude;
+  }
+
+  /**
+   * @return false if the class is outside the packages to include.  Such a class never gets an annotation from
+   * {@link #transformClassFile(ClassPool, byte[])} so its class file need not even be read.
+   */
+  public boolean mayTransform(String className) {
+    return packageSelector.matches(ClassUtils.getPackageName(className));
+  }
+
+  /**
+   * Transforms the classes of a jar into another jar in a single pass.
+   *
+   * @see JarTransformer
+   */
+  public JarTransformer.Result transformJar(String inputJar, String outputJar) throws IOException {
+    metrics.reset();
+    JarTransformer.Result result = new JarTransformer(this).transform(Paths.get(inputJar), Paths.get(outputJar));
+    publishMetrics();
+    return result;
+  }
+
+  /**
+   * In incremental mode, classes whose class file and hierarchy did not change since they were last transformed are
+   * skipped.
+   */
+  @Override
+  protected boolean shouldTransform(CtClass candidateClass) throws Exception {
+    if (incrementalManifest != null &&
+        incrementalManifest.isUpToDate(candidateClass.getClassPool(), candidateClass.getName())) {
+      log.debug("Class {} and its hierarchy are unchanged since the last build. Skipping...", candidateClass.getName());
+      metrics.increment(TransformationMetrics.Counter.CLASSES_SKIPPED);
+      return false;
+    }
+    boolean shouldTransform = super.shouldTransform(candidateClass);
+    if (!shouldTransform) {
+      metrics.increment(TransformationMetrics.Counter.CLASSES_SKIPPED);
+    }
+    return shouldTransform;
+  }
+
+  @Override
+  protected void applyStamp(CtClass ctClass) throws CannotCompileException {
+    if (classFileCompactor == null) {
+      super.applyStamp(ctClass);
+    }
+  }
+
+  /**
+   * Every class considered for transformation is checked for the stamp first, so this is where the classes scanned
+   * are counted.
+   */
+  @Override
+  protected boolean hasStamp(CtClass candidateClass) {
+    metrics.increment(TransformationMetrics.Counter.CLASSES_SCANNED);
+    boolean stamped = super.hasStamp(candidateClass);
+    if (stamped) {
+      metrics.increment(TransformationMetrics.Counter.CLASSES_SKIPPED);
+    }
+    return stamped;
+  }
+
+  /**
+   * @return true if the class should be transformed, using the same checks as {@link #transform(String, String)}.
+   */
+  boolean isTransformable(CtClass ctClass) throws Exception {
+    return !hasStamp(ctClass) && shouldTransform(ctClass);
+  }
+
+  /**
+   * Marks the class as transformed the same way {@link #transform(String, String)} does.
+   */
+  void stamp(CtClass ctClass) throws CannotCompileException {
+    defrostIfFrozen(ctClass);
+    applyStamp(ctClass);
+    markDirty(ctClass);
+  }
+
+  /**
+   * Transforms the classes in the input directory.  The classes modified along the way (for e.g. the superclasses
+   * whose methods were annotated) are written to the output directory once all the classes are transformed - unless
+   * a transformed class cache or a {@link #setMaxCachedClasses(int) maximum number of cached classes} is set, in
+   * which case each class is transformed and written on its own.
+   */
+  @Override
+  public void transform(String inputDir, String outputDir) {
+    if (StringUtils.isBlank(inputDir)) {
+      return;
+    }
+    // the classes are transformed in place when no output directory is specified
+    outputDir = StringUtils.isBlank(outputDir) ? inputDir : outputDir;
+    metrics.reset();
+    // the classes of another directory may have the same names
+    annotationResolutionCache.invalidateAll();
+    startIncrementalSession(outputDir);
+    classFileWritePipeline.setOutputDirectory(outputDir);
+    try {
+      if (transformedClassCache != null || maxCachedClasses > 0) {
+        transformClassFiles(inputDir, outputDir);
+      }
+      else {
+        transformClasses(inputDir);
+      }
+    }
+    finally {
+      typeHierarchyIndex = null;
+    }
+    if (prefilter != null) {
+      log.info("Prefilter rejected {} of {} classes ({}%) before transformation", prefilter.getRejectedCount(),
+               prefilter.getScannedCount(), String.format("%.1f", prefilter.getRejectionRate() * 100));
+    }
+    try {
+      flush();
+      if (candidateClassNames != null) {
+        writeRouteManifest(inputDir, outputDir, candidateClassNames);
+      }
+    }
+    catch (IOException e) {
+      throw new RuntimeException("Unable to write transformed classes to " + outputDir, e);
+    }
+    publishMetrics();
+  }
+
+  /**
+   * In incremental mode, starts the session of the manifest - the classes of a previous build are only up to date if
+   * they were transformed the same way and written to the same output directory.
+   */
+  void startIncrementalSession(String outputDir) {
+    if (incrementalManifest != null) {
+      incrementalManifest.startSession(outputDir, getTransformerVersion(), packagesToInclude);
+    }
+  }
+
+  /**
+   * Ends the metrics of a transform session - logs a summary and hands them to the {@link #setMetricsSink(
+   * TransformationMetricsSink) metrics sink}, if any.  Called at the end of every directory or jar transformation.
+   */
+  public void publishMetrics() {
+    log.info("Transformed {} of {} classes ({} skipped, {} from cache, {} failed) - {} bytes written",
+             metrics.get(TransformationMetrics.Counter.CLASSES_TRANSFORMED),
+             metrics.get(TransformationMetrics.Counter.CLASSES_SCANNED),
+             metrics.get(TransformationMetrics.Counter.CLASSES_SKIPPED),
+             metrics.get(TransformationMetrics.Counter.CLASSES_CACHED),
+             metrics.get(TransformationMetrics.Counter.CLASSES_FAILED),
+             metrics.get(TransformationMetrics.Counter.BYTES_WRITTEN));
+    if (metrics.isPeakHeapTracking()) {
+      log.info("Peak heap usage {} MB", metrics.recordPeakHeap() / (1024 * 1024));
+    }
+    if (classFileCompactor != null) {
+      log.info("Compacted the transformed classes from {} to {} bytes",
+               metrics.get(TransformationMetrics.Counter.BYTES_BEFORE_COMPACTION),
+               metrics.get(TransformationMetrics.Counter.BYTES_AFTER_COMPACTION));
+    }
+    long regexPathPatterns = metrics.get(TransformationMetrics.Counter.REGEX_PATH_PATTERNS);
+    if (regexPathPatterns > 0) {
+      log.info("{} paths use regex template variables - Spring MVC cannot match them without a regex " +
+               "(listed in the debug log)", regexPathPatterns);
+    }
+    if (metricsSink != null) {
+      try {
+        metricsSink.publish(metrics);
+      }
+      catch (IOException e) {
+        // the metrics are not worth failing the build for
+        log.warn("Unable to publish the transformation metrics", e);
+      }
+    }
+  }
+
+  /**
+   * Writes the {@link RouteManifest} of the controllers among the classes and the {@link HandlerInvoker invokers} of
+   * their routes to the output directory, once the transformed classes are written.  Does nothing if both are
+   * disabled.
+   *
+   * @param classNames - the classes that may be controllers
+   */
+  void writeRouteManifest(String inputDir, String outputDir, Collection<String> classNames) throws IOException {
+    if (!routeManifestEnabled && !handlerInvokersEnabled) {
+      return;
+    }
+    long start = metrics.start();
+    ClassPool classPool = ParallelTransformationEngine.createClassPool(inputDir);
+    try {
+      // the transformed classes hide the classes they were transformed from
+      classPool.insertClassPath(outputDir);
+    }
+    catch (NotFoundException e) {
+      throw new IOException("Invalid output directory " + outputDir, e);
+    }
+    RouteManifestBuilder routeManifestBuilder = new RouteManifestBuilder(classPool);
+    classNames.forEach(routeManifestBuilder::add);
+    RouteManifest routeManifest = routeManifestBuilder.build();
+    if (handlerInvokersEnabled) {
+      writeHandlerInvokers(classPool, routeManifest, outputDir);
+    }
+    if (!routeManifestEnabled) {
+      metrics.stop(TransformationMetrics.Phase.ROUTE_MANIFEST, start);
+      return;
+    }
+    Path manifestFile = Paths.get(outputDir, RouteManifest.RESOURCE_NAME);
+    if (routeManifest.getControllers().isEmpty()) {
+      Files.deleteIfExists(manifestFile);
+      metrics.stop(TransformationMetrics.Phase.ROUTE_MANIFEST, start);
+      return;
+    }
+    Files.createDirectories(manifestFile.getParent());
+    try (OutputStream outputStream = Files.newOutputStream(manifestFile)) {
+      routeManifest.write(outputStream);
+    }
+    metrics.stop(TransformationMetrics.Phase.ROUTE_MANIFEST, start);
+    log.info("Wrote the routes of {} controllers to {}", routeManifest.getControllers().size(), manifestFile);
+  }
+
+  /**
+   * Writes the invoker of each route whose method an invoker can call.  The routes of a method share its invoker.
+   */
+  private void writeHandlerInvokers(ClassPool classPool, RouteManifest routeManifest, String outputDir)
+      throws IOException {
+    Map<String, RouteManifest.Route> routesByInvoker = new LinkedHashMap<>();
+    for (RouteManifest.Controller controller : routeManifest.getControllers()) {
+      for (RouteManifest.Route route : controller.getRoutes()) {
+        routesByInvoker.putIfAbsent(HandlerInvokers.getInvokerClassName(route.getDeclaringClassName(),
+                                                                        route.getMethodName(),
+                                                                        route.getMethodDescriptor()), route);
+      }
+    }
+    for (Map.Entry<String, RouteManifest.Route> entry : routesByInvoker.entrySet()) {
+      Path invokerFile = Paths.get(outputDir, entry.getKey().replace('.', '/') + ".class");
+      RouteManifest.Route route = entry.getValue();
+      try {
+        CtClass declaringClass = classPool.get(route.getDeclaringClassName());
+        CtMethod method = BridgeMethods.findDeclaredMethod(declaringClass, route.getMethodName(),
+                                                           route.getMethodDescriptor());
+        MethodInfo methodInfo = method == null ? null : method.getMethodInfo2();
+        if (methodInfo == null || !HandlerInvokerGenerator.canInvoke(methodInfo)) {
+          log.debug("No invoker for {}.{}{}", route.getDeclaringClassName(), route.getMethodName(),
+                    route.getMethodDescriptor());
+          continue;
+        }
+        Files.createDirectories(invokerFile.getParent());
+        Files.write(invokerFile, HandlerInvokerGenerator.generate(declaringClass, methodInfo));
+        metrics.increment(TransformationMetrics.Counter.HANDLER_INVOKERS);
+      }
+      catch (NotFoundException e) {
+        log.warn("Unable to generate the invoker of {}.{} - class not found", route.getDeclaringClassName(),
+                 route.getMethodName());
+      }
+    }
+    log.info("Wrote {} handler invokers", metrics.get(TransformationMetrics.Counter.HANDLER_INVOKERS));
+  }
+
+  /**
+   * Lists the classes of the input directory, leaving out the classes rejected by the {@link JaxrsClassPrefilter}
+   * so that they are never read by javassist.
+   */
+  @Override
+  protected Iterator<String> iterateClassnames(String inputDir) {
+    // the classes are transformed in the order of their names, whatever the order of the files in the directory, so
+    // that the classes they modify get the same bytes as with the parallel engine
+    List<String> allClassNames = new ArrayList<>();
+    super.iterateClassnames(inputDir).forEachRemaining(allClassNames::add);
+    Collections.sort(allClassNames);
+    Iterator<String> classNames = allClassNames.iterator();
+    if (!prefilterEnabled) {
+      candidateClassNames = allClassNames;
+      typeHierarchyIndex = indexTypeHierarchy(inputDir, allClassNames);
+      return allClassNames.iterator();
+    }
+    JaxrsClassPrefilter sessionPrefilter = new JaxrsClassPrefilter(
+        ParallelTransformationEngine.createClassPool(inputDir));
+    List<String> acceptedClassNames = new ArrayList<>();
+    while (classNames.hasNext()) {
+      String className = classNames.next();
+      if (sessionPrefilter.mayNeedTransformation(className)) {
+        acceptedClassNames.add(className);
+      }
+      else {
+        log.debug("Class {} does not refer to JaxRs. Skipping...", className);
+        metrics.increment(TransformationMetrics.Counter.CLASSES_SCANNED);
+        metrics.increment(TransformationMetrics.Counter.CLASSES_SKIPPED);
+      }
+    }
+    prefilter = sessionPrefilter;
+    candidateClassNames = acceptedClassNames;
+    typeHierarchyIndex = indexTypeHierarchy(inputDir, acceptedClassNames);
+    return acceptedClassNames.iterator();
+  }
+
+  /**
+   * Builds the {@link TypeHierarchyIndex} of the classes of the input directory.
+   *
+   * @return the index or null if it is disabled.
+   */
+  TypeHierarchyIndex indexTypeHierarchy(String inputDir, Collection<String> classNames) {
+    if (!typeHierarchyIndexEnabled) {
+      return null;
+    }
+    long start = metrics.start();
+    TypeHierarchyIndex index = TypeHierarchyIndex.build(ParallelTransformationEngine.createClassPool(inputDir),
+                                                        Paths.get(inputDir), classNames, packageSelector,
+                                                        JaxrsAnnotations.CLASS_ANNOTATIONS);
+    metrics.stop(TransformationMetrics.Phase.HIERARCHY_INDEX, start);
+    log.info("Indexed the hierarchy of {} classes", index.size());
+    return index;
+  }
 
-    if (ctPathAnnotation != null) {
+  /**
+   * Transforms the classes of the input directory in a single class pool.  The classes are only written by the
+   * {@link ClassFileWritePipeline} - unlike {@link ClassTransformer#transform(String, String)}, which writes each
+   * class as soon as it is transformed, before the pipeline writes it again.
+   */
+  private void transformClasses(String inputDir) {
+    ClassPool classPool = ParallelTransformationEngine.createClassPool(inputDir);
+    Iterator<String> classNames = iterateClassnames(inputDir);
+    while (classNames.hasNext()) {
+      String className = classNames.next();
+      try {
+        CtClass ctClass = classPool.get(className);
+        if (isTransformable(ctClass)) {
+          applyTransformations(ctClass);
+          stamp(ctClass);
+        }
+      }
+      catch (Exception e) {
+        log.error("Unable to transform class {}", className, e);
+        metrics.increment(TransformationMetrics.Counter.CLASSES_FAILED);
+      }
+    }
+  }
+
+  /**
+   * Transforms the class files of the input directory one by one with {@link #transformClassFile(ClassPool, byte[])}
+   * so that the class files already in the transformed class cache are not transformed again, and so that no
+   * transformed class is held once it is written.
+   */
+  private void transformClassFiles(String inputDir, String outputDir) {
+    // the class names were already prefiltered
+    ClassFileTransformationContext context = new ClassFileTransformationContext(
+        ParallelTransformationEngine.createClassPool(inputDir, maxCachedClasses), false);
+    int transformedCount = 0;
+    Iterator<String> classNames = iterateClassnames(inputDir);
+    context.setTypeHierarchyIndex(typeHierarchyIndex);
+    while (classNames.hasNext()) {
+      String className = classNames.next();
+      String classFileName = className.replace('.', '/') + ".class";
+      try {
+        byte[] classFile = Files.readAllBytes(Paths.get(inputDir, classFileName));
+        byte[] transformedClassFile = transformClassFile(context, classFile);
+        if (transformedClassFile != null) {
+          Path outputFile = Paths.get(outputDir, classFileName);
+          Files.createDirectories(outputFile.getParent());
+          Files.write(outputFile, transformedClassFile);
+          metrics.recordWrite(1, transformedClassFile.length);
+          transformedCount++;
+        }
+      }
+      catch (Exception e) {
+        log.error("Unable to transform class {}", className, e);
+        metrics.increment(TransformationMetrics.Counter.CLASSES_FAILED);
+      }
+    }
+    log.info("Transformed {} classes - {}", transformedCount,
+             transformedClassCache == null ? context.getClassPool() : transformedClassCache);
+  }
+
+  /**
+   * Writes every class modified since the last flush and, in incremental mode, saves the manifest.
+   */
+  public void flush() throws IOException {
+    long start = metrics.start();
+    long filesWritten = classFileWritePipeline.getFilesWritten();
+    long bytesWritten = classFileWritePipeline.getBytesWritten();
+    classFileWritePipeline.flush();
+    metrics.recordWrite(classFileWritePipeline.getFilesWritten() - filesWritten,
+                        classFileWritePipeline.getBytesWritten() - bytesWritten);
+    metrics.stop(TransformationMetrics.Phase.WRITE, start);
+    if (incrementalManifest != null) {
+      incrementalManifest.recordOutputHashes(classFileWritePipeline.getOutputDirectory());
+      incrementalManifest.save();
+    }
+  }
+
+  /**
+   * Ends the transform session - writes the pending classes and releases the writer thread.
+   */
+  @Override
+  public void close() throws IOException {
+    classFileWritePipeline.close();
+  }
+
+  private void processClassLevelJaxrsAnnotations(CtClass ctClass, MethodAnnotationContainer classAnnotations) {
+
+    ClassFile classFile = ctClass.getClassFile();
+
+    if (classAnnotations.getPath() != null) {
       log.debug("Found JaxRs Path annotation on class - adding RequestMapping on implementation class");
       ConstPool constpool = classFile.getConstPool();
 
@@ -96,35 +865,28 @@ public class JaxrsToSpringMvcTransformer extends ClassTransformer {
       if (!ctClass.isInterface()) {
         Annotation rc = getAnnotation(constpool, RestController.class);
         annotationsAttribute.addAnnotation(rc);
-        classFile.addAttribute(annotationsAttribute);
       }
 
       // create the annotation
-      Path path = (Path) ctPathAnnotation.getAnnotation();
       log.trace("Processing Path annotation");
-      AnnotationsAttribute attr = new AnnotationsAttribute(constpool, AnnotationsAttribute.visibleTag);
       Annotation rm = getAnnotation(constpool, RequestMapping.class);
-      StringMemberValue smv = new StringMemberValue(path.value(), constpool);
+      StringMemberValue smv = new StringMemberValue(toSpringPathPattern(classAnnotations.getPath()), constpool);
       addAttributeToAnnotation(constpool, rm, VALUE_ATTRIBUTE, new MemberValue[]{smv});
 
-      if (ctProducesAnnotation != null) {
+      if (classAnnotations.getProduces() != null) {
         log.trace("Processing Produces annotation");
-        Produces produces = (Produces) ctProducesAnnotation.getAnnotation();
-        String[] mediaTypes = produces.value();
         List<MemberValue> memberValueList = new ArrayList<>();
-        for (String mediaType : mediaTypes) {
+        for (String mediaType : classAnnotations.getProduces()) {
           log.trace("Processing media type (produces) {}", mediaType);
           StringMemberValue s = new StringMemberValue(mediaType, constpool);
           memberValueList.add(s);
         }
         addAttributeToAnnotation(constpool, rm, "produces", memberValueList.toArray(new MemberValue[0]));
       }
-      if (ctConsumesAnnotation != null) {
+      if (classAnnotations.getConsumes() != null) {
         log.trace("Processing consumes annotation");
-        Consumes consumes = (Consumes) ctConsumesAnnotation.getAnnotation();
-        String[] mediaTypes = consumes.value();
         List<MemberValue> memberValueList = new ArrayList<>();
-        for (String mediaType : mediaTypes) {
+        for (String mediaType : classAnnotations.getConsumes()) {
           log.trace("Processing media type (consumes) {}", mediaType);
           StringMemberValue s = new StringMemberValue(mediaType, constpool);
           memberValueList.add(s);
@@ -132,36 +894,24 @@ public class JaxrsToSpringMvcTransformer extends ClassTransformer {
         addAttributeToAnnotation(constpool, rm, "consumes", memberValueList.toArray(new MemberValue[0]));
       }
       annotationsAttribute.addAnnotation(rm);
-      classFilesToSave.add(ctClass);
+      markDirty(ctClass);
       log.debug("classFile has {} attributes", classFile.getAttributes().size());
     }
   }
 
-  private void addMethodAnnotationsFromJaxrsAnnotations(CtClass ctClass) {
-    log.info("Processing method annotations {}", ctClass.getName());
-
-    ConstPool constpool = ctClass.getClassFile().getConstPool();
-    // method level annotations
-    CtMethod[] methods = ctClass.getMethods();
-    // for each method
-    Arrays.stream(methods).forEach(m -> {
-      // find annotations from the method or its super class method (which may contain the annotation we care about
-      try {
-        // process path annotation
-        if (processJaxrsAnnotationOnMethod(m)) {
-          // process method parameters
-          processJaxrsMethodParameterAnnotations(m);
-        }
-
-      }
-      catch (ClassNotFoundException | NotFoundException e) {
-        log.error("Error finding annotation on method {} ", m.getName(), e);
-      }
-    });
-
+  /**
+   * @return the Spring MVC pattern of the JAX-RS path, which is counted if Spring MVC needs a regex to match it.
+   */
+  private String toSpringPathPattern(String jaxrsPath) {
+    String pattern = PathTemplateConverter.toSpringPattern(jaxrsPath);
+    if (PathTemplateConverter.requiresRegex(pattern)) {
+      log.debug("Path {} is matched with a regex by Spring MVC", pattern);
+      metrics.increment(TransformationMetrics.Counter.REGEX_PATH_PATTERNS);
+    }
+    return pattern;
   }
 
-  private void processJaxrsMethodParameterAnnotations(CtMethod method) {
+  private void processJaxrsMethodParameterAnnotations(CtMethod method, MethodAnnotationContainer methodAnnotations) {
 
     ParameterAnnotationsAttribute attributeInfo = (ParameterAnnotationsAttribute)
         method.getMethodInfo().getAttribute(ParameterAnnotationsAttribute.visibleTag);
@@ -169,32 +919,91 @@ public class JaxrsToSpringMvcTransformer extends ClassTransformer {
     if (attributeInfo == null) {
       return;
     }
+    List<List<JaxrsParameterAnnotation>> jaxrsParametersAnnotations = methodAnnotations.getParamAnnotation();
+    SignatureAttribute.Type[] parameterTypes = getParameterTypes(method);
     Annotation[][] parametersAnnotations = attributeInfo.getAnnotations();
-    int index = 0;
     ConstPool constpool = method.getMethodInfo().getConstPool();
-    log.trace("Method has {} parameters", parametersAnnotations.length, parametersAnnotations);
-    for (Annotation[] parameterAnnotations : parametersAnnotations) {
-      log.trace("Parameter {} has {} annotations", index, parameterAnnotations.length);
+    log.trace("Method has {} parameters", parametersAnnotations.length);
+    for (int index = 0; index < parametersAnnotations.length; index++) {
+      List<JaxrsParameterAnnotation> jaxrsParameterAnnotations = jaxrsParametersAnnotations.get(index);
+      log.trace("Parameter {} has {} JaxRs annotations", index, jaxrsParameterAnnotations.size());
       // for each param - add all relevant annotations.
       List<Annotation> adaptedAnnotations = new ArrayList<>();
 
-      for (Annotation parameterAnnotation : parameterAnnotations) {
+      for (JaxrsParameterAnnotation parameterAnnotation : jaxrsParameterAnnotations) {
         String parameterAnnotationTypeName = parameterAnnotation.getTypeName();
-        if (METHOD_PARAMETER_ANNOTATION_LIST.contains(parameterAnnotationTypeName)) {
-          log.trace("Parameter {} has {} annotation - adapting...", index, parameterAnnotationTypeName);
-          // the springmvc ct annotation instance for this
-          @SuppressWarnings("unchecked")
-          Annotation adaptedParamAnnotation = getAnnotation(constpool, JAXRS_SPRINGMVC_ANNOTATION_MAP
-              .get(parameterAnnotationTypeName));
-          adaptedParamAnnotation.addMemberValue(VALUE_ATTRIBUTE, parameterAnnotation.getMemberValue(VALUE_ATTRIBUTE));
-          adaptedAnnotations.add(adaptedParamAnnotation);
-          Annotation[] newParameterAnnotations = addAnnotationToArray(parameterAnnotations, adaptedAnnotations);
-          parametersAnnotations[index++] = newParameterAnnotations;
+        log.trace("Parameter {} has {} annotation - adapting...", index, parameterAnnotationTypeName);
+        // the springmvc ct annotation instance for this
+        Class springMvcAnnotationType = JAXRS_SPRINGMVC_ANNOTATION_MAP.get(parameterAnnotationTypeName);
+        if (hasAnnotation(parametersAnnotations[index], springMvcAnnotationType)) {
+          // a superclass is transformed with each of its subclasses
+          log.trace("Parameter {} is already annotated with {}", index, springMvcAnnotationType.getName());
+          continue;
+        }
+        @SuppressWarnings("unchecked")
+        Annotation adaptedParamAnnotation = getAnnotation(constpool, springMvcAnnotationType);
+        if (parameterAnnotation.getValue() != null) {
+          adaptedParamAnnotation.addMemberValue(VALUE_ATTRIBUTE, new StringMemberValue(parameterAnnotation.getValue(),
+                                                                                       constpool));
         }
+        if (OPTIONAL_PARAMETER_ANNOTATIONS.contains(springMvcAnnotationType)) {
+          adaptedParamAnnotation.addMemberValue("required", new BooleanMemberValue(false, constpool));
+          String defaultValue = parameterAnnotation.getDefaultValue();
+          if (defaultValue == null && index < parameterTypes.length) {
+            defaultValue = getPrimitiveDefaultValue(parameterTypes[index]);
+          }
+          if (defaultValue != null) {
+            adaptedParamAnnotation.addMemberValue("defaultValue", new StringMemberValue(defaultValue, constpool));
+          }
+        }
+        adaptedAnnotations.add(adaptedParamAnnotation);
+      }
+      if (!adaptedAnnotations.isEmpty()) {
+        parametersAnnotations[index] = addAnnotationToArray(parametersAnnotations[index], adaptedAnnotations);
       }
     }
     attributeInfo.setAnnotations(parametersAnnotations);
-    classFilesToSave.add(method.getDeclaringClass());
+    markDirty(method.getDeclaringClass());
+  }
+
+  /**
+   * @return the parameter types of the method or no type if its descriptor cannot be parsed.
+   */
+  private static SignatureAttribute.Type[] getParameterTypes(CtMethod method) {
+    try {
+      return SignatureAttribute.toMethodSignature(method.getSignature()).getParameterTypes();
+    }
+    catch (BadBytecode e) {
+      log.warn("Unable to parse the descriptor of method {}", method.getLongName(), e);
+      return new SignatureAttribute.Type[0];
+    }
+  }
+
+  /**
+   * @return the value JAX-RS injects in a primitive parameter whose value is missing, or null if the parameter is
+   * not primitive.  Spring MVC cannot convert the null of a missing value to a primitive and fails the request.
+   */
+  private static String getPrimitiveDefaultValue(SignatureAttribute.Type parameterType) {
+    if (!(parameterType instanceof SignatureAttribute.BaseType)) {
+      return null;
+    }
+    switch (((SignatureAttribute.BaseType) parameterType).getDescriptor()) {
+      case 'Z':
+        return "false";
+      case 'C':
+        return "\u0000";
+      default:
+        return "0";
+    }
+  }
+
+  private static boolean hasAnnotation(Annotation[] annotations, Class annotationType) {
+    for (Annotation annotation : annotations) {
+      if (annotation.getTypeName().equals(annotationType.getName())) {
+        return true;
+      }
+    }
+    return false;
   }
 
   private Annotation[] addAnnotationToArray(Annotation[] parameterAnnotations, List<Annotation> adaptedAnnotations) {
@@ -205,107 +1014,114 @@ public class JaxrsToSpringMvcTransformer extends ClassTransformer {
     return newParamAnnotations;
   }
 
-  private boolean processJaxrsAnnotationOnMethod(CtMethod method)
-      throws NotFoundException, ClassNotFoundException {
+  private void processJaxrsAnnotationOnMethod(CtMethod method, MethodAnnotationContainer methodAnnotations) {
 
+    ConstPool constpool = method.getMethodInfo().getConstPool();
+    Annotation requestMapping = null;
 
-    if (CtClassUtils.isInIncludedPackageOrSubpackage(packagesToInclude, method.getDeclaringClass().getPackageName())) {
-      ConstPool constpool = method.getMethodInfo().getConstPool();
-      Annotation requestMapping = null;
+    if (methodAnnotations.hasRequestMappingAttributes()) {
+      requestMapping = getAnnotation(constpool, RequestMapping.class);
+    }
+    // set the value attribute of the RequestMapping
+    if (requestMapping != null && methodAnnotations.getPath() != null) {
+      processJaxrsAnnotationsForArrayValues(constpool, requestMapping, VALUE_ATTRIBUTE,
+                                            () -> new MemberValue[]
+                                                {
+                                                    new StringMemberValue(toSpringPathPattern(
+                                                        methodAnnotations.getPath()), constpool)
+                                                });
+    }
+    // set produces and consumes attribute of the RequestMapping
+    if (requestMapping != null && methodAnnotations.getProduces() != null) {
+      processJaxrsAnnotationsForArrayValues(constpool, requestMapping, "produces",
+                                            () -> Arrays
+                                                .stream(methodAnnotations.getProduces())
+                                                .map(s -> new StringMemberValue(s, constpool))
+                                                .collect(toList()).toArray(new MemberValue[0]));
 
-      CtAnnotation pathAnnotation = CtClassUtils.findAnnotationOnMethod(method, Path.class);
-      CtAnnotation producesAnnotation = CtClassUtils.findAnnotationOnMethod(method, Produces.class);
-      CtAnnotation consumesAnnotation = CtClassUtils.findAnnotationOnMethod(method, Consumes.class);
+    }
+    if (requestMapping != null && methodAnnotations.getConsumes() != null) {
+      processJaxrsAnnotationsForArrayValues(constpool, requestMapping, "consumes",
+                                            () -> Arrays
+                                                .stream(methodAnnotations.getConsumes())
+                                                .map(s -> new StringMemberValue(s, constpool))
+                                                .collect(toList()).toArray(new MemberValue[0]));
 
-      if (pathAnnotation != null || producesAnnotation != null || consumesAnnotation != null) {
-        requestMapping = getAnnotation(constpool, RequestMapping.class);
-      }
-      // set the value attribute of the RequestMapping
-      if (requestMapping != null && pathAnnotation != null) {
-        processJaxrsAnnotationsForArrayValues(constpool, requestMapping, VALUE_ATTRIBUTE,
-                                              () -> new MemberValue[]
-                                                  {
-                                                      new StringMemberValue(
-                                                          ((Path) pathAnnotation.getAnnotation()).value(),
-                                                          constpool)
-                                                  });
+    }
+    // add HttpMethods to request mapping
+    List<String> httpMethods = methodAnnotations.getHttpMethods();
+    // Get the corresponding RequestMethod from the JAXRS method
+    List<RequestMethod> httpRequestMethods = httpMethods.stream()
+                                                        .map(RequestMethod::valueOf)
+                                                        .collect(toList());
+    if (requestMapping != null) {
+      AnnotationsAttribute attr = getVisibleRuntimeAnnotationAttr(constpool, method.getMethodInfo());
+      // process http method annotation
+      // add http method annotations to requestMapping
+      processJaxrsAnnotationsForArrayValues(constpool, requestMapping, "method",
+                                            () -> {
+                                              List<MemberValue> memberValueList = new ArrayList<>();
+                                              for (RequestMethod requestMethod : httpRequestMethods) {
+                                                EnumMemberValue enumValue = new EnumMemberValue(constpool);
+                                                enumValue.setType(RequestMethod.class.getName());
+                                                enumValue.setValue(requestMethod.name());
+                                                memberValueList.add(enumValue);
+                                              }
+                                              return memberValueList.toArray(new MemberValue[0]);
+                                            });
+      attr.addAnnotation(requestMapping);
+    }
+    else {
+      // request Mapping is null use the meta annotations.
+      // they are added to the existing annotations of the method - a new attribute would replace them
+      AnnotationsAttribute attr = getVisibleRuntimeAnnotationAttr(constpool, method.getMethodInfo());
+      for (String httpMethod : httpMethods) {
+        Class springMvcAnnClass = methodAnnotations.getSpringMvcMethodMapping(httpMethod);
+        @SuppressWarnings("unchecked")
+        Annotation springMvcMethodAnnotation = getAnnotation(constpool, springMvcAnnClass);
+        // this goes on the method.
+        attr.addAnnotation(springMvcMethodAnnotation);
       }
-      // set produces and consumes attribute of the RequestMapping
-      if (requestMapping != null && producesAnnotation != null) {
-        processJaxrsAnnotationsForArrayValues(constpool, requestMapping, "produces",
-                                              () -> Arrays
-                                                  .stream(((Produces) producesAnnotation.getAnnotation()).value())
-                                                  .map(s -> new StringMemberValue(s, constpool))
-                                                  .collect(toList()).toArray(new MemberValue[0]));
+    }
+    markDirty(method.getDeclaringClass());
+  }
 
-      }
-      if (requestMapping != null && consumesAnnotation != null) {
-        processJaxrsAnnotationsForArrayValues(constpool, requestMapping, "consumes",
-                                              () -> Arrays
-                                                  .stream(((Consumes) consumesAnnotation.getAnnotation()).value())
-                                                  .map(s -> new StringMemberValue(s, constpool))
-                                                  .collect(toList()).toArray(new MemberValue[0]));
+  /**
+   * A class already written (for e.g. a superclass transformed and written before its subclass) is frozen by
+   * javassist.  Thaw it so that it can be modified again - the pipeline writes it again on the next flush.
+   */
+  private void defrostIfFrozen(CtClass ctClass) {
+    if (ctClass.isFrozen()) {
+      log.debug("Class {} was already written - defrosting it", ctClass.getName());
+      ctClass.defrost();
+    }
+  }
 
+  /**
+   * @return the bridge Spring MVC maps instead of the method or null if the method cannot be bridged.
+   * @see DeferredResultBridges
+   * @see StreamingResponseBridges
+   */
+  private CtMethod addHandlerBridge(CtMethod method, int asyncResponseIndex) {
+    try {
+      CtMethod bridge = asyncResponseIndex >= 0 ? DeferredResultBridges.addBridge(method, asyncResponseIndex) :
+          StreamingResponseBridges.addBridge(method);
+      if (bridge == null) {
+        log.warn("Cannot map the method {} - its interface must be compiled for Java 8 or later",
+                 method.getLongName());
+        return null;
       }
-      // add HttpMethods to request mapping
-      List<CtAnnotation> httpMethodAnnotations = new ArrayList<>();
-      for (Class httpMethodClass : JAXRS_HTTP_METHOD_ANNOTATIONS) {
-        CtAnnotation httpMethodAnnotation = CtClassUtils.findAnnotationOnMethod(method, httpMethodClass);
-        if (httpMethodAnnotation != null && httpMethodAnnotation.getAnnotation() != null) {
-          httpMethodAnnotations.add(httpMethodAnnotation);
-        }
-      }
-      // no method specified - warn
-      if (CollectionUtils.isEmpty(httpMethodAnnotations)) {
-        log.warn("No http method annotation on method {}. Skipping...", method.getName());
-        return false;
-      }
-      // Get the corresponding RequestMethod from the JAXRS method
-      List<RequestMethod> httpRequestMethods = httpMethodAnnotations.stream()
-                                                                    .map(h -> {
-                                                                      String annotationClassName = h.getAnnotation()
-                                                                                                    .annotationType()
-                                                                                                    .getName();
-                                                                      return valueOf(annotationClassName.substring(
-                                                                          annotationClassName.lastIndexOf(".") + 1));
-                                                                    })
-                                                                    .collect(toList());
-      if (requestMapping != null) {
-        AnnotationsAttribute attr = getVisibleRuntimeAnnotationAttr(constpool, method.getMethodInfo());
-        // process http method annotation
-        // add http method annotations to requestMapping
-        processJaxrsAnnotationsForArrayValues(constpool, requestMapping, "method",
-                                              () -> {
-                                                List<MemberValue> memberValueList = new ArrayList<>();
-                                                for (RequestMethod requestMethod : httpRequestMethods) {
-                                                  EnumMemberValue enumValue = new EnumMemberValue(constpool);
-                                                  enumValue.setType(RequestMethod.class.getName());
-                                                  enumValue.setValue(requestMethod.name());
-                                                  memberValueList.add(enumValue);
-                                                }
-                                                return memberValueList.toArray(new MemberValue[0]);
-                                              });
-        attr.addAnnotation(requestMapping);
-        classFilesToSave.add(method.getDeclaringClass());
-        return true;
-      }
-      else {
-        // request Mapping is null use the meta annotations.
-        for (CtAnnotation methodAnnotation : httpMethodAnnotations) {
-
-          AnnotationsAttribute attr = new AnnotationsAttribute(constpool, AnnotationsAttribute.visibleTag);
-          java.lang.annotation.Annotation a = methodAnnotation.getAnnotation();
-          Class springMvcAnnClass = JAXRS_SPRINGMVC_ANNOTATION_MAP.get(a.annotationType().getName());
-          @SuppressWarnings("unchecked")
-          Annotation springMvcMethodAnnotation = getAnnotation(constpool, springMvcAnnClass);
-          // this goes on the method.
-          attr.addAnnotation(springMvcMethodAnnotation);
-          method.getMethodInfo().addAttribute(attr);
-        }
-        return true;
-      }
+      markDirty(method.getDeclaringClass());
+      return bridge;
+    }
+    catch (CannotCompileException e) {
+      log.warn("Cannot map the method {}", method.getLongName(), e);
+      return null;
     }
-    return false;
+  }
+
+  private void markDirty(CtClass ctClass) {
+    classFileWritePipeline.markDirty(ctClass);
   }
 
   private Annotation getAnnotation(ConstPool constpool, Class<? extends java.lang.annotation.Annotation> springMvcAnnClass) {
@@ -348,6 +1164,21 @@ public class JaxrsToSpringMvcTransformer extends ClassTransformer {
     rm.addMemberValue(attrName, arrayMemberValue);
   }
 
+  /**
+   * @return the version of the bytecode produced by this transformer, which depends on the output mode - the output
+   * of a transformer with another version must not be reused.
+   */
+  public String getTransformerVersion() {
+    return classFileCompactor == null ? TRANSFORMER_VERSION : TRANSFORMER_VERSION + "/compact";
+  }
+
+  private static String computeTransformerVersion() {
+    Package transformerPackage = JaxrsToSpringMvcTransformer.class.getPackage();
+    String implementationVersion = transformerPackage == null ? null :
+        transformerPackage.getImplementationVersion();
+    return StringUtils.defaultString(implementationVersion, "development") + "/" + TRANSFORMATION_FORMAT_VERSION;
+  }
+
   @Override
   public void configure(Properties properties) {
     if (properties == null) {
@@ -355,7 +1186,65 @@ public class JaxrsToSpringMvcTransformer extends ClassTransformer {
     }
     String propertiesToIncludeStr = properties.getProperty(PACKAGES_TO_INCLUDE_KEY);
     if (StringUtils.isNotEmpty(propertiesToIncludeStr)) {
-      packagesToInclude = Arrays.asList(StringUtils.split(propertiesToIncludeStr, ","));
+      setPackagesToInclude(Arrays.asList(StringUtils.split(propertiesToIncludeStr, ",")));
+    }
+    classFileWritePipeline.setAsyncWrites(Boolean.parseBoolean(properties.getProperty(ASYNC_WRITES_KEY)));
+    String writeBatchSizeStr = properties.getProperty(WRITE_BATCH_SIZE_KEY);
+    if (StringUtils.isNotEmpty(writeBatchSizeStr)) {
+      classFileWritePipeline.setBatchSize(Integer.parseInt(writeBatchSizeStr.trim()));
+    }
+    String routeManifestStr = properties.getProperty(ROUTE_MANIFEST_KEY);
+    if (StringUtils.isNotEmpty(routeManifestStr)) {
+      routeManifestEnabled = Boolean.parseBoolean(routeManifestStr.trim());
+    }
+    String handlerInvokersStr = properties.getProperty(HANDLER_INVOKERS_KEY);
+    if (StringUtils.isNotEmpty(handlerInvokersStr)) {
+      handlerInvokersEnabled = Boolean.parseBoolean(handlerInvokersStr.trim());
+    }
+    String metricsReportStr = properties.getProperty(METRICS_REPORT_KEY);
+    if (StringUtils.isNotEmpty(metricsReportStr)) {
+      metricsSink = new JsonFileMetricsSink(Paths.get(metricsReportStr.trim()));
+    }
+    String compactOutputStr = properties.getProperty(COMPACT_OUTPUT_KEY);
+    if (StringUtils.isNotEmpty(compactOutputStr)) {
+      setCompactOutput(Boolean.parseBoolean(compactOutputStr.trim()));
+    }
+    String maxCachedClassesStr = properties.getProperty(MAX_CACHED_CLASSES_KEY);
+    if (StringUtils.isNotEmpty(maxCachedClassesStr)) {
+      maxCachedClasses = Integer.parseInt(maxCachedClassesStr.trim());
+    }
+    String peakHeapTrackingStr = properties.getProperty(PEAK_HEAP_TRACKING_KEY);
+    if (StringUtils.isNotEmpty(peakHeapTrackingStr)) {
+      metrics.setPeakHeapTracking(Boolean.parseBoolean(peakHeapTrackingStr.trim()));
+    }
+    String typeHierarchyIndexStr = properties.getProperty(TYPE_HIERARCHY_INDEX_KEY);
+    if (StringUtils.isNotEmpty(typeHierarchyIndexStr)) {
+      typeHierarchyIndexEnabled = Boolean.parseBoolean(typeHierarchyIndexStr.trim());
+    }
+    String prefilterStr = properties.getProperty(PREFILTER_KEY);
+    if (StringUtils.isNotEmpty(prefilterStr)) {
+      prefilterEnabled = Boolean.parseBoolean(prefilterStr.trim());
+    }
+    String transformedClassCacheStr = properties.getProperty(TRANSFORMED_CLASS_CACHE_KEY);
+    if (StringUtils.isNotEmpty(transformedClassCacheStr)) {
+      String maxSizeStr = properties.getProperty(TRANSFORMED_CLASS_CACHE_MAX_SIZE_KEY);
+      long maxSize = StringUtils.isNotEmpty(maxSizeStr) ? Long.parseLong(maxSizeStr.trim()) :
+          TransformedClassCache.DEFAULT_MAX_SIZE;
+      try {
+        transformedClassCache = new TransformedClassCache(Paths.get(transformedClassCacheStr.trim()), maxSize);
+      }
+      catch (IOException e) {
+        throw new IllegalArgumentException("Unable to open transformed class cache " + transformedClassCacheStr, e);
+      }
+    }
+    String incrementalManifestStr = properties.getProperty(INCREMENTAL_MANIFEST_KEY);
+    if (StringUtils.isNotEmpty(incrementalManifestStr)) {
+      try {
+        incrementalManifest = IncrementalTransformationManifest.load(Paths.get(incrementalManifestStr.trim()));
+      }
+      catch (IOException e) {
+        throw new IllegalArgumentException("Unable to read incremental manifest " + incrementalManifestStr, e);
+      }
     }
   }
 
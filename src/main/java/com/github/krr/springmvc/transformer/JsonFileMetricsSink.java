@@ -0,0 +1,36 @@
+package com.github.krr.springmvc.transformer;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Writes the metrics of the last transform session to a JSON file, replacing the report of the previous session.
+ */
+@Slf4j
+public class JsonFileMetricsSink implements TransformationMetricsSink {
+
+  private final Path reportFile;
+
+  public JsonFileMetricsSink(Path reportFile) {
+    this.reportFile = reportFile;
+  }
+
+  @Override
+  public void publish(TransformationMetrics metrics) throws IOException {
+    Path parent = reportFile.toAbsolutePath().getParent();
+    if (parent != null) {
+      Files.createDirectories(parent);
+    }
+    Files.write(reportFile, metrics.toJson().getBytes(UTF_8));
+    log.info("Wrote transformation metrics to {}", reportFile);
+  }
+
+  public Path getReportFile() {
+    return reportFile;
+  }
+}
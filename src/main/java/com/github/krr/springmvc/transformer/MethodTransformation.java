@@ -0,0 +1,21 @@
+package com.github.krr.springmvc.transformer;
+
+import com.github.krr.springmvc.javassist.beans.MethodAnnotationContainer;
+import lombok.Value;
+
+/**
+ * The Spring MVC annotations to add to a method.  The method is identified by name so that the transformation can
+ * be applied to a class from a different class pool than the one it was planned with.
+ */
+@Value
+public class MethodTransformation {
+
+  private final String declaringClassName;
+
+  private final String methodName;
+
+  private final String methodDescriptor;
+
+  private final MethodAnnotationContainer methodAnnotations;
+
+}
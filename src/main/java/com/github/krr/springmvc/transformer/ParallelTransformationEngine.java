@@ -0,0 +1,242 @@
+package com.github.krr.springmvc.transformer;
+
+import com.github.krr.springmvc.javassist.utils.AnnotationResolutionCache;
+import com.github.krr.springmvc.javassist.utils.JaxrsAnnotationExtractor;
+import javassist.ClassPool;
+import javassist.CtClass;
+import javassist.LoaderClassPath;
+import javassist.NotFoundException;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Transforms a set of classes using a {@link ForkJoinPool}.
+ * <p>
+ * The transformation runs in three phases:
+ * <ol>
+ * <li>The transformation of each class is planned in parallel.  Each worker thread reads the classes from its own
+ * class pool and uses its own annotation cache since javassist classes are not thread safe.</li>
+ * <li>The plans are applied to a single class pool in the order of the input classes.  Applying a plan only adds
+ * annotations so this phase is cheap, and since it runs in input order the output is byte for byte the same for
+ * any level of parallelism.</li>
+ * <li>The modified classes are written through the transformer's {@link ClassFileWritePipeline}, followed by the
+ * route manifest of the controllers.</li>
+ * </ol>
+ * Classes rejected by the {@link JaxrsClassPrefilter} or reported as up to date by the transformer's
+ * {@link IncrementalTransformationManifest} are not planned at all.  If the transformer has a
+ * {@link JaxrsToSpringMvcTransformer#setMaxCachedClasses(int) maximum number of cached classes}, every class pool of
+ * the session is a {@link BoundedClassPool}.  The class level annotations inherited by the classes are worked out
+ * once, by the {@link TypeHierarchyIndex} of the classes, before they are planned.  The
+ * {@link TransformationMetrics} of the transformer are published once the route manifest is written.
+ */
+@Slf4j
+public class ParallelTransformationEngine {
+
+  private final JaxrsToSpringMvcTransformer transformer;
+
+  private final int parallelism;
+
+  /**
+   * The number of classes planned by a single fork join task before it stops splitting its work.
+   */
+  private int splitThreshold = 16;
+
+  public ParallelTransformationEngine(JaxrsToSpringMvcTransformer transformer, int parallelism) {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("Parallelism must be positive " + parallelism);
+    }
+    this.transformer = transformer;
+    this.parallelism = parallelism;
+  }
+
+  public ParallelTransformationEngine(JaxrsToSpringMvcTransformer transformer) {
+    this(transformer, Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * Transforms the classes and writes every modified class to the output directory.
+   *
+   * @param inputDir   - the directory containing the classes to transform
+   * @param outputDir  - the directory to write the transformed classes to
+   * @param classNames - the names of the classes to transform
+   * @throws IOException - if the transformed classes could not be written
+   */
+  public void transform(String inputDir, String outputDir, List<String> classNames) throws IOException {
+    // the plans are applied in the order of the class names, like the sequential transformation does, since the
+    // class files of the classes modified by several plans depend on the order of the plans
+    List<String> sortedClassNames = new ArrayList<>(classNames);
+    Collections.sort(sortedClassNames);
+    log.info("Transforming {} classes with parallelism {}", sortedClassNames.size(), parallelism);
+    TransformationMetrics metrics = transformer.getMetrics();
+    metrics.reset();
+    transformer.startIncrementalSession(outputDir);
+    TransformationPlan[] plans = new TransformationPlan[sortedClassNames.size()];
+    int maxCachedClasses = transformer.getMaxCachedClasses();
+    ThreadLocal<ClassPool> workerClassPool = ThreadLocal.withInitial(() -> createClassPool(inputDir,
+                                                                                           maxCachedClasses));
+    ThreadLocal<JaxrsAnnotationExtractor> workerExtractor = ThreadLocal.withInitial(
+        () -> new JaxrsAnnotationExtractor(new AnnotationResolutionCache()));
+    JaxrsClassPrefilter prefilter = transformer.isPrefilterEnabled() ?
+        new JaxrsClassPrefilter(createClassPool(inputDir, maxCachedClasses)) : null;
+    // the classes are prefiltered in parallel, so the index is built for all of them
+    TypeHierarchyIndex index = transformer.indexTypeHierarchy(inputDir, sortedClassNames);
+
+    ForkJoinPool forkJoinPool = new ForkJoinPool(parallelism);
+    try {
+      forkJoinPool.invoke(new PlanningTask(sortedClassNames, plans, 0, sortedClassNames.size(), workerClassPool,
+                                           workerExtractor, prefilter, index));
+    }
+    finally {
+      forkJoinPool.shutdown();
+    }
+
+    // the modified classes are kept until they are written, however small the pool
+    ClassPool classPool = createClassPool(inputDir, maxCachedClasses);
+    for (int i = 0; i < plans.length; i++) {
+      String className = sortedClassNames.get(i);
+      if (plans[i] == null) {
+        continue;
+      }
+      try {
+        CtClass ctClass = classPool.get(className);
+        if (transformer.isTransformable(ctClass)) {
+          transformer.applyTransformationPlan(classPool, plans[i]);
+          transformer.stamp(ctClass);
+        }
+      }
+      catch (Exception e) {
+        log.error("Unable to transform class {}", className, e);
+        metrics.increment(TransformationMetrics.Counter.CLASSES_FAILED);
+      }
+    }
+
+    if (prefilter != null) {
+      log.info("{}", prefilter);
+    }
+    transformer.getClassFileWritePipeline().setOutputDirectory(outputDir);
+    transformer.flush();
+    transformer.writeRouteManifest(inputDir, outputDir, prefilter == null ? sortedClassNames :
+        sortedClassNames.stream().filter(prefilter::mayNeedTransformation).collect(toList()));
+    transformer.publishMetrics();
+  }
+
+  public int getParallelism() {
+    return parallelism;
+  }
+
+  public int getSplitThreshold() {
+    return splitThreshold;
+  }
+
+  public void setSplitThreshold(int splitThreshold) {
+    this.splitThreshold = Math.max(1, splitThreshold);
+  }
+
+  /**
+   * Creates a class pool that finds classes in the input directory first, like the pool used by
+   * {@link JaxrsToSpringMvcTransformer#transform(String, String)}.
+   */
+  static ClassPool createClassPool(String inputDir) {
+    return createClassPool(inputDir, 0);
+  }
+
+  /**
+   * Same as {@link #createClassPool(String)} but creates a {@link BoundedClassPool} keeping at most the specified
+   * number of classes, unless it is not positive.
+   */
+  static ClassPool createClassPool(String inputDir, int maxCachedClasses) {
+    ClassPool classPool = maxCachedClasses > 0 ? new BoundedClassPool(maxCachedClasses) : new ClassPool(true);
+    try {
+      classPool.insertClassPath(inputDir);
+    }
+    catch (NotFoundException e) {
+      throw new IllegalArgumentException("Invalid input directory " + inputDir, e);
+    }
+    classPool.appendClassPath(new LoaderClassPath(Thread.currentThread().getContextClassLoader()));
+    return classPool;
+  }
+
+  private class PlanningTask extends RecursiveAction {
+
+    private final List<String> classNames;
+
+    private final TransformationPlan[] plans;
+
+    private final int start;
+
+    private final int end;
+
+    private final ThreadLocal<ClassPool> workerClassPool;
+
+    private final ThreadLocal<JaxrsAnnotationExtractor> workerExtractor;
+
+    private final JaxrsClassPrefilter prefilter;
+
+    private final TypeHierarchyIndex index;
+
+    PlanningTask(List<String> classNames, TransformationPlan[] plans, int start, int end,
+                 ThreadLocal<ClassPool> workerClassPool, ThreadLocal<JaxrsAnnotationExtractor> workerExtractor,
+                 JaxrsClassPrefilter prefilter, TypeHierarchyIndex index) {
+      this.classNames = classNames;
+      this.plans = plans;
+      this.start = start;
+      this.end = end;
+      this.workerClassPool = workerClassPool;
+      this.workerExtractor = workerExtractor;
+      this.prefilter = prefilter;
+      this.index = index;
+    }
+
+    @Override
+    protected void compute() {
+      if (end - start <= splitThreshold) {
+        planClasses();
+        return;
+      }
+      int middle = (start + end) >>> 1;
+      invokeAll(new PlanningTask(classNames, plans, start, middle, workerClassPool, workerExtractor, prefilter,
+                                 index),
+                new PlanningTask(classNames, plans, middle, end, workerClassPool, workerExtractor, prefilter,
+                                 index));
+    }
+
+    private void planClasses() {
+      ClassPool classPool = workerClassPool.get();
+      JaxrsAnnotationExtractor extractor = workerExtractor.get();
+      IncrementalTransformationManifest incrementalManifest = transformer.getIncrementalManifest();
+      TransformationMetrics metrics = transformer.getMetrics();
+      for (int i = start; i < end; i++) {
+        String className = classNames.get(i);
+        // the classes planned are counted as scanned when they are applied
+        if (prefilter != null && !prefilter.mayNeedTransformation(className)) {
+          log.debug("Class {} does not refer to JaxRs. Skipping...", className);
+          metrics.increment(TransformationMetrics.Counter.CLASSES_SCANNED);
+          metrics.increment(TransformationMetrics.Counter.CLASSES_SKIPPED);
+          continue;
+        }
+        if (incrementalManifest != null && incrementalManifest.isUpToDate(classPool, className)) {
+          log.debug("Class {} and its hierarchy are unchanged since the last build. Skipping...", className);
+          metrics.increment(TransformationMetrics.Counter.CLASSES_SCANNED);
+          metrics.increment(TransformationMetrics.Counter.CLASSES_SKIPPED);
+          continue;
+        }
+        try {
+          plans[i] = transformer.planTransformation(classPool.get(className), extractor, index);
+        }
+        catch (NotFoundException e) {
+          log.error("Unable to plan transformation of class {}", className, e);
+          metrics.increment(TransformationMetrics.Counter.CLASSES_SCANNED);
+          metrics.increment(TransformationMetrics.Counter.CLASSES_FAILED);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,209 @@
+package com.github.krr.springmvc.transformer;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Converts the value of a JAX-RS {@code Path} annotation to the canonical Spring MVC path pattern at build time, so
+ * that the patterns registered at runtime need no further normalization:
+ * <ul>
+ * <li>the white space JAX-RS allows in a template variable is removed - {@code { id : \d+ }} becomes
+ * {@code {id:\d+}}</li>
+ * <li>a variable whose regex is the JAX-RS default {@code [^/]+} becomes a plain variable, which Spring MVC matches
+ * without a regex</li>
+ * <li>the pattern starts with a slash, has no empty segment and no trailing slash</li>
+ * </ul>
+ * Other regexes, for e.g. {@code {name:.+}}, are kept as they are.  They force Spring MVC to match the segment with a
+ * regex - see {@link #requiresRegex(String)}.
+ */
+@Slf4j
+public final class PathTemplateConverter {
+
+  private static final String PATH_SEPARATOR = "/";
+
+  private PathTemplateConverter() {
+  }
+
+  /**
+   * @return the Spring MVC pattern of the template, or the template itself if it is not well formed.
+   */
+  public static String toSpringPattern(String jaxrsTemplate) {
+    if (jaxrsTemplate == null || jaxrsTemplate.isEmpty()) {
+      return jaxrsTemplate;
+    }
+    StringBuilder pattern = new StringBuilder(jaxrsTemplate.length() + 1);
+    if (!jaxrsTemplate.startsWith(PATH_SEPARATOR)) {
+      pattern.append('/');
+    }
+    int index = 0;
+    while (index < jaxrsTemplate.length()) {
+      char c = jaxrsTemplate.charAt(index);
+      if (c == '{') {
+        int end = findVariableEnd(jaxrsTemplate, index);
+        if (end < 0) {
+          log.warn("Unbalanced braces in path template {} - kept as is", jaxrsTemplate);
+          return jaxrsTemplate;
+        }
+        appendVariable(pattern, jaxrsTemplate.substring(index + 1, end));
+        index = end + 1;
+      }
+      else {
+        // skip the empty segments
+        if (c != '/' || pattern.length() == 0 || pattern.charAt(pattern.length() - 1) != '/') {
+          pattern.append(c);
+        }
+        index++;
+      }
+    }
+    if (pattern.length() > 1 && pattern.charAt(pattern.length() - 1) == '/') {
+      pattern.setLength(pattern.length() - 1);
+    }
+    return pattern.toString();
+  }
+
+  /**
+   * @return true if Spring MVC needs a regex to match the pattern - when it has a variable with a regex or a
+   * wildcard.
+   */
+  public static boolean requiresRegex(String springPattern) {
+    if (springPattern == null) {
+      return false;
+    }
+    int index = 0;
+    while (index < springPattern.length()) {
+      char c = springPattern.charAt(index);
+      if (c == '*' || c == '?') {
+        return true;
+      }
+      if (c == '{') {
+        int end = findVariableEnd(springPattern, index);
+        if (end < 0 || springPattern.substring(index + 1, end).indexOf(':') >= 0) {
+          return true;
+        }
+        index = end;
+      }
+      index++;
+    }
+    return false;
+  }
+
+  private static void appendVariable(StringBuilder pattern, String variable) {
+    int colon = variable.indexOf(':');
+    String name = (colon < 0 ? variable : variable.substring(0, colon)).trim();
+    String regex = colon < 0 ? null : variable.substring(colon + 1).trim();
+    pattern.append('{').append(name);
+    if (regex != null && !regex.equals("[^/]+") && !regex.equals("[^/]+?")) {
+      if (canMatchSeparator(regex)) {
+        log.warn("The regex of the path variable {} matches a slash - Spring MVC matches it within a single path " +
+                 "segment", name);
+      }
+      pattern.append(':').append(regex);
+    }
+    pattern.append('}');
+  }
+
+  /**
+   * @return true if the regex can match a slash - it has a wildcard, a {@code \S}, {@code \W} or {@code \D}, a
+   * slash, or a character class that matches a slash.
+   */
+  static boolean canMatchSeparator(String regex) {
+    int index = 0;
+    while (index < regex.length()) {
+      char c = regex.charAt(index);
+      if (c == '\\' && index + 1 < regex.length()) {
+        if (isSeparatorEscape(regex.charAt(index + 1))) {
+          return true;
+        }
+        index += 2;
+      }
+      else if (c == '[') {
+        int end = findClassEnd(regex, index);
+        if (end < 0) {
+          return true;
+        }
+        boolean negated = index + 1 < end && regex.charAt(index + 1) == '^';
+        // a negated class matches a slash unless it lists it
+        if (classContainsSeparator(regex, negated ? index + 2 : index + 1, end) != negated) {
+          return true;
+        }
+        index = end + 1;
+      }
+      else if (c == '.' || c == '/') {
+        return true;
+      }
+      else {
+        index++;
+      }
+    }
+    return false;
+  }
+
+  private static boolean isSeparatorEscape(char c) {
+    return c == 'S' || c == 'W' || c == 'D' || c == '/';
+  }
+
+  /**
+   * @return true if the members of the character class between the indexes list a slash, directly or in a range.
+   */
+  private static boolean classContainsSeparator(String regex, int start, int end) {
+    for (int index = start; index < end; index++) {
+      char c = regex.charAt(index);
+      if (c == '\\') {
+        if (++index < end && isSeparatorEscape(regex.charAt(index))) {
+          return true;
+        }
+      }
+      else if (c == '/') {
+        return true;
+      }
+      else if (index + 2 < end && regex.charAt(index + 1) == '-' && c < '/' && regex.charAt(index + 2) >= '/') {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @return the index of the bracket closing the character class starting at the index or -1 if there is none.  A
+   * bracket first in the class is a member of it.
+   */
+  private static int findClassEnd(String regex, int start) {
+    int index = start + 1;
+    if (index < regex.length() && regex.charAt(index) == '^') {
+      index++;
+    }
+    if (index < regex.length() && regex.charAt(index) == ']') {
+      index++;
+    }
+    for (; index < regex.length(); index++) {
+      char c = regex.charAt(index);
+      if (c == '\\') {
+        index++;
+      }
+      else if (c == ']') {
+        return index;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * @return the index of the brace closing the variable starting at the index, allowing for the braces of its regex,
+   * or -1 if there is none.
+   */
+  private static int findVariableEnd(String template, int start) {
+    int depth = 0;
+    for (int index = start; index < template.length(); index++) {
+      char c = template.charAt(index);
+      if (c == '\\') {
+        index++;
+      }
+      else if (c == '{') {
+        depth++;
+      }
+      else if (c == '}' && --depth == 0) {
+        return index;
+      }
+    }
+    return -1;
+  }
+}
@@ -0,0 +1,431 @@
+package com.github.krr.springmvc.transformer;
+
+import com.github.krr.springmvc.arguments.SimpleValueType;
+import com.github.krr.springmvc.routes.RouteManifest;
+import javassist.ClassPool;
+import javassist.CtClass;
+import javassist.CtMethod;
+import javassist.Modifier;
+import javassist.NotFoundException;
+import javassist.bytecode.AccessFlag;
+import javassist.bytecode.AnnotationsAttribute;
+import javassist.bytecode.ClassFile;
+import javassist.bytecode.Descriptor;
+import javassist.bytecode.annotation.*;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.*;
+
+/**
+ * Builds the {@link RouteManifest} of a set of transformed classes.  The request mappings are read from the Spring
+ * MVC annotations of the class files, searching the class hierarchy in the same order as Spring MVC does when it
+ * detects handler methods, so the manifest describes exactly the handler methods Spring MVC would find.
+ * <p>
+ * A class whose mappings cannot be described by the manifest - for e.g. one using the params or headers attributes
+ * or a custom annotation composed with RequestMapping - is left out so that Spring MVC detects its handler methods
+ * by reflection as usual.
+ * <p>
+ * Each route also records the {@link SimpleValueType value type} of the parameters of its method, read from the
+ * method signature, so that their values can be converted without a data binder at runtime, and the
+ * {@code @JsonView} of its method, so that the writer of each view can be built when the application starts.
+ */
+@Slf4j
+class RouteManifestBuilder {
+
+  private static final String REQUEST_MAPPING = RequestMapping.class.getName();
+
+  private static final String JSON_VIEW = "com.fasterxml.jackson.annotation.JsonView";
+
+  private static final Set<String> CONTROLLER_ANNOTATIONS = new HashSet<>(
+      Arrays.asList(Controller.class.getName(), RestController.class.getName()));
+
+  private static final Map<String, String> COMPOSED_MAPPINGS = new HashMap<>();
+
+  private static final Set<String> SUPPORTED_ATTRIBUTES = new HashSet<>(
+      Arrays.asList("value", "path", "method", "produces", "consumes"));
+
+  private final ClassPool classPool;
+
+  private final List<RouteManifest.Controller> controllers = new ArrayList<>();
+
+  /**
+   * Whether each annotation type, other than the ones above, is meta-annotated with RequestMapping or Controller.
+   */
+  private final Map<String, Boolean> composedAnnotations = new HashMap<>();
+
+  static {
+    COMPOSED_MAPPINGS.put(GetMapping.class.getName(), RequestMethod.GET.name());
+    COMPOSED_MAPPINGS.put(PostMapping.class.getName(), RequestMethod.POST.name());
+    COMPOSED_MAPPINGS.put(PutMapping.class.getName(), RequestMethod.PUT.name());
+    COMPOSED_MAPPINGS.put(PatchMapping.class.getName(), RequestMethod.PATCH.name());
+    COMPOSED_MAPPINGS.put(DeleteMapping.class.getName(), RequestMethod.DELETE.name());
+  }
+
+  /**
+   * @param classPool - the pool to read the transformed classes from
+   */
+  RouteManifestBuilder(ClassPool classPool) {
+    this.classPool = classPool;
+  }
+
+  /**
+   * Adds the class to the manifest if it is a controller whose mappings the manifest can describe.
+   *
+   * @return true if the class was added.
+   */
+  boolean add(String className) {
+    try {
+      CtClass ctClass = classPool.get(className);
+      if (ctClass.isInterface() || Modifier.isAbstract(ctClass.getModifiers()) || !isController(ctClass)) {
+        return false;
+      }
+      RouteManifest.Controller controller = new RouteManifest.Controller(className, findTypeMapping(ctClass),
+                                                                         findRoutes(ctClass));
+      controllers.add(controller);
+      return true;
+    }
+    catch (NotFoundException | UnsupportedMappingException e) {
+      log.debug("Handler methods of {} are left to be detected at runtime - {}", className, e.getMessage());
+      return false;
+    }
+  }
+
+  /**
+   * @return the manifest of the controllers added so far, sorted by class name.
+   */
+  RouteManifest build() {
+    List<RouteManifest.Controller> sortedControllers = new ArrayList<>(controllers);
+    sortedControllers.sort(Comparator.comparing(RouteManifest.Controller::getClassName));
+    return new RouteManifest(sortedControllers);
+  }
+
+  private boolean isController(CtClass ctClass) throws NotFoundException {
+    return searchType(ctClass, new HashSet<>(), annotations -> {
+      for (Annotation annotation : annotations) {
+        String typeName = annotation.getTypeName();
+        if (CONTROLLER_ANNOTATIONS.contains(typeName) || REQUEST_MAPPING.equals(typeName)) {
+          return Boolean.TRUE;
+        }
+      }
+      return null;
+    }) != null;
+  }
+
+  private RouteManifest.Mapping findTypeMapping(CtClass ctClass) throws NotFoundException {
+    return searchType(ctClass, new HashSet<>(), this::getMapping);
+  }
+
+  /**
+   * Searches the annotations of the type, then its interfaces, then its superclass - the order of Spring's
+   * {@code AnnotatedElementUtils.findMergedAnnotation}.
+   */
+  private <T> T searchType(CtClass ctClass, Set<String> visited, AnnotationSearch<T> search)
+      throws NotFoundException {
+    if (!visited.add(ctClass.getName()) || Object.class.getName().equals(ctClass.getName())) {
+      return null;
+    }
+    T result = search.apply(getVisibleAnnotations(ctClass));
+    if (result != null) {
+      return result;
+    }
+    for (CtClass intf : ctClass.getInterfaces()) {
+      result = searchType(intf, visited, search);
+      if (result != null) {
+        return result;
+      }
+    }
+    CtClass superclass = ctClass.getSuperclass();
+    return superclass == null ? null : searchType(superclass, visited, search);
+  }
+
+  /**
+   * Lists the methods Spring MVC would consider - every method of the class and its superclasses, then the methods
+   * of the interfaces not implemented by the class - and keeps the ones with a mapping.
+   */
+  private List<RouteManifest.Route> findRoutes(CtClass ctClass) throws NotFoundException {
+    Map<String, CtMethod> methods = new LinkedHashMap<>();
+    for (CtClass type = ctClass; type != null && !Object.class.getName().equals(type.getName());
+         type = type.getSuperclass()) {
+      addUserDeclaredMethods(type, methods);
+    }
+    for (CtClass intf : getAllInterfaces(ctClass)) {
+      addUserDeclaredMethods(intf, methods);
+    }
+    List<RouteManifest.Route> routes = new ArrayList<>();
+    for (CtMethod method : methods.values()) {
+      // CtMethod equality is by name and descriptor, which would mistake an overridden method for the override
+      RouteManifest.Mapping mapping = searchMethod(method, Collections.newSetFromMap(new IdentityHashMap<>()),
+                                                   this::getMapping);
+      if (mapping != null) {
+        routes.add(new RouteManifest.Route(method.getDeclaringClass().getName(), method.getName(),
+                                           method.getSignature(), mapping, getValueTypes(method),
+                                           findJsonView(method)));
+      }
+    }
+    return routes;
+  }
+
+  /**
+   * @return the value type name of each parameter of the method, or an empty list if none is a simple value.
+   */
+  private List<String> getValueTypes(CtMethod method) {
+    List<String> parameterDescriptors = BridgeMethods.getParameterDescriptors(method.getSignature());
+    List<String> valueTypes = new ArrayList<>(parameterDescriptors.size());
+    boolean simpleValues = false;
+    for (String parameterDescriptor : parameterDescriptors) {
+      SimpleValueType valueType = SimpleValueType.forDescriptor(parameterDescriptor);
+      if (valueType == null && parameterDescriptor.startsWith("L")) {
+        CtClass parameterType = classPool.getOrNull(Descriptor.toClassName(parameterDescriptor));
+        if (parameterType != null && parameterType.isEnum()) {
+          valueType = SimpleValueType.ENUM;
+        }
+      }
+      valueTypes.add(valueType == null ? "" : valueType.name());
+      simpleValues |= valueType != null;
+    }
+    return simpleValues ? valueTypes : Collections.emptyList();
+  }
+
+  /**
+   * Searches the annotations of the method, then the methods it overrides in the interfaces of its class, then in
+   * the superclasses and their interfaces - the order of Spring's {@code AnnotatedElementUtils.findMergedAnnotation}.
+   */
+  private <T> T searchMethod(CtMethod method, Set<CtMethod> visited, AnnotationSearch<T> search)
+      throws NotFoundException {
+    if (!visited.add(method)) {
+      return null;
+    }
+    T result = search.apply(getVisibleAnnotations(method));
+    if (result != null) {
+      return result;
+    }
+    CtClass declaringClass = method.getDeclaringClass();
+    result = searchInterfaces(method, declaringClass.getInterfaces(), visited, search);
+    for (CtClass superclass = declaringClass.getSuperclass();
+         result == null && superclass != null && !Object.class.getName().equals(superclass.getName());
+         superclass = superclass.getSuperclass()) {
+      for (CtMethod superMethod : superclass.getDeclaredMethods()) {
+        if (result == null && !Modifier.isPrivate(superMethod.getModifiers()) && overrides(method, superMethod)) {
+          result = searchMethod(superMethod, visited, search);
+        }
+      }
+      if (result == null) {
+        result = searchInterfaces(method, superclass.getInterfaces(), visited, search);
+      }
+    }
+    return result;
+  }
+
+  private <T> T searchInterfaces(CtMethod method, CtClass[] interfaces, Set<CtMethod> visited,
+                                 AnnotationSearch<T> search) throws NotFoundException {
+    for (CtClass intf : interfaces) {
+      for (CtMethod interfaceMethod : intf.getMethods()) {
+        if (overrides(method, interfaceMethod)) {
+          T result = searchMethod(interfaceMethod, visited, search);
+          if (result != null) {
+            return result;
+          }
+        }
+      }
+    }
+    return null;
+  }
+
+  /**
+   * @return the view class name of the JsonView annotation of the method, or an empty string if it has none or if
+   * the annotation does not name exactly one view - which Spring MVC reports when the method is invoked.
+   */
+  private String findJsonView(CtMethod method) throws NotFoundException {
+    Annotation jsonView = searchMethod(method, Collections.newSetFromMap(new IdentityHashMap<>()), annotations -> {
+      for (Annotation annotation : annotations) {
+        if (JSON_VIEW.equals(annotation.getTypeName())) {
+          return annotation;
+        }
+      }
+      return null;
+    });
+    MemberValue value = jsonView == null ? null : jsonView.getMemberValue("value");
+    if (!(value instanceof ArrayMemberValue) || ((ArrayMemberValue) value).getValue().length != 1 ||
+        !(((ArrayMemberValue) value).getValue()[0] instanceof ClassMemberValue)) {
+      return "";
+    }
+    return ((ClassMemberValue) ((ArrayMemberValue) value).getValue()[0]).getValue();
+  }
+
+  /**
+   * @return the mapping of the first RequestMapping or composed mapping annotation or null if there is none.
+   */
+  private RouteManifest.Mapping getMapping(Annotation[] annotations) throws NotFoundException {
+    RouteManifest.Mapping mapping = null;
+    for (Annotation annotation : annotations) {
+      String typeName = annotation.getTypeName();
+      String composedMethod = COMPOSED_MAPPINGS.get(typeName);
+      if (!REQUEST_MAPPING.equals(typeName) && composedMethod == null) {
+        if (!CONTROLLER_ANNOTATIONS.contains(typeName) && isComposedAnnotation(typeName)) {
+          throw new UnsupportedMappingException("custom mapping or stereotype annotation " + typeName);
+        }
+        continue;
+      }
+      if (mapping != null) {
+        throw new UnsupportedMappingException("more than one mapping annotation on the same element");
+      }
+      mapping = toMapping(annotation, composedMethod);
+    }
+    return mapping;
+  }
+
+  private static RouteManifest.Mapping toMapping(Annotation annotation, String composedMethod) {
+    List<String> paths = Collections.emptyList();
+    List<String> methods = composedMethod == null ? Collections.emptyList() :
+        Collections.singletonList(composedMethod);
+    List<String> produces = Collections.emptyList();
+    List<String> consumes = Collections.emptyList();
+    Set<String> memberNames = annotation.getMemberNames();
+    for (String memberName : memberNames == null ? Collections.<String>emptySet() : memberNames) {
+      List<String> values = toStrings(annotation.getMemberValue(memberName));
+      if (!SUPPORTED_ATTRIBUTES.contains(memberName)) {
+        if (!values.isEmpty() && !(values.size() == 1 && values.get(0).isEmpty())) {
+          throw new UnsupportedMappingException("attribute " + memberName + " of " + annotation.getTypeName());
+        }
+        continue;
+      }
+      switch (memberName) {
+        case "value":
+        case "path":
+          if (!paths.isEmpty() && !paths.equals(values)) {
+            throw new UnsupportedMappingException("different value and path attributes");
+          }
+          paths = values;
+          break;
+        case "method":
+          methods = values;
+          break;
+        case "produces":
+          produces = values;
+          break;
+        default:
+          consumes = values;
+      }
+    }
+    return new RouteManifest.Mapping(paths, methods, produces, consumes);
+  }
+
+  private static List<String> toStrings(MemberValue memberValue) {
+    MemberValue[] values = memberValue instanceof ArrayMemberValue ?
+        ((ArrayMemberValue) memberValue).getValue() : new MemberValue[]{memberValue};
+    List<String> strings = new ArrayList<>(values.length);
+    for (MemberValue value : values) {
+      if (value instanceof StringMemberValue) {
+        strings.add(((StringMemberValue) value).getValue());
+      }
+      else if (value instanceof EnumMemberValue) {
+        strings.add(((EnumMemberValue) value).getValue());
+      }
+      else {
+        throw new UnsupportedMappingException("attribute value " + value);
+      }
+    }
+    return strings;
+  }
+
+  /**
+   * @return true if the annotation type is meta-annotated, directly or not, with RequestMapping or Controller.
+   */
+  private boolean isComposedAnnotation(String typeName) {
+    if (typeName.startsWith("java.") || typeName.startsWith("javax.")) {
+      return false;
+    }
+    Boolean composed = composedAnnotations.get(typeName);
+    if (composed == null) {
+      // guards against annotations meta-annotated with themselves
+      composedAnnotations.put(typeName, Boolean.FALSE);
+      composed = false;
+      CtClass annotationType = classPool.getOrNull(typeName);
+      if (annotationType != null) {
+        for (Annotation metaAnnotation : getVisibleAnnotations(annotationType)) {
+          String metaTypeName = metaAnnotation.getTypeName();
+          if (REQUEST_MAPPING.equals(metaTypeName) || COMPOSED_MAPPINGS.containsKey(metaTypeName) ||
+              CONTROLLER_ANNOTATIONS.contains(metaTypeName) || isComposedAnnotation(metaTypeName)) {
+            composed = true;
+            break;
+          }
+        }
+      }
+      composedAnnotations.put(typeName, composed);
+    }
+    return composed;
+  }
+
+  private static void addUserDeclaredMethods(CtClass type, Map<String, CtMethod> methods) {
+    for (CtMethod method : type.getDeclaredMethods()) {
+      int accessFlags = method.getMethodInfo2().getAccessFlags();
+      if ((accessFlags & (AccessFlag.BRIDGE | AccessFlag.SYNTHETIC)) == 0) {
+        methods.putIfAbsent(method.getName() + getParameterDescriptor(method), method);
+      }
+    }
+  }
+
+  private static Set<CtClass> getAllInterfaces(CtClass ctClass) throws NotFoundException {
+    Set<CtClass> interfaces = new LinkedHashSet<>();
+    Deque<CtClass> typesToVisit = new ArrayDeque<>();
+    typesToVisit.add(ctClass);
+    while (!typesToVisit.isEmpty()) {
+      CtClass type = typesToVisit.poll();
+      for (CtClass intf : type.getInterfaces()) {
+        if (interfaces.add(intf)) {
+          typesToVisit.add(intf);
+        }
+      }
+      CtClass superclass = type.isInterface() ? null : type.getSuperclass();
+      if (superclass != null) {
+        typesToVisit.add(superclass);
+      }
+    }
+    return interfaces;
+  }
+
+  private static boolean overrides(CtMethod method, CtMethod candidate) {
+    return method.getName().equals(candidate.getName()) &&
+           getParameterDescriptor(method).equals(getParameterDescriptor(candidate));
+  }
+
+  private static String getParameterDescriptor(CtMethod method) {
+    String descriptor = method.getSignature();
+    return descriptor.substring(0, descriptor.indexOf(')') + 1);
+  }
+
+  private static Annotation[] getVisibleAnnotations(CtClass ctClass) {
+    ClassFile classFile = ctClass.getClassFile2();
+    return getAnnotations((AnnotationsAttribute) classFile.getAttribute(AnnotationsAttribute.visibleTag));
+  }
+
+  private static Annotation[] getVisibleAnnotations(CtMethod method) {
+    return getAnnotations((AnnotationsAttribute) method.getMethodInfo2()
+                                                       .getAttribute(AnnotationsAttribute.visibleTag));
+  }
+
+  private static Annotation[] getAnnotations(AnnotationsAttribute attribute) {
+    return attribute == null ? new Annotation[0] : attribute.getAnnotations();
+  }
+
+  @FunctionalInterface
+  private interface AnnotationSearch<T> {
+
+    /**
+     * @return the result found in the annotations or null to keep searching.
+     */
+    T apply(Annotation[] annotations) throws NotFoundException;
+  }
+
+  /**
+   * Thrown when the mappings of a class cannot be described by the manifest.
+   */
+  private static class UnsupportedMappingException extends RuntimeException {
+
+    UnsupportedMappingException(String message) {
+      super(message);
+    }
+  }
+}
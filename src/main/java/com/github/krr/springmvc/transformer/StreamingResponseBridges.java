@@ -0,0 +1,99 @@
+package com.github.krr.springmvc.transformer;
+
+import com.github.krr.springmvc.response.JaxrsResponses;
+import javassist.CannotCompileException;
+import javassist.CtClass;
+import javassist.CtMethod;
+import javassist.bytecode.*;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.List;
+
+import static com.github.krr.springmvc.transformer.BridgeMethods.*;
+
+/**
+ * Adds the Spring MVC handler method of a JAX-RS method returning a {@code StreamingOutput} or a {@code Response}.
+ * The bridge takes the parameters of the method and converts what it returns with {@link JaxrsResponses}:
+ * <pre>
+ *   public StreamingResponseBody exportStreaming(String id) {
+ *     return JaxrsResponses.toStreamingResponseBody(export(id));
+ *   }
+ *
+ *   public ResponseEntity getNodeEntity(String id) {
+ *     return JaxrsResponses.toResponseEntity(getNode(id));
+ *   }
+ * </pre>
+ * The bridge has a name of its own since it only differs from the method by its return type.
+ */
+@Slf4j
+final class StreamingResponseBridges {
+
+  private static final String RESPONSES_CLASS_NAME = JaxrsResponses.class.getName();
+
+  private static final String STREAMING_OUTPUT_DESCRIPTOR = "Ljavax/ws/rs/core/StreamingOutput;";
+
+  private static final String RESPONSE_DESCRIPTOR = "Ljavax/ws/rs/core/Response;";
+
+  private static final String STREAMING_RESPONSE_BODY_DESCRIPTOR = Descriptor.of(StreamingResponseBody.class.getName());
+
+  private static final String RESPONSE_ENTITY_DESCRIPTOR = Descriptor.of(ResponseEntity.class.getName());
+
+  private StreamingResponseBridges() {
+  }
+
+  /**
+   * @return true if Spring MVC must map the bridge of the method instead of the method.
+   */
+  static boolean needsBridge(CtMethod method) {
+    String returnDescriptor = getReturnDescriptor(method.getMethodInfo2().getDescriptor());
+    return returnDescriptor.equals(STREAMING_OUTPUT_DESCRIPTOR) || returnDescriptor.equals(RESPONSE_DESCRIPTOR);
+  }
+
+  /**
+   * Adds the bridge of the method to its declaring class.  The annotations of the method and of its parameters are
+   * copied to the bridge.
+   *
+   * @return the bridge - the one added before if the method was already bridged - or null if the declaring class is
+   * an interface compiled for a Java version without default methods.
+   */
+  static CtMethod addBridge(CtMethod method) throws CannotCompileException {
+    CtClass declaringClass = method.getDeclaringClass();
+    if (!canAddBridge(declaringClass)) {
+      return null;
+    }
+    MethodInfo methodInfo = method.getMethodInfo();
+    String descriptor = methodInfo.getDescriptor();
+    boolean streamingOutput = getReturnDescriptor(descriptor).equals(STREAMING_OUTPUT_DESCRIPTOR);
+    String bridgeName = method.getName() + (streamingOutput ? "Streaming" : "Entity");
+    String bridgeReturnDescriptor = streamingOutput ? STREAMING_RESPONSE_BODY_DESCRIPTOR : RESPONSE_ENTITY_DESCRIPTOR;
+    String bridgeDescriptor = descriptor.substring(0, descriptor.indexOf(')') + 1) + bridgeReturnDescriptor;
+    CtMethod existingBridge = findDeclaredMethod(declaringClass, bridgeName, bridgeDescriptor);
+    if (existingBridge != null) {
+      return existingBridge;
+    }
+
+    MethodInfo bridgeInfo = new MethodInfo(methodInfo.getConstPool(), bridgeName, bridgeDescriptor);
+    bridgeInfo.setAccessFlags(AccessFlag.PUBLIC);
+    Bytecode code = new Bytecode(methodInfo.getConstPool());
+    code.addAload(0);
+    List<String> parameterDescriptors = getParameterDescriptors(descriptor);
+    int local = 1;
+    for (String parameterDescriptor : parameterDescriptors) {
+      addLoad(code, parameterDescriptor, local);
+      local += getSize(parameterDescriptor);
+    }
+    addInvocation(code, declaringClass, methodInfo);
+    code.addInvokestatic(RESPONSES_CLASS_NAME, streamingOutput ? "toStreamingResponseBody" : "toResponseEntity",
+                         "(" + getReturnDescriptor(descriptor) + ")" + bridgeReturnDescriptor);
+    code.addOpcode(Opcode.ARETURN);
+    code.setMaxLocals(local);
+    bridgeInfo.setCodeAttribute(code.toCodeAttribute());
+    copyAnnotations(methodInfo, bridgeInfo, -1);
+    CtMethod bridge = CtMethod.make(bridgeInfo, declaringClass);
+    declaringClass.addMethod(bridge);
+    log.debug("Added bridge {}{} for the method {}", bridgeName, bridgeDescriptor, method.getLongName());
+    return bridge;
+  }
+}
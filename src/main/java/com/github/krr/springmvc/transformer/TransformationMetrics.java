@@ -0,0 +1,287 @@
+package com.github.krr.springmvc.transformer;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Timers and counters of a transform session, reported as JSON to a {@link TransformationMetricsSink} when the
+ * session ends.  The metrics are updated concurrently when the classes are planned in parallel.
+ */
+public class TransformationMetrics {
+
+  /**
+   * The timed phases of a transformation.  Phases nest - the time of {@link #APPLY_TRANSFORMATIONS} includes the
+   * time of {@link #PLAN} and of the annotation phases for the same class.
+   */
+  public enum Phase {
+    /**
+     * Transforming a class of a directory, from planning to applying its plan.
+     */
+    APPLY_TRANSFORMATIONS,
+    /**
+     * Reading the JAX-RS annotations of a class and its hierarchy.
+     */
+    PLAN,
+    /**
+     * Adding the class level Spring MVC annotations.
+     */
+    CLASS_ANNOTATIONS,
+    /**
+     * Adding the Spring MVC annotations of a method.
+     */
+    METHOD_ANNOTATIONS,
+    /**
+     * Adding the Spring MVC annotations of the parameters of a method.
+     */
+    PARAMETER_ANNOTATIONS,
+    /**
+     * Writing the modified class files.
+     */
+    WRITE,
+    /**
+     * Building and writing the route manifest and the handler invokers.
+     */
+    ROUTE_MANIFEST,
+    /**
+     * Building the {@link TypeHierarchyIndex} of the classes of a directory.
+     */
+    HIERARCHY_INDEX
+  }
+
+  /**
+   * The counters of a transform session.
+   */
+  public enum Counter {
+    /**
+     * The classes considered for transformation, including the classes rejected by the prefilter.
+     */
+    CLASSES_SCANNED,
+    CLASSES_TRANSFORMED,
+    /**
+     * The classes that did not need to be transformed - rejected by the prefilter, already transformed, up to date
+     * or without JAX-RS annotations.
+     */
+    CLASSES_SKIPPED,
+    /**
+     * The classes whose transformed class file was found in the transformed class cache.
+     */
+    CLASSES_CACHED,
+    CLASSES_FAILED,
+    /**
+     * The methods that were given a Spring MVC mapping.
+     */
+    METHODS_MAPPED,
+    /**
+     * The paths Spring MVC has to match with a regex - see {@link PathTemplateConverter#requiresRegex(String)}.
+     */
+    REGEX_PATH_PATTERNS,
+    /**
+     * The {@link HandlerInvokerGenerator handler invokers} generated for the mapped methods.
+     */
+    HANDLER_INVOKERS,
+    /**
+     * The superclasses and interfaces looked at to plan the transformation of each class, summed over the classes.
+     */
+    SUPERTYPES_WALKED,
+    /**
+     * The most superclasses and interfaces looked at for a single class.
+     */
+    MAX_SUPERTYPES_WALKED,
+    /**
+     * The peak heap usage of the session, in bytes, when peak heap tracking is enabled - see
+     * {@link #recordPeakHeap()}.
+     */
+    PEAK_HEAP_BYTES,
+    FILES_WRITTEN,
+    BYTES_WRITTEN,
+    /**
+     * The size of the class files compacted by the {@link ClassFileCompactor}, before compaction.
+     */
+    BYTES_BEFORE_COMPACTION,
+    BYTES_AFTER_COMPACTION
+  }
+
+  private static final int PHASE_COUNT = Phase.values().length;
+
+  private static final List<MemoryPoolMXBean> HEAP_POOLS = ManagementFactory.getMemoryPoolMXBeans().stream()
+      .filter(pool -> pool.getType() == MemoryType.HEAP && pool.isValid())
+      .collect(toList());
+
+  /**
+   * The count, total time and maximum time of each phase, in that order.
+   */
+  private final AtomicLongArray phaseTimes = new AtomicLongArray(PHASE_COUNT * 3);
+
+  private final AtomicLongArray counters = new AtomicLongArray(Counter.values().length);
+
+  private final AtomicLong startTime = new AtomicLong(System.currentTimeMillis());
+
+  private volatile boolean peakHeapTracking;
+
+  /**
+   * Clears the metrics, at the start of a session.  With peak heap tracking, the peak usage of the heap memory pools
+   * is reset as well, so that {@link #recordPeakHeap()} reports the peak of the session.
+   */
+  public void reset() {
+    for (int i = 0; i < phaseTimes.length(); i++) {
+      phaseTimes.set(i, 0);
+    }
+    for (int i = 0; i < counters.length(); i++) {
+      counters.set(i, 0);
+    }
+    startTime.set(System.currentTimeMillis());
+    if (peakHeapTracking) {
+      HEAP_POOLS.forEach(MemoryPoolMXBean::resetPeakUsage);
+    }
+  }
+
+  /**
+   * Enables the peak heap tracking, disabled by default: the peaks of the heap memory pools are JVM wide, so
+   * resetting them at the start of each session changes the peaks seen by anything else monitoring the JVM.
+   */
+  public void setPeakHeapTracking(boolean peakHeapTracking) {
+    this.peakHeapTracking = peakHeapTracking;
+  }
+
+  public boolean isPeakHeapTracking() {
+    return peakHeapTracking;
+  }
+
+  /**
+   * @return the start time to pass to {@link #stop(Phase, long)}.
+   */
+  public long start() {
+    return System.nanoTime();
+  }
+
+  /**
+   * Records the time elapsed since the start of a phase.
+   */
+  public void stop(Phase phase, long startNanos) {
+    long elapsed = System.nanoTime() - startNanos;
+    int index = phase.ordinal() * 3;
+    phaseTimes.incrementAndGet(index);
+    phaseTimes.addAndGet(index + 1, elapsed);
+    phaseTimes.accumulateAndGet(index + 2, elapsed, Math::max);
+  }
+
+  public void increment(Counter counter) {
+    add(counter, 1);
+  }
+
+  public void add(Counter counter, long value) {
+    counters.addAndGet(counter.ordinal(), value);
+  }
+
+  /**
+   * Records the number of supertypes looked at to plan the transformation of a class.
+   */
+  public void recordSupertypesWalked(int supertypeCount) {
+    add(Counter.SUPERTYPES_WALKED, supertypeCount);
+    counters.accumulateAndGet(Counter.MAX_SUPERTYPES_WALKED.ordinal(), supertypeCount, Math::max);
+  }
+
+  /**
+   * Records the peak heap usage since the metrics were reset - the sum of the peaks of the heap memory pools.  The
+   * pools need not reach their peak at the same time, so it is an upper bound of the actual peak.  The heap is
+   * shared with whatever else runs in the JVM, like the build running the transformer.
+   *
+   * @return the peak heap usage in bytes, or 0 without peak heap tracking.
+   */
+  public long recordPeakHeap() {
+    if (!peakHeapTracking) {
+      return 0;
+    }
+    long peakHeap = HEAP_POOLS.stream().mapToLong(pool -> pool.getPeakUsage().getUsed()).sum();
+    return counters.accumulateAndGet(Counter.PEAK_HEAP_BYTES.ordinal(), peakHeap, Math::max);
+  }
+
+  public void recordWrite(long fileCount, long byteCount) {
+    add(Counter.FILES_WRITTEN, fileCount);
+    add(Counter.BYTES_WRITTEN, byteCount);
+  }
+
+  public long get(Counter counter) {
+    return counters.get(counter.ordinal());
+  }
+
+  public long getPhaseCount(Phase phase) {
+    return phaseTimes.get(phase.ordinal() * 3);
+  }
+
+  public long getPhaseNanos(Phase phase) {
+    return phaseTimes.get(phase.ordinal() * 3 + 1);
+  }
+
+  public long getPhaseMaxNanos(Phase phase) {
+    return phaseTimes.get(phase.ordinal() * 3 + 2);
+  }
+
+  /**
+   * @return the time of each phase, in nanoseconds.
+   */
+  public Map<Phase, Long> getPhaseNanos() {
+    Map<Phase, Long> phaseNanos = new EnumMap<>(Phase.class);
+    for (Phase phase : Phase.values()) {
+      phaseNanos.put(phase, getPhaseNanos(phase));
+    }
+    return phaseNanos;
+  }
+
+  /**
+   * @return the metrics as a JSON object whose keys are the camel cased names of the phases and counters, for e.g.
+   * <pre>
+   * {"startTime":1546300800000,"phases":{"plan":{"count":2,"totalNanos":1500,"maxNanos":1000},...},
+   * "counters":{"classesScanned":2,...}}
+   * </pre>
+   */
+  public String toJson() {
+    StringBuilder json = new StringBuilder(1024);
+    json.append("{\"startTime\":").append(startTime.get()).append(",\"phases\":{");
+    for (Phase phase : Phase.values()) {
+      if (phase.ordinal() > 0) {
+        json.append(',');
+      }
+      json.append('"').append(toCamelCase(phase.name())).append("\":{\"count\":").append(getPhaseCount(phase))
+          .append(",\"totalNanos\":").append(getPhaseNanos(phase))
+          .append(",\"maxNanos\":").append(getPhaseMaxNanos(phase)).append('}');
+    }
+    json.append("},\"counters\":{");
+    for (Counter counter : Counter.values()) {
+      if (counter.ordinal() > 0) {
+        json.append(',');
+      }
+      json.append('"').append(toCamelCase(counter.name())).append("\":").append(get(counter));
+    }
+    return json.append("}}").toString();
+  }
+
+  @Override
+  public String toString() {
+    return toJson();
+  }
+
+  private static String toCamelCase(String constantName) {
+    StringBuilder camelCase = new StringBuilder(constantName.length());
+    boolean upperCase = false;
+    for (char c : constantName.toLowerCase(Locale.ROOT).toCharArray()) {
+      if (c == '_') {
+        upperCase = true;
+      }
+      else {
+        camelCase.append(upperCase ? Character.toUpperCase(c) : c);
+        upperCase = false;
+      }
+    }
+    return camelCase.toString();
+  }
+}
@@ -0,0 +1,12 @@
+package com.github.krr.springmvc.transformer;
+
+import java.io.IOException;
+
+/**
+ * Receives the {@link TransformationMetrics} of each transform session once it ends.
+ */
+@FunctionalInterface
+public interface TransformationMetricsSink {
+
+  void publish(TransformationMetrics metrics) throws IOException;
+}
@@ -0,0 +1,52 @@
+package com.github.krr.springmvc.transformer;
+
+import com.github.krr.springmvc.javassist.beans.MethodAnnotationContainer;
+import lombok.Value;
+
+import java.util.List;
+import java.util.Set;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Everything the transformer needs to change for a class, computed from the JAX-RS annotations of the class and its
+ * hierarchy.  Computing a plan only reads classes so plans can be computed concurrently.  A plan may modify classes
+ * other than the one it was computed for (for e.g. the superclasses declaring the methods of the class).
+ */
+@Value
+public class TransformationPlan {
+
+  private final String className;
+
+  private final boolean interfaceClass;
+
+  /**
+   * The class level annotations or null if neither the class nor its hierarchy has a Path annotation.
+   */
+  private final MethodAnnotationContainer classAnnotations;
+
+  private final List<MethodTransformation> methodTransformations;
+
+  /**
+   * The superclasses and interfaces whose annotations were looked at to compute the plan.  The plan is stale if
+   * any of them changes.
+   */
+  private final Set<String> hierarchyDependencies;
+
+  public boolean isEmpty() {
+    return classAnnotations == null && methodTransformations.isEmpty();
+  }
+
+  /**
+   * @return the part of this plan that modifies the specified class only.
+   */
+  public TransformationPlan restrictTo(String modifiedClassName) {
+    List<MethodTransformation> classMethodTransformations = methodTransformations
+        .stream()
+        .filter(methodTransformation -> methodTransformation.getDeclaringClassName().equals(modifiedClassName))
+        .collect(toList());
+    return new TransformationPlan(className, interfaceClass,
+                                  className.equals(modifiedClassName) ? classAnnotations : null,
+                                  classMethodTransformations, hierarchyDependencies);
+  }
+}
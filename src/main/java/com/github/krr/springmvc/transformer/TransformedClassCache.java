@@ -0,0 +1,251 @@
+package com.github.krr.springmvc.transformer;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * A content addressed store of transformed class files in a local directory, so that the same classes (for e.g.
+ * those of an API jar shared by several modules) are transformed once and then reused by every module and every
+ * build sharing the directory.
+ * <p>
+ * Entries are keyed by {@link #computeKey} - a hash of the input class file, the hashes of the class files of its
+ * hierarchy, the transformer version and the packages to include - so an entry never needs to be invalidated: any
+ * change to the inputs of a transformation yields a different key.  The store is bounded by a total size and evicts
+ * the least recently used entries first.  The last modified time of an entry file is its last access time so that
+ * recency is shared by all the processes using the directory.
+ * <p>
+ * An empty entry records that the class did not need to be transformed.
+ */
+@Slf4j
+public class TransformedClassCache {
+
+  public static final long DEFAULT_MAX_SIZE = 256L * 1024 * 1024;
+
+  private static final String ENTRY_SUFFIX = ".class";
+
+  private final Path directory;
+
+  private final long maxSize;
+
+  /**
+   * The size of each entry keyed by entry key, least recently used first.
+   */
+  private final LinkedHashMap<String, Long> entrySizes = new LinkedHashMap<>(16, 0.75f, true);
+
+  private long totalSize;
+
+  private final AtomicLong hitCount = new AtomicLong();
+
+  private final AtomicLong missCount = new AtomicLong();
+
+  private final AtomicLong evictionCount = new AtomicLong();
+
+  public TransformedClassCache(Path directory, long maxSize) throws IOException {
+    if (maxSize <= 0) {
+      throw new IllegalArgumentException("Maximum cache size must be positive " + maxSize);
+    }
+    this.directory = directory;
+    this.maxSize = maxSize;
+    Files.createDirectories(directory);
+    loadEntries();
+  }
+
+  public TransformedClassCache(Path directory) throws IOException {
+    this(directory, DEFAULT_MAX_SIZE);
+  }
+
+  /**
+   * Computes the key of the transformed class file.
+   *
+   * @param classFile          - the class file to transform
+   * @param supertypeHashes    - the hashes of the class files of the superclasses and interfaces of the class
+   * @param transformerVersion - the version of the transformer
+   * @param packagesToInclude  - the packages the transformer is configured with
+   * @return the hex encoded key
+   */
+  public static String computeKey(byte[] classFile, SortedMap<String, String> supertypeHashes,
+                                  String transformerVersion, List<String> packagesToInclude) {
+    MessageDigest digest = ContentHash.newDigest();
+    digest.update(transformerVersion.getBytes(UTF_8));
+    digest.update((byte) 0);
+    if (packagesToInclude != null) {
+      for (String packageName : packagesToInclude) {
+        digest.update(packageName.getBytes(UTF_8));
+        digest.update((byte) 0);
+      }
+    }
+    digest.update((byte) 0);
+    supertypeHashes.forEach((name, hash) -> {
+      digest.update(name.getBytes(UTF_8));
+      digest.update((byte) '=');
+      digest.update(hash.getBytes(UTF_8));
+      digest.update((byte) 0);
+    });
+    digest.update(classFile);
+    return ContentHash.toHex(digest.digest());
+  }
+
+  /**
+   * @return the transformed class file stored for the key (empty if the class did not need to be transformed) or
+   * null if there is no entry for the key.
+   */
+  public byte[] get(String key) {
+    Path entryFile = getEntryFile(key);
+    try {
+      byte[] classFile = Files.readAllBytes(entryFile);
+      Files.setLastModifiedTime(entryFile, FileTime.fromMillis(System.currentTimeMillis()));
+      synchronized (this) {
+        if (!entrySizes.containsKey(key)) {
+          // written by another process
+          addEntry(key, classFile.length);
+        }
+        entrySizes.get(key);
+      }
+      hitCount.incrementAndGet();
+      return classFile;
+    }
+    catch (NoSuchFileException e) {
+      synchronized (this) {
+        // evicted by another process
+        removeEntry(key);
+      }
+      missCount.incrementAndGet();
+      return null;
+    }
+    catch (IOException e) {
+      log.warn("Unable to read cached class file {}", entryFile, e);
+      missCount.incrementAndGet();
+      return null;
+    }
+  }
+
+  /**
+   * Stores the transformed class file - an empty array if the class did not need to be transformed - and evicts the
+   * least recently used entries if the store grew beyond its maximum size.
+   */
+  public void put(String key, byte[] classFile) throws IOException {
+    Path entryFile = getEntryFile(key);
+    Files.createDirectories(entryFile.getParent());
+    // other processes must never see a partially written entry
+    Path temporaryFile = Files.createTempFile(entryFile.getParent(), key, ".tmp");
+    try {
+      Files.write(temporaryFile, classFile);
+      Files.move(temporaryFile, entryFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+    finally {
+      Files.deleteIfExists(temporaryFile);
+    }
+    synchronized (this) {
+      removeEntry(key);
+      addEntry(key, classFile.length);
+      evict();
+    }
+  }
+
+  public long getHitCount() {
+    return hitCount.get();
+  }
+
+  public long getMissCount() {
+    return missCount.get();
+  }
+
+  public long getEvictionCount() {
+    return evictionCount.get();
+  }
+
+  public synchronized int size() {
+    return entrySizes.size();
+  }
+
+  public synchronized long getTotalSize() {
+    return totalSize;
+  }
+
+  public Path getDirectory() {
+    return directory;
+  }
+
+  public long getMaxSize() {
+    return maxSize;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("TransformedClassCache[directory=%s, entries=%d, size=%d, hits=%d, misses=%d, evictions=%d]",
+                         directory, size(), getTotalSize(), getHitCount(), getMissCount(), getEvictionCount());
+  }
+
+  private void loadEntries() throws IOException {
+    List<Path> entryFiles;
+    try (Stream<Path> files = Files.walk(directory, 2)) {
+      entryFiles = files.filter(file -> file.getFileName().toString().endsWith(ENTRY_SUFFIX))
+                        .sorted(Comparator.comparing(TransformedClassCache::getLastModifiedTime))
+                        .collect(toList());
+    }
+    catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+    synchronized (this) {
+      for (Path entryFile : entryFiles) {
+        String fileName = entryFile.getFileName().toString();
+        addEntry(fileName.substring(0, fileName.length() - ENTRY_SUFFIX.length()), Files.size(entryFile));
+      }
+      evict();
+    }
+    log.debug("Loaded {} entries ({} bytes) from transformed class cache {}", entrySizes.size(), totalSize, directory);
+  }
+
+  private static FileTime getLastModifiedTime(Path file) {
+    try {
+      return Files.getLastModifiedTime(file);
+    }
+    catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private Path getEntryFile(String key) {
+    // spread the entries over subdirectories to keep the directories small
+    return directory.resolve(key.substring(0, 2)).resolve(key + ENTRY_SUFFIX);
+  }
+
+  private void addEntry(String key, long size) {
+    entrySizes.put(key, size);
+    totalSize += size;
+  }
+
+  private void removeEntry(String key) {
+    Long size = entrySizes.remove(key);
+    if (size != null) {
+      totalSize -= size;
+    }
+  }
+
+  private void evict() {
+    Iterator<Map.Entry<String, Long>> entries = entrySizes.entrySet().iterator();
+    while (totalSize > maxSize && entries.hasNext()) {
+      Map.Entry<String, Long> eldest = entries.next();
+      try {
+        Files.deleteIfExists(getEntryFile(eldest.getKey()));
+      }
+      catch (IOException e) {
+        log.warn("Unable to evict cached class file {}", eldest.getKey(), e);
+      }
+      totalSize -= eldest.getValue();
+      entries.remove();
+      evictionCount.incrementAndGet();
+    }
+  }
+}
@@ -0,0 +1,317 @@
+package com.github.krr.springmvc.transformer;
+
+import com.github.krr.springmvc.javassist.beans.AnnotationDescriptor;
+import com.github.krr.springmvc.javassist.utils.AnnotationResolutionCache;
+import com.github.krr.springmvc.javassist.utils.CtClassUtils;
+import com.github.krr.springmvc.javassist.utils.PackageSelector;
+import javassist.ClassPool;
+import javassist.CtClass;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.util.ClassUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * The superclasses and interfaces of a set of classes along with the class level annotations each class inherits,
+ * computed once for a transform session.  The hierarchy is read from the raw {@link ClassFileHeader} of each class
+ * file, so no javassist class is built, and the annotations are propagated from the supertypes to their subtypes in
+ * a single topological sweep - each class and each supertype edge is visited once, however many classes share a
+ * supertype.
+ * <p>
+ * The annotation inherited by a class is the one {@link CtClassUtils#findAnnotation(CtClass, String, PackageSelector,
+ * AnnotationResolutionCache)} finds: the annotation declared on the class, else the one inherited by its
+ * superclass, else the one inherited by the first of its interfaces that has one.  Only the classes in the packages
+ * to include are searched.  A class whose hierarchy could not be read entirely is not {@link #isIndexed(String)
+ * indexed} - its annotations must be looked up the usual way.
+ * <p>
+ * An index is immutable once built, so it may be shared by threads.
+ */
+@Slf4j
+public class TypeHierarchyIndex {
+
+  private final Map<String, Node> nodes;
+
+  private TypeHierarchyIndex(Map<String, Node> nodes) {
+    this.nodes = nodes;
+  }
+
+  /**
+   * Reads the hierarchy of the classes and works out the annotations they inherit.
+   *
+   * @param classPool           - the pool to find the class files from.  No class is read into it.
+   * @param classNames          - the classes to index, along with their supertypes
+   * @param packagesToInclude   - the packages whose classes are searched for annotations
+   * @param annotationTypeNames - the names of the annotation types to index
+   */
+  public static TypeHierarchyIndex build(ClassPool classPool, Collection<String> classNames,
+                                         PackageSelector packagesToInclude, Collection<String> annotationTypeNames) {
+    return build(classPool, null, classNames, packagesToInclude, annotationTypeNames);
+  }
+
+  /**
+   * Same as {@link #build(ClassPool, Collection, PackageSelector, Collection)} but reads the class files found in
+   * the directory straight from it, which is quicker than finding them through the class pool.
+   *
+   * @param classesDir - the directory the classes are read from first, if not null
+   */
+  public static TypeHierarchyIndex build(ClassPool classPool, Path classesDir, Collection<String> classNames,
+                                         PackageSelector packagesToInclude, Collection<String> annotationTypeNames) {
+    Set<String> indexedTypeNames = new HashSet<>(annotationTypeNames);
+    Map<String, Node> nodes = new HashMap<>();
+    Deque<Node> nodesToRead = new ArrayDeque<>();
+    for (String className : classNames) {
+      addNode(nodes, nodesToRead, className, packagesToInclude);
+    }
+    // reads each class once, linking it to its supertypes and its supertypes back to it
+    while (!nodesToRead.isEmpty()) {
+      Node node = nodesToRead.pop();
+      ClassFileHeader header = readHeader(classPool, classesDir, node.className);
+      if (header == null) {
+        continue;
+      }
+      node.read = true;
+      node.declaredAnnotations = filterAnnotations(header, indexedTypeNames);
+      String superclassName = header.getSuperclassName();
+      if (superclassName != null) {
+        node.superclass = linkSupertype(nodes, nodesToRead, node, superclassName, packagesToInclude);
+      }
+      for (String interfaceName : header.getInterfaceNames()) {
+        Node intf = linkSupertype(nodes, nodesToRead, node, interfaceName, packagesToInclude);
+        if (intf != null) {
+          node.interfaces.add(intf);
+        }
+      }
+    }
+    int sortedCount = propagateAnnotations(nodes.values());
+    if (sortedCount < nodes.size()) {
+      log.warn("{} classes are part of a cyclic hierarchy and are not indexed", nodes.size() - sortedCount);
+    }
+    log.debug("Indexed the hierarchy of {} classes", nodes.size());
+    return new TypeHierarchyIndex(nodes);
+  }
+
+  /**
+   * @return true if the annotations of the class and of all its supertypes were read.
+   */
+  public boolean isIndexed(String className) {
+    Node node = nodes.get(className);
+    return node != null && node.complete;
+  }
+
+  /**
+   * @return the annotation of the type declared on or inherited by the class, or null if it has none.
+   * @throws IllegalArgumentException - if the class is not {@link #isIndexed(String) indexed}
+   */
+  public AnnotationDescriptor getAnnotation(String className, String annotationTypeName) {
+    return getIndexedNode(className).annotations.get(annotationTypeName);
+  }
+
+  /**
+   * @return the names of the superclasses and interfaces of the class, direct or not, in the packages to include.
+   * @throws IllegalArgumentException - if the class is not {@link #isIndexed(String) indexed}
+   */
+  public Set<String> getSupertypes(String className) {
+    Node node = getIndexedNode(className);
+    Set<String> supertypes = new TreeSet<>();
+    Deque<Node> nodesToVisit = new ArrayDeque<>(node.getSupertypes());
+    while (!nodesToVisit.isEmpty()) {
+      Node supertype = nodesToVisit.pop();
+      if (supertypes.add(supertype.className)) {
+        nodesToVisit.addAll(supertype.getSupertypes());
+      }
+    }
+    return supertypes;
+  }
+
+  /**
+   * @return the number of classes in the index, including their supertypes.
+   */
+  public int size() {
+    return nodes.size();
+  }
+
+  private Node getIndexedNode(String className) {
+    Node node = nodes.get(className);
+    if (node == null || !node.complete) {
+      throw new IllegalArgumentException("Class " + className + " is not indexed");
+    }
+    return node;
+  }
+
+  /**
+   * @return the node of the class or null if the class is not in the packages to include.
+   */
+  private static Node addNode(Map<String, Node> nodes, Deque<Node> nodesToRead, String className,
+                              PackageSelector packagesToInclude) {
+    Node node = nodes.get(className);
+    if (node == null && packagesToInclude.matches(ClassUtils.getPackageName(className))) {
+      node = new Node(className);
+      nodes.put(className, node);
+      nodesToRead.add(node);
+    }
+    return node;
+  }
+
+  /**
+   * Links the supertype back to the class.
+   *
+   * @return the node of the supertype or null if it is not in the packages to include.
+   */
+  private static Node linkSupertype(Map<String, Node> nodes, Deque<Node> nodesToRead, Node node, String supertypeName,
+                                    PackageSelector packagesToInclude) {
+    Node supertype = addNode(nodes, nodesToRead, supertypeName, packagesToInclude);
+    if (supertype != null) {
+      supertype.subtypes.add(node);
+      node.pendingSupertypeCount++;
+    }
+    return supertype;
+  }
+
+  /**
+   * Works out the annotations of the classes, supertypes first (Kahn's algorithm).
+   *
+   * @return the number of classes whose annotations were worked out - less than the number of classes if the
+   * hierarchy has a cycle.
+   */
+  private static int propagateAnnotations(Collection<Node> nodes) {
+    Deque<Node> readyNodes = new ArrayDeque<>();
+    for (Node node : nodes) {
+      if (node.pendingSupertypeCount == 0) {
+        readyNodes.add(node);
+      }
+    }
+    int sortedCount = 0;
+    while (!readyNodes.isEmpty()) {
+      Node node = readyNodes.pop();
+      node.inheritAnnotations();
+      sortedCount++;
+      for (Node subtype : node.subtypes) {
+        if (--subtype.pendingSupertypeCount == 0) {
+          readyNodes.add(subtype);
+        }
+      }
+    }
+    return sortedCount;
+  }
+
+  private static ClassFileHeader readHeader(ClassPool classPool, Path classesDir, String className) {
+    try {
+      if (classesDir != null) {
+        try {
+          return ClassFileHeader.read(Files.readAllBytes(classesDir.resolve(className.replace('.', '/') + ".class")));
+        }
+        catch (NoSuchFileException e) {
+          // a supertype from the class path of the pool
+        }
+      }
+      URL classFileUrl = classPool.find(className);
+      if (classFileUrl == null) {
+        log.debug("Class file of {} not found - its subtypes are not indexed", className);
+        return null;
+      }
+      try (InputStream inputStream = classFileUrl.openStream()) {
+        return ClassFileHeader.read(ClassHierarchyHasher.readFully(inputStream));
+      }
+    }
+    catch (IOException | IllegalArgumentException e) {
+      log.warn("Unable to read class file of {} - its subtypes are not indexed", className, e);
+      return null;
+    }
+  }
+
+  private static Map<String, AnnotationDescriptor> filterAnnotations(ClassFileHeader header,
+                                                                     Set<String> annotationTypeNames) {
+    Map<String, AnnotationDescriptor> annotations = Collections.emptyMap();
+    for (AnnotationDescriptor annotation : header.readDeclaredAnnotations()) {
+      String typeName = annotation.getTypeName();
+      if (annotationTypeNames.contains(typeName)) {
+        if (annotations.isEmpty()) {
+          annotations = new HashMap<>(4);
+        }
+        // the first one wins, as it does for javassist
+        annotations.putIfAbsent(typeName, annotation);
+      }
+    }
+    return annotations;
+  }
+
+  private static class Node {
+
+    private final String className;
+
+    private boolean read;
+
+    private Map<String, AnnotationDescriptor> declaredAnnotations = Collections.emptyMap();
+
+    /**
+     * The superclass, if in the packages to include.
+     */
+    private Node superclass;
+
+    /**
+     * The interfaces in the packages to include, in the order they are declared.
+     */
+    private final List<Node> interfaces = new ArrayList<>(2);
+
+    private final List<Node> subtypes = new ArrayList<>(2);
+
+    private int pendingSupertypeCount;
+
+    /**
+     * The annotations declared or inherited - shared with a supertype whenever the class adds none.
+     */
+    private Map<String, AnnotationDescriptor> annotations = Collections.emptyMap();
+
+    /**
+     * True if the class and all its supertypes were read.
+     */
+    private boolean complete;
+
+    Node(String className) {
+      this.className = className;
+    }
+
+    List<Node> getSupertypes() {
+      if (superclass == null) {
+        return interfaces;
+      }
+      List<Node> supertypes = new ArrayList<>(interfaces.size() + 1);
+      supertypes.add(superclass);
+      supertypes.addAll(interfaces);
+      return supertypes;
+    }
+
+    /**
+     * Called once the annotations of all the supertypes are known.
+     */
+    void inheritAnnotations() {
+      complete = read;
+      annotations = declaredAnnotations;
+      boolean copied = false;
+      for (Node supertype : getSupertypes()) {
+        complete &= supertype.complete;
+        for (Map.Entry<String, AnnotationDescriptor> entry : supertype.annotations.entrySet()) {
+          if (annotations.containsKey(entry.getKey())) {
+            continue;
+          }
+          if (annotations.isEmpty()) {
+            // nothing declared or inherited yet - all the annotations of the supertype are inherited as they are
+            annotations = supertype.annotations;
+            break;
+          }
+          if (!copied) {
+            annotations = new HashMap<>(annotations);
+            copied = true;
+          }
+          annotations.put(entry.getKey(), entry.getValue());
+        }
+      }
+    }
+  }
+}
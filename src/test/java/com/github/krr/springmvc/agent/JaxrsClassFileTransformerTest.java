@@ -0,0 +1,146 @@
+package com.github.krr.springmvc.agent;
+
+import com.github.krr.springmvc.support.beans.ClassWithNoJaxrsAnnotationsAndNoInterfaces;
+import com.github.krr.springmvc.support.impl.ClusterAdministrationImpl;
+import com.github.krr.springmvc.transformer.JaxrsToSpringMvcTransformer;
+import javassist.ClassPool;
+import javassist.CtClass;
+import javassist.bytecode.AnnotationsAttribute;
+import javassist.bytecode.ClassFile;
+import javassist.bytecode.ConstPool;
+import javassist.bytecode.annotation.Annotation;
+import javassist.bytecode.annotation.ArrayMemberValue;
+import javassist.bytecode.annotation.StringMemberValue;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+
+import static java.util.Collections.singletonList;
+import static org.testng.Assert.*;
+
+public class JaxrsClassFileTransformerTest {
+
+  private static final String GENERATED_PACKAGE = "com.github.krr.springmvc.generated.agent";
+
+  private static final String INTERFACE_NAME = GENERATED_PACKAGE + ".Api";
+
+  private static final String IMPLEMENTATION_NAME = GENERATED_PACKAGE + ".ApiImpl";
+
+  @Test
+  public void mustTransformOnlyJaxrsClassesOfIncludedPackages() throws Exception {
+    JaxrsClassFileTransformer classFileTransformer = new JaxrsClassFileTransformer(
+        new JaxrsToSpringMvcTransformer(singletonList("com.github.krr.springmvc.support")));
+    ClassLoader loader = getClass().getClassLoader();
+
+    byte[] transformed = transform(classFileTransformer, loader, ClusterAdministrationImpl.class);
+    assertNotNull(transformed);
+    assertTrue(new String(transformed, StandardCharsets.ISO_8859_1).contains(RestController.class.getName()
+                                                                                             .replace('.', '/')));
+    // in an included package but no JaxRs
+    assertNull(transform(classFileTransformer, loader, ClassWithNoJaxrsAnnotationsAndNoInterfaces.class));
+    // outside the included packages - rejected by name
+    assertNull(transform(classFileTransformer, loader, JaxrsClassFileTransformerTest.class));
+    // bootstrap classes are never transformed
+    assertNull(transform(classFileTransformer, null, String.class));
+
+    assertEquals(classFileTransformer.getExaminedCount(), 4);
+    assertEquals(classFileTransformer.getRejectedCount(), 2);
+    assertEquals(classFileTransformer.getTransformedCount(), 1);
+    assertEquals(classFileTransformer.getFailedCount(), 0);
+  }
+
+  @Test
+  public void mustResolveSupertypesOfEachClassLoaderSeparately() throws Exception {
+    Path v1Dir = Files.createTempDirectory("agent-v1");
+    Path v2Dir = Files.createTempDirectory("agent-v2");
+    try {
+      // the same implementation of two versions of an interface
+      byte[] implementation = writeClasses(v1Dir, "/v1");
+      writeClasses(v2Dir, "/v2");
+      JaxrsClassFileTransformer classFileTransformer = new JaxrsClassFileTransformer(
+          new JaxrsToSpringMvcTransformer(singletonList(GENERATED_PACKAGE)));
+      String internalName = IMPLEMENTATION_NAME.replace('.', '/');
+      try (URLClassLoader v1Loader = new URLClassLoader(new URL[]{v1Dir.toUri().toURL()}, null);
+           URLClassLoader v2Loader = new URLClassLoader(new URL[]{v2Dir.toUri().toURL()}, null)) {
+        assertEquals(getRequestMappingPath(classFileTransformer.transform(v1Loader, internalName, null, null,
+                                                                          implementation)), "/v1");
+        assertEquals(getRequestMappingPath(classFileTransformer.transform(v2Loader, internalName, null, null,
+                                                                          implementation)), "/v2");
+      }
+    }
+    finally {
+      FileSystemUtils.deleteRecursively(v1Dir);
+      FileSystemUtils.deleteRecursively(v2Dir);
+    }
+  }
+
+  @Test
+  public void mustParseAgentArgs() {
+    Properties packagesOnly = JaxrsSpringMvcAgent.parseAgentArgs("com.example.api,com.example.impl");
+    assertEquals(packagesOnly.getProperty(JaxrsToSpringMvcTransformer.PACKAGES_TO_INCLUDE_KEY),
+                 "com.example.api,com.example.impl");
+
+    Properties properties = JaxrsSpringMvcAgent.parseAgentArgs("packagesToInclude=com.example; prefilter=false");
+    assertEquals(properties.getProperty(JaxrsToSpringMvcTransformer.PACKAGES_TO_INCLUDE_KEY), "com.example");
+    assertEquals(properties.getProperty(JaxrsToSpringMvcTransformer.PREFILTER_KEY), "false");
+
+    assertTrue(JaxrsSpringMvcAgent.parseAgentArgs(null).isEmpty());
+  }
+
+  private byte[] transform(JaxrsClassFileTransformer classFileTransformer, ClassLoader loader, Class<?> type)
+      throws Exception {
+    String internalName = type.getName().replace('.', '/');
+    ByteArrayOutputStream classFile = new ByteArrayOutputStream();
+    try (InputStream inputStream = ClassLoader.getSystemResourceAsStream(internalName + ".class")) {
+      byte[] buffer = new byte[8192];
+      int read;
+      while ((read = inputStream.read(buffer)) != -1) {
+        classFile.write(buffer, 0, read);
+      }
+    }
+    return classFileTransformer.transform(loader, internalName, null, null, classFile.toByteArray());
+  }
+
+  /**
+   * Writes a JAX-RS interface with the specified path and a class implementing it.
+   *
+   * @return the class file of the implementation, which is the same whatever the path.
+   */
+  private byte[] writeClasses(Path classesDir, String path) throws Exception {
+    ClassPool pool = new ClassPool(true);
+    CtClass api = pool.makeInterface(INTERFACE_NAME);
+    ConstPool constPool = api.getClassFile().getConstPool();
+    AnnotationsAttribute classAnnotations = new AnnotationsAttribute(constPool, AnnotationsAttribute.visibleTag);
+    Annotation pathAnnotation = new Annotation("javax.ws.rs.Path", constPool);
+    pathAnnotation.addMemberValue("value", new StringMemberValue(path, constPool));
+    classAnnotations.addAnnotation(pathAnnotation);
+    api.getClassFile().addAttribute(classAnnotations);
+    api.writeFile(classesDir.toString());
+
+    CtClass implementation = pool.makeClass(IMPLEMENTATION_NAME);
+    implementation.addInterface(api);
+    implementation.writeFile(classesDir.toString());
+    return implementation.toBytecode();
+  }
+
+  private static String getRequestMappingPath(byte[] classFile) throws Exception {
+    assertNotNull(classFile);
+    ClassFile implementation = new ClassFile(new DataInputStream(new ByteArrayInputStream(classFile)));
+    AnnotationsAttribute attribute = (AnnotationsAttribute) implementation.getAttribute(
+        AnnotationsAttribute.visibleTag);
+    Annotation requestMapping = attribute.getAnnotation(RequestMapping.class.getName());
+    return ((StringMemberValue) ((ArrayMemberValue) requestMapping.getMemberValue("value")).getValue()[0]).getValue();
+  }
+}
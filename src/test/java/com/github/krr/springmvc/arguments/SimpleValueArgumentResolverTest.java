@@ -0,0 +1,135 @@
+package com.github.krr.springmvc.arguments;
+
+import com.github.krr.springmvc.routes.RouteManifest;
+import com.github.krr.springmvc.support.TransformedClassLoader;
+import com.github.krr.springmvc.support.impl.InventoryAdministrationImpl;
+import com.github.krr.springmvc.support.impl.NodeAdministrationImpl;
+import com.github.krr.springmvc.support.web.StubWebRequest;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpMethod;
+import org.springframework.util.ReflectionUtils;
+import org.springframework.web.bind.WebDataBinder;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.InitBinder;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.method.ControllerAdviceBean;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.View;
+import org.testng.annotations.Test;
+
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.*;
+
+public class SimpleValueArgumentResolverTest {
+
+  @Test
+  public void mustResolveSimpleValuesOfManifestRoutes() throws Exception {
+    try (TransformedClassLoader classLoader = TransformedClassLoader.transformSupportClasses("simple-values")) {
+      RouteManifest manifest;
+      try (InputStream inputStream = Files.newInputStream(classLoader.getOutputDir()
+                                                                     .resolve(RouteManifest.RESOURCE_NAME))) {
+        manifest = RouteManifest.read(inputStream);
+      }
+      RouteManifest.Route route = manifest.getControllersByClassName()
+                                          .get(InventoryAdministrationImpl.class.getName()).getRoutes().get(0);
+      assertEquals(route.getValueTypes(), Arrays.asList("LONG", "UUID", "ENUM", "INTEGER"));
+
+      Class<?> controllerClass = classLoader.loadClass(InventoryAdministrationImpl.class.getName());
+      Method getItems = ReflectionUtils.findMethod(controllerClass, "getItems", (Class[]) null);
+      MethodParameter[] parameters = new HandlerMethod(controllerClass.newInstance(), getItems).getMethodParameters();
+      SimpleValueArgumentResolver resolver = new SimpleValueArgumentResolver(classLoader);
+      for (MethodParameter parameter : parameters) {
+        assertTrue(resolver.supportsParameter(parameter), parameter.toString());
+      }
+      Class<?> nodeClass = classLoader.loadClass(NodeAdministrationImpl.class.getName());
+      Method getDisks = ReflectionUtils.findMethod(nodeClass, "getDisks", (Class[]) null);
+      // a String matrix variable
+      assertFalse(resolver.supportsParameter(new HandlerMethod(nodeClass.newInstance(), getDisks)
+                                                 .getMethodParameters()[1]));
+
+      UUID owner = UUID.randomUUID();
+      StubWebRequest request = new StubWebRequest().addParameter("owner", owner.toString())
+                                                   .addParameter("unit", "SECONDS");
+      request.setAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE, Collections.singletonMap("id", "42"),
+                           RequestAttributes.SCOPE_REQUEST);
+      assertEquals(resolver.resolveArgument(parameters[0], null, request, null), 42L);
+      assertEquals(((Map<?, ?>) request.getAttribute(View.PATH_VARIABLES, RequestAttributes.SCOPE_REQUEST)).get("id"),
+                   42L);
+      assertEquals(resolver.resolveArgument(parameters[1], null, request, null), owner);
+      assertEquals(resolver.resolveArgument(parameters[2], null, request, null), TimeUnit.SECONDS);
+      // @DefaultValue("10")
+      MethodParameter limit = parameters[3];
+      assertEquals(resolver.resolveArgument(limit, null, request, null), 10);
+      assertEquals(resolver.resolveArgument(limit, null, request.addParameter("limit", ""), null), 10);
+      assertEquals(resolver.resolveArgument(limit, null, request.addParameter("limit", "0x10"), null), 16);
+      try {
+        resolver.resolveArgument(limit, null, request.addParameter("limit", "ten"), null);
+        fail("Converted an invalid int");
+      }
+      catch (MethodArgumentTypeMismatchException e) {
+        assertEquals(e.getName(), "limit");
+        assertEquals(e.getValue(), "ten");
+      }
+    }
+  }
+
+  @Test
+  public void mustLeaveControllersAdvisedWithInitBinderToOtherResolvers() throws Exception {
+    try (TransformedClassLoader classLoader = TransformedClassLoader.transformSupportClasses("simple-values")) {
+      Class<?> controllerClass = classLoader.loadClass(InventoryAdministrationImpl.class.getName());
+      Method getItems = ReflectionUtils.findMethod(controllerClass, "getItems", (Class[]) null);
+      MethodParameter unit = new HandlerMethod(controllerClass.newInstance(), getItems).getMethodParameters()[2];
+      assertTrue(new SimpleValueArgumentResolver(classLoader, Collections.singletonList(
+          new ControllerAdviceBean(new Object()))).supportsParameter(unit));
+      // an advice registering a case insensitive enum editor, for e.g.
+      assertFalse(new SimpleValueArgumentResolver(classLoader, Collections.singletonList(
+          new ControllerAdviceBean(new InitBinderAdvice()))).supportsParameter(unit));
+    }
+  }
+
+  @Test
+  public void mustLeaveMethodsWithoutManifestToOtherResolvers() throws Exception {
+    Method getDisks = ReflectionUtils.findMethod(NodeAdministrationImpl.class, "getDisks", (Class[]) null);
+    MethodParameter limit = new HandlerMethod(new NodeAdministrationImpl(), getDisks).getMethodParameters()[4];
+    assertFalse(new SimpleValueArgumentResolver(getClass().getClassLoader()).supportsParameter(limit));
+  }
+
+  @Test
+  public void mustConvertLikeDefaultConversionService() {
+    assertEquals(SimpleValueType.BOOLEAN.convert(" Yes", boolean.class), Boolean.TRUE);
+    assertEquals(SimpleValueType.BOOLEAN.convert("off", Boolean.class), Boolean.FALSE);
+    assertEquals(SimpleValueType.LONG.convert(" 42 ", long.class), 42L);
+    assertNull(SimpleValueType.INTEGER.convert("", Integer.class));
+    assertEquals(SimpleValueType.CHARACTER.convert("x", char.class), 'x');
+    UUID uuid = UUID.randomUUID();
+    assertEquals(SimpleValueType.UUID.convert(uuid.toString(), UUID.class), uuid);
+    assertEquals(SimpleValueType.ENUM.convert("PATCH ", HttpMethod.class), HttpMethod.PATCH);
+    assertNull(SimpleValueType.ENUM.convert(" ", HttpMethod.class));
+    assertEquals(SimpleValueType.forDescriptor("I"), SimpleValueType.INTEGER);
+    assertEquals(SimpleValueType.forDescriptor("Ljava/lang/Integer;"), SimpleValueType.INTEGER);
+    assertNull(SimpleValueType.forDescriptor("[I"));
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void mustRejectInvalidBoolean() {
+    SimpleValueType.BOOLEAN.convert("maybe", boolean.class);
+  }
+
+  @ControllerAdvice
+  private static class InitBinderAdvice {
+
+    @InitBinder
+    public void initBinder(WebDataBinder binder) {
+    }
+  }
+}
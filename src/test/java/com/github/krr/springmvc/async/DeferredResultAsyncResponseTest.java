@@ -0,0 +1,67 @@
+package com.github.krr.springmvc.async;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.testng.annotations.Test;
+
+import javax.ws.rs.container.CompletionCallback;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.*;
+
+public class DeferredResultAsyncResponseTest {
+
+  @Test
+  public void mustCompleteDeferredResultOnResume() {
+    DeferredResultAsyncResponse response = new DeferredResultAsyncResponse();
+    assertTrue(response.isSuspended());
+
+    assertTrue(response.resume("done"));
+    assertEquals(response.getDeferredResult().getResult(), "done");
+    assertTrue(response.isDone());
+    assertFalse(response.isSuspended());
+    // a response is only resumed once
+    assertFalse(response.resume("again"));
+  }
+
+  @Test
+  public void mustSetErrorResultOnResumeWithThrowable() {
+    DeferredResultAsyncResponse response = new DeferredResultAsyncResponse();
+    IllegalStateException failure = new IllegalStateException("failed");
+
+    assertTrue(response.resume(failure));
+    assertSame(response.getDeferredResult().getResult(), failure);
+  }
+
+  @Test
+  public void mustRespondWithServiceUnavailableOnCancel() {
+    DeferredResultAsyncResponse response = new DeferredResultAsyncResponse();
+
+    assertTrue(response.cancel(120));
+    assertTrue(response.isCancelled());
+    ResponseEntity<?> result = (ResponseEntity<?>) response.getDeferredResult().getResult();
+    assertEquals(result.getStatusCode(), HttpStatus.SERVICE_UNAVAILABLE);
+    assertEquals(result.getHeaders().getFirst(HttpHeaders.RETRY_AFTER), "120");
+    // cancelling again has no effect
+    assertTrue(response.cancel());
+  }
+
+  @Test
+  public void mustOnlySetTimeoutBeforeProcessingStarts() {
+    DeferredResultAsyncResponse response = new DeferredResultAsyncResponse();
+
+    assertTrue(response.setTimeout(5, TimeUnit.SECONDS));
+    response.getDeferredResult();
+    assertFalse(response.setTimeout(10, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void mustOnlyRegisterCompletionCallbacks() {
+    DeferredResultAsyncResponse response = new DeferredResultAsyncResponse();
+    CompletionCallback callback = throwable -> { };
+
+    assertEquals(response.register(callback).iterator().next(), CompletionCallback.class);
+    assertTrue(response.register(new Object()).isEmpty());
+  }
+}
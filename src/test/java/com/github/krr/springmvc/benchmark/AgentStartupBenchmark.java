@@ -0,0 +1,120 @@
+package com.github.krr.springmvc.benchmark;
+
+import com.github.krr.springmvc.agent.JaxrsClassFileTransformer;
+import com.github.krr.springmvc.transformer.JaxrsToSpringMvcTransformer;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Collections.singletonList;
+
+/**
+ * Measures the overhead the java agent adds to the startup of an application: the time to load and initialize every
+ * class of a corpus of JAX-RS controllers, their API interfaces and plain classes.  Each variant loads the same class
+ * files:
+ * <ul>
+ * <li>{@link Variant#NO_AGENT} - the baseline, the classes are loaded untransformed</li>
+ * <li>{@link Variant#AGENT} - every class file goes through the {@link JaxrsClassFileTransformer} of the agent
+ * before it is defined, as the JVM does with the transformers of an agent</li>
+ * </ul>
+ * The classes are loaded by a new class loader on each invocation, so the agent starts with an empty class pool as
+ * it does at startup.
+ *
+ * @see BenchmarkRunner
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 10)
+@Measurement(iterations = 20)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AgentStartupBenchmark {
+
+  public enum Variant {
+    NO_AGENT,
+    AGENT
+  }
+
+  @Param({"1000", "10000"})
+  private int corpusSize;
+
+  @Param
+  private Variant variant;
+
+  private URL[] classPath;
+
+  private List<String> classNames;
+
+  private CorpusClassLoader classLoader;
+
+  @Setup(Level.Trial)
+  public void generateCorpus() throws Exception {
+    SyntheticCorpusGenerator.Corpus corpus = new SyntheticCorpusGenerator(corpusSize, 2, 1).generateOrReuse();
+    classPath = new URL[]{corpus.getDirectory().toUri().toURL()};
+    classNames = corpus.getClassNames();
+  }
+
+  @Setup(Level.Iteration)
+  public void prepareStartup() {
+    JaxrsClassFileTransformer agent = null;
+    if (variant == Variant.AGENT) {
+      agent = new JaxrsClassFileTransformer(new JaxrsToSpringMvcTransformer(
+          singletonList(SyntheticCorpusGenerator.CORPUS_PACKAGE)));
+    }
+    classLoader = new CorpusClassLoader(classPath, agent);
+  }
+
+  @TearDown(Level.Iteration)
+  public void closeClassLoader() throws IOException {
+    classLoader.close();
+  }
+
+  @Benchmark
+  public void loadClasses(Blackhole blackhole) throws ClassNotFoundException {
+    for (String className : classNames) {
+      blackhole.consume(Class.forName(className, true, classLoader));
+    }
+  }
+
+  /**
+   * Defines the classes of the corpus, passing their class files to the agent first.
+   */
+  private static class CorpusClassLoader extends URLClassLoader {
+
+    private final JaxrsClassFileTransformer agent;
+
+    CorpusClassLoader(URL[] classPath, JaxrsClassFileTransformer agent) {
+      super(classPath, AgentStartupBenchmark.class.getClassLoader());
+      this.agent = agent;
+    }
+
+    @Override
+    protected Class<?> findClass(String name) throws ClassNotFoundException {
+      String internalName = name.replace('.', '/');
+      byte[] classFile;
+      try (InputStream inputStream = getResourceAsStream(internalName + ".class")) {
+        if (inputStream == null) {
+          throw new ClassNotFoundException(name);
+        }
+        classFile = StreamUtils.copyToByteArray(inputStream);
+      }
+      catch (IOException e) {
+        throw new ClassNotFoundException(name, e);
+      }
+      if (agent != null) {
+        byte[] transformedClassFile = agent.transform(this, internalName, null, null, classFile);
+        if (transformedClassFile != null) {
+          classFile = transformedClassFile;
+        }
+      }
+      return defineClass(name, classFile, 0, classFile.length);
+    }
+  }
+}
@@ -0,0 +1,91 @@
+package com.github.krr.springmvc.benchmark;
+
+import com.github.krr.springmvc.javassist.beans.AnnotationDescriptor;
+import com.github.krr.springmvc.javassist.utils.AnnotationResolutionCache;
+import com.github.krr.springmvc.javassist.utils.CtClassUtils;
+import com.github.krr.springmvc.javassist.utils.JaxrsAnnotations;
+import com.github.krr.springmvc.javassist.utils.PackageSelector;
+import javassist.ClassPool;
+import javassist.CtClass;
+import javassist.NotFoundException;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Collections.singletonList;
+
+/**
+ * Measures how many controllers per second have their class level Path found - the annotation lookup alone, without
+ * transforming anything.  The Path is declared on the root superclass of each controller so the deeper the hierarchy,
+ * the longer the search.  The classes are loaded in the pool during the setup so that only the lookup is measured.
+ *
+ * @see BenchmarkRunner
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AnnotationLookupBenchmark {
+
+  @Param({"1000", "10000", "100000"})
+  private int corpusSize;
+
+  @Param({"1", "4"})
+  private int hierarchyDepth;
+
+  @Param({"1", "4"})
+  private int interfaceFanOut;
+
+  private List<CtClass> controllers;
+
+  private PackageSelector packageSelector;
+
+  private AnnotationResolutionCache cache;
+
+  private int nextController;
+
+  @Setup(Level.Trial)
+  public void loadCorpus() throws Exception {
+    SyntheticCorpusGenerator.Corpus corpus = new SyntheticCorpusGenerator(corpusSize, hierarchyDepth,
+                                                                          interfaceFanOut).generateOrReuse();
+    ClassPool classPool = BenchmarkSupport.createClassPool(corpus);
+    controllers = new ArrayList<>(corpus.getControllerNames().size());
+    for (String controllerName : corpus.getControllerNames()) {
+      CtClass controller = classPool.get(controllerName);
+      // reads the class files of the hierarchy
+      CtClassUtils.findAnnotation(controller, JaxrsAnnotations.PATH, PackageSelector.allPackages(), null);
+      controllers.add(controller);
+    }
+    packageSelector = PackageSelector.compile(singletonList(SyntheticCorpusGenerator.CORPUS_PACKAGE));
+  }
+
+  @Setup(Level.Iteration)
+  public void clearCache() {
+    cache = new AnnotationResolutionCache();
+  }
+
+  @Benchmark
+  public AnnotationDescriptor findAnnotation() throws NotFoundException {
+    return CtClassUtils.findAnnotation(nextController(), JaxrsAnnotations.PATH, packageSelector, null);
+  }
+
+  /**
+   * Looks up the annotations through a cache that starts empty on each iteration, like the cache of a transformer.
+   * Once every controller was looked up the cache answers all the lookups.
+   */
+  @Benchmark
+  public AnnotationDescriptor findAnnotationCached() throws NotFoundException {
+    return CtClassUtils.findAnnotation(nextController(), JaxrsAnnotations.PATH, packageSelector, cache);
+  }
+
+  private CtClass nextController() {
+    if (nextController == controllers.size()) {
+      nextController = 0;
+    }
+    return controllers.get(nextController++);
+  }
+}
@@ -0,0 +1,110 @@
+package com.github.krr.springmvc.benchmark;
+
+import com.github.krr.springmvc.arguments.SimpleValueArgumentResolver;
+import com.github.krr.springmvc.support.TransformedClassLoader;
+import com.github.krr.springmvc.support.impl.InventoryAdministrationImpl;
+import com.github.krr.springmvc.support.web.StubWebRequest;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.core.MethodParameter;
+import org.springframework.format.support.DefaultFormattingConversionService;
+import org.springframework.util.ReflectionUtils;
+import org.springframework.web.bind.support.ConfigurableWebBindingInitializer;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.method.annotation.RequestParamMethodArgumentResolver;
+import org.springframework.web.method.support.HandlerMethodArgumentResolverComposite;
+import org.springframework.web.method.support.ModelAndViewContainer;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.mvc.method.annotation.PathVariableMethodArgumentResolver;
+import org.springframework.web.servlet.mvc.method.annotation.ServletRequestDataBinderFactory;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the latency of resolving the arguments of a transformed handler method taking a {@code long} path
+ * variable and {@code UUID}, enum and {@code int} request parameters:
+ * <ul>
+ * <li>{@code genericResolution} - by the resolvers of Spring MVC, with a data binder and the conversion service
+ * Spring MVC configures</li>
+ * <li>{@code simpleValueResolution} - by the {@link SimpleValueArgumentResolver} registered ahead of them</li>
+ * </ul>
+ * Run it with the GC profiler of the {@link BenchmarkRunner} for the bytes allocated per request.
+ *
+ * @see BenchmarkRunner
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ArgumentResolutionBenchmark {
+
+  private TransformedClassLoader classLoader;
+
+  private MethodParameter[] parameters;
+
+  private StubWebRequest request;
+
+  private final ModelAndViewContainer mavContainer = new ModelAndViewContainer();
+
+  private WebDataBinderFactory binderFactory;
+
+  private HandlerMethodArgumentResolverComposite genericResolvers;
+
+  private HandlerMethodArgumentResolverComposite simpleValueResolvers;
+
+  @Setup(Level.Trial)
+  public void transformController() throws Exception {
+    classLoader = TransformedClassLoader.transformSupportClasses("simple-values");
+    Class<?> controllerClass = classLoader.loadClass(InventoryAdministrationImpl.class.getName());
+    Method getItems = ReflectionUtils.findMethod(controllerClass, "getItems", (Class[]) null);
+    parameters = new HandlerMethod(controllerClass.newInstance(), getItems).getMethodParameters();
+
+    request = new StubWebRequest().addParameter("owner", UUID.randomUUID().toString())
+                                  .addParameter("unit", "SECONDS")
+                                  .addParameter("limit", "25");
+    request.setAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE, Collections.singletonMap("id", "1234567"),
+                         RequestAttributes.SCOPE_REQUEST);
+    ConfigurableWebBindingInitializer bindingInitializer = new ConfigurableWebBindingInitializer();
+    bindingInitializer.setConversionService(new DefaultFormattingConversionService());
+    binderFactory = new ServletRequestDataBinderFactory(Collections.emptyList(), bindingInitializer);
+
+    genericResolvers = new HandlerMethodArgumentResolverComposite()
+        .addResolver(new PathVariableMethodArgumentResolver())
+        .addResolver(new RequestParamMethodArgumentResolver(false));
+    simpleValueResolvers = new HandlerMethodArgumentResolverComposite()
+        .addResolver(new SimpleValueArgumentResolver(classLoader))
+        .addResolver(new PathVariableMethodArgumentResolver())
+        .addResolver(new RequestParamMethodArgumentResolver(false));
+    for (MethodParameter parameter : parameters) {
+      if (!simpleValueResolvers.getResolvers().get(0).supportsParameter(parameter)) {
+        throw new IllegalStateException("No simple value type recorded for " + parameter);
+      }
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void closeClassLoader() throws Exception {
+    classLoader.close();
+  }
+
+  @Benchmark
+  public void genericResolution(Blackhole blackhole) throws Exception {
+    for (MethodParameter parameter : parameters) {
+      blackhole.consume(genericResolvers.resolveArgument(parameter, mavContainer, request, binderFactory));
+    }
+  }
+
+  @Benchmark
+  public void simpleValueResolution(Blackhole blackhole) throws Exception {
+    for (MethodParameter parameter : parameters) {
+      blackhole.consume(simpleValueResolvers.resolveArgument(parameter, mavContainer, request, binderFactory));
+    }
+  }
+}
@@ -0,0 +1,32 @@
+package com.github.krr.springmvc.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the GC profiler, for the allocation rate, the {@link PeakHeapProfiler} and the
+ * {@link RetainedHeapProfiler}.  The JMH
+ * command line options are supported, for e.g. to run the transformer benchmark on the smallest corpus:
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec -Djmh.args="TransformerBenchmark -p corpusSize=1000"
+ * </pre>
+ * The corpora are generated once in the temporary directory and reused by later runs.
+ */
+public final class BenchmarkRunner {
+
+  private BenchmarkRunner() {
+  }
+
+  public static void main(String[] args) throws Exception {
+    new Runner(new OptionsBuilder()
+                   .parent(new CommandLineOptions(args))
+                   .addProfiler(GCProfiler.class)
+                   .addProfiler(PeakHeapProfiler.class)
+                   .addProfiler(RetainedHeapProfiler.class)
+                   // the transformer logs every class it reads
+                   .jvmArgsAppend("-Dlog4j.configurationFile=log4j2-benchmark.xml")
+                   .build()).run();
+  }
+}
@@ -0,0 +1,74 @@
+package com.github.krr.springmvc.benchmark;
+
+import com.github.krr.springmvc.transformer.JaxrsClassPrefilter;
+import com.github.krr.springmvc.transformer.JaxrsToSpringMvcTransformer;
+import javassist.ClassPool;
+import javassist.LoaderClassPath;
+import javassist.NotFoundException;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+
+import static java.util.Collections.singletonList;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Sets up the transformer inputs of the benchmarks the way a build does.
+ */
+final class BenchmarkSupport {
+
+  private static final String TRANSFORMED_MARKER = "transformation.complete";
+
+  private BenchmarkSupport() {
+  }
+
+  /**
+   * @return a class pool that finds the classes of the corpus first, like the pool of a transformation.
+   */
+  static ClassPool createClassPool(SyntheticCorpusGenerator.Corpus corpus) {
+    ClassPool classPool = new ClassPool(true);
+    try {
+      classPool.insertClassPath(corpus.getDirectory().toString());
+    }
+    catch (NotFoundException e) {
+      throw new IllegalStateException("Invalid corpus directory " + corpus.getDirectory(), e);
+    }
+    classPool.appendClassPath(new LoaderClassPath(Thread.currentThread().getContextClassLoader()));
+    return classPool;
+  }
+
+  /**
+   * @return the classes of the corpus the prefilter hands to the transformer.
+   */
+  static List<String> getResourceClassNames(SyntheticCorpusGenerator.Corpus corpus) {
+    JaxrsClassPrefilter prefilter = new JaxrsClassPrefilter(createClassPool(corpus));
+    return corpus.getClassNames().stream().filter(prefilter::mayNeedTransformation).collect(toList());
+  }
+
+  /**
+   * Transforms the corpus in a sibling directory, unless a previous run of a transformer with the same version already
+   * did.  Only the classes modified by the transformer are in the returned directory.
+   */
+  static Path transformOrReuse(SyntheticCorpusGenerator.Corpus corpus) throws IOException {
+    Path outputDir = Paths.get(corpus.getDirectory() + "-transformed");
+    Path completeMarker = outputDir.resolve(TRANSFORMED_MARKER);
+    JaxrsToSpringMvcTransformer transformer = new JaxrsToSpringMvcTransformer(
+        singletonList(SyntheticCorpusGenerator.CORPUS_PACKAGE));
+    byte[] transformerVersion = transformer.getTransformerVersion().getBytes(StandardCharsets.UTF_8);
+    if (!Files.exists(completeMarker) || !Arrays.equals(Files.readAllBytes(completeMarker), transformerVersion)) {
+      // the output of another version of the transformer
+      FileSystemUtils.deleteRecursively(outputDir);
+      Files.createDirectories(outputDir);
+      transformer.transform(corpus.getDirectory().toString(), outputDir.toString());
+      Files.write(completeMarker, transformerVersion);
+    }
+    return outputDir;
+  }
+}
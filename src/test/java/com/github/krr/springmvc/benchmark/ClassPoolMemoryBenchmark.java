@@ -0,0 +1,70 @@
+package com.github.krr.springmvc.benchmark;
+
+import com.github.krr.springmvc.transformer.BoundedClassPool;
+import com.github.krr.springmvc.transformer.JaxrsToSpringMvcTransformer;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.util.FileSystemUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Collections.singletonList;
+
+/**
+ * Measures the time and the peak heap usage of transforming a whole corpus directory:
+ * <ul>
+ * <li>{@code maxCachedClasses=0} - the classes read are kept until the end of the session, as by default</li>
+ * <li>{@code maxCachedClasses>0} - the classes are transformed one by one and resolved from a
+ * {@link BoundedClassPool} of that size</li>
+ * </ul>
+ * Read the peak heap reported by the {@link PeakHeapProfiler} of the {@link BenchmarkRunner}.
+ *
+ * @see BenchmarkRunner
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class ClassPoolMemoryBenchmark {
+
+  @Param({"10000"})
+  private int corpusSize;
+
+  @Param({"0", "1024"})
+  private int maxCachedClasses;
+
+  private SyntheticCorpusGenerator.Corpus corpus;
+
+  private Path outputDir;
+
+  @Setup(Level.Trial)
+  public void generateCorpus() throws Exception {
+    corpus = new SyntheticCorpusGenerator(corpusSize, 4, 4).generateOrReuse();
+  }
+
+  @Setup(Level.Iteration)
+  public void createOutputDirectory() throws Exception {
+    outputDir = Files.createTempDirectory("class-pool-memory");
+    // starts each iteration from the same heap
+    System.gc();
+  }
+
+  @TearDown(Level.Iteration)
+  public void deleteOutputDirectory() throws Exception {
+    FileSystemUtils.deleteRecursively(outputDir);
+  }
+
+  @Benchmark
+  public JaxrsToSpringMvcTransformer transformDirectory() {
+    JaxrsToSpringMvcTransformer transformer = new JaxrsToSpringMvcTransformer(
+        singletonList(SyntheticCorpusGenerator.CORPUS_PACKAGE));
+    transformer.setMaxCachedClasses(maxCachedClasses);
+    transformer.setRouteManifestEnabled(false);
+    transformer.setHandlerInvokersEnabled(false);
+    transformer.transform(corpus.getDirectory().toString(), outputDir.toString());
+    return transformer;
+  }
+}
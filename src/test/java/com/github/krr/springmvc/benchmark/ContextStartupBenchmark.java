@@ -0,0 +1,154 @@
+package com.github.krr.springmvc.benchmark;
+
+import com.github.krr.springmvc.routes.ManifestRequestMappingHandlerMapping;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.web.context.support.StaticWebApplicationContext;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the startup of a Spring MVC application made of generated controllers shaped like
+ * {@code ClusterAdministrationImpl} - a controller implementing an annotated API interface.  Each variant registers
+ * the same routes:
+ * <ul>
+ * <li>{@link Variant#HANDWRITTEN} - the baseline, controllers declared with Spring MVC annotations</li>
+ * <li>{@link Variant#TRANSFORMED} - the JAX-RS controllers transformed by the transformer</li>
+ * <li>{@link Variant#TRANSFORMED_MANIFEST} - the same, with their handler methods registered from the route
+ * manifest</li>
+ * </ul>
+ * The controller classes are loaded by a new class loader on each invocation, as they would be at startup.  The
+ * refresh benchmark also reports the heap retained by the context through the {@link RetainedHeapProfiler}.
+ *
+ * @see BenchmarkRunner
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 10)
+@Measurement(iterations = 20)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ContextStartupBenchmark {
+
+  public enum Variant {
+    HANDWRITTEN,
+    TRANSFORMED,
+    TRANSFORMED_MANIFEST
+  }
+
+  private static final int API_METHOD_COUNT = 5;
+
+  @Param({"100", "1000"})
+  private int controllerCount;
+
+  @Param
+  private Variant variant;
+
+  private URL[] classPath;
+
+  private List<String> controllerNames;
+
+  private URLClassLoader classLoader;
+
+  private StaticWebApplicationContext context;
+
+  @Setup(Level.Trial)
+  public void generateControllers() throws Exception {
+    // a controller and its API interface per resource
+    SyntheticCorpusGenerator generator = new SyntheticCorpusGenerator(controllerCount * 2, 0, 1);
+    generator.setMethodsPerInterface(API_METHOD_COUNT);
+    generator.setPlainClassRatio(0);
+    if (variant == Variant.HANDWRITTEN) {
+      generator.setAnnotationStyle(SyntheticCorpusGenerator.AnnotationStyle.SPRING_MVC);
+    }
+    SyntheticCorpusGenerator.Corpus corpus = generator.generateOrReuse();
+    controllerNames = corpus.getControllerNames();
+    if (variant == Variant.HANDWRITTEN) {
+      classPath = new URL[]{toUrl(corpus.getDirectory())};
+    }
+    else {
+      // the transformed classes hide the classes they were transformed from
+      classPath = new URL[]{toUrl(BenchmarkSupport.transformOrReuse(corpus)), toUrl(corpus.getDirectory())};
+    }
+  }
+
+  @Setup(Level.Iteration)
+  public void prepareStartup() {
+    classLoader = new URLClassLoader(classPath, getClass().getClassLoader());
+    RetainedHeapProfiler.markBaseline();
+  }
+
+  @TearDown(Level.Iteration)
+  public void shutdown() throws Exception {
+    if (context != null) {
+      RetainedHeapProfiler.measureRetained();
+      context.close();
+      context = null;
+    }
+    classLoader.close();
+  }
+
+  /**
+   * Creates the context with its controllers and handler mapping.
+   */
+  @Benchmark
+  public StaticWebApplicationContext refreshContext() throws Exception {
+    context = createContext();
+    context.registerSingleton("handlerMapping", getHandlerMappingClass());
+    context.refresh();
+    return context;
+  }
+
+  /**
+   * Detects the handler methods of the controllers of an already refreshed context.
+   */
+  @Benchmark
+  public RequestMappingHandlerMapping registerHandlerMethods(HandlerMappingState state) throws Exception {
+    RequestMappingHandlerMapping handlerMapping = getHandlerMappingClass().newInstance();
+    handlerMapping.setApplicationContext(state.context);
+    handlerMapping.afterPropertiesSet();
+    return handlerMapping;
+  }
+
+  private StaticWebApplicationContext createContext() throws ClassNotFoundException {
+    StaticWebApplicationContext context = new StaticWebApplicationContext();
+    context.setClassLoader(classLoader);
+    for (String controllerName : controllerNames) {
+      context.registerSingleton(controllerName, classLoader.loadClass(controllerName));
+    }
+    return context;
+  }
+
+  private Class<? extends RequestMappingHandlerMapping> getHandlerMappingClass() {
+    return variant == Variant.TRANSFORMED_MANIFEST ? ManifestRequestMappingHandlerMapping.class :
+        RequestMappingHandlerMapping.class;
+  }
+
+  private static URL toUrl(Path path) throws Exception {
+    return path.toUri().toURL();
+  }
+
+  /**
+   * A refreshed context without handler mapping, for {@link #registerHandlerMethods(HandlerMappingState)}.
+   */
+  @State(Scope.Benchmark)
+  public static class HandlerMappingState {
+
+    private StaticWebApplicationContext context;
+
+    @Setup(Level.Iteration)
+    public void refreshContext(ContextStartupBenchmark benchmark) throws Exception {
+      context = benchmark.createContext();
+      context.refresh();
+    }
+
+    @TearDown(Level.Iteration)
+    public void closeContext() {
+      context.close();
+    }
+  }
+}
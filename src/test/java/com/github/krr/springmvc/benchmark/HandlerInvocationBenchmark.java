@@ -0,0 +1,110 @@
+package com.github.krr.springmvc.benchmark;
+
+import com.github.krr.springmvc.invoke.DirectInvokerHandlerAdapter;
+import com.github.krr.springmvc.invoke.HandlerInvoker;
+import com.github.krr.springmvc.invoke.HandlerInvokers;
+import com.github.krr.springmvc.transformer.JaxrsToSpringMvcTransformer;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.mvc.method.annotation.ServletInvocableHandlerMethod;
+
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Collections.singletonList;
+
+/**
+ * Measures the latency of invoking a handler method of a transformed controller, once its arguments are resolved,
+ * by reflection as Spring MVC does and through the invoker generated by the transformer.  Run it with the GC profiler
+ * of the {@link BenchmarkRunner} for the bytes allocated per invocation:
+ * <ul>
+ * <li>{@code invokeForRequest} - the invocation of the {@code InvocableHandlerMethod} of a request, taking the
+ * arguments as provided arguments so that no resolver is involved</li>
+ * <li>{@code invoke} - the invocation alone, {@code Method.invoke} against {@link HandlerInvoker#invoke(Object,
+ * Object[])}</li>
+ * </ul>
+ *
+ * @see BenchmarkRunner
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HandlerInvocationBenchmark {
+
+  private final String id = "42";
+
+  private final String query = "name";
+
+  private URLClassLoader classLoader;
+
+  private Object controller;
+
+  private Method method;
+
+  private HandlerInvoker invoker;
+
+  private ServletInvocableHandlerMethod reflectiveHandlerMethod;
+
+  private ServletInvocableHandlerMethod directHandlerMethod;
+
+  @Setup(Level.Trial)
+  public void transformController() throws Exception {
+    SyntheticCorpusGenerator generator = new SyntheticCorpusGenerator(2, 0, 1);
+    generator.setMethodsPerInterface(1);
+    generator.setPlainClassRatio(0);
+    SyntheticCorpusGenerator.Corpus corpus = generator.generateOrReuse();
+    // a fresh output directory so that the invokers are those of this transformer
+    Path outputDir = Files.createTempDirectory("handler-invokers");
+    new JaxrsToSpringMvcTransformer(singletonList(SyntheticCorpusGenerator.CORPUS_PACKAGE))
+        .transform(corpus.getDirectory().toString(), outputDir.toString());
+    classLoader = new URLClassLoader(new URL[]{outputDir.toUri().toURL(), corpus.getDirectory().toUri().toURL()},
+                                     getClass().getClassLoader());
+
+    Class<?> controllerClass = classLoader.loadClass(corpus.getControllerNames().get(0));
+    controller = controllerClass.newInstance();
+    for (Method declaredMethod : controllerClass.getDeclaredMethods()) {
+      if (declaredMethod.getParameterCount() == 2) {
+        method = declaredMethod;
+      }
+    }
+    invoker = HandlerInvokers.find(method);
+    if (invoker == null) {
+      throw new IllegalStateException("No invoker generated for " + method);
+    }
+    HandlerMethod handlerMethod = new HandlerMethod(controller, method);
+    reflectiveHandlerMethod = new ServletInvocableHandlerMethod(handlerMethod);
+    directHandlerMethod = new DirectInvokerHandlerAdapter.DirectInvocableHandlerMethod(handlerMethod, invoker);
+  }
+
+  @TearDown(Level.Trial)
+  public void closeClassLoader() throws Exception {
+    classLoader.close();
+  }
+
+  @Benchmark
+  public Object reflectiveInvokeForRequest() throws Exception {
+    return reflectiveHandlerMethod.invokeForRequest(null, null, id, query);
+  }
+
+  @Benchmark
+  public Object directInvokeForRequest() throws Exception {
+    return directHandlerMethod.invokeForRequest(null, null, id, query);
+  }
+
+  @Benchmark
+  public Object reflectiveInvoke() throws Exception {
+    return method.invoke(controller, id, query);
+  }
+
+  @Benchmark
+  public Object directInvoke() throws Exception {
+    return invoker.invoke(controller, new Object[]{id, query});
+  }
+}
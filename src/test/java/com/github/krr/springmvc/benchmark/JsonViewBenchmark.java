@@ -0,0 +1,129 @@
+package com.github.krr.springmvc.benchmark;
+
+import com.fasterxml.jackson.annotation.JsonView;
+import com.github.krr.springmvc.response.JsonViewRegistry;
+import com.github.krr.springmvc.response.RegisteredJsonViewResponseBodyAdvice;
+import com.github.krr.springmvc.response.ViewCachingMappingJackson2HttpMessageConverter;
+import com.github.krr.springmvc.support.api.VersionViews;
+import com.github.krr.springmvc.support.impl.ClusterAdministrationImpl;
+import lombok.Getter;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.util.ReflectionUtils;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.mvc.method.annotation.AbstractMappingJacksonResponseBodyAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.JsonViewResponseBodyAdvice;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Collections.singleton;
+
+/**
+ * Measures the latency of writing the body of a handler method annotated with {@code @JsonView}, from the response
+ * body advice to the JSON written:
+ * <ul>
+ * <li>{@code springView} - Spring's {@code JsonViewResponseBodyAdvice}, which looks up the annotation of the method,
+ * and {@link MappingJackson2HttpMessageConverter}, which builds the writer of the view</li>
+ * <li>{@code registeredView} - the {@link RegisteredJsonViewResponseBodyAdvice} and the
+ * {@link ViewCachingMappingJackson2HttpMessageConverter} with the view prepared</li>
+ * </ul>
+ *
+ * @see BenchmarkRunner
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonViewBenchmark {
+
+  private final Node node = new Node();
+
+  private final BufferedOutputMessage outputMessage = new BufferedOutputMessage();
+
+  private MethodParameter returnType;
+
+  private final AbstractMappingJacksonResponseBodyAdvice springAdvice = new JsonViewResponseBodyAdvice();
+
+  private final MappingJackson2HttpMessageConverter springConverter = new MappingJackson2HttpMessageConverter();
+
+  private AbstractMappingJacksonResponseBodyAdvice registeredAdvice;
+
+  private ViewCachingMappingJackson2HttpMessageConverter viewCachingConverter;
+
+  @Setup(Level.Trial)
+  public void prepareViews() {
+    returnType = new HandlerMethod(new ClusterAdministrationImpl(),
+                                   ReflectionUtils.findMethod(ClusterAdministrationImpl.class, "getClusterInfo"))
+        .getReturnType();
+    JsonViewRegistry jsonViewRegistry = new JsonViewRegistry();
+    jsonViewRegistry.loadManifests(getClass().getClassLoader());
+    registeredAdvice = new RegisteredJsonViewResponseBodyAdvice(jsonViewRegistry);
+    viewCachingConverter = new ViewCachingMappingJackson2HttpMessageConverter();
+    viewCachingConverter.prepareViews(singleton(VersionViews.v2_0.class));
+  }
+
+  @Benchmark
+  public int springView() throws IOException {
+    return write(springAdvice, springConverter);
+  }
+
+  @Benchmark
+  public int registeredView() throws IOException {
+    return write(registeredAdvice, viewCachingConverter);
+  }
+
+  private int write(AbstractMappingJacksonResponseBodyAdvice advice, MappingJackson2HttpMessageConverter converter)
+      throws IOException {
+    Object body = node;
+    if (advice.supports(returnType, MappingJackson2HttpMessageConverter.class)) {
+      body = advice.beforeBodyWrite(body, returnType, MediaType.APPLICATION_JSON,
+                                    MappingJackson2HttpMessageConverter.class, null, null);
+    }
+    outputMessage.reset();
+    converter.write(body, MediaType.APPLICATION_JSON, outputMessage);
+    return outputMessage.body.size();
+  }
+
+  @Getter
+  public static class Node {
+
+    @JsonView(VersionViews.v2_0.class)
+    private final String name = "node-1";
+
+    @JsonView(VersionViews.v2_0.class)
+    private final int diskCount = 12;
+
+    private final String serial = "sn-1";
+  }
+
+  private static class BufferedOutputMessage implements HttpOutputMessage {
+
+    private final HttpHeaders headers = new HttpHeaders();
+
+    private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+    void reset() {
+      headers.clear();
+      body.reset();
+    }
+
+    @Override
+    public OutputStream getBody() {
+      return body;
+    }
+
+    @Override
+    public HttpHeaders getHeaders() {
+      return headers;
+    }
+  }
+}
@@ -0,0 +1,48 @@
+package com.github.krr.springmvc.benchmark;
+
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.profile.InternalProfiler;
+import org.openjdk.jmh.results.AggregationPolicy;
+import org.openjdk.jmh.results.IterationResult;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.ScalarResult;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Reports the peak heap usage of each iteration, in MB.  The peak is the sum of the peaks of the heap memory pools,
+ * which need not be reached at the same time, so it is an upper bound of the actual peak.
+ */
+public class PeakHeapProfiler implements InternalProfiler {
+
+  private static final double MB = 1024 * 1024;
+
+  private final List<MemoryPoolMXBean> heapPools = ManagementFactory.getMemoryPoolMXBeans().stream()
+      .filter(pool -> pool.getType() == MemoryType.HEAP && pool.isValid())
+      .collect(toList());
+
+  @Override
+  public String getDescription() {
+    return "Peak heap usage of each iteration";
+  }
+
+  @Override
+  public void beforeIteration(BenchmarkParams benchmarkParams, IterationParams iterationParams) {
+    heapPools.forEach(MemoryPoolMXBean::resetPeakUsage);
+  }
+
+  @Override
+  public Collection<? extends Result> afterIteration(BenchmarkParams benchmarkParams, IterationParams iterationParams,
+                                                     IterationResult result) {
+    long peakHeap = heapPools.stream().mapToLong(pool -> pool.getPeakUsage().getUsed()).sum();
+    return Collections.singletonList(new ScalarResult("peak.heap", peakHeap / MB, "MB", AggregationPolicy.MAX));
+  }
+}
@@ -0,0 +1,72 @@
+package com.github.krr.springmvc.benchmark;
+
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.profile.InternalProfiler;
+import org.openjdk.jmh.results.AggregationPolicy;
+import org.openjdk.jmh.results.IterationResult;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.ScalarResult;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * Reports the heap retained by what a benchmark built during an iteration, in MB.  The benchmark calls
+ * {@link #markBaseline()} in its iteration setup and {@link #measureRetained()} in its iteration teardown, while
+ * what it built is still reachable.  Nothing is reported for the benchmarks that do not.
+ */
+public class RetainedHeapProfiler implements InternalProfiler {
+
+  private static final double MB = 1024 * 1024;
+
+  private static final MemoryMXBean MEMORY = ManagementFactory.getMemoryMXBean();
+
+  private static volatile long baseline;
+
+  private static volatile long retained = -1;
+
+  /**
+   * Records the heap in use, after a full collection, as the baseline of the iteration.
+   */
+  public static void markBaseline() {
+    baseline = usedHeapAfterGc();
+    retained = -1;
+  }
+
+  /**
+   * Records the heap retained since the baseline, after a full collection.
+   */
+  public static void measureRetained() {
+    retained = Math.max(0, usedHeapAfterGc() - baseline);
+  }
+
+  private static long usedHeapAfterGc() {
+    // a single collection may leave objects that just became unreachable behind
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    return MEMORY.getHeapMemoryUsage().getUsed();
+  }
+
+  @Override
+  public String getDescription() {
+    return "Heap retained by what the benchmark built during each iteration";
+  }
+
+  @Override
+  public void beforeIteration(BenchmarkParams benchmarkParams, IterationParams iterationParams) {
+    retained = -1;
+  }
+
+  @Override
+  public Collection<? extends Result> afterIteration(BenchmarkParams benchmarkParams, IterationParams iterationParams,
+                                                     IterationResult result) {
+    if (retained < 0) {
+      return Collections.emptyList();
+    }
+    return Collections.singletonList(new ScalarResult("retained.heap", retained / MB, "MB", AggregationPolicy.AVG));
+  }
+}
@@ -0,0 +1,292 @@
+package com.github.krr.springmvc.benchmark;
+
+import javassist.*;
+import javassist.bytecode.AnnotationsAttribute;
+import javassist.bytecode.ConstPool;
+import javassist.bytecode.ParameterAnnotationsAttribute;
+import javassist.bytecode.annotation.Annotation;
+import javassist.bytecode.annotation.ArrayMemberValue;
+import javassist.bytecode.annotation.BooleanMemberValue;
+import javassist.bytecode.annotation.EnumMemberValue;
+import javassist.bytecode.annotation.MemberValue;
+import javassist.bytecode.annotation.StringMemberValue;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Generates a corpus of JAX-RS class files with javassist, shaped like a real service: resources made of a
+ * controller, the chain of superclasses it extends and the interfaces it implements, mixed with classes that do not
+ * refer to JAX-RS at all.
+ * <p>
+ * The class level Path is declared on the root superclass of each resource (or on the controller itself when there
+ * is no superclass) so that finding it walks the whole hierarchy.  The HTTP methods are declared on the interfaces and
+ * on each superclass.
+ * <p>
+ * With the {@link AnnotationStyle#SPRING_MVC} style the same resources are written with the Spring MVC annotations
+ * the transformer would have generated, as a hand written Spring MVC service would declare them.
+ */
+@Slf4j
+@Getter
+@Setter
+public class SyntheticCorpusGenerator {
+
+  public static final String CORPUS_PACKAGE = "com.github.krr.springmvc.generated.corpus";
+
+  private static final String[] HTTP_METHODS = {"GET", "POST", "PUT", "DELETE", "PATCH"};
+
+  private static final String COMPLETE_MARKER = "corpus.complete";
+
+  private static final String SPRING_MVC_PACKAGE = "org.springframework.web.bind.annotation";
+
+  /**
+   * The annotations the resources are declared with.
+   */
+  public enum AnnotationStyle {
+    JAXRS,
+    SPRING_MVC
+  }
+
+  /**
+   * The total number of classes of the corpus.
+   */
+  private final int classCount;
+
+  /**
+   * The number of superclasses of each controller.
+   */
+  private final int hierarchyDepth;
+
+  /**
+   * The number of interfaces implemented by each controller.
+   */
+  private final int interfaceFanOut;
+
+  private int methodsPerInterface = 4;
+
+  /**
+   * The share of the classes that do not refer to JAX-RS, between 0 and 1.
+   */
+  private double plainClassRatio = 0.5;
+
+  private AnnotationStyle annotationStyle = AnnotationStyle.JAXRS;
+
+  public SyntheticCorpusGenerator(int classCount, int hierarchyDepth, int interfaceFanOut) {
+    if (classCount < 1 || hierarchyDepth < 0 || interfaceFanOut < 0) {
+      throw new IllegalArgumentException("Invalid corpus shape " + classCount + "/" + hierarchyDepth + "/" +
+                                         interfaceFanOut);
+    }
+    this.classCount = classCount;
+    this.hierarchyDepth = hierarchyDepth;
+    this.interfaceFanOut = interfaceFanOut;
+  }
+
+  /**
+   * Writes the class files of the corpus to the directory.
+   */
+  public Corpus generate(Path outputDir) throws IOException {
+    long start = System.nanoTime();
+    int resourceSize = hierarchyDepth + interfaceFanOut + 1;
+    int resourceCount = Math.max(1, (int) (classCount * (1 - plainClassRatio)) / resourceSize);
+    List<String> classNames = new ArrayList<>(classCount);
+    List<String> controllerNames = new ArrayList<>(resourceCount);
+    ClassPool classPool = new ClassPool(true);
+    try {
+      for (int resource = 0; resource < resourceCount; resource++) {
+        controllerNames.add(writeResource(classPool, resource, outputDir, classNames));
+      }
+      for (int plainClass = 0; classNames.size() < classCount; plainClass++) {
+        classNames.add(writePlainClass(classPool, plainClass, outputDir));
+      }
+    }
+    catch (CannotCompileException | NotFoundException e) {
+      throw new IOException("Unable to generate the corpus", e);
+    }
+    log.info("Generated {} classes ({} controllers) in {} ms", classNames.size(), controllerNames.size(),
+             (System.nanoTime() - start) / 1_000_000);
+    return new Corpus(outputDir, classNames, controllerNames);
+  }
+
+  /**
+   * Generates the corpus in a directory of the temporary directory named after its shape, unless a previous run
+   * already did.
+   */
+  public Corpus generateOrReuse() throws IOException {
+    Path outputDir = Paths.get(System.getProperty("java.io.tmpdir"), "jaxrs-springmvc-corpus",
+                               classCount + "-" + hierarchyDepth + "-" + interfaceFanOut + "-" +
+                               methodsPerInterface + "-" + plainClassRatio + "-" + annotationStyle);
+    Path completeMarker = outputDir.resolve(COMPLETE_MARKER);
+    if (Files.exists(completeMarker)) {
+      List<String> lines = Files.readAllLines(completeMarker, UTF_8);
+      int separator = lines.indexOf("");
+      return new Corpus(outputDir, lines.subList(0, separator), lines.subList(separator + 1, lines.size()));
+    }
+    Files.createDirectories(outputDir);
+    Corpus corpus = generate(outputDir);
+    List<String> lines = new ArrayList<>(corpus.getClassNames());
+    lines.add("");
+    lines.addAll(corpus.getControllerNames());
+    Files.write(completeMarker, lines, UTF_8);
+    return corpus;
+  }
+
+  private String writeResource(ClassPool classPool, int resource, Path outputDir, List<String> classNames)
+      throws CannotCompileException, NotFoundException, IOException {
+
+    String prefix = CORPUS_PACKAGE + ".r" + resource + ".";
+    List<CtClass> writtenClasses = new ArrayList<>();
+    CtClass superclass = null;
+    for (int level = 0; level < hierarchyDepth; level++) {
+      CtClass base = classPool.makeClass(prefix + "Base" + level);
+      if (superclass != null) {
+        base.setSuperclass(superclass);
+      }
+      else {
+        addClassAnnotations(base, "/r" + resource);
+      }
+      CtMethod method = CtNewMethod.make("public String base" + level + "(String id) { return id; }", base);
+      addMethodAnnotations(method, HTTP_METHODS[level % HTTP_METHODS.length], "/base" + level + "/{id}", false);
+      base.addMethod(method);
+      superclass = base;
+      writtenClasses.add(base);
+    }
+    CtClass controller = classPool.makeClass(prefix + "Controller");
+    if (superclass == null) {
+      addClassAnnotations(controller, "/r" + resource);
+    }
+    else {
+      controller.setSuperclass(superclass);
+    }
+    for (int intf = 0; intf < interfaceFanOut; intf++) {
+      CtClass api = classPool.makeInterface(prefix + "Api" + intf);
+      for (int m = 0; m < methodsPerInterface; m++) {
+        String methodName = "op" + intf + "_" + m;
+        CtMethod method = CtNewMethod.make("public abstract String " + methodName + "(String id, String q);", api);
+        addMethodAnnotations(method, HTTP_METHODS[m % HTTP_METHODS.length], "/api" + intf + "/m" + m + "/{id}",
+                             true);
+        api.addMethod(method);
+        controller.addMethod(CtNewMethod.make("public String " + methodName + "(String id, String q) { return id; }",
+                                              controller));
+      }
+      controller.addInterface(api);
+      writtenClasses.add(api);
+    }
+    writtenClasses.add(controller);
+    for (CtClass ctClass : writtenClasses) {
+      ctClass.writeFile(outputDir.toString());
+      classNames.add(ctClass.getName());
+    }
+    // keeps the pool small whatever the size of the corpus
+    writtenClasses.forEach(CtClass::detach);
+    return controller.getName();
+  }
+
+  private String writePlainClass(ClassPool classPool, int plainClass, Path outputDir)
+      throws CannotCompileException, IOException {
+    CtClass ctClass = classPool.makeClass(CORPUS_PACKAGE + ".plain.p" + plainClass / 100 + ".Plain" + plainClass);
+    ctClass.addField(CtField.make("private String value;", ctClass));
+    ctClass.addMethod(CtNewMethod.make("public String getValue() { return value; }", ctClass));
+    ctClass.writeFile(outputDir.toString());
+    ctClass.detach();
+    return ctClass.getName();
+  }
+
+  private void addClassAnnotations(CtClass ctClass, String path) {
+    ConstPool constPool = ctClass.getClassFile().getConstPool();
+    AnnotationsAttribute attribute = new AnnotationsAttribute(constPool, AnnotationsAttribute.visibleTag);
+    if (annotationStyle == AnnotationStyle.JAXRS) {
+      attribute.addAnnotation(newAnnotation("javax.ws.rs.Path", path, false, constPool));
+      attribute.addAnnotation(newAnnotation("javax.ws.rs.Produces", "application/json", true, constPool));
+      attribute.addAnnotation(newAnnotation("javax.ws.rs.Consumes", "application/json", true, constPool));
+    }
+    else {
+      attribute.addAnnotation(new Annotation(SPRING_MVC_PACKAGE + ".RestController", constPool));
+      Annotation requestMapping = newAnnotation(SPRING_MVC_PACKAGE + ".RequestMapping", path, true, constPool);
+      requestMapping.addMemberValue("produces", newArrayValue(new StringMemberValue("application/json", constPool),
+                                                              constPool));
+      requestMapping.addMemberValue("consumes", newArrayValue(new StringMemberValue("application/json", constPool),
+                                                              constPool));
+      attribute.addAnnotation(requestMapping);
+    }
+    ctClass.getClassFile().addAttribute(attribute);
+  }
+
+  private void addMethodAnnotations(CtMethod method, String httpMethod, String path, boolean queryParameter) {
+    ConstPool constPool = method.getMethodInfo().getConstPool();
+    AnnotationsAttribute attribute = new AnnotationsAttribute(constPool, AnnotationsAttribute.visibleTag);
+    String pathParam;
+    String queryParam;
+    if (annotationStyle == AnnotationStyle.JAXRS) {
+      attribute.addAnnotation(new Annotation("javax.ws.rs." + httpMethod, constPool));
+      attribute.addAnnotation(newAnnotation("javax.ws.rs.Path", path, false, constPool));
+      pathParam = "javax.ws.rs.PathParam";
+      queryParam = "javax.ws.rs.QueryParam";
+    }
+    else {
+      Annotation requestMapping = newAnnotation(SPRING_MVC_PACKAGE + ".RequestMapping", path, true, constPool);
+      EnumMemberValue requestMethod = new EnumMemberValue(constPool);
+      requestMethod.setType(SPRING_MVC_PACKAGE + ".RequestMethod");
+      requestMethod.setValue(httpMethod);
+      requestMapping.addMemberValue("method", newArrayValue(requestMethod, constPool));
+      attribute.addAnnotation(requestMapping);
+      pathParam = SPRING_MVC_PACKAGE + ".PathVariable";
+      queryParam = SPRING_MVC_PACKAGE + ".RequestParam";
+    }
+    method.getMethodInfo().addAttribute(attribute);
+
+    ParameterAnnotationsAttribute parameterAttribute = new ParameterAnnotationsAttribute(
+        constPool, ParameterAnnotationsAttribute.visibleTag);
+    Annotation[] idAnnotations = {newAnnotation(pathParam, "id", false, constPool)};
+    Annotation[] queryAnnotations = {newAnnotation(queryParam, "q", false, constPool)};
+    if (annotationStyle == AnnotationStyle.SPRING_MVC) {
+      // a query parameter is optional in JAX-RS
+      queryAnnotations[0].addMemberValue("required", new BooleanMemberValue(false, constPool));
+    }
+    parameterAttribute.setAnnotations(queryParameter ? new Annotation[][]{idAnnotations, queryAnnotations} :
+                                          new Annotation[][]{idAnnotations});
+    method.getMethodInfo().addAttribute(parameterAttribute);
+  }
+
+  private static Annotation newAnnotation(String typeName, String value, boolean arrayValue, ConstPool constPool) {
+    Annotation annotation = new Annotation(typeName, constPool);
+    MemberValue memberValue = new StringMemberValue(value, constPool);
+    annotation.addMemberValue("value", arrayValue ? newArrayValue(memberValue, constPool) : memberValue);
+    return annotation;
+  }
+
+  private static ArrayMemberValue newArrayValue(MemberValue memberValue, ConstPool constPool) {
+    ArrayMemberValue arrayMemberValue = new ArrayMemberValue(constPool);
+    arrayMemberValue.setValue(new MemberValue[]{memberValue});
+    return arrayMemberValue;
+  }
+
+  /**
+   * The classes of a generated corpus.
+   */
+  @Value
+  public static class Corpus {
+
+    private final Path directory;
+
+    private final List<String> classNames;
+
+    private final List<String> controllerNames;
+
+    public Corpus(Path directory, List<String> classNames, List<String> controllerNames) {
+      this.directory = directory;
+      this.classNames = Collections.unmodifiableList(new ArrayList<>(classNames));
+      this.controllerNames = Collections.unmodifiableList(new ArrayList<>(controllerNames));
+    }
+  }
+}
@@ -0,0 +1,103 @@
+package com.github.krr.springmvc.benchmark;
+
+import com.github.krr.springmvc.routes.RouteManifest;
+import com.github.krr.springmvc.transformer.JaxrsToSpringMvcTransformer;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.web.context.support.StaticWebApplicationContext;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfo;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+import org.testng.annotations.Test;
+
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+
+import static java.util.Collections.singletonList;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+
+public class SyntheticCorpusGeneratorTest {
+
+  @Test
+  public void mustGenerateTransformableCorpus() throws Exception {
+    Path inputDir = Files.createTempDirectory("corpus");
+    Path outputDir = Files.createTempDirectory("transformed-corpus");
+    try {
+      // 10 resources of a controller, 2 superclasses and 2 interfaces, then plain classes
+      SyntheticCorpusGenerator generator = new SyntheticCorpusGenerator(100, 2, 2);
+      SyntheticCorpusGenerator.Corpus corpus = generator.generate(inputDir);
+
+      assertEquals(corpus.getClassNames().size(), 100);
+      assertEquals(corpus.getControllerNames().size(), 10);
+      assertEquals(BenchmarkSupport.getResourceClassNames(corpus).size(), 50);
+
+      JaxrsToSpringMvcTransformer transformer = new JaxrsToSpringMvcTransformer(
+          singletonList(SyntheticCorpusGenerator.CORPUS_PACKAGE));
+      transformer.transform(inputDir.toString(), outputDir.toString());
+
+      RouteManifest routeManifest;
+      try (InputStream inputStream = Files.newInputStream(outputDir.resolve(RouteManifest.RESOURCE_NAME))) {
+        routeManifest = RouteManifest.read(inputStream);
+      }
+      // the superclasses inherit the class level mapping of the root superclass
+      assertEquals(routeManifest.getControllers().size(), 30);
+      RouteManifest.Controller controller = routeManifest.getControllersByClassName()
+          .get(corpus.getControllerNames().get(0));
+      // a method per superclass and 4 per interface
+      assertEquals(controller.getRoutes().size(), 10);
+      assertEquals(controller.getTypeMapping().getPaths(), singletonList("/r0"));
+    }
+    finally {
+      FileSystemUtils.deleteRecursively(inputDir);
+      FileSystemUtils.deleteRecursively(outputDir);
+    }
+  }
+
+  @Test
+  public void mustMapTransformedControllersLikeHandwrittenOnes() throws Exception {
+    Path jaxrsDir = Files.createTempDirectory("corpus");
+    Path transformedDir = Files.createTempDirectory("transformed-corpus");
+    Path springMvcDir = Files.createTempDirectory("spring-mvc-corpus");
+    try {
+      SyntheticCorpusGenerator generator = new SyntheticCorpusGenerator(20, 1, 2);
+      generator.setPlainClassRatio(0);
+      SyntheticCorpusGenerator.Corpus jaxrsCorpus = generator.generate(jaxrsDir);
+      generator.setAnnotationStyle(SyntheticCorpusGenerator.AnnotationStyle.SPRING_MVC);
+      SyntheticCorpusGenerator.Corpus springMvcCorpus = generator.generate(springMvcDir);
+      new JaxrsToSpringMvcTransformer(singletonList(SyntheticCorpusGenerator.CORPUS_PACKAGE))
+          .transform(jaxrsDir.toString(), transformedDir.toString());
+
+      Set<RequestMappingInfo> transformedMappings = getRequestMappings(jaxrsCorpus, transformedDir, jaxrsDir);
+      assertFalse(transformedMappings.isEmpty());
+      assertEquals(transformedMappings, getRequestMappings(springMvcCorpus, springMvcDir));
+    }
+    finally {
+      FileSystemUtils.deleteRecursively(jaxrsDir);
+      FileSystemUtils.deleteRecursively(transformedDir);
+      FileSystemUtils.deleteRecursively(springMvcDir);
+    }
+  }
+
+  private static Set<RequestMappingInfo> getRequestMappings(SyntheticCorpusGenerator.Corpus corpus, Path... classPath)
+      throws Exception {
+    URL[] urls = new URL[classPath.length];
+    for (int i = 0; i < classPath.length; i++) {
+      urls[i] = classPath[i].toUri().toURL();
+    }
+    try (URLClassLoader classLoader = new URLClassLoader(urls, SyntheticCorpusGeneratorTest.class.getClassLoader())) {
+      StaticWebApplicationContext context = new StaticWebApplicationContext();
+      context.setClassLoader(classLoader);
+      for (String controllerName : corpus.getControllerNames()) {
+        context.registerSingleton(controllerName, classLoader.loadClass(controllerName));
+      }
+      context.refresh();
+      RequestMappingHandlerMapping handlerMapping = new RequestMappingHandlerMapping();
+      handlerMapping.setApplicationContext(context);
+      handlerMapping.afterPropertiesSet();
+      return handlerMapping.getHandlerMethods().keySet();
+    }
+  }
+}
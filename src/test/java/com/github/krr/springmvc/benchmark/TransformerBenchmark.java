@@ -0,0 +1,81 @@
+package com.github.krr.springmvc.benchmark;
+
+import com.github.krr.springmvc.transformer.JaxrsToSpringMvcTransformer;
+import com.github.krr.springmvc.transformer.TransformationPlan;
+import javassist.ClassPool;
+import javassist.CtClass;
+import javassist.NotFoundException;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Collections.singletonList;
+
+/**
+ * Measures how many classes per second the transformer plans and applies - the work of
+ * {@code JaxrsToSpringMvcTransformer.applyTransformations} - over synthetic corpora of various sizes and shapes.
+ * Each iteration starts with a new class pool and a new transformer so that the annotation caches are as cold as
+ * at the start of a build; when every class was transformed the iteration starts over with new ones, created
+ * outside of the measured method.
+ *
+ * @see BenchmarkRunner
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TransformerBenchmark {
+
+  @Param({"1000", "10000", "100000"})
+  private int corpusSize;
+
+  @Param({"1", "4"})
+  private int hierarchyDepth;
+
+  @Param({"1", "4"})
+  private int interfaceFanOut;
+
+  private SyntheticCorpusGenerator.Corpus corpus;
+
+  /**
+   * The classes accepted by the prefilter - the ones the transformer is given in a build.
+   */
+  private List<String> resourceClassNames;
+
+  private ClassPool classPool;
+
+  private JaxrsToSpringMvcTransformer transformer;
+
+  private int nextClass;
+
+  @Setup(Level.Trial)
+  public void generateCorpus() throws Exception {
+    corpus = new SyntheticCorpusGenerator(corpusSize, hierarchyDepth, interfaceFanOut).generateOrReuse();
+    resourceClassNames = BenchmarkSupport.getResourceClassNames(corpus);
+  }
+
+  @Setup(Level.Iteration)
+  public void startTransformSession() {
+    classPool = BenchmarkSupport.createClassPool(corpus);
+    transformer = new JaxrsToSpringMvcTransformer(singletonList(SyntheticCorpusGenerator.CORPUS_PACKAGE));
+    nextClass = 0;
+  }
+
+  @Setup(Level.Invocation)
+  public void restartExhaustedTransformSession() {
+    if (nextClass == resourceClassNames.size()) {
+      startTransformSession();
+    }
+  }
+
+  @Benchmark
+  public TransformationPlan applyTransformations() throws NotFoundException {
+    CtClass ctClass = classPool.get(resourceClassNames.get(nextClass++));
+    TransformationPlan plan = transformer.planTransformation(ctClass);
+    transformer.applyTransformationPlan(classPool, plan);
+    return plan;
+  }
+}
@@ -0,0 +1,85 @@
+package com.github.krr.springmvc.benchmark;
+
+import com.github.krr.springmvc.javassist.beans.AnnotationDescriptor;
+import com.github.krr.springmvc.javassist.utils.AnnotationResolutionCache;
+import com.github.krr.springmvc.javassist.utils.CtClassUtils;
+import com.github.krr.springmvc.javassist.utils.JaxrsAnnotations;
+import com.github.krr.springmvc.javassist.utils.PackageSelector;
+import com.github.krr.springmvc.transformer.TypeHierarchyIndex;
+import javassist.ClassPool;
+import javassist.NotFoundException;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Collections.singletonList;
+
+/**
+ * Measures the time to find the class level Path, Produces and Consumes annotations of every class of a corpus, as
+ * the transformer does when it plans the classes, starting from a cold class pool each time:
+ * <ul>
+ * <li>{@code recursiveLookup} - each class is read by javassist and its hierarchy searched through an
+ * annotation resolution cache, as the transformer does without an index</li>
+ * <li>{@code hierarchyIndex} - the {@link TypeHierarchyIndex} of the corpus is built from the class file headers,
+ * then every class is looked up in it</li>
+ * </ul>
+ *
+ * @see BenchmarkRunner
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TypeHierarchyIndexBenchmark {
+
+  @Param({"1000", "10000"})
+  private int corpusSize;
+
+  @Param({"1", "4"})
+  private int hierarchyDepth;
+
+  @Param({"4"})
+  private int interfaceFanOut;
+
+  private SyntheticCorpusGenerator.Corpus corpus;
+
+  private PackageSelector packageSelector;
+
+  @Setup(Level.Trial)
+  public void generateCorpus() throws Exception {
+    corpus = new SyntheticCorpusGenerator(corpusSize, hierarchyDepth, interfaceFanOut).generateOrReuse();
+    packageSelector = PackageSelector.compile(singletonList(SyntheticCorpusGenerator.CORPUS_PACKAGE));
+  }
+
+  @Benchmark
+  public int recursiveLookup() throws NotFoundException {
+    ClassPool classPool = BenchmarkSupport.createClassPool(corpus);
+    AnnotationResolutionCache cache = new AnnotationResolutionCache();
+    int found = 0;
+    for (String className : corpus.getClassNames()) {
+      for (String annotationTypeName : JaxrsAnnotations.CLASS_ANNOTATIONS) {
+        AnnotationDescriptor annotation = CtClassUtils.findAnnotation(classPool.get(className),
+                                                                      annotationTypeName, packageSelector, cache);
+        found += annotation == null ? 0 : 1;
+      }
+    }
+    return found;
+  }
+
+  @Benchmark
+  public int hierarchyIndex() {
+    TypeHierarchyIndex index = TypeHierarchyIndex.build(BenchmarkSupport.createClassPool(corpus),
+                                                        corpus.getDirectory(), corpus.getClassNames(),
+                                                        packageSelector,
+                                                        JaxrsAnnotations.CLASS_ANNOTATIONS);
+    int found = 0;
+    for (String className : corpus.getClassNames()) {
+      for (String annotationTypeName : JaxrsAnnotations.CLASS_ANNOTATIONS) {
+        found += index.getAnnotation(className, annotationTypeName) == null ? 0 : 1;
+      }
+    }
+    return found;
+  }
+}
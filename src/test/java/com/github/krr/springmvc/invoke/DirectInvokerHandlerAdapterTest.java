@@ -0,0 +1,80 @@
+package com.github.krr.springmvc.invoke;
+
+import com.github.krr.springmvc.arguments.SimpleValueArgumentResolver;
+import com.github.krr.springmvc.support.TransformedClassLoader;
+import com.github.krr.springmvc.support.beans.NodeFilter;
+import com.github.krr.springmvc.support.impl.NodeAdministrationImpl;
+import org.springframework.util.ReflectionUtils;
+import org.springframework.web.bind.support.ConfigurableWebBindingInitializer;
+import org.springframework.web.context.support.StaticWebApplicationContext;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.mvc.method.annotation.ServletInvocableHandlerMethod;
+import org.testng.annotations.Test;
+
+import java.lang.reflect.Method;
+
+import static org.testng.Assert.*;
+
+public class DirectInvokerHandlerAdapterTest {
+
+  @Test
+  public void mustInvokeHandlerMethodsWithGeneratedInvokers() throws Exception {
+    try (TransformedClassLoader classLoader = TransformedClassLoader.transformSupportClasses("invokers")) {
+      Class<?> controllerClass = classLoader.loadClass(NodeAdministrationImpl.class.getName());
+      Object controller = controllerClass.newInstance();
+      Method getDisks = ReflectionUtils.findMethod(controllerClass, "getDisks", (Class[]) null);
+      HandlerInvoker invoker = HandlerInvokers.find(getDisks);
+      assertNotNull(invoker);
+      assertNotNull(invoker.invoke(controller, new Object[]{"node-1", "ssd", "request-1", "session-1", 5}));
+      assertEquals(getLastCall(controller), "node-1:ssd:request-1:session-1:5");
+
+      DirectInvokerHandlerAdapter adapter = new DirectInvokerHandlerAdapter();
+      Method addNode = ReflectionUtils.findMethod(controllerClass, "addNode", (Class[]) null);
+      ServletInvocableHandlerMethod handlerMethod = adapter.createInvocableHandlerMethod(
+          new HandlerMethod(controller, addNode));
+      assertTrue(handlerMethod instanceof DirectInvokerHandlerAdapter.DirectInvocableHandlerMethod);
+      Object filter = classLoader.loadClass(NodeFilter.class.getName()).newInstance();
+      assertNull(handlerMethod.invokeForRequest(null, null, "node-2", filter));
+      assertEquals(getLastCall(controller), "node-2");
+      assertEquals(adapter.getDirectInvocationCount(), 1);
+
+      // the classes of the test classpath have no invoker
+      Method lastCall = NodeAdministrationImpl.class.getMethod("getLastCall");
+      assertNull(HandlerInvokers.find(lastCall));
+      handlerMethod = adapter.createInvocableHandlerMethod(new HandlerMethod(new NodeAdministrationImpl(), lastCall));
+      assertFalse(handlerMethod instanceof DirectInvokerHandlerAdapter.DirectInvocableHandlerMethod);
+      assertEquals(adapter.getReflectiveInvocationCount(), 1);
+    }
+  }
+
+  @Test
+  public void mustRegisterSimpleValueResolverOnlyWhenEnabled() {
+    StaticWebApplicationContext applicationContext = new StaticWebApplicationContext();
+    applicationContext.refresh();
+    DirectInvokerHandlerAdapter adapter = new DirectInvokerHandlerAdapter();
+    adapter.setApplicationContext(applicationContext);
+    adapter.afterPropertiesSet();
+    assertFalse(adapter.getArgumentResolvers().get(0) instanceof SimpleValueArgumentResolver);
+
+    adapter = new DirectInvokerHandlerAdapter();
+    adapter.setApplicationContext(applicationContext);
+    adapter.setSimpleValueResolution(true);
+    adapter.setWebBindingInitializer(new ConfigurableWebBindingInitializer());
+    adapter.afterPropertiesSet();
+    assertTrue(adapter.getArgumentResolvers().get(0) instanceof SimpleValueArgumentResolver);
+
+    // the editors of the binding initializer would not be applied
+    ConfigurableWebBindingInitializer bindingInitializer = new ConfigurableWebBindingInitializer();
+    bindingInitializer.setPropertyEditorRegistrar(registry -> { });
+    adapter = new DirectInvokerHandlerAdapter();
+    adapter.setApplicationContext(applicationContext);
+    adapter.setSimpleValueResolution(true);
+    adapter.setWebBindingInitializer(bindingInitializer);
+    adapter.afterPropertiesSet();
+    assertFalse(adapter.getArgumentResolvers().get(0) instanceof SimpleValueArgumentResolver);
+  }
+
+  private static Object getLastCall(Object controller) throws Exception {
+    return controller.getClass().getMethod("getLastCall").invoke(controller);
+  }
+}
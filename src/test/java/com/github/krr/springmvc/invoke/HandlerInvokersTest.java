@@ -0,0 +1,35 @@
+package com.github.krr.springmvc.invoke;
+
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotEquals;
+
+public class HandlerInvokersTest {
+
+  private static final String CONTROLLER = "com.example.NodeController";
+
+  @Test
+  public void mustBoundNameOfInvokerWhateverDescriptor() {
+    StringBuilder descriptor = new StringBuilder("(");
+    for (int i = 0; i < 20; i++) {
+      descriptor.append("Lcom/example/inventory/administration/model/InventoryItemFilter").append(i).append(';');
+    }
+    descriptor.append(")Ljava/util/concurrent/CompletableFuture;");
+    String invokerClassName = HandlerInvokers.getInvokerClassName(CONTROLLER, "getItems", descriptor.toString());
+    assertEquals(invokerClassName.length(),
+                 (CONTROLLER + "$$Invoker$getItems$").length() + HandlerInvokers.DESCRIPTOR_HASH_LENGTH * 2);
+    assertEquals(HandlerInvokers.getInvokerClassName(CONTROLLER, "getItems", descriptor.toString()),
+                 invokerClassName);
+  }
+
+  @Test
+  public void mustGiveOverloadsDistinctNames() {
+    // the descriptors have the same hash code
+    assertEquals("(LAa;)V".hashCode(), "(LBB;)V".hashCode());
+    assertNotEquals(HandlerInvokers.getInvokerClassName(CONTROLLER, "update", "(LAa;)V"),
+                    HandlerInvokers.getInvokerClassName(CONTROLLER, "update", "(LBB;)V"));
+    assertNotEquals(HandlerInvokers.getInvokerClassName(CONTROLLER, "update", "(La/b;)V"),
+                    HandlerInvokers.getInvokerClassName(CONTROLLER, "update", "(La_b;)V"));
+  }
+}
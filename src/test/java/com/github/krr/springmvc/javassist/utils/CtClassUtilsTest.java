@@ -2,7 +2,9 @@ package com.github.krr.springmvc.javassist.utils;
 
 import com.github.krr.springmvc.support.api.ClusterAdministration;
 import com.github.krr.springmvc.support.api.InterfaceOnSuperclass;
+import com.github.krr.springmvc.support.api.NodeAdministration;
 import com.github.krr.springmvc.support.beans.BaseClassWithPathAnnotation;
+import com.github.krr.springmvc.javassist.beans.AnnotationDescriptor;
 import com.github.krr.springmvc.javassist.beans.CtAnnotation;
 import com.github.krr.springmvc.support.beans.SubclassWithPathAnnotationInSuperclass;
 import javassist.ClassPool;
@@ -124,6 +126,39 @@ public class CtClassUtilsTest {
     Assert.assertEquals(annotation.getAnnotatedMethod(), methodToTest);
   }
 
+  @Test
+  public void mustFindJaxrsAnnotationOnInterfaceMethodOverriddenWithoutAnnotations() throws Exception {
+    CtClass cc = pool.get("com.github.krr.springmvc.support.impl.NodeAdministrationImpl");
+    CtMethod methodToTest = cc.getDeclaredMethod("getDisks");
+    CtAnnotation annotation = CtClassUtils.findAnnotationOnMethod(methodToTest, Path.class, PACKAGES_TO_SEARCH);
+    validateAnnotation(annotation, NodeAdministration.class.getName(), "/{id}/disks");
+    Assert.assertEquals(annotation.getAnnotatedMethod().getDeclaringClass().getName(),
+                        NodeAdministration.class.getName());
+  }
+
+  @Test
+  public void mustReuseCachedMethodSignatureIndexes() throws Exception {
+    AnnotationResolutionCache cache = new AnnotationResolutionCache();
+    PackageSelector packagesToInclude = PackageSelector.compile(PACKAGES_TO_SEARCH);
+    CtClass cc = pool.get("com.github.krr.springmvc.support.impl.NodeAdministrationImpl");
+    CtAnnotation annotation = CtClassUtils.findAnnotationOnMethod(cc.getDeclaredMethod("getDisks"), Path.class,
+                                                                  packagesToInclude, cache);
+    validateAnnotation(annotation, NodeAdministration.class.getName(), "/{id}/disks");
+    MethodSignatureIndex index = cache.getMethodSignatureIndex(cc.getName(), packagesToInclude);
+    Assert.assertNotNull(index);
+
+    CtClassUtils.findAnnotationOnMethod(cc.getDeclaredMethod("addNode"), Path.class, packagesToInclude, cache);
+    Assert.assertSame(cache.getMethodSignatureIndex(cc.getName(), packagesToInclude), index);
+  }
+
+  @Test
+  public void mustNotFindJaxrsAnnotationOnInterfaceMethodOutsideWhiteList() throws Exception {
+    CtClass cc = pool.get("com.github.krr.springmvc.support.impl.NodeAdministrationImpl");
+    CtMethod methodToTest = cc.getDeclaredMethod("getDisks");
+    List<String> packagesToSearch = Collections.singletonList("com.github.krr.springmvc.support.impl");
+    Assert.assertNull(CtClassUtils.findAnnotationOnMethod(methodToTest, Path.class, packagesToSearch));
+  }
+
   @DataProvider
   public Object[][] methodDataProviders() {
     return new String[][] {
@@ -156,6 +191,57 @@ public class CtClassUtilsTest {
 
   }
 
+  @Test
+  public void mustReuseCachedAnnotationsForSharedInterfaces() throws Exception {
+    AnnotationResolutionCache cache = new AnnotationResolutionCache();
+    CtClass subclass = pool.get("com.github.krr.springmvc.support.beans.SubclassWithPathAnnotationInSuperclassesInterface");
+    CtAnnotation annotation = CtClassUtils.findAnnotation(subclass, Path.class, PACKAGES_TO_SEARCH, cache);
+    validateAnnotation(annotation, InterfaceOnSuperclass.class.getName(), InterfaceOnSuperclass.BASE_URI);
+    long missCount = cache.getMissCount();
+
+    // the superclass was resolved while resolving the subclass
+    CtClass superclass = pool.get("com.github.krr.springmvc.support.beans.BaseClassWithPathAnnotationInInterface");
+    CtAnnotation superAnnotation = CtClassUtils.findAnnotation(superclass, Path.class, PACKAGES_TO_SEARCH, cache);
+    validateAnnotation(superAnnotation, InterfaceOnSuperclass.class.getName(), InterfaceOnSuperclass.BASE_URI);
+    Assert.assertEquals(cache.getMissCount(), missCount);
+    Assert.assertEquals(cache.getHitCount(), 1);
+  }
+
+  @Test
+  public void mustCacheAnnotationsThatAreNotFound() throws Exception {
+    AnnotationResolutionCache cache = new AnnotationResolutionCache();
+    CtClass cc = pool.get("com.github.krr.springmvc.support.beans.SuperClassWithNoJaxrsAnnotationsAndNoInterfaces");
+    Assert.assertNull(CtClassUtils.findAnnotation(cc, Path.class, PACKAGES_TO_SEARCH, cache));
+    Assert.assertNull(CtClassUtils.findAnnotation(cc, Path.class, PACKAGES_TO_SEARCH, cache));
+    Assert.assertEquals(cache.getHitCount(), 1);
+  }
+
+  @Test
+  public void mustInvalidateCachedAnnotationsOfSubclasses() throws Exception {
+    AnnotationResolutionCache cache = new AnnotationResolutionCache();
+    CtClass cc = pool.get("com.github.krr.springmvc.support.beans.SubclassWithPathAnnotationInSuperclassesInterface");
+    CtClassUtils.findAnnotation(cc, Path.class, PACKAGES_TO_SEARCH, cache);
+    Assert.assertTrue(cache.size() > 0);
+
+    cache.invalidate(InterfaceOnSuperclass.class.getName());
+    Assert.assertEquals(cache.size(), 0);
+  }
+
+  @Test
+  public void mustCacheAnnotationDescriptorsByTypeName() throws Exception {
+    AnnotationResolutionCache cache = new AnnotationResolutionCache();
+    CtClass cc = pool.get("com.github.krr.springmvc.support.impl.ClusterAdministrationImpl");
+    AnnotationDescriptor produces = CtClassUtils.findAnnotation(cc, JaxrsAnnotations.PRODUCES,
+                                                                PackageSelector.compile(PACKAGES_TO_SEARCH), cache);
+    Assert.assertNotNull(produces);
+    Assert.assertEquals(produces.getAnnotatedClassName(), ClusterAdministration.class.getName());
+    Assert.assertEquals(produces.getStringArrayValue("value"), new String[]{"application/json"});
+    Assert.assertNull(produces.getStringValue("value"));
+    // the descriptor is cached, not the classes it was found on
+    Assert.assertSame(CtClassUtils.findAnnotation(cc, JaxrsAnnotations.PRODUCES,
+                                                  PackageSelector.compile(PACKAGES_TO_SEARCH), cache), produces);
+  }
+
   private void validateAnnotation(CtAnnotation annotation, String expectedAnnotatedClass, String annotationValue) {
     Assert.assertNotNull(annotation);
     Assert.assertEquals(annotation.getAnnotatedClass().getName(), expectedAnnotatedClass);
@@ -0,0 +1,104 @@
+package com.github.krr.springmvc.javassist.utils;
+
+import com.github.krr.springmvc.javassist.beans.JaxrsParameterAnnotation;
+import com.github.krr.springmvc.javassist.beans.MethodAnnotationContainer;
+import com.github.krr.springmvc.support.api.ClusterAdministration;
+import com.github.krr.springmvc.support.api.NodeAdministration;
+import com.github.krr.springmvc.support.beans.BaseClassWithPathAnnotation;
+import com.github.krr.springmvc.support.impl.NodeAdministrationImpl;
+import javassist.ClassPool;
+import javassist.CtClass;
+import javassist.CtMethod;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import javax.ws.rs.core.MediaType;
+import java.util.Collections;
+import java.util.List;
+
+import static com.github.krr.springmvc.support.api.ClusterAdministration.CLUSTER_URI_BASE_PATH;
+
+public class JaxrsAnnotationExtractorTest {
+
+  private static final List<String> PACKAGES_TO_SEARCH = Collections.singletonList("com.github.krr.springmvc");
+
+  private ClassPool pool = ClassPool.getDefault();
+
+  @Test
+  public void mustExtractClassAnnotationsFromInterface() throws Exception {
+    CtClass cc = pool.get("com.github.krr.springmvc.support.impl.ClusterAdministrationImpl");
+    MethodAnnotationContainer container = new JaxrsAnnotationExtractor().extractClassAnnotations(cc,
+                                                                                                 PACKAGES_TO_SEARCH);
+    Assert.assertEquals(container.getPath(), CLUSTER_URI_BASE_PATH);
+    Assert.assertEquals(container.getProduces(), new String[]{MediaType.APPLICATION_JSON});
+    Assert.assertEquals(container.getConsumes(), new String[]{MediaType.APPLICATION_JSON});
+  }
+
+  @Test
+  public void mustReturnEmptyContainerForClassWithoutJaxrsAnnotations() throws Exception {
+    CtClass cc = pool.get("com.github.krr.springmvc.support.beans.SuperClassWithNoJaxrsAnnotationsAndNoInterfaces");
+    MethodAnnotationContainer container = new JaxrsAnnotationExtractor().extractClassAnnotations(cc,
+                                                                                                 PACKAGES_TO_SEARCH);
+    Assert.assertFalse(container.hasRequestMappingAttributes());
+  }
+
+  @Test
+  public void mustExtractMethodAndParameterAnnotationsInOnePass() throws Exception {
+    CtClass cc = pool.get(ClusterAdministration.class.getName());
+    CtMethod method = cc.getDeclaredMethod("removeNfsSubnetWhitelist");
+    MethodAnnotationContainer container = new JaxrsAnnotationExtractor().extractMethodAnnotations(method);
+    Assert.assertEquals(container.getPath(), "/nfs_whitelist/{name:.+}");
+    Assert.assertEquals(container.getHttpMethods(), Collections.singletonList("DELETE"));
+    Assert.assertEquals(container.getParamAnnotation().size(), 1);
+    Assert.assertEquals(container.getParamAnnotation().get(0),
+                        Collections.singletonList(new JaxrsParameterAnnotation(JaxrsAnnotations.PATH_PARAM, "name")));
+  }
+
+  @Test
+  public void mustIgnoreNonJaxrsParameterAnnotations() throws Exception {
+    CtClass cc = pool.get(BaseClassWithPathAnnotation.class.getName());
+    CtMethod method = cc.getDeclaredMethod(BaseClassWithPathAnnotation.METHOD_WITH_PARAMETER_ANNOTATION_IN_BASE_CLASS);
+    MethodAnnotationContainer container = new JaxrsAnnotationExtractor().extractMethodAnnotations(method);
+    Assert.assertEquals(container.getParamAnnotation().size(), 2);
+    Assert.assertEquals(container.getParamAnnotation().get(0).size(), 1);
+    Assert.assertTrue(container.getParamAnnotation().get(1).isEmpty());
+  }
+
+  @Test
+  public void mustFindAnnotationsOfOverriddenInterfaceMethod() throws Exception {
+    CtClass cc = pool.get(NodeAdministrationImpl.class.getName());
+    CtMethod method = cc.getDeclaredMethod("getDisks");
+    JaxrsAnnotationExtractor extractor = new JaxrsAnnotationExtractor(new AnnotationResolutionCache());
+    Assert.assertFalse(extractor.extractMethodAnnotations(method).hasJaxrsAnnotations());
+
+    MethodSignatureIndex.AnnotatedMethod overriddenMethod = extractor.findOverriddenAnnotatedMethod(
+        method, PackageSelector.compile(PACKAGES_TO_SEARCH));
+    Assert.assertNotNull(overriddenMethod);
+    Assert.assertEquals(overriddenMethod.getDeclaringClassName(), NodeAdministration.class.getName());
+    MethodAnnotationContainer container = overriddenMethod.getAnnotations();
+    Assert.assertEquals(container.getPath(), "/{id}/disks");
+    Assert.assertEquals(container.getHttpMethods(), Collections.singletonList("GET"));
+    Assert.assertEquals(container.getParamAnnotation().get(0),
+                        Collections.singletonList(new JaxrsParameterAnnotation(JaxrsAnnotations.PATH_PARAM, "id")));
+    // the index of the class is cached along with those of its supertypes
+    Assert.assertSame(extractor.getMethodSignatureIndex(cc, PackageSelector.compile(PACKAGES_TO_SEARCH)),
+                      extractor.getMethodSignatureIndex(cc, PackageSelector.compile(PACKAGES_TO_SEARCH)));
+  }
+
+  @Test
+  public void mustNotFindOverriddenMethodOutsidePackagesToInclude() throws Exception {
+    CtClass cc = pool.get(NodeAdministrationImpl.class.getName());
+    CtMethod method = cc.getDeclaredMethod("getDisks");
+    PackageSelector packagesToInclude = PackageSelector.compile(
+        Collections.singletonList(NodeAdministrationImpl.class.getPackage().getName()));
+    Assert.assertNull(new JaxrsAnnotationExtractor().findOverriddenAnnotatedMethod(method, packagesToInclude));
+  }
+
+  @Test
+  public void mustNotFindOverriddenMethodForAnnotatedMethod() throws Exception {
+    CtClass cc = pool.get(ClusterAdministration.class.getName());
+    CtMethod method = cc.getDeclaredMethod("removeNfsSubnetWhitelist");
+    Assert.assertNull(new JaxrsAnnotationExtractor().findOverriddenAnnotatedMethod(
+        method, PackageSelector.compile(PACKAGES_TO_SEARCH)));
+  }
+}
@@ -0,0 +1,69 @@
+package com.github.krr.springmvc.javassist.utils;
+
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.testng.Assert.*;
+
+public class PackageSelectorTest {
+
+  @DataProvider
+  public Object[][] packages() {
+    List<String> patterns = Arrays.asList("com.foo", "!com.foo.internal", "com.foo.internal.api", "org.*.api",
+                                          "net.**.rest", "io.svc*", "-io.svc*.impl");
+    return new Object[][]{
+        {patterns, "com.foo", true},
+        {patterns, "com.foo.bar", true},
+        {patterns, "com.foobar", false},
+        {patterns, "com", false},
+        {patterns, "com.foo.internal", false},
+        {patterns, "com.foo.internal.util", false},
+        {patterns, "com.foo.internal.api", true},
+        {patterns, "com.foo.internal.api.v1", true},
+        {patterns, "org.example.api", true},
+        {patterns, "org.example.api.v1", true},
+        {patterns, "org.api", false},
+        {patterns, "org.a.b.api", false},
+        {patterns, "net.rest", true},
+        {patterns, "net.a.b.rest.v1", true},
+        {patterns, "net.a.b", false},
+        {patterns, "io.svc", true},
+        {patterns, "io.svcOrders", true},
+        {patterns, "io.svcOrders.impl", false},
+        {patterns, "", false},
+        {Collections.singletonList("!com.foo"), "com.foo.bar", false},
+        {Collections.singletonList("!com.foo"), "org.foo", true},
+        {Arrays.asList("com.foo", "!com.foo"), "com.foo", false},
+        {null, "com.foo", true},
+        {Collections.singletonList(" "), "com.foo", true},
+    };
+  }
+
+  @Test(dataProvider = "packages")
+  public void mustMatchPackages(List<String> patterns, String packageName, boolean expected) {
+    PackageSelector selector = PackageSelector.compile(patterns);
+    assertEquals(selector.matches(packageName), expected, packageName);
+    // the memoized result is the same
+    assertEquals(selector.matches(packageName), expected, packageName);
+  }
+
+  @Test
+  public void mustExposeLiteralIncludesOnlyWithoutGlobs() {
+    assertEquals(PackageSelector.compile(Arrays.asList("com.foo ", "!com.foo.internal")).getLiteralIncludes(),
+                 Collections.singletonList("com.foo"));
+    assertNull(PackageSelector.compile(Arrays.asList("com.foo", "org.*.api")).getLiteralIncludes());
+    assertNull(PackageSelector.compile(null).getLiteralIncludes());
+    assertEquals(PackageSelector.compile(Arrays.asList("com.foo", " com.bar")),
+                 PackageSelector.compile(Arrays.asList("com.foo", "com.bar")));
+  }
+
+  @Test
+  public void mustNotMatchPackagesSharingAPrefix() {
+    assertFalse(CtClassUtils.isInIncludedPackageOrSubpackage(Collections.singletonList("com.foo"), "com.foobar"));
+    assertTrue(CtClassUtils.isInIncludedPackageOrSubpackage(Collections.singletonList("com.foo"), "com.foo.bar"));
+  }
+}
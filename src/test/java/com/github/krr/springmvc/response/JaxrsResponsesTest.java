@@ -0,0 +1,227 @@
+package com.github.krr.springmvc.response;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.testng.annotations.Test;
+
+import javax.ws.rs.core.*;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import static org.testng.Assert.*;
+
+public class JaxrsResponsesTest {
+
+  private static final StreamingOutput OUTPUT = outputStream -> outputStream.write(
+      "exported".getBytes(StandardCharsets.UTF_8));
+
+  @Test
+  public void mustWriteStreamingOutputToBody() throws IOException {
+    StreamingResponseBody body = JaxrsResponses.toStreamingResponseBody(OUTPUT);
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+    body.writeTo(outputStream);
+    assertEquals(new String(outputStream.toByteArray(), StandardCharsets.UTF_8), "exported");
+    assertNull(JaxrsResponses.toStreamingResponseBody(null));
+  }
+
+  @Test
+  public void mustConvertStreamingEntities() {
+    assertTrue(JaxrsResponses.toResult(new GenericEntity<StreamingOutput>(OUTPUT) {
+    }) instanceof StreamingResponseBody);
+    assertEquals(JaxrsResponses.toResult("entity"), "entity");
+    assertNull(JaxrsResponses.toResult(null));
+  }
+
+  @Test
+  public void mustWriteStreamingBodyWithoutBuffering() throws IOException {
+    StreamingResponseBodyHttpMessageConverter converter = new StreamingResponseBodyHttpMessageConverter();
+    StreamingResponseBody body = JaxrsResponses.toStreamingResponseBody(OUTPUT);
+    assertTrue(converter.canWrite(body.getClass(), MediaType.APPLICATION_OCTET_STREAM));
+    assertFalse(converter.canRead(StreamingResponseBody.class, MediaType.APPLICATION_OCTET_STREAM));
+
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    HttpHeaders headers = new HttpHeaders();
+    converter.write(body, MediaType.APPLICATION_OCTET_STREAM, new HttpOutputMessage() {
+      @Override
+      public OutputStream getBody() {
+        return outputStream;
+      }
+
+      @Override
+      public HttpHeaders getHeaders() {
+        return headers;
+      }
+    });
+    assertEquals(new String(outputStream.toByteArray(), StandardCharsets.UTF_8), "exported");
+    assertEquals(headers.getContentType(), MediaType.APPLICATION_OCTET_STREAM);
+    // the length is unknown until the body is written
+    assertEquals(headers.getContentLength(), -1);
+  }
+
+  @Test
+  public void mustConvertTypedHeadersToHttpValues() {
+    // the header delegates of a JAX-RS runtime format a date as an HTTP date and a locale as a language tag
+    long lastModified = 1_500_000_000_000L;
+    HeaderResponse response = new HeaderResponse();
+    response.getMetadata().add(HttpHeaders.LAST_MODIFIED, new Date(lastModified));
+    response.getStringHeaders().add(HttpHeaders.LAST_MODIFIED, "Fri, 14 Jul 2017 02:40:00 GMT");
+    response.getMetadata().add(HttpHeaders.CONTENT_LANGUAGE, Locale.US);
+    response.getStringHeaders().add(HttpHeaders.CONTENT_LANGUAGE, "en-US");
+
+    ResponseEntity<Object> entity = JaxrsResponses.toResponseEntity(response);
+    assertEquals(entity.getStatusCodeValue(), 200);
+    assertEquals(entity.getHeaders().getLastModified(), lastModified);
+    assertEquals(entity.getHeaders().getContentLanguage(), Locale.US);
+  }
+
+  /**
+   * A response holding its headers both as objects and as the strings a JAX-RS runtime would format them to.
+   */
+  private static class HeaderResponse extends Response {
+
+    private final MultivaluedMap<String, Object> headers = new MultivaluedHashMap<>();
+
+    private final MultivaluedMap<String, String> stringHeaders = new MultivaluedHashMap<>();
+
+    @Override
+    public MultivaluedMap<String, Object> getMetadata() {
+      return headers;
+    }
+
+    @Override
+    public MultivaluedMap<String, String> getStringHeaders() {
+      return stringHeaders;
+    }
+
+    @Override
+    public int getStatus() {
+      return 200;
+    }
+
+    @Override
+    public Object getEntity() {
+      return null;
+    }
+
+    @Override
+    public StatusType getStatusInfo() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public <T> T readEntity(Class<T> entityType) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public <T> T readEntity(GenericType<T> entityType) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public <T> T readEntity(Class<T> entityType, Annotation[] annotations) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public <T> T readEntity(GenericType<T> entityType, Annotation[] annotations) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean hasEntity() {
+      return false;
+    }
+
+    @Override
+    public boolean bufferEntity() {
+      return false;
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public javax.ws.rs.core.MediaType getMediaType() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Locale getLanguage() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int getLength() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Set<String> getAllowedMethods() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Map<String, NewCookie> getCookies() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public EntityTag getEntityTag() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Date getDate() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Date getLastModified() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public URI getLocation() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Set<Link> getLinks() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean hasLink(String relation) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Link getLink(String relation) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Link.Builder getLinkBuilder(String relation) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public String getHeaderString(String name) {
+      throw new UnsupportedOperationException();
+    }
+  }
+}
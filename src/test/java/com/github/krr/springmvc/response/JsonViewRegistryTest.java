@@ -0,0 +1,41 @@
+package com.github.krr.springmvc.response;
+
+import com.github.krr.springmvc.support.TransformedClassLoader;
+import com.github.krr.springmvc.support.api.VersionViews;
+import com.github.krr.springmvc.support.impl.ClusterAdministrationImpl;
+import org.springframework.util.ReflectionUtils;
+import org.testng.annotations.Test;
+
+import java.lang.reflect.Method;
+
+import static java.util.Collections.singleton;
+import static org.testng.Assert.*;
+
+public class JsonViewRegistryTest {
+
+  @Test
+  public void mustRegisterViewsOfManifestRoutes() throws Exception {
+    try (TransformedClassLoader classLoader = TransformedClassLoader.transformSupportClasses("json-views")) {
+      JsonViewRegistry registry = new JsonViewRegistry();
+      registry.loadManifests(classLoader);
+      Class<?> view = classLoader.loadClass(VersionViews.v2_0.class.getName());
+      assertEquals(registry.getViews(), singleton(view));
+
+      Class<?> controllerClass = classLoader.loadClass(ClusterAdministrationImpl.class.getName());
+      Method getClusterInfo = ReflectionUtils.findMethod(controllerClass, "getClusterInfo");
+      assertEquals(registry.getView(getClusterInfo), view);
+      Method editClusterParams = ReflectionUtils.findMethod(controllerClass, "editClusterParams", (Class[]) null);
+      assertNull(registry.getView(editClusterParams));
+    }
+  }
+
+  @Test
+  public void mustLookUpViewsOfOtherMethods() {
+    JsonViewRegistry registry = new JsonViewRegistry();
+    registry.loadManifests(getClass().getClassLoader());
+    assertTrue(registry.getViews().isEmpty());
+    // annotated on the interface method
+    Method getClusterInfo = ReflectionUtils.findMethod(ClusterAdministrationImpl.class, "getClusterInfo");
+    assertEquals(registry.getView(getClusterInfo), VersionViews.v2_0.class);
+  }
+}
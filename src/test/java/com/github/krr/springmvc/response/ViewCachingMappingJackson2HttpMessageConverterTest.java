@@ -0,0 +1,70 @@
+package com.github.krr.springmvc.response;
+
+import com.fasterxml.jackson.annotation.JsonView;
+import com.github.krr.springmvc.support.api.VersionViews;
+import lombok.Getter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.http.converter.json.MappingJacksonValue;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static java.util.Collections.singleton;
+import static org.testng.Assert.assertEquals;
+
+public class ViewCachingMappingJackson2HttpMessageConverterTest {
+
+  @Test
+  public void mustWriteViewsLikeMappingJackson2HttpMessageConverter() throws IOException {
+    ViewCachingMappingJackson2HttpMessageConverter converter = new ViewCachingMappingJackson2HttpMessageConverter();
+    converter.prepareViews(singleton(VersionViews.v2_0.class));
+    assertEquals(converter.getPreparedViewCount(), 1);
+
+    MappingJacksonValue body = new MappingJacksonValue(new Node());
+    body.setSerializationView(VersionViews.v2_0.class);
+    String json = write(converter, body);
+    assertEquals(json, "{\"name\":\"node-1\"}");
+    assertEquals(json, write(new MappingJackson2HttpMessageConverter(), body));
+    // without a view
+    assertEquals(write(converter, new Node()), "{\"name\":\"node-1\",\"serial\":\"sn-1\"}");
+    assertEquals(converter.getPreparedViewCount(), 1);
+  }
+
+  private static String write(MappingJackson2HttpMessageConverter converter, Object body) throws IOException {
+    BufferedOutputMessage outputMessage = new BufferedOutputMessage();
+    converter.write(body, MediaType.APPLICATION_JSON, outputMessage);
+    return new String(outputMessage.body.toByteArray(), StandardCharsets.UTF_8);
+  }
+
+  @Getter
+  private static class Node {
+
+    @JsonView(VersionViews.v2_0.class)
+    private final String name = "node-1";
+
+    private final String serial = "sn-1";
+  }
+
+  private static class BufferedOutputMessage implements HttpOutputMessage {
+
+    private final HttpHeaders headers = new HttpHeaders();
+
+    private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+    @Override
+    public OutputStream getBody() {
+      return body;
+    }
+
+    @Override
+    public HttpHeaders getHeaders() {
+      return headers;
+    }
+  }
+}
@@ -0,0 +1,51 @@
+package com.github.krr.springmvc.routes;
+
+import com.github.krr.springmvc.support.TransformedClassLoader;
+import com.github.krr.springmvc.support.api.ClusterAdministration;
+import com.github.krr.springmvc.support.impl.ClusterAdministrationImpl;
+import org.springframework.web.context.support.StaticWebApplicationContext;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfo;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+import org.testng.annotations.Test;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Map;
+
+import static org.testng.Assert.*;
+
+public class ManifestRequestMappingHandlerMappingTest {
+
+  @Test
+  public void mustRegisterTheSameHandlerMethodsAsReflectiveDetection() throws Exception {
+    try (TransformedClassLoader classLoader = TransformedClassLoader.transformSupportClasses("routes")) {
+      RouteManifest manifest;
+      try (InputStream inputStream = Files.newInputStream(classLoader.getOutputDir()
+                                                                     .resolve(RouteManifest.RESOURCE_NAME))) {
+        manifest = RouteManifest.read(inputStream);
+      }
+      assertTrue(manifest.getControllersByClassName().containsKey(ClusterAdministrationImpl.class.getName()));
+
+      StaticWebApplicationContext context = new StaticWebApplicationContext();
+      context.setClassLoader(classLoader);
+      context.registerSingleton("clusterAdministration", classLoader.loadClass(ClusterAdministrationImpl.class
+                                                                                   .getName()));
+      context.refresh();
+
+      RequestMappingHandlerMapping reflectiveMapping = new RequestMappingHandlerMapping();
+      reflectiveMapping.setApplicationContext(context);
+      reflectiveMapping.afterPropertiesSet();
+      ManifestRequestMappingHandlerMapping manifestMapping = new ManifestRequestMappingHandlerMapping();
+      manifestMapping.setApplicationContext(context);
+      manifestMapping.afterPropertiesSet();
+
+      Map<RequestMappingInfo, HandlerMethod> expectedHandlerMethods = reflectiveMapping.getHandlerMethods();
+      assertFalse(expectedHandlerMethods.isEmpty());
+      assertEquals(manifestMapping.getManifestHandlerCount(), 1);
+      assertEquals(manifestMapping.getHandlerMethods(), expectedHandlerMethods);
+      PrecompiledPathMatcher pathMatcher = (PrecompiledPathMatcher) manifestMapping.getPathMatcher();
+      assertTrue(pathMatcher.isPrecompiled(ClusterAdministration.CLUSTER_URI_BASE_PATH));
+    }
+  }
+}
@@ -0,0 +1,54 @@
+package com.github.krr.springmvc.routes;
+
+import org.springframework.util.AntPathMatcher;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.testng.Assert.*;
+
+public class PrecompiledPathMatcherTest {
+
+  private static final List<String> PATTERNS = Arrays.asList("/cluster", "/cluster/", "/cluster/nodes/{id}",
+                                                             "/cluster/{name}/disks", "cluster/{name}", "/");
+
+  private static final List<String> PATHS = Arrays.asList("/cluster", "/cluster/", "cluster", "/cluster/nodes",
+                                                          "/cluster/nodes/n1", "/cluster/nodes/n1/",
+                                                          "/cluster/nodes/n1.json", "/cluster/nodes/n1.tar.gz",
+                                                          "/cluster.json", "/cluster//nodes//n1", "/cluster/c1/disks",
+                                                          "/", "", "cluster/c1");
+
+  @Test
+  public void mustMatchLikeAntPathMatcher() {
+    AntPathMatcher antPathMatcher = new AntPathMatcher();
+    PrecompiledPathMatcher precompiledPathMatcher = new PrecompiledPathMatcher();
+    for (String pattern : PATTERNS) {
+      assertTrue(precompiledPathMatcher.precompile(pattern), pattern);
+    }
+    for (String basePattern : PATTERNS) {
+      // the variants used by Spring MVC for suffix and trailing slash matching
+      for (String pattern : Arrays.asList(basePattern, basePattern + ".*", basePattern + "/")) {
+        for (String path : PATHS) {
+          boolean match = antPathMatcher.match(pattern, path);
+          assertEquals(precompiledPathMatcher.match(pattern, path), match, pattern + " " + path);
+          if (match) {
+            assertEquals(precompiledPathMatcher.extractUriTemplateVariables(pattern, path),
+                         antPathMatcher.extractUriTemplateVariables(pattern, path), pattern + " " + path);
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void mustLeaveRegexPatternsToAntPathMatcher() {
+    PrecompiledPathMatcher precompiledPathMatcher = new PrecompiledPathMatcher();
+    assertFalse(precompiledPathMatcher.precompile("/nfs_whitelist/{name:.+}"));
+    assertFalse(precompiledPathMatcher.precompile("/cluster/*"));
+    assertFalse(precompiledPathMatcher.precompile("/cluster/node-{id}"));
+    assertEquals(precompiledPathMatcher.getPrecompiledCount(), 0);
+    assertEquals(precompiledPathMatcher.extractUriTemplateVariables("/nfs_whitelist/{name:.+}",
+                                                                    "/nfs_whitelist/a.b").get("name"), "a.b");
+  }
+}
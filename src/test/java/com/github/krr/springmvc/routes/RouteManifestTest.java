@@ -0,0 +1,40 @@
+package com.github.krr.springmvc.routes;
+
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static org.testng.Assert.assertEquals;
+
+public class RouteManifestTest {
+
+  @Test
+  public void mustReadWhatWasWritten() throws Exception {
+    RouteManifest.Mapping typeMapping = new RouteManifest.Mapping(singletonList("/cluster"), emptyList(),
+                                                                  singletonList("application/json"),
+                                                                  singletonList("application/json"));
+    RouteManifest.Route route = new RouteManifest.Route("com.example.Api", "remove", "(Ljava/lang/String;[I)V",
+                                                        new RouteManifest.Mapping(singletonList("/{name:.+}"),
+                                                                                  Arrays.asList("DELETE", "POST"),
+                                                                                  emptyList(), emptyList()),
+                                                        Arrays.asList("STRING", ""), "com.example.Views$Public");
+    RouteManifest manifest = new RouteManifest(Arrays.asList(
+        new RouteManifest.Controller("com.example.ApiImpl", typeMapping, singletonList(route)),
+        new RouteManifest.Controller("com.example.Other", null, Collections.emptyList())));
+
+    RouteManifest readManifest = RouteManifest.read(new ByteArrayInputStream(manifest.toByteArray()));
+    assertEquals(readManifest, manifest);
+    assertEquals(readManifest.getControllersByClassName().get("com.example.ApiImpl").getRoutes(),
+                 singletonList(route));
+  }
+
+  @Test(expectedExceptions = IOException.class)
+  public void mustRejectOtherContent() throws Exception {
+    RouteManifest.read(new ByteArrayInputStream(new byte[]{(byte) 0xCA, (byte) 0xFE, (byte) 0xBA, (byte) 0xBE}));
+  }
+}
@@ -0,0 +1,77 @@
+package com.github.krr.springmvc.support;
+
+import com.github.krr.springmvc.transformer.JaxrsToSpringMvcTransformer;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static java.util.Collections.singletonList;
+
+/**
+ * Loads the transformed classes of the support package instead of the classes of the test classpath.  The classes
+ * are transformed to a temporary directory, deleted when the loader is closed.
+ */
+public class TransformedClassLoader extends URLClassLoader {
+
+  private static final String SUPPORT_PACKAGE = TransformedClassLoader.class.getPackage().getName();
+
+  private final Path outputDir;
+
+  private TransformedClassLoader(Path outputDir, Path inputDir) throws IOException {
+    super(new URL[]{outputDir.toUri().toURL(), inputDir.toUri().toURL()},
+          TransformedClassLoader.class.getClassLoader());
+    this.outputDir = outputDir;
+  }
+
+  /**
+   * Transforms the classes of the support package to a new temporary directory.
+   *
+   * @param prefix - the prefix of the name of the temporary directory
+   */
+  public static TransformedClassLoader transformSupportClasses(String prefix) throws Exception {
+    Path inputDir = Paths.get(TransformedClassLoader.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+    Path outputDir = Files.createTempDirectory(prefix);
+    try {
+      new JaxrsToSpringMvcTransformer(singletonList(SUPPORT_PACKAGE)).transform(inputDir.toString(),
+                                                                               outputDir.toString());
+      return new TransformedClassLoader(outputDir, inputDir);
+    }
+    catch (Exception | Error e) {
+      FileSystemUtils.deleteRecursively(outputDir);
+      throw e;
+    }
+  }
+
+  /**
+   * @return the directory the classes were transformed to.
+   */
+  public Path getOutputDir() {
+    return outputDir;
+  }
+
+  @Override
+  protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+    if (!name.startsWith(SUPPORT_PACKAGE)) {
+      return super.loadClass(name, resolve);
+    }
+    synchronized (getClassLoadingLock(name)) {
+      Class<?> loadedClass = findLoadedClass(name);
+      return loadedClass == null ? findClass(name) : loadedClass;
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      super.close();
+    }
+    finally {
+      FileSystemUtils.deleteRecursively(outputDir);
+    }
+  }
+}
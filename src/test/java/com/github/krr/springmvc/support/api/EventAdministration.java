@@ -0,0 +1,23 @@
+package com.github.krr.springmvc.support.api;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
+import javax.ws.rs.core.MediaType;
+
+/**
+ * Resumes a suspended async response.
+ */
+@Path(EventAdministration.EVENTS_URI_BASE_PATH)
+@Produces(MediaType.APPLICATION_JSON)
+public interface EventAdministration {
+
+  String EVENTS_URI_BASE_PATH = "/events";
+
+  @GET
+  @Path("/{id}")
+  void poll(@PathParam("id") String id, @Suspended AsyncResponse asyncResponse);
+}
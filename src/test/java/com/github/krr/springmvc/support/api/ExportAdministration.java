@@ -0,0 +1,24 @@
+package com.github.krr.springmvc.support.api;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+
+/**
+ * Streams its responses.
+ */
+@Path(ExportAdministration.EXPORTS_URI_BASE_PATH)
+public interface ExportAdministration {
+
+  String EXPORTS_URI_BASE_PATH = "/exports";
+
+  @GET
+  @Path("/{id}")
+  StreamingOutput export(@PathParam("id") String id);
+
+  @GET
+  @Path("/{id}/status")
+  Response getStatus(@PathParam("id") String id);
+}
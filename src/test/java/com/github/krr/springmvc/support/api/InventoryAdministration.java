@@ -0,0 +1,25 @@
+package com.github.krr.springmvc.support.api;
+
+import com.github.krr.springmvc.support.beans.PrimitiveDto;
+
+import javax.ws.rs.*;
+import javax.ws.rs.core.MediaType;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Takes path and query parameters of simple value types.
+ */
+@Path(InventoryAdministration.INVENTORY_URI_BASE_PATH)
+@Produces(MediaType.APPLICATION_JSON)
+public interface InventoryAdministration {
+
+  String INVENTORY_URI_BASE_PATH = "/inventory";
+
+  @GET
+  @Path("/{id}/items")
+  PrimitiveDto<String> getItems(@PathParam("id") long id,
+                                @QueryParam("owner") UUID owner,
+                                @QueryParam("unit") TimeUnit unit,
+                                @QueryParam("limit") @DefaultValue("10") int limit);
+}
@@ -0,0 +1,35 @@
+package com.github.krr.springmvc.support.api;
+
+import com.github.krr.springmvc.support.beans.NodeFilter;
+import com.github.krr.springmvc.support.beans.PrimitiveDto;
+
+import javax.ws.rs.*;
+import javax.ws.rs.core.MediaType;
+
+/**
+ * Uses every kind of JAX-RS parameter annotation.
+ */
+@Path(NodeAdministration.NODES_URI_BASE_PATH)
+@Produces(MediaType.APPLICATION_JSON)
+public interface NodeAdministration {
+
+  String NODES_URI_BASE_PATH = "/nodes";
+
+  @GET
+  @Path("/{id}/disks")
+  PrimitiveDto<String> getDisks(@PathParam("id") String id,
+                                @MatrixParam("type") String type,
+                                @HeaderParam("X-Request-Id") String requestId,
+                                @CookieParam("session") String session,
+                                @QueryParam("limit") @DefaultValue("10") int limit);
+
+  @GET
+  @Path("/{id}/events")
+  PrimitiveDto<String> getEvents(@PathParam("id") String id,
+                                 @QueryParam("page") int page,
+                                 @QueryParam("verbose") boolean verbose);
+
+  @POST
+  @Consumes(MediaType.APPLICATION_FORM_URLENCODED)
+  PrimitiveDto<Boolean> addNode(@FormParam("name") String name, @BeanParam NodeFilter filter);
+}
@@ -0,0 +1,13 @@
+package com.github.krr.springmvc.support.beans;
+
+import lombok.Data;
+
+import javax.ws.rs.QueryParam;
+
+@Data
+public class NodeFilter {
+
+  @QueryParam("rack")
+  private String rack;
+
+}
@@ -0,0 +1,15 @@
+package com.github.krr.springmvc.support.impl;
+
+import com.github.krr.springmvc.support.api.InventoryAdministration;
+import com.github.krr.springmvc.support.beans.PrimitiveDto;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+public class InventoryAdministrationImpl implements InventoryAdministration {
+
+  @Override
+  public PrimitiveDto<String> getItems(long id, UUID owner, TimeUnit unit, int limit) {
+    return new PrimitiveDto<>();
+  }
+}
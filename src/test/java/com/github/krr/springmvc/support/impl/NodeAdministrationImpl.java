@@ -0,0 +1,33 @@
+package com.github.krr.springmvc.support.impl;
+
+import com.github.krr.springmvc.support.api.NodeAdministration;
+import com.github.krr.springmvc.support.beans.NodeFilter;
+import com.github.krr.springmvc.support.beans.PrimitiveDto;
+import lombok.Getter;
+
+/**
+ * Remembers the arguments it was last called with.
+ */
+@Getter
+public class NodeAdministrationImpl implements NodeAdministration {
+
+  private String lastCall;
+
+  @Override
+  public PrimitiveDto<String> getDisks(String id, String type, String requestId, String session, int limit) {
+    lastCall = id + ":" + type + ":" + requestId + ":" + session + ":" + limit;
+    return new PrimitiveDto<>();
+  }
+
+  @Override
+  public PrimitiveDto<String> getEvents(String id, int page, boolean verbose) {
+    lastCall = id + ":" + page + ":" + verbose;
+    return new PrimitiveDto<>();
+  }
+
+  @Override
+  public PrimitiveDto<Boolean> addNode(String name, NodeFilter filter) {
+    lastCall = name;
+    return null;
+  }
+}
@@ -0,0 +1,167 @@
+package com.github.krr.springmvc.support.web;
+
+import org.springframework.web.context.request.NativeWebRequest;
+
+import java.security.Principal;
+import java.util.*;
+
+/**
+ * A request holding only parameters and request attributes - enough for the argument resolvers of path variables and
+ * request parameters.
+ */
+public class StubWebRequest implements NativeWebRequest {
+
+  private final Map<String, String[]> parameters = new LinkedHashMap<>();
+
+  private final Map<String, Object> attributes = new HashMap<>();
+
+  public StubWebRequest addParameter(String name, String... values) {
+    parameters.put(name, values);
+    return this;
+  }
+
+  @Override
+  public Object getNativeRequest() {
+    return null;
+  }
+
+  @Override
+  public Object getNativeResponse() {
+    return null;
+  }
+
+  @Override
+  public <T> T getNativeRequest(Class<T> requiredType) {
+    return null;
+  }
+
+  @Override
+  public <T> T getNativeResponse(Class<T> requiredType) {
+    return null;
+  }
+
+  @Override
+  public String getHeader(String headerName) {
+    return null;
+  }
+
+  @Override
+  public String[] getHeaderValues(String headerName) {
+    return null;
+  }
+
+  @Override
+  public Iterator<String> getHeaderNames() {
+    return Collections.emptyIterator();
+  }
+
+  @Override
+  public String getParameter(String paramName) {
+    String[] values = parameters.get(paramName);
+    return values == null || values.length == 0 ? null : values[0];
+  }
+
+  @Override
+  public String[] getParameterValues(String paramName) {
+    return parameters.get(paramName);
+  }
+
+  @Override
+  public Iterator<String> getParameterNames() {
+    return parameters.keySet().iterator();
+  }
+
+  @Override
+  public Map<String, String[]> getParameterMap() {
+    return Collections.unmodifiableMap(parameters);
+  }
+
+  @Override
+  public Locale getLocale() {
+    return Locale.getDefault();
+  }
+
+  @Override
+  public String getContextPath() {
+    return "";
+  }
+
+  @Override
+  public String getRemoteUser() {
+    return null;
+  }
+
+  @Override
+  public Principal getUserPrincipal() {
+    return null;
+  }
+
+  @Override
+  public boolean isUserInRole(String role) {
+    return false;
+  }
+
+  @Override
+  public boolean isSecure() {
+    return false;
+  }
+
+  @Override
+  public boolean checkNotModified(long lastModifiedTimestamp) {
+    return false;
+  }
+
+  @Override
+  public boolean checkNotModified(String etag) {
+    return false;
+  }
+
+  @Override
+  public boolean checkNotModified(String etag, long lastModifiedTimestamp) {
+    return false;
+  }
+
+  @Override
+  public String getDescription(boolean includeClientInfo) {
+    return "stub request";
+  }
+
+  @Override
+  public Object getAttribute(String name, int scope) {
+    return attributes.get(name);
+  }
+
+  @Override
+  public void setAttribute(String name, Object value, int scope) {
+    attributes.put(name, value);
+  }
+
+  @Override
+  public void removeAttribute(String name, int scope) {
+    attributes.remove(name);
+  }
+
+  @Override
+  public String[] getAttributeNames(int scope) {
+    return attributes.keySet().toArray(new String[0]);
+  }
+
+  @Override
+  public void registerDestructionCallback(String name, Runnable callback, int scope) {
+  }
+
+  @Override
+  public Object resolveReference(String key) {
+    return null;
+  }
+
+  @Override
+  public String getSessionId() {
+    return "stub";
+  }
+
+  @Override
+  public Object getSessionMutex() {
+    return this;
+  }
+}
@@ -0,0 +1,91 @@
+package com.github.krr.springmvc.transformer;
+
+import com.github.krr.springmvc.support.api.ClusterAdministration;
+import com.github.krr.springmvc.support.impl.ClusterAdministrationImpl;
+import com.github.krr.springmvc.support.impl.NodeAdministrationImpl;
+import javassist.CtClass;
+import org.springframework.util.FileSystemUtils;
+import org.testng.annotations.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static java.util.Collections.singletonList;
+import static java.util.stream.Collectors.toList;
+import static org.testng.Assert.*;
+
+public class BoundedClassPoolTest {
+
+  @Test
+  public void mustDropLeastRecentlyUsedClasses() throws Exception {
+    BoundedClassPool classPool = new BoundedClassPool(2);
+    CtClass clusterApi = classPool.get(ClusterAdministration.class.getName());
+    CtClass clusterImpl = classPool.get(ClusterAdministrationImpl.class.getName());
+    assertSame(classPool.get(ClusterAdministration.class.getName()), clusterApi);
+
+    classPool.get(NodeAdministrationImpl.class.getName());
+    assertEquals(classPool.getCachedCount(), 2);
+    assertEquals(classPool.getEvictionCount(), 1);
+    assertSame(classPool.get(ClusterAdministration.class.getName()), clusterApi);
+    // read again from its class file
+    assertNotSame(classPool.get(ClusterAdministrationImpl.class.getName()), clusterImpl);
+  }
+
+  @Test
+  public void mustKeepModifiedClasses() throws Exception {
+    BoundedClassPool classPool = new BoundedClassPool(1);
+    CtClass clusterImpl = classPool.get(ClusterAdministrationImpl.class.getName());
+    clusterImpl.getClassFile().addInterface(Runnable.class.getName());
+    classPool.get(ClusterAdministration.class.getName());
+    classPool.get(NodeAdministrationImpl.class.getName());
+    assertSame(classPool.get(ClusterAdministrationImpl.class.getName()), clusterImpl);
+
+    classPool.release(clusterImpl);
+    assertNotSame(classPool.get(ClusterAdministrationImpl.class.getName()), clusterImpl);
+  }
+
+  @Test
+  public void mustTransformLikeUnboundedClassPool() throws Exception {
+    Path inputDir = Paths.get(ClusterAdministrationImpl.class.getProtectionDomain().getCodeSource().getLocation()
+                                                             .toURI());
+    Path expectedDir = Files.createTempDirectory("unbounded");
+    Path cacheDir = Files.createTempDirectory("class-cache");
+    Path outputDir = Files.createTempDirectory("bounded");
+    try {
+      JaxrsToSpringMvcTransformer transformer = new JaxrsToSpringMvcTransformer(
+          singletonList("com.github.krr.springmvc.support"));
+      // transforms the classes one by one, like the bounded mode
+      transformer.setTransformedClassCache(new TransformedClassCache(cacheDir));
+      transformer.transform(inputDir.toString(), expectedDir.toString());
+
+      JaxrsToSpringMvcTransformer boundedTransformer = new JaxrsToSpringMvcTransformer(
+          singletonList("com.github.krr.springmvc.support"));
+      boundedTransformer.setMaxCachedClasses(2);
+      boundedTransformer.getMetrics().setPeakHeapTracking(true);
+      boundedTransformer.transform(inputDir.toString(), outputDir.toString());
+
+      List<Path> expectedFiles = listFiles(expectedDir);
+      assertFalse(expectedFiles.isEmpty());
+      assertEquals(listFiles(outputDir), expectedFiles);
+      for (Path file : expectedFiles) {
+        assertEquals(Files.readAllBytes(outputDir.resolve(file)), Files.readAllBytes(expectedDir.resolve(file)),
+                     file.toString());
+      }
+      assertTrue(boundedTransformer.getMetrics().get(TransformationMetrics.Counter.PEAK_HEAP_BYTES) > 0);
+    }
+    finally {
+      FileSystemUtils.deleteRecursively(expectedDir);
+      FileSystemUtils.deleteRecursively(cacheDir);
+      FileSystemUtils.deleteRecursively(outputDir);
+    }
+  }
+
+  private static List<Path> listFiles(Path dir) throws Exception {
+    try (Stream<Path> files = Files.walk(dir)) {
+      return files.filter(Files::isRegularFile).map(dir::relativize).sorted().collect(toList());
+    }
+  }
+}
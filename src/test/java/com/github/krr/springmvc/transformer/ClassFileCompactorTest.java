@@ -0,0 +1,102 @@
+package com.github.krr.springmvc.transformer;
+
+import com.github.krr.springmvc.benchmark.SyntheticCorpusGenerator;
+import com.github.krr.springmvc.javassist.utils.JaxrsAnnotations;
+import javassist.bytecode.AnnotationsAttribute;
+import javassist.bytecode.ClassFile;
+import javassist.bytecode.MethodInfo;
+import org.springframework.util.FileSystemUtils;
+import org.testng.annotations.Test;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+
+import static com.github.krr.springmvc.transformer.TransformationMetrics.Counter.BYTES_AFTER_COMPACTION;
+import static com.github.krr.springmvc.transformer.TransformationMetrics.Counter.BYTES_BEFORE_COMPACTION;
+import static org.testng.Assert.*;
+
+public class ClassFileCompactorTest {
+
+  @Test
+  public void mustWriteClassesNoBiggerThanHandwrittenControllers() throws Exception {
+    Path jaxrsDir = Files.createTempDirectory("corpus");
+    Path compactedDir = Files.createTempDirectory("compacted-corpus");
+    Path springMvcDir = Files.createTempDirectory("spring-mvc-corpus");
+    try {
+      SyntheticCorpusGenerator generator = new SyntheticCorpusGenerator(10, 0, 1);
+      generator.setPlainClassRatio(0);
+      SyntheticCorpusGenerator.Corpus corpus = generator.generate(jaxrsDir);
+      generator.setAnnotationStyle(SyntheticCorpusGenerator.AnnotationStyle.SPRING_MVC);
+      generator.generate(springMvcDir);
+
+      JaxrsToSpringMvcTransformer transformer = new JaxrsToSpringMvcTransformer();
+      Properties properties = new Properties();
+      properties.setProperty(JaxrsToSpringMvcTransformer.PACKAGES_TO_INCLUDE_KEY,
+                             SyntheticCorpusGenerator.CORPUS_PACKAGE);
+      properties.setProperty(JaxrsToSpringMvcTransformer.COMPACT_OUTPUT_KEY, "true");
+      transformer.configure(properties);
+      transformer.transform(jaxrsDir.toString(), compactedDir.toString());
+
+      int interfaceCount = 0;
+      for (String className : corpus.getClassNames()) {
+        String classFileName = className.replace('.', '/') + ".class";
+        Path compactedClassFile = compactedDir.resolve(classFileName);
+        ClassFile classFile = readClassFile(compactedClassFile);
+        if (classFile.isInterface()) {
+          // the implementations in other modules are mapped with the JAX-RS annotations of their interfaces
+          assertHasJaxrsMapping(classFile);
+          interfaceCount++;
+          continue;
+        }
+        Path handwrittenClassFile = springMvcDir.resolve(classFileName);
+        assertTrue(Files.size(compactedClassFile) <= Files.size(handwrittenClassFile),
+                   className + " is bigger than its handwritten counterpart");
+        assertNoJaxrsMapping(classFile);
+      }
+      assertTrue(interfaceCount > 0);
+      TransformationMetrics metrics = transformer.getMetrics();
+      assertTrue(metrics.get(BYTES_AFTER_COMPACTION) > 0);
+      assertTrue(metrics.get(BYTES_AFTER_COMPACTION) < metrics.get(BYTES_BEFORE_COMPACTION));
+    }
+    finally {
+      FileSystemUtils.deleteRecursively(jaxrsDir);
+      FileSystemUtils.deleteRecursively(compactedDir);
+      FileSystemUtils.deleteRecursively(springMvcDir);
+    }
+  }
+
+  private static ClassFile readClassFile(Path classFilePath) throws IOException {
+    try (InputStream inputStream = Files.newInputStream(classFilePath)) {
+      return new ClassFile(new DataInputStream(inputStream));
+    }
+  }
+
+  private static void assertHasJaxrsMapping(ClassFile classFile) {
+    for (MethodInfo methodInfo : classFile.getMethods()) {
+      AnnotationsAttribute methodAttribute = (AnnotationsAttribute) methodInfo.getAttribute(
+          AnnotationsAttribute.visibleTag);
+      assertNotNull(methodAttribute, methodInfo.getName());
+      assertNotNull(methodAttribute.getAnnotation(JaxrsAnnotations.PATH), methodInfo.getName());
+    }
+  }
+
+  private static void assertNoJaxrsMapping(ClassFile classFile) {
+    AnnotationsAttribute classAttribute = (AnnotationsAttribute) classFile.getAttribute(
+        AnnotationsAttribute.visibleTag);
+    if (classAttribute != null) {
+      assertNull(classAttribute.getAnnotation(JaxrsAnnotations.PATH));
+    }
+    for (MethodInfo methodInfo : classFile.getMethods()) {
+      AnnotationsAttribute methodAttribute = (AnnotationsAttribute) methodInfo.getAttribute(
+          AnnotationsAttribute.visibleTag);
+      if (methodAttribute != null) {
+        assertNull(methodAttribute.getAnnotation(JaxrsAnnotations.PATH), methodInfo.getName());
+        assertNull(methodAttribute.getAnnotation(JaxrsAnnotations.GET), methodInfo.getName());
+      }
+    }
+  }
+}
@@ -0,0 +1,82 @@
+package com.github.krr.springmvc.transformer;
+
+import javassist.ClassPool;
+import javassist.CtClass;
+import org.springframework.util.FileSystemUtils;
+import org.testng.annotations.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class ClassFileWritePipelineTest {
+
+  private ClassPool pool = new ClassPool(true);
+
+  @Test
+  public void mustWriteEachDirtyClassOnce() throws Exception {
+    Path outputDir = Files.createTempDirectory("pipeline");
+    ClassFileWritePipeline pipeline = new ClassFileWritePipeline(outputDir.toString());
+    try {
+      CtClass ctClass = pool.makeClass("com.github.krr.springmvc.generated.WrittenOnce");
+      pipeline.markDirty(ctClass);
+      pipeline.markDirty(ctClass);
+      assertEquals(pipeline.getPendingCount(), 1);
+
+      pipeline.close();
+      Path classFile = outputDir.resolve("com/github/krr/springmvc/generated/WrittenOnce.class");
+      assertTrue(Files.exists(classFile));
+      assertEquals(pipeline.getFilesWritten(), 1);
+      assertEquals(pipeline.getBytesWritten(), Files.size(classFile));
+      // nothing is pending after the flush.
+      pipeline.flush();
+      assertEquals(pipeline.getFilesWritten(), 1);
+    }
+    finally {
+      FileSystemUtils.deleteRecursively(outputDir);
+    }
+  }
+
+  @Test
+  public void mustWriteBatchesOnBackgroundThread() throws Exception {
+    Path outputDir = Files.createTempDirectory("pipeline");
+    ClassFileWritePipeline pipeline = new ClassFileWritePipeline(outputDir.toString());
+    try {
+      pipeline.setAsyncWrites(true);
+      pipeline.setBatchSize(3);
+      for (int i = 0; i < 10; i++) {
+        pipeline.markDirty(pool.makeClass("com.github.krr.springmvc.generated.Batched" + i));
+      }
+      pipeline.flush();
+      assertEquals(pipeline.getFilesWritten(), 10);
+      for (int i = 0; i < 10; i++) {
+        assertTrue(Files.exists(outputDir.resolve("com/github/krr/springmvc/generated/Batched" + i + ".class")));
+      }
+      pipeline.close();
+    }
+    finally {
+      FileSystemUtils.deleteRecursively(outputDir);
+    }
+  }
+
+  @Test
+  public void mustAllowWrittenClassesToBeModifiedAgain() throws Exception {
+    Path outputDir = Files.createTempDirectory("pipeline");
+    ClassFileWritePipeline pipeline = new ClassFileWritePipeline(outputDir.toString());
+    try {
+      CtClass ctClass = pool.makeClass("com.github.krr.springmvc.generated.Rewritten");
+      pipeline.markDirty(ctClass);
+      pipeline.flush();
+
+      ctClass.setModifiers(ctClass.getModifiers() | javassist.Modifier.FINAL);
+      pipeline.markDirty(ctClass);
+      pipeline.close();
+      assertEquals(pipeline.getFilesWritten(), 2);
+    }
+    finally {
+      FileSystemUtils.deleteRecursively(outputDir);
+    }
+  }
+}
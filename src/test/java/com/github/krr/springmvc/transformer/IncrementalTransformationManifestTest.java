@@ -0,0 +1,190 @@
+package com.github.krr.springmvc.transformer;
+
+import javassist.ClassPool;
+import javassist.CtClass;
+import javassist.CtMethod;
+import javassist.bytecode.AnnotationsAttribute;
+import javassist.bytecode.ClassFile;
+import javassist.bytecode.ConstPool;
+import javassist.bytecode.annotation.Annotation;
+import javassist.bytecode.annotation.ArrayMemberValue;
+import javassist.bytecode.annotation.StringMemberValue;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.testng.annotations.Test;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Properties;
+
+import static org.testng.Assert.assertEquals;
+
+public class IncrementalTransformationManifestTest {
+
+  private static final String GENERATED_PACKAGE = "com.github.krr.springmvc.generated.incremental";
+
+  private static final String INTERFACE_NAME = GENERATED_PACKAGE + ".Api";
+
+  private static final String IMPLEMENTATION_NAME = GENERATED_PACKAGE + ".ApiImpl";
+
+  @Test
+  public void mustSkipUnchangedClassesAndRetransformImplementationsOfChangedInterfaces() throws Exception {
+    Path inputDir = Files.createTempDirectory("incremental-in");
+    Path outputDir = Files.createTempDirectory("incremental-out");
+    Path manifestFile = Files.createTempDirectory("incremental-manifest").resolve("manifest.properties");
+    try {
+      writeClasses(inputDir, "/v1");
+
+      // first build - everything is transformed.
+      JaxrsToSpringMvcTransformer transformer = createTransformer(manifestFile);
+      transformer.transform(inputDir.toString(), outputDir.toString());
+      assertEquals(transformer.getIncrementalManifest().getSkippedCount(), 0);
+      assertEquals(transformer.getIncrementalManifest().size(), 2);
+      assertEquals(getRequestMappingPath(outputDir), "/v1");
+
+      // nothing changed - nothing is transformed.
+      transformer = createTransformer(manifestFile);
+      transformer.transform(inputDir.toString(), outputDir.toString());
+      assertEquals(transformer.getIncrementalManifest().getSkippedCount(), 2);
+
+      // the interface changed - the implementation inherits its path so it must be transformed again.
+      writeClasses(inputDir, "/v2");
+      transformer = createTransformer(manifestFile);
+      transformer.transform(inputDir.toString(), outputDir.toString());
+      assertEquals(transformer.getIncrementalManifest().getSkippedCount(), 0);
+      assertEquals(getRequestMappingPath(outputDir), "/v2");
+    }
+    finally {
+      deleteDirectories(inputDir, outputDir, manifestFile.getParent());
+    }
+  }
+
+  @Test
+  public void mustTransformAgainWhenTransformedClassFileIsMissingOrChanged() throws Exception {
+    Path inputDir = Files.createTempDirectory("incremental-in");
+    Path outputDir = Files.createTempDirectory("incremental-out");
+    Path manifestFile = Files.createTempDirectory("incremental-manifest").resolve("manifest.properties");
+    try {
+      writeClasses(inputDir, "/v1");
+      createTransformer(manifestFile).transform(inputDir.toString(), outputDir.toString());
+
+      // the output directory was cleaned between builds.
+      FileSystemUtils.deleteRecursively(outputDir);
+      JaxrsToSpringMvcTransformer transformer = createTransformer(manifestFile);
+      transformer.transform(inputDir.toString(), outputDir.toString());
+      assertEquals(transformer.getIncrementalManifest().getSkippedCount(), 0);
+      assertEquals(getRequestMappingPath(outputDir), "/v1");
+
+      // the transformed implementation was overwritten with its original class file.
+      Path implementationFile = Paths.get(IMPLEMENTATION_NAME.replace('.', '/') + ".class");
+      Files.copy(inputDir.resolve(implementationFile), outputDir.resolve(implementationFile),
+                 StandardCopyOption.REPLACE_EXISTING);
+      transformer = createTransformer(manifestFile);
+      transformer.transform(inputDir.toString(), outputDir.toString());
+      assertEquals(transformer.getIncrementalManifest().getSkippedCount(), 1);
+      assertEquals(getRequestMappingPath(outputDir), "/v1");
+    }
+    finally {
+      deleteDirectories(inputDir, outputDir, manifestFile.getParent());
+    }
+  }
+
+  @Test
+  public void mustDiscardManifestRecordedByOtherVersionOrPackages() throws Exception {
+    Path inputDir = Files.createTempDirectory("incremental-in");
+    Path outputDir = Files.createTempDirectory("incremental-out");
+    Path manifestFile = Files.createTempDirectory("incremental-manifest").resolve("manifest.properties");
+    try {
+      writeClasses(inputDir, "/v1");
+      createTransformer(manifestFile).transform(inputDir.toString(), outputDir.toString());
+
+      // the packages to include changed.
+      JaxrsToSpringMvcTransformer transformer = createTransformer(manifestFile);
+      transformer.setPackagesToInclude(Arrays.asList(GENERATED_PACKAGE, "com.github.krr.springmvc.support"));
+      transformer.transform(inputDir.toString(), outputDir.toString());
+      assertEquals(transformer.getIncrementalManifest().getSkippedCount(), 0);
+
+      // the manifest was recorded by an older transformer.
+      createTransformer(manifestFile).transform(inputDir.toString(), outputDir.toString());
+      Properties manifest = new Properties();
+      try (InputStream inputStream = Files.newInputStream(manifestFile)) {
+        manifest.load(inputStream);
+      }
+      manifest.setProperty("@transformerVersion", "0.1/1");
+      try (OutputStream outputStream = Files.newOutputStream(manifestFile)) {
+        manifest.store(outputStream, null);
+      }
+      transformer = createTransformer(manifestFile);
+      transformer.transform(inputDir.toString(), outputDir.toString());
+      assertEquals(transformer.getIncrementalManifest().getSkippedCount(), 0);
+
+      // the manifest now holds the current version.
+      transformer = createTransformer(manifestFile);
+      transformer.transform(inputDir.toString(), outputDir.toString());
+      assertEquals(transformer.getIncrementalManifest().getSkippedCount(), 2);
+    }
+    finally {
+      deleteDirectories(inputDir, outputDir, manifestFile.getParent());
+    }
+  }
+
+  private static void deleteDirectories(Path... directories) throws IOException {
+    for (Path directory : directories) {
+      FileSystemUtils.deleteRecursively(directory);
+    }
+  }
+
+  private JaxrsToSpringMvcTransformer createTransformer(Path manifestFile) {
+    JaxrsToSpringMvcTransformer transformer = new JaxrsToSpringMvcTransformer();
+    Properties properties = new Properties();
+    properties.setProperty(JaxrsToSpringMvcTransformer.PACKAGES_TO_INCLUDE_KEY, GENERATED_PACKAGE);
+    properties.setProperty(JaxrsToSpringMvcTransformer.INCREMENTAL_MANIFEST_KEY, manifestFile.toString());
+    transformer.configure(properties);
+    return transformer;
+  }
+
+  /**
+   * Writes a JAX-RS interface with the specified path and an implementation class that inherits the path.  The
+   * implementation class file is the same whatever the path.
+   */
+  private void writeClasses(Path inputDir, String path) throws Exception {
+    ClassPool pool = new ClassPool(true);
+    CtClass api = pool.makeInterface(INTERFACE_NAME);
+    ConstPool constPool = api.getClassFile().getConstPool();
+    AnnotationsAttribute classAnnotations = new AnnotationsAttribute(constPool, AnnotationsAttribute.visibleTag);
+    Annotation pathAnnotation = new Annotation("javax.ws.rs.Path", constPool);
+    pathAnnotation.addMemberValue("value", new StringMemberValue(path, constPool));
+    classAnnotations.addAnnotation(pathAnnotation);
+    api.getClassFile().addAttribute(classAnnotations);
+    CtMethod get = CtMethod.make("public abstract String get();", api);
+    AnnotationsAttribute methodAnnotations = new AnnotationsAttribute(constPool, AnnotationsAttribute.visibleTag);
+    methodAnnotations.addAnnotation(new Annotation("javax.ws.rs.GET", constPool));
+    get.getMethodInfo().addAttribute(methodAnnotations);
+    api.addMethod(get);
+    api.writeFile(inputDir.toString());
+
+    CtClass implementation = pool.makeClass(IMPLEMENTATION_NAME);
+    implementation.addInterface(api);
+    implementation.addMethod(CtMethod.make("public String get() { return null; }", implementation));
+    implementation.writeFile(inputDir.toString());
+  }
+
+  private String getRequestMappingPath(Path outputDir) throws Exception {
+    Path classFile = outputDir.resolve(IMPLEMENTATION_NAME.replace('.', '/') + ".class");
+    try (InputStream inputStream = Files.newInputStream(classFile)) {
+      ClassFile implementation = new ClassFile(new DataInputStream(inputStream));
+      AnnotationsAttribute attribute = (AnnotationsAttribute) implementation.getAttribute(
+          AnnotationsAttribute.visibleTag);
+      Annotation requestMapping = attribute.getAnnotation(RequestMapping.class.getName());
+      return ((StringMemberValue) ((ArrayMemberValue) requestMapping.getMemberValue("value")).getValue()[0])
+          .getValue();
+    }
+  }
+}
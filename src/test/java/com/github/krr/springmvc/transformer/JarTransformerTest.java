@@ -0,0 +1,85 @@
+package com.github.krr.springmvc.transformer;
+
+import com.github.krr.springmvc.support.api.ClusterAdministration;
+import com.github.krr.springmvc.support.beans.ClassWithNoJaxrsAnnotationsAndNoInterfaces;
+import com.github.krr.springmvc.support.impl.ClusterAdministrationImpl;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.springframework.web.bind.annotation.RestController;
+import org.testng.annotations.Test;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static java.util.Collections.singletonList;
+import static org.testng.Assert.*;
+
+public class JarTransformerTest {
+
+  private static final String RESOURCE_NAME = "META-INF/resource.txt";
+
+  @Test
+  public void mustCopyUntouchedEntriesRawAndRewriteTransformedClasses() throws Exception {
+    Path inputJar = Files.createTempFile("input", ".jar");
+    Path outputJar = Files.createTempFile("output", ".jar");
+    try {
+      writeJar(inputJar);
+
+      JaxrsToSpringMvcTransformer transformer = new JaxrsToSpringMvcTransformer(singletonList("com.github.krr"));
+      JarTransformer.Result result = transformer.transformJar(inputJar.toString(), outputJar.toString());
+      assertEquals(result.getTransformedEntryCount(), 2);
+      assertEquals(result.getCopiedEntryCount(), 2);
+
+      try (ZipFile input = new ZipFile(inputJar.toFile()); ZipFile output = new ZipFile(outputJar.toFile())) {
+        // the compressed bytes of the untouched entries are the same
+        String untouchedClassName = getClassFileName(ClassWithNoJaxrsAnnotationsAndNoInterfaces.class);
+        for (String name : new String[]{RESOURCE_NAME, untouchedClassName}) {
+          assertEquals(readRaw(output, name), readRaw(input, name), name);
+          assertEquals(output.getEntry(name).getCrc(), input.getEntry(name).getCrc());
+        }
+        String implName = getClassFileName(ClusterAdministrationImpl.class);
+        String transformedImpl;
+        try (InputStream inputStream = output.getInputStream(output.getEntry(implName))) {
+          transformedImpl = new String(ClassHierarchyHasher.readFully(inputStream), StandardCharsets.ISO_8859_1);
+        }
+        assertTrue(transformedImpl.contains(RestController.class.getName().replace('.', '/')));
+      }
+    }
+    finally {
+      Files.deleteIfExists(inputJar);
+      Files.deleteIfExists(outputJar);
+    }
+  }
+
+  private void writeJar(Path jar) throws Exception {
+    Path classesDir = Paths.get(ClusterAdministrationImpl.class.getProtectionDomain().getCodeSource().getLocation()
+                                                               .toURI());
+    try (ZipArchiveOutputStream outputStream = new ZipArchiveOutputStream(jar.toFile())) {
+      ZipArchiveEntry resourceEntry = new ZipArchiveEntry(RESOURCE_NAME);
+      outputStream.putArchiveEntry(resourceEntry);
+      outputStream.write("not a class file, not transformed".getBytes(StandardCharsets.UTF_8));
+      outputStream.closeArchiveEntry();
+      for (Class<?> type : new Class<?>[]{ClusterAdministration.class, ClusterAdministrationImpl.class,
+                                          ClassWithNoJaxrsAnnotationsAndNoInterfaces.class}) {
+        String name = getClassFileName(type);
+        outputStream.putArchiveEntry(new ZipArchiveEntry(name));
+        outputStream.write(Files.readAllBytes(classesDir.resolve(name)));
+        outputStream.closeArchiveEntry();
+      }
+    }
+  }
+
+  private static byte[] readRaw(ZipFile zipFile, String name) throws Exception {
+    try (InputStream inputStream = zipFile.getRawInputStream(zipFile.getEntry(name))) {
+      return ClassHierarchyHasher.readFully(inputStream);
+    }
+  }
+
+  private static String getClassFileName(Class<?> type) {
+    return type.getName().replace('.', '/') + ".class";
+  }
+}
@@ -0,0 +1,48 @@
+package com.github.krr.springmvc.transformer;
+
+import com.github.krr.springmvc.support.api.ClusterAdministration;
+import com.github.krr.springmvc.support.beans.ClassWithNoJaxrsAnnotationsAndNoInterfaces;
+import com.github.krr.springmvc.support.beans.SubclassWithPathAnnotationInSuperclassesInterface;
+import com.github.krr.springmvc.support.impl.ClusterAdministrationImpl;
+import javassist.ClassPool;
+import org.testng.annotations.Test;
+
+import java.io.InputStream;
+
+import static org.testng.Assert.*;
+
+public class JaxrsClassPrefilterTest {
+
+  @Test
+  public void mustAcceptClassesReferringToJaxrsInTheirHierarchy() {
+    JaxrsClassPrefilter prefilter = new JaxrsClassPrefilter(new ClassPool(true));
+    assertTrue(prefilter.mayNeedTransformation(ClusterAdministrationImpl.class.getName()));
+    // only the interface of the superclass refers to JaxRs
+    assertTrue(prefilter.mayNeedTransformation(SubclassWithPathAnnotationInSuperclassesInterface.class.getName()));
+    assertFalse(prefilter.mayNeedTransformation(ClassWithNoJaxrsAnnotationsAndNoInterfaces.class.getName()));
+    assertFalse(prefilter.mayNeedTransformation(String.class.getName()));
+
+    assertEquals(prefilter.getScannedCount(), 4);
+    assertEquals(prefilter.getRejectedCount(), 2);
+    assertEquals(prefilter.getRejectionRate(), 0.5);
+  }
+
+  @Test
+  public void mustReadClassFileHeaders() throws Exception {
+    ClassFileHeader header;
+    String classFileName = "/" + ClusterAdministrationImpl.class.getName().replace('.', '/') + ".class";
+    try (InputStream inputStream = getClass().getResourceAsStream(classFileName)) {
+      header = ClassFileHeader.read(ClassHierarchyHasher.readFully(inputStream));
+    }
+    assertEquals(header.getClassName(), ClusterAdministrationImpl.class.getName());
+    assertEquals(header.getSuperclassName(), Object.class.getName());
+    assertTrue(header.getInterfaceNames().contains(ClusterAdministration.class.getName()));
+    assertFalse(header.isInterface());
+    assertTrue(header.containsInStringConstants("javax/ws/rs/".getBytes("UTF-8")));
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void mustRejectInvalidClassFiles() {
+    ClassFileHeader.read(new byte[]{1, 2, 3, 4, 5, 6, 7, 8});
+  }
+}
@@ -1,25 +1,44 @@
 package com.github.krr.springmvc.transformer;
 
+import com.github.krr.springmvc.support.api.EventAdministration;
+import com.github.krr.springmvc.support.api.ExportAdministration;
 import com.github.krr.springmvc.support.api.InterfaceOnSuperclass;
+import com.github.krr.springmvc.support.api.NodeAdministration;
 import com.github.krr.springmvc.support.beans.BaseClassWithPathAnnotation;
+import com.github.krr.springmvc.support.impl.NodeAdministrationImpl;
 import javassist.ClassPool;
 import javassist.CtClass;
+import javassist.CtMethod;
 import javassist.Loader;
+import javassist.bytecode.ParameterAnnotationsAttribute;
 import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.FileSystemUtils;
 import org.springframework.util.ReflectionUtils;
-import org.springframework.web.bind.annotation.PathVariable;
-import org.springframework.web.bind.annotation.RequestMapping;
-import org.springframework.web.bind.annotation.RequestMethod;
-import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
+import javax.ws.rs.container.AsyncResponse;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.Map;
 import java.util.Properties;
 import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 import static com.github.krr.springmvc.support.api.ClusterAdministration.CLUSTER_URI_BASE_PATH;
 import static com.github.krr.springmvc.support.beans.BaseClassWithPathAnnotation.*;
@@ -28,6 +47,8 @@ import static com.github.krr.springmvc.support.beans.SubclassWithPathAnnotationI
 import static java.util.Collections.singletonList;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertTrue;
 
 /**
  * The Java class loader will not let a class to be loaded twice.  Since
@@ -41,6 +62,8 @@ public class JaxrsToSpringMvcTransformerTest {
 
   private static final String BASE_PACKAGE_NAME = "com.github.krr";
 
+  private static final String SUPPORT_PACKAGE_NAME = "com.github.krr.springmvc.support";
+
   @Test
   public void mustAnnotateJaxrsInterfaceToSpringMvcInImplementation() throws Exception {
 
@@ -135,6 +158,89 @@ public class JaxrsToSpringMvcTransformerTest {
 
   }
 
+  @Test
+  public void mustTranslateParameterAnnotationsOfSuperclassOnce() throws Exception {
+    Path inputDir = Paths.get(BaseClassWithPathAnnotation.class.getProtectionDomain().getCodeSource().getLocation()
+                                                               .toURI());
+    Path outputDir = Files.createTempDirectory("superclass-once");
+    try {
+      // the superclass is transformed for itself and for its subclass
+      new JaxrsToSpringMvcTransformer(singletonList(SUPPORT_PACKAGE_NAME)).transform(inputDir.toString(),
+                                                                                     outputDir.toString());
+
+      Path classFile = outputDir.resolve(BaseClassWithPathAnnotation.class.getName().replace('.', '/') + ".class");
+      CtClass baseClass = new ClassPool(true).makeClass(new ByteArrayInputStream(Files.readAllBytes(classFile)));
+      CtMethod method = baseClass.getDeclaredMethod(METHOD_WITH_PARAMETER_ANNOTATION_IN_BASE_CLASS);
+      ParameterAnnotationsAttribute attribute = (ParameterAnnotationsAttribute)
+          method.getMethodInfo().getAttribute(ParameterAnnotationsAttribute.visibleTag);
+      long pathVariableCount = Arrays.stream(attribute.getAnnotations()[0])
+                                     .filter(a -> a.getTypeName().equals(PathVariable.class.getName()))
+                                     .count();
+      assertEquals(pathVariableCount, 1);
+    }
+    finally {
+      FileSystemUtils.deleteRecursively(outputDir);
+    }
+  }
+
+  @Test
+  public void mustWriteEachTransformedClassOnce() throws Exception {
+    Path inputDir = Paths.get(BaseClassWithPathAnnotation.class.getProtectionDomain().getCodeSource().getLocation()
+                                                               .toURI());
+    Path outputDir = Files.createTempDirectory("written-once");
+    try {
+      JaxrsToSpringMvcTransformer transformer = new JaxrsToSpringMvcTransformer(singletonList(SUPPORT_PACKAGE_NAME));
+      transformer.setRouteManifestEnabled(false);
+      transformer.setHandlerInvokersEnabled(false);
+      transformer.transform(inputDir.toString(), outputDir.toString());
+
+      long classFileCount;
+      try (Stream<Path> files = Files.walk(outputDir)) {
+        classFileCount = files.filter(file -> file.toString().endsWith(".class")).count();
+      }
+      TransformationMetrics metrics = transformer.getMetrics();
+      assertTrue(metrics.get(TransformationMetrics.Counter.CLASSES_TRANSFORMED) > 0);
+      // every file in the output directory was written by the pipeline, and written once
+      assertEquals(metrics.get(TransformationMetrics.Counter.FILES_WRITTEN), classFileCount);
+      assertEquals(transformer.getClassFileWritePipeline().getFilesWritten(), classFileCount);
+    }
+    finally {
+      FileSystemUtils.deleteRecursively(outputDir);
+    }
+  }
+
+  @Test
+  public void mustMapOverriddenMethodsOfInterfaceOutsideInputDirectory() throws Exception {
+    // only the implementation is transformed - its interface is on the class path, as if it came from an API jar
+    Path classesDir = Paths.get(NodeAdministrationImpl.class.getProtectionDomain().getCodeSource().getLocation()
+                                                            .toURI());
+    String classFileName = NodeAdministrationImpl.class.getName().replace('.', '/') + ".class";
+    Path inputDir = Files.createTempDirectory("implementation");
+    Path outputDir = Files.createTempDirectory("implementation-transformed");
+    try {
+      Path inputClassFile = inputDir.resolve(classFileName);
+      Files.createDirectories(inputClassFile.getParent());
+      Files.copy(classesDir.resolve(classFileName), inputClassFile);
+      JaxrsToSpringMvcTransformer transformer = new JaxrsToSpringMvcTransformer(singletonList(SUPPORT_PACKAGE_NAME));
+      transformer.setRouteManifestEnabled(false);
+      transformer.setHandlerInvokersEnabled(false);
+      transformer.transform(inputDir.toString(), outputDir.toString());
+
+      // the interface is written with the mapping of the methods the implementation overrides
+      Path interfaceClassFile = outputDir.resolve(NodeAdministration.class.getName().replace('.', '/') + ".class");
+      assertTrue(Files.exists(interfaceClassFile));
+      CtClass transformedInterface;
+      try (InputStream inputStream = Files.newInputStream(interfaceClassFile)) {
+        transformedInterface = new ClassPool(true).makeClass(inputStream);
+      }
+      assertTrue(transformedInterface.getDeclaredMethod("getEvents").hasAnnotation(RequestMapping.class.getName()));
+    }
+    finally {
+      FileSystemUtils.deleteRecursively(inputDir);
+      FileSystemUtils.deleteRecursively(outputDir);
+    }
+  }
+
   @SuppressWarnings("unchecked")
   @Test
   public void mustProcessJaxrsAnnotationsOnInterfaceClasses() throws Exception {
@@ -181,6 +287,149 @@ public class JaxrsToSpringMvcTransformerTest {
     checkHttpMethod(loader, methods, RequestMethod.GET.name());
   }
 
+  @Test
+  public void mustTranslateEveryJaxrsParameterAnnotation() throws Exception {
+    JaxrsToSpringMvcTransformer transformer = new JaxrsToSpringMvcTransformer(singletonList(BASE_PACKAGE_NAME));
+    ClassPool pool = ClassPool.getDefault();
+    ClassLoader loader = new Loader(ClassLoader.getSystemClassLoader(), pool);
+
+    CtClass cc = pool.get(NodeAdministration.class.getName());
+    transformer.applyTransformations(cc);
+
+    //assertions.
+    Class clazz = cc.toClass(loader, null);
+    Method getDisks = ReflectionUtils.findMethod(clazz, "getDisks", (Class[]) null);
+    assertNotNull(getDisks);
+    Annotation[][] parameterAnnotations = getDisks.getParameterAnnotations();
+    assertEquals(getAttributes(parameterAnnotations[0], PathVariable.class).get("value"), "id");
+    Map<String, Object> matrixVariable = getAttributes(parameterAnnotations[1], MatrixVariable.class);
+    assertEquals(matrixVariable.get("value"), "type");
+    assertEquals(matrixVariable.get("required"), false);
+    Map<String, Object> requestHeader = getAttributes(parameterAnnotations[2], RequestHeader.class);
+    assertEquals(requestHeader.get("value"), "X-Request-Id");
+    assertEquals(requestHeader.get("required"), false);
+    assertEquals(getAttributes(parameterAnnotations[3], CookieValue.class).get("value"), "session");
+    Map<String, Object> requestParam = getAttributes(parameterAnnotations[4], RequestParam.class);
+    assertEquals(requestParam.get("value"), "limit");
+    assertEquals(requestParam.get("defaultValue"), "10");
+
+    // a missing value is injected as 0 or false in a primitive parameter, as JAX-RS does
+    Method getEvents = ReflectionUtils.findMethod(clazz, "getEvents", (Class[]) null);
+    assertNotNull(getEvents);
+    parameterAnnotations = getEvents.getParameterAnnotations();
+    Map<String, Object> page = getAttributes(parameterAnnotations[1], RequestParam.class);
+    assertEquals(page.get("required"), false);
+    assertEquals(page.get("defaultValue"), "0");
+    assertEquals(getAttributes(parameterAnnotations[2], RequestParam.class).get("defaultValue"), "false");
+
+    Method addNode = ReflectionUtils.findMethod(clazz, "addNode", (Class[]) null);
+    assertNotNull(addNode);
+    parameterAnnotations = addNode.getParameterAnnotations();
+    assertEquals(getAttributes(parameterAnnotations[0], RequestParam.class).get("value"), "name");
+    assertNotNull(getAttributes(parameterAnnotations[1], ModelAttribute.class));
+  }
+
+  @Test
+  public void mustBridgeSuspendedAsyncResponseMethodToDeferredResult() throws Exception {
+    JaxrsToSpringMvcTransformer transformer = new JaxrsToSpringMvcTransformer(singletonList(BASE_PACKAGE_NAME));
+    ClassPool pool = ClassPool.getDefault();
+    Loader loader = new Loader(ClassLoader.getSystemClassLoader(), pool);
+    // the deferred result and the logging it uses are loaded once
+    loader.delegateLoadingOf("org.springframework.");
+    loader.delegateLoadingOf("org.apache.");
+    loader.delegateLoadingOf("org.slf4j.");
+    loader.delegateLoadingOf("com.github.krr.springmvc.async.");
+
+    CtClass cc = pool.get(EventAdministration.class.getName());
+    transformer.applyTransformations(cc);
+
+    //assertions.
+    Class<?> clazz = cc.toClass(loader, null);
+    Method poll = clazz.getMethod("poll", String.class, AsyncResponse.class);
+    for (Annotation annotation : poll.getDeclaredAnnotations()) {
+      assertNotEquals(annotation.annotationType().getName(), RequestMapping.class.getName());
+    }
+    Method bridge = clazz.getMethod("poll", String.class);
+    assertEquals(bridge.getReturnType().getName(), DeferredResult.class.getName());
+    Map<String, Object> requestMapping = getAttributes(bridge.getDeclaredAnnotations(), RequestMapping.class);
+    assertEquals(((String[]) requestMapping.get("value"))[0], "/{id}");
+    Annotation[][] parameterAnnotations = bridge.getParameterAnnotations();
+    assertEquals(parameterAnnotations.length, 1);
+    assertEquals(getAttributes(parameterAnnotations[0], PathVariable.class).get("value"), "id");
+
+    // the bridge returns the deferred result of the response passed to the method
+    Object events = loader.loadClass(ImmediateEventAdministration.class.getName()).newInstance();
+    DeferredResult<?> deferredResult = (DeferredResult<?>) bridge.invoke(events, "42");
+    assertEquals(deferredResult.getResult(), "event 42");
+  }
+
+  public static class ImmediateEventAdministration implements EventAdministration {
+
+    @Override
+    public void poll(String id, AsyncResponse asyncResponse) {
+      asyncResponse.resume("event " + id);
+    }
+  }
+
+  @Test
+  public void mustBridgeStreamingOutputAndResponseMethods() throws Exception {
+    JaxrsToSpringMvcTransformer transformer = new JaxrsToSpringMvcTransformer(singletonList(BASE_PACKAGE_NAME));
+    ClassPool pool = ClassPool.getDefault();
+    Loader loader = new Loader(ClassLoader.getSystemClassLoader(), pool);
+    loader.delegateLoadingOf("org.springframework.");
+    loader.delegateLoadingOf("org.apache.");
+    loader.delegateLoadingOf("org.slf4j.");
+    loader.delegateLoadingOf("com.github.krr.springmvc.response.");
+
+    CtClass cc = pool.get(ExportAdministration.class.getName());
+    transformer.applyTransformations(cc);
+
+    //assertions.
+    Class<?> clazz = cc.toClass(loader, null);
+    Method export = clazz.getMethod("exportStreaming", String.class);
+    assertEquals(export.getReturnType(), StreamingResponseBody.class);
+    Map<String, Object> requestMapping = getAttributes(export.getDeclaredAnnotations(), RequestMapping.class);
+    assertEquals(((String[]) requestMapping.get("value"))[0], "/{id}");
+    assertEquals(getAttributes(export.getParameterAnnotations()[0], PathVariable.class).get("value"), "id");
+    Method getStatus = clazz.getMethod("getStatusEntity", String.class);
+    assertEquals(getStatus.getReturnType(), ResponseEntity.class);
+    requestMapping = getAttributes(getStatus.getDeclaredAnnotations(), RequestMapping.class);
+    assertEquals(((String[]) requestMapping.get("value"))[0], "/{id}/status");
+
+    // the bridge writes the output of the method
+    Object exports = loader.loadClass(EchoExportAdministration.class.getName()).newInstance();
+    StreamingResponseBody body = (StreamingResponseBody) export.invoke(exports, "42");
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    body.writeTo(outputStream);
+    assertEquals(new String(outputStream.toByteArray(), StandardCharsets.UTF_8), "export 42");
+    Assert.assertNull(getStatus.invoke(exports, "42"));
+  }
+
+  public static class EchoExportAdministration implements ExportAdministration {
+
+    @Override
+    public StreamingOutput export(String id) {
+      return outputStream -> outputStream.write(("export " + id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public Response getStatus(String id) {
+      return null;
+    }
+  }
+
+  /**
+   * @return the attributes of the annotation of the type, which is loaded by another class loader.
+   */
+  private static Map<String, Object> getAttributes(Annotation[] annotations, Class<?> annotationType) {
+    for (Annotation annotation : annotations) {
+      if (annotation.annotationType().getName().equals(annotationType.getName())) {
+        return AnnotationUtils.getAnnotationAttributes(annotation);
+      }
+    }
+    throw new AssertionError("No " + annotationType.getSimpleName() + " annotation");
+  }
+
   private void checkHttpMethod(ClassLoader loader, Object method, String expectedMethod) throws ClassNotFoundException {
     Class rmethodClass = Class.forName("[L".concat(RequestMethod.class.getName()).concat(";"), true, loader);
     assertNotNull(method);
@@ -0,0 +1,99 @@
+package com.github.krr.springmvc.transformer;
+
+import com.github.krr.springmvc.support.api.ClusterAdministration;
+import com.github.krr.springmvc.support.api.InterfaceOnSuperclass;
+import com.github.krr.springmvc.support.beans.BaseClassWithPathAnnotation;
+import com.github.krr.springmvc.support.beans.SubclassWithPathAnnotationInSuperclass;
+import com.github.krr.springmvc.support.beans.SubclassWithPathAnnotationInSuperclassesInterface;
+import com.github.krr.springmvc.support.impl.ClusterAdministrationImpl;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.web.bind.annotation.RestController;
+import org.testng.annotations.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+import static java.util.Collections.singletonList;
+import static org.testng.Assert.*;
+
+public class ParallelTransformationEngineTest {
+
+  private static final List<String> CLASS_NAMES = Arrays.asList(ClusterAdministration.class.getName(),
+                                                                ClusterAdministrationImpl.class.getName(),
+                                                                InterfaceOnSuperclass.class.getName(),
+                                                                SubclassWithPathAnnotationInSuperclass.class.getName(),
+                                                                BaseClassWithPathAnnotation.class.getName(),
+                                                                SubclassWithPathAnnotationInSuperclassesInterface.class
+                                                                    .getName());
+
+  @Test
+  public void mustProduceSameBytesAsSequentialTransformation() throws Exception {
+    Path classesDir = Paths.get(ClusterAdministrationImpl.class.getProtectionDomain().getCodeSource().getLocation()
+                                                               .toURI());
+    // the input directory holds only the classes the engine is asked to transform
+    Path inputDir = Files.createTempDirectory("parallel-input");
+    try {
+      for (String className : CLASS_NAMES) {
+        String classFileName = className.replace('.', '/') + ".class";
+        Path classFile = inputDir.resolve(classFileName);
+        Files.createDirectories(classFile.getParent());
+        Files.copy(classesDir.resolve(classFileName), classFile);
+      }
+      Map<String, byte[]> sequentialOutput = transform(inputDir.toString(), 0);
+      Map<String, byte[]> parallelOutput = transform(inputDir.toString(), 4);
+
+      byte[] implBytes = sequentialOutput.get("com/github/krr/springmvc/support/impl/ClusterAdministrationImpl.class");
+      assertNotNull(implBytes);
+      assertTrue(new String(implBytes, StandardCharsets.ISO_8859_1).contains(RestController.class.getName()
+                                                                                                 .replace('.', '/')));
+      assertEquals(parallelOutput.keySet(), sequentialOutput.keySet());
+      sequentialOutput.forEach((name, bytes) -> assertEquals(parallelOutput.get(name), bytes, name));
+    }
+    finally {
+      FileSystemUtils.deleteRecursively(inputDir);
+    }
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void mustRejectInvalidParallelism() {
+    new ParallelTransformationEngine(new JaxrsToSpringMvcTransformer(), 0);
+  }
+
+  /**
+   * @param parallelism - the parallelism of the engine, or 0 to transform the input directory sequentially
+   */
+  private Map<String, byte[]> transform(String inputDir, int parallelism) throws Exception {
+    Path outputDir = Files.createTempDirectory("parallel");
+    try {
+      JaxrsToSpringMvcTransformer transformer = new JaxrsToSpringMvcTransformer(singletonList("com.github.krr"));
+      if (parallelism == 0) {
+        transformer.transform(inputDir, outputDir.toString());
+      }
+      else {
+        ParallelTransformationEngine engine = new ParallelTransformationEngine(transformer, parallelism);
+        engine.setSplitThreshold(1);
+        engine.transform(inputDir, outputDir.toString(), CLASS_NAMES);
+      }
+      transformer.close();
+
+      Map<String, byte[]> output = new TreeMap<>();
+      try (Stream<Path> files = Files.walk(outputDir)) {
+        for (Path file : (Iterable<Path>) files.filter(Files::isRegularFile)::iterator) {
+          output.put(outputDir.relativize(file).toString().replace('\\', '/'), Files.readAllBytes(file));
+        }
+      }
+      assertFalse(output.isEmpty());
+      return output;
+    }
+    finally {
+      FileSystemUtils.deleteRecursively(outputDir);
+    }
+  }
+}
@@ -0,0 +1,65 @@
+package com.github.krr.springmvc.transformer;
+
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class PathTemplateConverterTest {
+
+  @DataProvider
+  public Object[][] templates() {
+    return new Object[][]{
+        {"/cluster", "/cluster"},
+        {"cluster/", "/cluster"},
+        {"/", "/"},
+        {"", ""},
+        {"//cluster//nodes/", "/cluster/nodes"},
+        {"/nodes/{ id }", "/nodes/{id}"},
+        {"/nodes/{id: [^/]+ }", "/nodes/{id}"},
+        {"/nfs_whitelist/{name:.+}", "/nfs_whitelist/{name:.+}"},
+        {"/nodes/{ id : \\d{3} }/disks", "/nodes/{id:\\d{3}}/disks"},
+        {"/nodes/{id", "/nodes/{id"},
+    };
+  }
+
+  @Test(dataProvider = "templates")
+  public void mustConvertJaxrsTemplates(String jaxrsTemplate, String expectedPattern) {
+    assertEquals(PathTemplateConverter.toSpringPattern(jaxrsTemplate), expectedPattern);
+  }
+
+  @Test
+  public void mustFlagPatternsMatchedWithRegex() {
+    assertTrue(PathTemplateConverter.requiresRegex("/nfs_whitelist/{name:.+}"));
+    assertTrue(PathTemplateConverter.requiresRegex("/nodes/{id:\\d{3}}/disks"));
+    assertTrue(PathTemplateConverter.requiresRegex("/nodes/*"));
+    assertFalse(PathTemplateConverter.requiresRegex("/nodes/{id}/disks"));
+    assertFalse(PathTemplateConverter.requiresRegex("/"));
+  }
+
+  @DataProvider
+  public Object[][] variableRegexes() {
+    return new Object[][]{
+        {".+", true},
+        {".*", true},
+        {"\\S+", true},
+        {"\\W", true},
+        {"a/b", true},
+        {"[a-z/]+", true},
+        {"[!-~]+", true},
+        {"[^a-z]+", true},
+        {"[^/]*", false},
+        {"[^/.]+", false},
+        {"\\d{3}", false},
+        {"[a-z.]+", false},
+        {"\\.json", false},
+    };
+  }
+
+  @Test(dataProvider = "variableRegexes")
+  public void mustDetectRegexesMatchingSlash(String regex, boolean matchesSlash) {
+    assertEquals(PathTemplateConverter.canMatchSeparator(regex), matchesSlash, regex);
+  }
+}
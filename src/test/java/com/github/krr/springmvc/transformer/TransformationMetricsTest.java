@@ -0,0 +1,93 @@
+package com.github.krr.springmvc.transformer;
+
+import com.github.krr.springmvc.support.impl.ClusterAdministrationImpl;
+import org.testng.annotations.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Properties;
+
+import static com.github.krr.springmvc.transformer.TransformationMetrics.Counter.*;
+import static com.github.krr.springmvc.transformer.TransformationMetrics.Phase.*;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.stream.Collectors.toList;
+import static org.testng.Assert.*;
+
+public class TransformationMetricsTest {
+
+  @Test
+  public void mustWriteMetricsReportAtTheEndOfTheSession() throws Exception {
+    Path inputDir = Paths.get(ClusterAdministrationImpl.class.getProtectionDomain().getCodeSource().getLocation()
+                                                             .toURI());
+    Path outputDir = Files.createTempDirectory("metrics");
+    Path reportFile = outputDir.resolve("reports/metrics.json");
+    JaxrsToSpringMvcTransformer transformer = new JaxrsToSpringMvcTransformer();
+    Properties properties = new Properties();
+    properties.setProperty(JaxrsToSpringMvcTransformer.PACKAGES_TO_INCLUDE_KEY, "com.github.krr.springmvc.support");
+    properties.setProperty(JaxrsToSpringMvcTransformer.METRICS_REPORT_KEY, reportFile.toString());
+    transformer.configure(properties);
+    transformer.transform(inputDir.toString(), outputDir.toString());
+
+    TransformationMetrics metrics = transformer.getMetrics();
+    assertTrue(metrics.get(CLASSES_TRANSFORMED) > 0);
+    assertTrue(metrics.get(CLASSES_SKIPPED) > 0);
+    assertEquals(metrics.get(CLASSES_SCANNED), metrics.get(CLASSES_TRANSFORMED) + metrics.get(CLASSES_SKIPPED) +
+                                               metrics.get(CLASSES_CACHED) + metrics.get(CLASSES_FAILED));
+    assertTrue(metrics.get(METHODS_MAPPED) >= 5);
+    assertTrue(metrics.get(MAX_SUPERTYPES_WALKED) > 0);
+    assertTrue(metrics.get(BYTES_WRITTEN) > 0);
+    assertEquals(metrics.getPhaseCount(APPLY_TRANSFORMATIONS), metrics.getPhaseCount(PLAN));
+    assertEquals(metrics.getPhaseCount(WRITE), 1);
+    assertTrue(metrics.getPhaseNanos(PLAN) > 0);
+
+    assertEquals(new String(Files.readAllBytes(reportFile), UTF_8), metrics.toJson());
+  }
+
+  @Test
+  public void mustReportPhasesAndCountersAsJson() {
+    TransformationMetrics metrics = new TransformationMetrics();
+    metrics.add(CLASSES_SCANNED, 3);
+    metrics.recordSupertypesWalked(4);
+    metrics.recordSupertypesWalked(2);
+    metrics.stop(PLAN, metrics.start());
+
+    String json = metrics.toJson();
+    assertTrue(json.startsWith("{\"startTime\":"));
+    assertTrue(json.contains("\"plan\":{\"count\":1,\"totalNanos\":"));
+    assertTrue(json.contains("\"write\":{\"count\":0,\"totalNanos\":0,\"maxNanos\":0}"));
+    assertTrue(json.contains("\"classesScanned\":3,"));
+    assertTrue(json.contains("\"supertypesWalked\":6,\"maxSupertypesWalked\":4,"));
+    assertTrue(json.endsWith("\"bytesAfterCompaction\":0}}"));
+
+    metrics.reset();
+    assertEquals(metrics.get(CLASSES_SCANNED), 0);
+    assertEquals(metrics.getPhaseCount(PLAN), 0);
+  }
+
+  @Test
+  public void mustLeaveHeapPeaksAloneWithoutPeakHeapTracking() {
+    List<MemoryPoolMXBean> heapPools = ManagementFactory.getMemoryPoolMXBeans().stream()
+        .filter(pool -> pool.getType() == MemoryType.HEAP && pool.isValid())
+        .collect(toList());
+    long peakHeap = getPeakHeap(heapPools);
+    assertTrue(peakHeap > 0);
+    TransformationMetrics metrics = new TransformationMetrics();
+    metrics.reset();
+    assertTrue(getPeakHeap(heapPools) >= peakHeap);
+    assertEquals(metrics.recordPeakHeap(), 0);
+    assertEquals(metrics.get(PEAK_HEAP_BYTES), 0);
+
+    metrics.setPeakHeapTracking(true);
+    metrics.reset();
+    assertTrue(metrics.recordPeakHeap() > 0);
+  }
+
+  private static long getPeakHeap(List<MemoryPoolMXBean> heapPools) {
+    return heapPools.stream().mapToLong(pool -> pool.getPeakUsage().getUsed()).sum();
+  }
+}
@@ -0,0 +1,77 @@
+package com.github.krr.springmvc.transformer;
+
+import com.github.krr.springmvc.support.impl.ClusterAdministrationImpl;
+import javassist.ClassPool;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.util.FileSystemUtils;
+import org.testng.annotations.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static java.util.Collections.singletonList;
+import static org.testng.Assert.*;
+
+public class TransformedClassCacheTest {
+
+  @Test
+  public void mustEvictLeastRecentlyUsedEntries() throws Exception {
+    Path cacheDir = Files.createTempDirectory("class-cache");
+    TransformedClassCache cache = new TransformedClassCache(cacheDir, 250);
+    try {
+      cache.put("aa01", new byte[100]);
+      cache.put("bb02", new byte[100]);
+      assertNotNull(cache.get("aa01"));
+      cache.put("cc03", new byte[100]);
+
+      assertEquals(cache.getEvictionCount(), 1);
+      assertNull(cache.get("bb02"));
+      assertNotNull(cache.get("aa01"));
+      assertNotNull(cache.get("cc03"));
+      assertEquals(cache.getTotalSize(), 200);
+
+      // a store opened on the same directory sees the same entries.
+      TransformedClassCache reopenedCache = new TransformedClassCache(cache.getDirectory(), 250);
+      assertEquals(reopenedCache.size(), 2);
+      assertEquals(reopenedCache.get("aa01").length, 100);
+    }
+    finally {
+      FileSystemUtils.deleteRecursively(cacheDir);
+    }
+  }
+
+  @Test
+  public void mustReuseTransformedClassFiles() throws Exception {
+    Path inputDir = Paths.get(ClusterAdministrationImpl.class.getProtectionDomain().getCodeSource().getLocation()
+                                                             .toURI());
+    byte[] classFile = Files.readAllBytes(inputDir.resolve(
+        ClusterAdministrationImpl.class.getName().replace('.', '/') + ".class"));
+    Path cacheDir = Files.createTempDirectory("class-cache");
+    try {
+      JaxrsToSpringMvcTransformer transformer = new JaxrsToSpringMvcTransformer(singletonList("com.github.krr"));
+      transformer.setTransformedClassCache(new TransformedClassCache(cacheDir));
+      byte[] transformedClassFile = transformer.transformClassFile(new ClassPool(true), classFile);
+      assertNotNull(transformedClassFile);
+      assertTrue(new String(transformedClassFile, StandardCharsets.ISO_8859_1)
+                     .contains(RestController.class.getName().replace('.', '/')));
+      assertEquals(transformer.getTransformedClassCache().getMissCount(), 1);
+
+      // another build sharing the directory gets the same bytes from the cache.
+      JaxrsToSpringMvcTransformer otherTransformer = new JaxrsToSpringMvcTransformer(singletonList("com.github.krr"));
+      otherTransformer.setTransformedClassCache(new TransformedClassCache(cacheDir));
+      assertEquals(otherTransformer.transformClassFile(new ClassPool(true), classFile), transformedClassFile);
+      assertEquals(otherTransformer.getTransformedClassCache().getHitCount(), 1);
+
+      // a different configuration is a different entry.
+      JaxrsToSpringMvcTransformer excludingTransformer = new JaxrsToSpringMvcTransformer(singletonList("org.example"));
+      excludingTransformer.setTransformedClassCache(new TransformedClassCache(cacheDir));
+      excludingTransformer.transformClassFile(new ClassPool(true), classFile);
+      assertEquals(excludingTransformer.getTransformedClassCache().getHitCount(), 0);
+    }
+    finally {
+      FileSystemUtils.deleteRecursively(cacheDir);
+    }
+  }
+}
@@ -0,0 +1,148 @@
+package com.github.krr.springmvc.transformer;
+
+import com.github.krr.springmvc.javassist.beans.AnnotationDescriptor;
+import com.github.krr.springmvc.javassist.utils.CtClassUtils;
+import com.github.krr.springmvc.javassist.utils.JaxrsAnnotations;
+import com.github.krr.springmvc.javassist.utils.PackageSelector;
+import com.github.krr.springmvc.support.api.InterfaceOnSuperclass;
+import com.github.krr.springmvc.support.beans.BaseClassWithPathAnnotation;
+import com.github.krr.springmvc.support.beans.ClassWithNoJaxrsAnnotationsAndNoInterfaces;
+import com.github.krr.springmvc.support.beans.SubclassWithPathAnnotationInSuperclass;
+import com.github.krr.springmvc.support.beans.SubclassWithPathAnnotationInSuperclassesInterface;
+import javassist.ClassPool;
+import javassist.CtClass;
+import org.springframework.util.FileSystemUtils;
+import org.testng.annotations.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+
+import static java.util.Collections.singletonList;
+import static java.util.stream.Collectors.toList;
+import static org.testng.Assert.*;
+
+public class TypeHierarchyIndexTest {
+
+  private static final PackageSelector SUPPORT_PACKAGES = PackageSelector.compile(
+      singletonList("com.github.krr.springmvc.support"));
+
+  @Test
+  public void mustFindTheAnnotationsCtClassUtilsFinds() throws Exception {
+    List<String> classNames = listSupportClasses();
+    ClassPool classPool = new ClassPool(true);
+    TypeHierarchyIndex index = TypeHierarchyIndex.build(classPool, classNames, SUPPORT_PACKAGES,
+                                                        JaxrsAnnotations.CLASS_ANNOTATIONS);
+    int annotatedCount = 0;
+    for (String className : classNames) {
+      assertTrue(index.isIndexed(className), className);
+      CtClass ctClass = classPool.get(className);
+      for (String annotationTypeName : JaxrsAnnotations.CLASS_ANNOTATIONS) {
+        AnnotationDescriptor expected = CtClassUtils.findAnnotation(ctClass, annotationTypeName, SUPPORT_PACKAGES,
+                                                                    null);
+        assertEquals(index.getAnnotation(className, annotationTypeName), expected,
+                     className + " " + annotationTypeName);
+        if (expected != null) {
+          annotatedCount++;
+        }
+      }
+    }
+    assertTrue(annotatedCount > 0);
+  }
+
+  @Test
+  public void mustInheritAnnotationsOfSuperclassesAndTheirInterfaces() {
+    TypeHierarchyIndex index = TypeHierarchyIndex.build(
+        new ClassPool(true), Arrays.asList(SubclassWithPathAnnotationInSuperclass.class.getName(),
+                                           SubclassWithPathAnnotationInSuperclassesInterface.class.getName()),
+        SUPPORT_PACKAGES, JaxrsAnnotations.CLASS_ANNOTATIONS);
+
+    AnnotationDescriptor path = index.getAnnotation(SubclassWithPathAnnotationInSuperclass.class.getName(),
+                                                    JaxrsAnnotations.PATH);
+    assertEquals(path.getStringValue("value"), BaseClassWithPathAnnotation.BASE_URI);
+    assertEquals(path.getAnnotatedClassName(), BaseClassWithPathAnnotation.class.getName());
+    assertEquals(index.getAnnotation(SubclassWithPathAnnotationInSuperclass.class.getName(), JaxrsAnnotations.PRODUCES)
+                      .getStringArrayValue("value"), new String[]{"application/json"});
+    assertEquals(index.getAnnotation(SubclassWithPathAnnotationInSuperclassesInterface.class.getName(),
+                                     JaxrsAnnotations.PATH).getStringValue("value"), InterfaceOnSuperclass.BASE_URI);
+    assertEquals(index.getSupertypes(SubclassWithPathAnnotationInSuperclassesInterface.class.getName()),
+                 new TreeSet<>(Arrays.asList(
+                     "com.github.krr.springmvc.support.beans.BaseClassWithPathAnnotationInInterface",
+                     InterfaceOnSuperclass.class.getName())));
+    // the supertypes are indexed too
+    assertEquals(index.size(), 5);
+  }
+
+  @Test
+  public void mustSearchOwnInterfacesWhenSuperclassHasNoAnnotation() throws Exception {
+    Path classesDir = Files.createTempDirectory("hierarchy");
+    try {
+      ClassPool classPool = new ClassPool(true);
+      CtClass subclass = classPool.makeClass("com.github.krr.springmvc.support.beans.SubclassWithInterface",
+                                             classPool.get(ClassWithNoJaxrsAnnotationsAndNoInterfaces.class.getName()));
+      subclass.addInterface(classPool.get(InterfaceOnSuperclass.class.getName()));
+      subclass.writeFile(classesDir.toString());
+      classPool.insertClassPath(classesDir.toString());
+
+      TypeHierarchyIndex index = TypeHierarchyIndex.build(classPool, singletonList(subclass.getName()),
+                                                          SUPPORT_PACKAGES, JaxrsAnnotations.CLASS_ANNOTATIONS);
+      AnnotationDescriptor path = index.getAnnotation(subclass.getName(), JaxrsAnnotations.PATH);
+      assertEquals(path.getAnnotatedClassName(), InterfaceOnSuperclass.class.getName());
+      assertEquals(CtClassUtils.findAnnotation(subclass, JaxrsAnnotations.PATH, SUPPORT_PACKAGES, null), path);
+    }
+    finally {
+      FileSystemUtils.deleteRecursively(classesDir);
+    }
+  }
+
+  @Test
+  public void mustNotIndexClassesWithMissingSupertypes() throws Exception {
+    Path classesDir = Files.createTempDirectory("hierarchy");
+    try {
+      ClassPool classPool = new ClassPool(true);
+      CtClass missingInterface = classPool.makeInterface("com.github.krr.springmvc.support.api.MissingInterface");
+      CtClass subclass = classPool.makeClass("com.github.krr.springmvc.support.beans.ClassWithMissingInterface");
+      subclass.addInterface(missingInterface);
+      subclass.writeFile(classesDir.toString());
+
+      ClassPool inputClassPool = new ClassPool(true);
+      inputClassPool.insertClassPath(classesDir.toString());
+      TypeHierarchyIndex index = TypeHierarchyIndex.build(inputClassPool, singletonList(subclass.getName()),
+                                                          SUPPORT_PACKAGES, JaxrsAnnotations.CLASS_ANNOTATIONS);
+      assertFalse(index.isIndexed(subclass.getName()));
+      assertFalse(index.isIndexed(missingInterface.getName()));
+      assertThrows(IllegalArgumentException.class, () -> index.getAnnotation(subclass.getName(),
+                                                                             JaxrsAnnotations.PATH));
+    }
+    finally {
+      FileSystemUtils.deleteRecursively(classesDir);
+    }
+  }
+
+  @Test
+  public void mustReadDeclaredAnnotationsLikeJavassist() throws Exception {
+    ClassPool classPool = new ClassPool(true);
+    for (String className : listSupportClasses()) {
+      CtClass ctClass = classPool.get(className);
+      List<AnnotationDescriptor> expected = Arrays.stream(CtClassUtils.readDeclaredAnnotations(ctClass))
+                                                  .map(annotation -> AnnotationDescriptor.of(className, annotation))
+                                                  .collect(toList());
+      assertEquals(ClassFileHeader.read(ctClass.toBytecode()).readDeclaredAnnotations(), expected, className);
+    }
+  }
+
+  private static List<String> listSupportClasses() throws Exception {
+    Path classesDir = Paths.get(InterfaceOnSuperclass.class.getProtectionDomain().getCodeSource().getLocation()
+                                                           .toURI());
+    try (Stream<Path> files = Files.walk(classesDir.resolve("com/github/krr/springmvc/support"))) {
+      return files.filter(file -> file.toString().endsWith(".class"))
+                  .map(file -> classesDir.relativize(file).toString().replace(".class", "").replace('/', '.'))
+                  .sorted()
+                  .collect(toList());
+    }
+  }
+}